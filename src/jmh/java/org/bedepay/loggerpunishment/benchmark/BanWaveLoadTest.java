@@ -0,0 +1,424 @@
+package org.bedepay.loggerpunishment.benchmark;
+
+import org.bedepay.loggerpunishment.LoggerPunishment;
+import org.bedepay.loggerpunishment.cache.CacheProvider;
+import org.bedepay.loggerpunishment.cache.LocalCacheProvider;
+import org.bedepay.loggerpunishment.database.DatabaseManager;
+import org.bedepay.loggerpunishment.discord.DiscordManager;
+import org.bedepay.loggerpunishment.discord.ForumManager;
+import org.bedepay.loggerpunishment.model.OutboxEntry;
+import org.bedepay.loggerpunishment.model.PunishmentType;
+import org.bedepay.loggerpunishment.model.UnbanType;
+import org.bedepay.loggerpunishment.service.PunishmentService;
+import org.bukkit.Server;
+import org.mockito.Mockito;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Нагрузочный прогон волны наказаний без сервера.
+ * Синтетические события LiteBans (бан, мут, кик) и CMI (тюрьма) подаются в PunishmentService
+ * с заданной частотой, часть наказаний затем снимается. Задержка считается от запланированного
+ * момента события до фиксации в БД, поэтому отставание генератора тоже попадает в результат.
+ * <p>
+ * Запуск: {@code ./gradlew loadTest --args="--events=1000 --seconds=10 --mix=ban:50,mute:30,kick:15,jail:5
+ * --unbans=0.1 --database=sqlite"}. Для {@code --database=mysql} без {@code --mysql-host}
+ * поднимается контейнер MySQL (нужен Docker). С {@code --discord=fake} наказания доставляются настоящим JDA
+ * в {@link FakeDiscordServer}, и в отчет добавляется время до опустошения исходящей очереди.
+ */
+public final class BanWaveLoadTest {
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 100;
+    private static final long OUTBOX_SAMPLE_INTERVAL_MILLIS = 500;
+    private static final long DISCORD_CONNECT_TIMEOUT_SECONDS = 60;
+
+    private final Options options;
+    private final Random random = new Random(42);
+
+    private DatabaseManager databaseManager;
+    private DiscordManager discordManager;
+    private PunishmentService punishmentService;
+    private final AtomicReference<ForumManager> forumManager = new AtomicReference<>();
+
+    // Показатели, собираемые во время прогона
+    private volatile int maxPoolWaiting;
+    private long poolWaitingSum;
+    private long poolSamples;
+    private volatile int maxOutboxPending;
+    private volatile int maxDispatcherQueued;
+
+    private BanWaveLoadTest(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new BanWaveLoadTest(Options.parse(args)).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        Path dataFolder = Files.createTempDirectory("loggerpunishment-loadtest");
+        MySQLContainer<?> mysql = null;
+        FakeDiscordServer discord = null;
+
+        try {
+            Map<String, Object> overrides = new HashMap<>();
+            if ("mysql".equals(options.database)) {
+                if (options.mysqlHost == null) {
+                    mysql = new MySQLContainer<>("mysql:8.0");
+                    mysql.start();
+                    overrides.put("database.mysql.host", mysql.getHost());
+                    overrides.put("database.mysql.port", mysql.getFirstMappedPort());
+                    overrides.put("database.mysql.database", mysql.getDatabaseName());
+                    overrides.put("database.mysql.username", mysql.getUsername());
+                    overrides.put("database.mysql.password", mysql.getPassword());
+                } else {
+                    overrides.put("database.mysql.host", options.mysqlHost);
+                    overrides.put("database.mysql.port", options.mysqlPort);
+                    overrides.put("database.mysql.database", options.mysqlDatabase);
+                    overrides.put("database.mysql.username", options.mysqlUser);
+                    overrides.put("database.mysql.password", options.mysqlPassword);
+                }
+                overrides.put("database.type", "mysql");
+            }
+            if ("fake".equals(options.discord)) {
+                discord = new FakeDiscordServer(options.discordLatency, options.discordJitter, options.rateLimits);
+                discord.start();
+                overrides.put("discord.token", "fake-token");
+                overrides.put("discord.api_url", discord.getApiUrl());
+                overrides.put("discord.gateway_url", discord.getGatewayUrl());
+                overrides.put("discord.guild_id", discord.getGuildId());
+                overrides.put("discord.channels.players_forum", discord.getPlayersForumId());
+                overrides.put("discord.channels.moderators_forum", discord.getModeratorsForumId());
+                overrides.put("discord.channels.log_channel", discord.getLogChannelId());
+            }
+
+            LoggerPunishment plugin = BenchmarkFixtures.createPlugin(dataFolder, overrides);
+
+            databaseManager = new DatabaseManager(plugin);
+            when(plugin.getDatabaseManager()).thenReturn(databaseManager);
+            databaseManager.initialize();
+
+            CacheProvider cacheProvider = new LocalCacheProvider(plugin);
+            when(plugin.getCacheProvider()).thenReturn(cacheProvider);
+
+            if (discord != null) {
+                // Настоящий JDA против заглушки: доставка идет через исходящую очередь, как на сервере
+                discordManager = new DiscordManager(plugin);
+                when(plugin.getServer()).thenReturn(Mockito.mock(Server.class, Mockito.RETURNS_DEEP_STUBS));
+                when(plugin.getForumManager()).thenAnswer(invocation -> forumManager.get());
+                doAnswer(invocation -> {
+                    forumManager.set(new ForumManager(plugin, invocation.getArgument(0)));
+                    return null;
+                }).when(plugin).onDiscordReady(any());
+            } else {
+                // Discord заглушен: бот не готов, наказания остаются в исходящей очереди
+                discordManager = Mockito.mock(DiscordManager.class);
+            }
+            when(plugin.getDiscordManager()).thenReturn(discordManager);
+
+            punishmentService = new PunishmentService(plugin);
+            if (discord != null) {
+                punishmentService.start();
+                connectDiscord();
+            }
+
+            Result result = runWave();
+            report(result);
+            if (discord != null) {
+                System.out.println(discordManager.getDispatcher().getStats());
+                System.out.println(discord.getStats());
+            }
+
+            punishmentService.shutdown();
+            if (forumManager.get() != null) {
+                forumManager.get().shutdown();
+            }
+            if (discord != null) {
+                discordManager.shutdown();
+            }
+            cacheProvider.shutdown();
+            databaseManager.shutdown();
+        } finally {
+            if (discord != null) {
+                discord.close();
+            }
+            if (mysql != null) {
+                mysql.stop();
+            }
+            BenchmarkFixtures.deleteRecursively(dataFolder);
+        }
+    }
+
+    /**
+     * Запустить бота и дождаться создания ForumManager
+     */
+    private void connectDiscord() throws InterruptedException {
+        discordManager.initialize();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DISCORD_CONNECT_TIMEOUT_SECONDS);
+        while (forumManager.get() == null) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Бот не подключился к заглушке Discord за " + DISCORD_CONNECT_TIMEOUT_SECONDS + " с");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * Подать события с равным интервалом и дождаться их обработки
+     */
+    private Result runWave() {
+        List<UUID> players = uuids(options.players);
+        List<UUID> moderators = uuids(options.moderators);
+        // Снимаются только наказания, которые уже зафиксированы в БД
+        Queue<String> issued = new ConcurrentLinkedQueue<>();
+
+        int unbans = (int) Math.round(options.events * options.unbanRatio);
+        int total = options.events + unbans;
+        int punishmentsLeft = options.events;
+        int unbansLeft = unbans;
+        long[] latencies = new long[total];
+        List<CompletableFuture<?>> completions = new ArrayList<>(total);
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(this::samplePool, 0, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        sampler.scheduleAtFixedRate(this::sampleOutbox, 0, OUTBOX_SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(options.seconds) / Math.max(1, total);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < total; i++) {
+            long scheduledAt = start + i * intervalNanos;
+            long delay = scheduledAt - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+
+            CompletableFuture<Void> event;
+            String revocable = null;
+            boolean unban = unbansLeft > 0 && !issued.isEmpty()
+                    && (punishmentsLeft <= 0 || random.nextInt(punishmentsLeft + unbansLeft) < unbansLeft);
+            if (unban) {
+                unbansLeft--;
+                UUID moderator = moderators.get(random.nextInt(moderators.size()));
+                event = punishmentService.processUnban(issued.poll(), moderator, "Moderator", "Снято по апелляции", UnbanType.MANUAL);
+            } else {
+                punishmentsLeft--;
+                PunishmentType type = options.pickType(random);
+                String punishmentId = "load-" + i;
+                UUID player = players.get(random.nextInt(players.size()));
+                UUID moderator = moderators.get(random.nextInt(moderators.size()));
+                event = punishmentService.processPunishment(type, player, "Player_" + player.toString().substring(0, 8),
+                        moderator, "Moderator", "Нагрузочный тест", duration(type), punishmentId);
+                if (type.canBeRevoked()) {
+                    revocable = punishmentId;
+                }
+            }
+
+            int index = i;
+            String completedId = revocable;
+            completions.add(event.whenComplete((value, error) -> {
+                latencies[index] = System.nanoTime() - scheduledAt;
+                if (completedId != null) {
+                    issued.add(completedId);
+                }
+            }));
+        }
+        long submittedAt = System.nanoTime();
+        CompletableFuture.allOf(completions.toArray(new CompletableFuture<?>[0])).orTimeout(5, TimeUnit.MINUTES).join();
+        long finishedAt = System.nanoTime();
+        long deliveredAt = "fake".equals(options.discord) ? awaitDelivery() : 0;
+
+        sampler.shutdownNow();
+        sampleOutbox();
+        return new Result(total, latencies, submittedAt - start, finishedAt - start, deliveredAt > 0 ? deliveredAt - start : -1);
+    }
+
+    /**
+     * Длительность наказания в секундах (null - навсегда), как после конвертации из LiteBans
+     */
+    private Long duration(PunishmentType type) {
+        switch (type) {
+            case BAN:
+                return random.nextBoolean() ? null : TimeUnit.HOURS.toSeconds(1 + random.nextInt(24 * 30));
+            case MUTE:
+                return TimeUnit.MINUTES.toSeconds(10 + random.nextInt(60 * 24 * 7));
+            case JAIL:
+                return TimeUnit.MINUTES.toSeconds(5 + random.nextInt(60 * 24));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Дождаться, пока исходящая очередь опустеет. Возвращает момент окончания или 0 по таймауту.
+     */
+    private long awaitDelivery() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.drainSeconds);
+        while (System.nanoTime() < deadline) {
+            Map<String, Integer> counts = databaseManager.getOutboxStatusCounts();
+            if (counts.getOrDefault(OutboxEntry.STATUS_PENDING, 0) + counts.getOrDefault(OutboxEntry.STATUS_PROCESSING, 0) == 0) {
+                return System.nanoTime();
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(OUTBOX_SAMPLE_INTERVAL_MILLIS));
+        }
+        return 0;
+    }
+
+    private void samplePool() {
+        int waiting = databaseManager.getThreadsAwaitingConnection();
+        synchronized (this) {
+            poolWaitingSum += waiting;
+            poolSamples++;
+        }
+        maxPoolWaiting = Math.max(maxPoolWaiting, waiting);
+        maxDispatcherQueued = Math.max(maxDispatcherQueued, discordManager.getDispatcher() != null
+                ? discordManager.getDispatcher().getQueuedRequests() : 0);
+    }
+
+    private void sampleOutbox() {
+        int pending = databaseManager.getOutboxStatusCounts().getOrDefault(OutboxEntry.STATUS_PENDING, 0);
+        maxOutboxPending = Math.max(maxOutboxPending, pending);
+    }
+
+    private void report(Result result) {
+        long[] sorted = result.latencies.clone();
+        Arrays.sort(sorted);
+
+        double seconds = result.finishedNanos / 1_000_000_000.0;
+        System.out.println();
+        System.out.printf("=== Волна наказаний: %d событий за %d с, БД %s ===%n", result.events, options.seconds, options.database);
+        System.out.printf("Подача событий заняла: %.2f с, обработка завершена через %.2f с%n",
+                result.submittedNanos / 1_000_000_000.0, seconds);
+        System.out.printf("Пропускная способность: %.1f событий/с%n", result.events / seconds);
+        System.out.printf("Задержка до фиксации (мс): p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1_000_000.0);
+        synchronized (this) {
+            System.out.printf("Ожидание соединений БД: max %d, среднее %.2f%n",
+                    maxPoolWaiting, poolSamples > 0 ? (double) poolWaitingSum / poolSamples : 0);
+        }
+        System.out.printf("Очередь Discord (PENDING в discord_queue): max %d%n", maxOutboxPending);
+        if (result.deliveredNanos >= 0) {
+            System.out.printf("Доставка в Discord завершена через %.2f с, запросов в очереди диспетчера: max %d%n",
+                    result.deliveredNanos / 1_000_000_000.0, maxDispatcherQueued);
+        } else if ("fake".equals(options.discord)) {
+            System.out.printf("Доставка в Discord не завершилась за %d с, запросов в очереди диспетчера: max %d%n",
+                    options.drainSeconds, maxDispatcherQueued);
+        }
+        System.out.println(databaseManager.getBatchWriter().getStats());
+        System.out.println(punishmentService.getServiceStats());
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+
+    private static List<UUID> uuids(int count) {
+        List<UUID> uuids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            uuids.add(UUID.randomUUID());
+        }
+        return uuids;
+    }
+
+    private record Result(int events, long[] latencies, long submittedNanos, long finishedNanos, long deliveredNanos) {
+    }
+
+    /**
+     * Параметры прогона из аргументов вида --name=value
+     */
+    private static final class Options {
+        private int events = 1000;
+        private int seconds = 10;
+        private double unbanRatio = 0.1;
+        private int players = 200;
+        private int moderators = 10;
+        private String database = "sqlite";
+        private String mysqlHost;
+        private int mysqlPort = 3306;
+        private String mysqlDatabase = "minecraft";
+        private String mysqlUser = "root";
+        private String mysqlPassword = "";
+        private String discord = "stub";
+        private long discordLatency = 50;
+        private long discordJitter = 30;
+        private boolean rateLimits = true;
+        private int drainSeconds = 120;
+        private final Map<PunishmentType, Integer> mix = new LinkedHashMap<>();
+        private int mixTotal;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            String mix = "ban:50,mute:30,kick:15,jail:5";
+
+            for (String arg : args) {
+                String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+                String value = pair.length > 1 ? pair[1] : "";
+                switch (pair[0]) {
+                    case "events" -> options.events = Integer.parseInt(value);
+                    case "seconds" -> options.seconds = Integer.parseInt(value);
+                    case "unbans" -> options.unbanRatio = Double.parseDouble(value);
+                    case "players" -> options.players = Integer.parseInt(value);
+                    case "moderators" -> options.moderators = Integer.parseInt(value);
+                    case "mix" -> mix = value;
+                    case "database" -> options.database = value.toLowerCase();
+                    case "mysql-host" -> options.mysqlHost = value;
+                    case "mysql-port" -> options.mysqlPort = Integer.parseInt(value);
+                    case "mysql-database" -> options.mysqlDatabase = value;
+                    case "mysql-user" -> options.mysqlUser = value;
+                    case "mysql-password" -> options.mysqlPassword = value;
+                    case "discord" -> options.discord = value.toLowerCase();
+                    case "discord-latency" -> options.discordLatency = Long.parseLong(value);
+                    case "discord-jitter" -> options.discordJitter = Long.parseLong(value);
+                    case "rate-limits" -> options.rateLimits = Boolean.parseBoolean(value);
+                    case "drain-seconds" -> options.drainSeconds = Integer.parseInt(value);
+                    default -> throw new IllegalArgumentException("Неизвестный параметр: " + arg);
+                }
+            }
+
+            for (String part : mix.split(",")) {
+                String[] weight = part.split(":");
+                PunishmentType type = PunishmentType.valueOf(weight[0].trim().toUpperCase());
+                int share = Integer.parseInt(weight[1].trim());
+                options.mix.put(type, share);
+                options.mixTotal += share;
+            }
+            return options;
+        }
+
+        PunishmentType pickType(Random random) {
+            int roll = random.nextInt(mixTotal);
+            for (Map.Entry<PunishmentType, Integer> entry : mix.entrySet()) {
+                roll -= entry.getValue();
+                if (roll < 0) {
+                    return entry.getKey();
+                }
+            }
+            return PunishmentType.BAN;
+        }
+    }
+}
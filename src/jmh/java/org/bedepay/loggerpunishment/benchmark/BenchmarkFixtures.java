@@ -0,0 +1,105 @@
+package org.bedepay.loggerpunishment.benchmark;
+
+import org.bedepay.loggerpunishment.LoggerPunishment;
+import org.bedepay.loggerpunishment.config.ConfigManager;
+import org.bedepay.loggerpunishment.model.PunishmentData;
+import org.bedepay.loggerpunishment.model.PunishmentType;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Общие заготовки для бенчмарков: плагин без сервера с настоящей конфигурацией
+ * из config.yml во временной папке и типовые наказания.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Мок плагина: логгер выключен, config.yml и скрипты миграций берутся из ресурсов
+     */
+    static LoggerPunishment createPlugin(Path dataFolder) throws IOException {
+        return createPlugin(dataFolder, Map.of());
+    }
+
+    /**
+     * Мок плагина с переопределенными значениями config.yml (путь через точку, например database.type)
+     */
+    static LoggerPunishment createPlugin(Path dataFolder, Map<String, Object> overrides) throws IOException {
+        Files.createDirectories(dataFolder);
+        Path configFile = dataFolder.resolve("config.yml");
+        try (InputStream config = resource("config.yml")) {
+            Files.copy(config, configFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (!overrides.isEmpty()) {
+            YamlConfiguration yaml = YamlConfiguration.loadConfiguration(configFile.toFile());
+            overrides.forEach(yaml::set);
+            yaml.save(configFile.toFile());
+        }
+
+        Logger logger = Logger.getLogger("LoggerPunishment-Benchmark");
+        logger.setLevel(Level.OFF);
+
+        LoggerPunishment plugin = Mockito.mock(LoggerPunishment.class);
+        when(plugin.getLogger()).thenReturn(logger);
+        when(plugin.getDataFolder()).thenReturn(dataFolder.toFile());
+        when(plugin.getResource(anyString())).thenAnswer(invocation -> resource(invocation.getArgument(0)));
+
+        ConfigManager configManager = new ConfigManager(plugin);
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        return plugin;
+    }
+
+    private static InputStream resource(String name) {
+        return BenchmarkFixtures.class.getClassLoader().getResourceAsStream(name);
+    }
+
+    /**
+     * Временный бан с модератором и ID, как от LiteBans
+     */
+    static PunishmentData samplePunishment(String punishmentId) {
+        PunishmentData punishment = new PunishmentData(PunishmentType.BAN, UUID.randomUUID(), "Player_" + punishmentId,
+                UUID.randomUUID(), "Moderator", "Использование читов (киллаура), повторное нарушение");
+        punishment.setDuration(7L * 24 * 60 * 60);
+        punishment.setPunishmentId(punishmentId);
+        punishment.setCreatedAt(Instant.now());
+        return punishment;
+    }
+
+    static void deleteRecursively(Path directory) {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
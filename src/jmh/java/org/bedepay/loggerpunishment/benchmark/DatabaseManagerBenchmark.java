@@ -0,0 +1,90 @@
+package org.bedepay.loggerpunishment.benchmark;
+
+import org.bedepay.loggerpunishment.LoggerPunishment;
+import org.bedepay.loggerpunishment.database.DatabaseManager;
+import org.bedepay.loggerpunishment.database.SchemaMigrator;
+import org.bedepay.loggerpunishment.model.PunishmentData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DatabaseManager: повторный запуск миграций на актуальной схеме (теплый старт без DDL)
+ * и преобразование строки punishment_logs. Метод репозитория наказаний доступен только в пакете
+ * database и вызывается через MethodHandle, чтобы не открывать его в основном коде.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DatabaseManagerBenchmark {
+
+    private Path dataFolder;
+    private DatabaseManager databaseManager;
+    private SchemaMigrator schemaMigrator;
+    private MethodHandle mapResultSetToPunishment;
+
+    private Connection connection;
+    private Statement statement;
+    private ResultSet row;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        dataFolder = Files.createTempDirectory("loggerpunishment-jmh-database");
+        LoggerPunishment plugin = BenchmarkFixtures.createPlugin(dataFolder);
+
+        databaseManager = new DatabaseManager(plugin);
+        databaseManager.initialize();
+        databaseManager.savePunishment(BenchmarkFixtures.samplePunishment("12345"));
+        schemaMigrator = new SchemaMigrator(plugin, databaseManager);
+
+        Class<?> repositoryClass = Class.forName("org.bedepay.loggerpunishment.database.PunishmentRepository");
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(DatabaseManager.class, MethodHandles.lookup());
+        Object punishments = lookup.findVirtual(DatabaseManager.class, "punishments",
+                MethodType.methodType(repositoryClass)).invoke(databaseManager);
+        mapResultSetToPunishment = lookup.findVirtual(repositoryClass, "map",
+                MethodType.methodType(PunishmentData.class, ResultSet.class)).bindTo(punishments);
+
+        // Одна строка, которая преобразуется повторно
+        connection = databaseManager.getConnection();
+        statement = connection.createStatement();
+        row = statement.executeQuery("SELECT * FROM punishment_logs LIMIT 1");
+        if (!row.next()) {
+            throw new IllegalStateException("Тестовое наказание не сохранено");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        row.close();
+        statement.close();
+        connection.close();
+        databaseManager.shutdown();
+        BenchmarkFixtures.deleteRecursively(dataFolder);
+    }
+
+    @Benchmark
+    public int migrateUpToDate() throws Exception {
+        return schemaMigrator.migrate();
+    }
+
+    @Benchmark
+    public Object mapResultSetToPunishment() throws Throwable {
+        return (PunishmentData) mapResultSetToPunishment.invoke(row);
+    }
+}
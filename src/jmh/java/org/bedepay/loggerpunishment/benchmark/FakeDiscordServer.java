@@ -0,0 +1,827 @@
+package org.bedepay.loggerpunishment.benchmark;
+
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.ByteString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Локальная заглушка Discord для нагрузочных тестов: REST API и шлюз в одном процессе.
+ * <p>
+ * Поддерживаются запросы, которые делает плагин: создание поста в форуме, отправка, правка,
+ * удаление и массовое удаление сообщений, чтение истории. Ответы приходят с задержкой
+ * и заголовками X-RateLimit-*, при превышении лимита корзины или глобального лимита -
+ * 429 с Retry-After, как у Discord. Шлюз отдает одну гильдию с двумя форумами и лог-каналом
+ * и рассылает события о созданных ветках и сообщениях (сжатие zlib-stream, как по умолчанию в JDA).
+ * <p>
+ * JDA направляется сюда через discord.api_url и discord.gateway_url.
+ */
+final class FakeDiscordServer implements AutoCloseable {
+
+    private static final String API_PREFIX = "/api/v10/";
+    private static final long DISCORD_EPOCH = 1420070400000L;
+
+    // Лимиты Discord: сообщения - 5 за 5 секунд на канал, массовое удаление - 1 в секунду
+    private static final RateLimit MESSAGE_LIMIT = new RateLimit(5, 5000);
+    private static final RateLimit DELETE_LIMIT = new RateLimit(5, 1000);
+    private static final RateLimit BULK_DELETE_LIMIT = new RateLimit(1, 1000);
+    private static final RateLimit GLOBAL_LIMIT = new RateLimit(50, 1000);
+
+    private final MockWebServer server = new MockWebServer();
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final boolean rateLimits;
+
+    private final AtomicLong snowflakeSequence = new AtomicLong();
+    private final long guildId;
+    private final long botUserId;
+    private final long playersForumId;
+    private final long moderatorsForumId;
+    private final long logChannelId;
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Bucket globalBucket = new Bucket("global", GLOBAL_LIMIT);
+    private final List<GatewaySession> sessions = new CopyOnWriteArrayList<>();
+
+    // Статистика
+    private final Map<String, LongAdder> requestsByRoute = new ConcurrentHashMap<>();
+    private final LongAdder rateLimitedRequests = new LongAdder();
+    private final LongAdder globalRateLimitedRequests = new LongAdder();
+    private final LongAdder gatewayEvents = new LongAdder();
+
+    /**
+     * @param latencyMillis задержка ответа REST
+     * @param jitterMillis случайная добавка к задержке (0..jitter)
+     * @param rateLimits отвечать 429 при превышении лимитов
+     */
+    FakeDiscordServer(long latencyMillis, long jitterMillis, boolean rateLimits) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.rateLimits = rateLimits;
+
+        this.guildId = nextSnowflake();
+        this.botUserId = nextSnowflake();
+        this.playersForumId = nextSnowflake();
+        this.moderatorsForumId = nextSnowflake();
+        this.logChannelId = nextSnowflake();
+
+        channels.put(playersForumId, new Channel(playersForumId, 15, "наказания-игроков", 0));
+        channels.put(moderatorsForumId, new Channel(moderatorsForumId, 15, "действия-модераторов", 0));
+        channels.put(logChannelId, new Channel(logChannelId, 0, "лог-наказаний", 0));
+    }
+
+    void start() throws IOException {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                // MockWebServer хранит все запросы, при долгом прогоне очередь не должна расти
+                try {
+                    server.takeRequest(0, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return handle(request);
+            }
+        });
+        server.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (GatewaySession session : sessions) {
+            session.close();
+        }
+        server.shutdown();
+    }
+
+    // ==================== АДРЕСА И ИДЕНТИФИКАТОРЫ ====================
+
+    String getApiUrl() {
+        return server.url(API_PREFIX).toString();
+    }
+
+    String getGatewayUrl() {
+        return "ws://" + server.getHostName() + ":" + server.getPort() + "/";
+    }
+
+    long getGuildId() {
+        return guildId;
+    }
+
+    long getPlayersForumId() {
+        return playersForumId;
+    }
+
+    long getModeratorsForumId() {
+        return moderatorsForumId;
+    }
+
+    long getLogChannelId() {
+        return logChannelId;
+    }
+
+    /**
+     * Сообщение пользователя (не бота) в канале или ветке - для проверки очистки
+     */
+    long postUserMessage(long channelId, long authorId, String content) {
+        Channel channel = channels.get(channelId);
+        if (channel == null) {
+            throw new IllegalArgumentException("Неизвестный канал: " + channelId);
+        }
+
+        DataObject author = user(authorId, "user-" + authorId, false);
+        DataObject message = message(nextSnowflake(), channel, author, DataObject.empty().put("content", content));
+        channel.messages.put(message.getLong("id"), message);
+        dispatch("MESSAGE_CREATE", withMember(message, author));
+        return message.getLong("id");
+    }
+
+    int getMessageCount(long channelId) {
+        Channel channel = channels.get(channelId);
+        return channel != null ? channel.messages.size() : 0;
+    }
+
+    // ==================== REST ====================
+
+    private MockResponse handle(RecordedRequest request) {
+        if ("websocket".equalsIgnoreCase(request.getHeader("Upgrade"))) {
+            GatewaySession session = new GatewaySession();
+            sessions.add(session);
+            return new MockResponse().withWebSocketUpgrade(session);
+        }
+
+        String path = request.getRequestUrl().encodedPath();
+        String route = path.startsWith(API_PREFIX) ? path.substring(API_PREFIX.length()) : path.substring(1);
+        String[] parts = route.split("/");
+        String method = request.getMethod();
+
+        String template = method + " " + template(parts);
+        requestsByRoute.computeIfAbsent(template, key -> new LongAdder()).increment();
+
+        MockResponse response;
+        Bucket bucket = null;
+        if (rateLimits && isRateLimited(parts)) {
+            if (!globalBucket.tryAcquire()) {
+                globalRateLimitedRequests.increment();
+                return delayed(rateLimited(globalBucket, true));
+            }
+
+            String major = parts.length > 1 ? parts[1] : "";
+            bucket = buckets.computeIfAbsent(template + " " + major, key -> new Bucket(Integer.toHexString(template.hashCode()), limitFor(method, parts)));
+            if (!bucket.tryAcquire()) {
+                rateLimitedRequests.increment();
+                return delayed(rateLimited(bucket, false));
+            }
+        }
+
+        try {
+            response = route(method, parts, request);
+        } catch (RuntimeException e) {
+            response = error(400, 50035, "Invalid Form Body: " + e.getMessage());
+        }
+
+        if (bucket != null) {
+            bucket.applyHeaders(response);
+        }
+        return delayed(response);
+    }
+
+    private MockResponse route(String method, String[] parts, RecordedRequest request) {
+        if (parts.length == 2 && parts[0].equals("users") && parts[1].equals("@me") && method.equals("GET")) {
+            return json(selfUser());
+        }
+
+        if (parts[0].equals("gateway")) {
+            return json(DataObject.empty()
+                    .put("url", getGatewayUrl())
+                    .put("shards", 1)
+                    .put("session_start_limit", DataObject.empty()
+                            .put("total", 1000).put("remaining", 1000).put("reset_after", 0).put("max_concurrency", 1)));
+        }
+
+        if (parts[0].equals("channels") && parts.length >= 2) {
+            Channel channel = channels.get(Long.parseLong(parts[1]));
+            if (channel == null) {
+                return error(404, 10003, "Unknown Channel");
+            }
+
+            if (parts.length == 2 && method.equals("GET")) {
+                return json(channel.toJson());
+            }
+            if (parts.length == 3 && parts[2].equals("threads") && method.equals("POST")) {
+                return createForumPost(channel, body(request));
+            }
+            if (parts.length == 3 && parts[2].equals("messages")) {
+                return method.equals("POST") ? sendMessage(channel, body(request)) : history(channel, request);
+            }
+            if (parts.length == 4 && parts[3].equals("bulk-delete") && method.equals("POST")) {
+                return bulkDelete(channel, body(request));
+            }
+            if (parts.length == 4 && parts[2].equals("messages")) {
+                long messageId = Long.parseLong(parts[3]);
+                switch (method) {
+                    case "GET":
+                        DataObject message = channel.messages.get(messageId);
+                        return message != null ? json(message) : error(404, 10008, "Unknown Message");
+                    case "PATCH":
+                        return editMessage(channel, messageId, body(request));
+                    case "DELETE":
+                        return deleteMessage(channel, messageId);
+                    default:
+                        break;
+                }
+            }
+        }
+
+        if (parts[0].equals("guilds") && parts.length >= 3) {
+            if (parts[2].equals("threads") && method.equals("GET")) {
+                DataArray threads = DataArray.empty();
+                channels.values().stream().filter(Channel::isThread).forEach(thread -> threads.add(thread.toJson()));
+                return json(DataObject.empty().put("threads", threads).put("members", DataArray.empty()));
+            }
+            if (parts[2].equals("members") && parts.length == 4 && parts[3].equals(Long.toString(botUserId))) {
+                return json(selfMember());
+            }
+        }
+
+        return error(404, 0, "404: Not Found");
+    }
+
+    private MockResponse createForumPost(Channel forum, DataObject body) {
+        long threadId = nextSnowflake();
+        Channel thread = new Channel(threadId, 11, body.getString("name"), forum.id);
+        channels.put(threadId, thread);
+
+        // Первое сообщение поста имеет тот же ID, что и ветка
+        DataObject message = message(threadId, thread, selfUser(), body.getObject("message"));
+        thread.messages.put(threadId, message);
+
+        dispatch("THREAD_CREATE", thread.toJson().put("newly_created", true));
+        dispatch("MESSAGE_CREATE", message);
+        return json(thread.toJson().put("message", message));
+    }
+
+    private MockResponse sendMessage(Channel channel, DataObject body) {
+        DataObject message = message(nextSnowflake(), channel, selfUser(), body);
+        channel.messages.put(message.getLong("id"), message);
+
+        dispatch("MESSAGE_CREATE", message);
+        return json(message);
+    }
+
+    private MockResponse editMessage(Channel channel, long messageId, DataObject body) {
+        DataObject edited;
+        synchronized (channel) {
+            DataObject message = channel.messages.get(messageId);
+            if (message == null) {
+                return error(404, 10008, "Unknown Message");
+            }
+
+            edited = DataObject.fromJson(message.toString());
+            body.toMap().forEach(edited::put);
+            if (body.hasKey("embeds")) {
+                edited.put("embeds", richEmbeds(body.getArray("embeds")));
+            }
+            edited.put("edited_timestamp", OffsetDateTime.now(ZoneOffset.UTC).toString());
+            channel.messages.put(messageId, edited);
+        }
+
+        dispatch("MESSAGE_UPDATE", edited);
+        return json(edited);
+    }
+
+    private MockResponse deleteMessage(Channel channel, long messageId) {
+        if (channel.messages.remove(messageId) == null) {
+            return error(404, 10008, "Unknown Message");
+        }
+
+        dispatch("MESSAGE_DELETE", DataObject.empty()
+                .put("id", Long.toString(messageId))
+                .put("channel_id", Long.toString(channel.id))
+                .put("guild_id", Long.toString(guildId)));
+        return new MockResponse().setResponseCode(204);
+    }
+
+    private MockResponse bulkDelete(Channel channel, DataObject body) {
+        DataArray ids = body.getArray("messages");
+        if (ids.length() < 2 || ids.length() > 100) {
+            return error(400, 50016, "You must provide at least 2 and fewer than 100 messages to delete.");
+        }
+
+        DataArray deleted = DataArray.empty();
+        for (int i = 0; i < ids.length(); i++) {
+            long messageId = ids.getLong(i);
+            if (channel.messages.remove(messageId) != null) {
+                deleted.add(Long.toString(messageId));
+            }
+        }
+
+        dispatch("MESSAGE_DELETE_BULK", DataObject.empty()
+                .put("ids", deleted)
+                .put("channel_id", Long.toString(channel.id))
+                .put("guild_id", Long.toString(guildId)));
+        return new MockResponse().setResponseCode(204);
+    }
+
+    /**
+     * История канала. Как и Discord, возвращает сообщения от новых к старым.
+     */
+    private MockResponse history(Channel channel, RecordedRequest request) {
+        String limitParam = request.getRequestUrl().queryParameter("limit");
+        String after = request.getRequestUrl().queryParameter("after");
+        String before = request.getRequestUrl().queryParameter("before");
+        int limit = Math.max(1, Math.min(100, limitParam != null ? Integer.parseInt(limitParam) : 50));
+
+        List<DataObject> page = new ArrayList<>(limit);
+        if (after != null) {
+            // Ближайшие limit сообщений после after
+            for (DataObject message : channel.messages.tailMap(Long.parseLong(after), false).values()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.add(0, message);
+            }
+        } else {
+            NavigableMap<Long, DataObject> older = before != null
+                    ? channel.messages.headMap(Long.parseLong(before), false)
+                    : channel.messages;
+            for (DataObject message : older.descendingMap().values()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.add(message);
+            }
+        }
+
+        DataArray array = DataArray.empty();
+        page.forEach(array::add);
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(array.toString());
+    }
+
+    // ==================== ОГРАНИЧЕНИЕ ЧАСТОТЫ ====================
+
+    private static boolean isRateLimited(String[] parts) {
+        return parts[0].equals("channels") || parts[0].equals("guilds");
+    }
+
+    private static RateLimit limitFor(String method, String[] parts) {
+        if (parts.length == 4 && parts[3].equals("bulk-delete")) {
+            return BULK_DELETE_LIMIT;
+        }
+        if (method.equals("DELETE")) {
+            return DELETE_LIMIT;
+        }
+        return MESSAGE_LIMIT;
+    }
+
+    private MockResponse rateLimited(Bucket bucket, boolean global) {
+        double retryAfter = bucket.resetAfterMillis() / 1000.0;
+        MockResponse response = new MockResponse()
+                .setResponseCode(429)
+                .setHeader("Content-Type", "application/json")
+                .setHeader("Retry-After", (long) Math.ceil(retryAfter))
+                .setHeader("X-RateLimit-Scope", global ? "global" : "user")
+                .setBody(DataObject.empty()
+                        .put("message", "You are being rate limited.")
+                        .put("retry_after", retryAfter)
+                        .put("global", global)
+                        .toString());
+        if (global) {
+            response.setHeader("X-RateLimit-Global", "true");
+        } else {
+            bucket.applyHeaders(response);
+        }
+        return response;
+    }
+
+    private record RateLimit(int limit, long windowMillis) {
+    }
+
+    /**
+     * Корзина с фиксированным окном: limit запросов за windowMillis
+     */
+    private static final class Bucket {
+        private final String hash;
+        private final RateLimit rateLimit;
+        private long resetAt;
+        private int remaining;
+
+        Bucket(String hash, RateLimit rateLimit) {
+            this.hash = hash;
+            this.rateLimit = rateLimit;
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = System.currentTimeMillis();
+            if (now >= resetAt) {
+                resetAt = now + rateLimit.windowMillis();
+                remaining = rateLimit.limit();
+            }
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            return true;
+        }
+
+        synchronized long resetAfterMillis() {
+            return Math.max(0, resetAt - System.currentTimeMillis());
+        }
+
+        synchronized void applyHeaders(MockResponse response) {
+            long resetAfter = Math.max(0, resetAt - System.currentTimeMillis());
+            response.setHeader("X-RateLimit-Limit", rateLimit.limit())
+                    .setHeader("X-RateLimit-Remaining", remaining)
+                    .setHeader("X-RateLimit-Reset", String.format(Locale.ROOT, "%.3f", resetAt / 1000.0))
+                    .setHeader("X-RateLimit-Reset-After", String.format(Locale.ROOT, "%.3f", resetAfter / 1000.0))
+                    .setHeader("X-RateLimit-Bucket", hash);
+        }
+    }
+
+    // ==================== ШЛЮЗ ====================
+
+    /**
+     * Разослать событие всем подключенным клиентам
+     */
+    private void dispatch(String type, DataObject data) {
+        for (GatewaySession session : sessions) {
+            session.dispatch(type, data);
+        }
+    }
+
+    /**
+     * Одно подключение к шлюзу: HELLO, IDENTIFY -> READY и GUILD_CREATE, подтверждение heartbeat
+     */
+    private final class GatewaySession extends WebSocketListener {
+        private final Deflater deflater = new Deflater();
+        private final AtomicInteger sequence = new AtomicInteger();
+        private volatile WebSocket webSocket;
+        private volatile boolean identified;
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            this.webSocket = webSocket;
+            send(payload(10, DataObject.empty().put("heartbeat_interval", 41250), null));
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            DataObject payload = DataObject.fromJson(text);
+            switch (payload.getInt("op")) {
+                case 1 -> send(payload(11, null, null));
+                case 2 -> {
+                    identified = true;
+                    dispatch("READY", ready());
+                    dispatch("GUILD_CREATE", guild());
+                }
+                // Возобновление сессии не поддерживается - клиент подключится заново
+                case 6 -> send(payload(9, false, null));
+                case 8 -> dispatch("GUILD_MEMBERS_CHUNK", DataObject.empty()
+                        .put("guild_id", Long.toString(guildId))
+                        .put("members", DataArray.empty().add(selfMember()))
+                        .put("chunk_index", 0)
+                        .put("chunk_count", 1)
+                        .put("not_found", DataArray.empty())
+                        .put("nonce", payload.getObject("d").getString("nonce", "")));
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            sessions.remove(this);
+            webSocket.close(1000, null);
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            sessions.remove(this);
+        }
+
+        void dispatch(String type, DataObject data) {
+            if (identified) {
+                gatewayEvents.increment();
+                send(payload(0, data, type).put("s", sequence.incrementAndGet()));
+            }
+        }
+
+        /**
+         * Отправка с общим для подключения потоком zlib: каждое сообщение заканчивается SYNC_FLUSH
+         */
+        synchronized void send(DataObject payload) {
+            WebSocket socket = webSocket;
+            if (socket == null) {
+                return;
+            }
+
+            deflater.setInput(payload.toString().getBytes(StandardCharsets.UTF_8));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int length;
+            do {
+                length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, length);
+            } while (length == buffer.length);
+            socket.send(ByteString.of(out.toByteArray()));
+        }
+
+        void close() {
+            WebSocket socket = webSocket;
+            if (socket != null) {
+                socket.close(1000, "shutdown");
+            }
+        }
+
+        private DataObject payload(int op, Object data, String type) {
+            DataObject payload = DataObject.empty().put("op", op).putNull("s");
+            payload = type != null ? payload.put("t", type) : payload.putNull("t");
+            return data != null ? payload.put("d", data) : payload.putNull("d");
+        }
+    }
+
+    // ==================== JSON ====================
+
+    private DataObject ready() {
+        return DataObject.empty()
+                .put("v", 10)
+                .put("user", selfUser())
+                .put("guilds", DataArray.empty().add(DataObject.empty().put("id", Long.toString(guildId)).put("unavailable", true)))
+                .put("session_id", "fake-" + Long.toHexString(nextSnowflake()))
+                .put("resume_gateway_url", getGatewayUrl())
+                .put("application", DataObject.empty().put("id", Long.toString(botUserId)).put("flags", 0))
+                .put("private_channels", DataArray.empty())
+                .put("presences", DataArray.empty())
+                .put("relationships", DataArray.empty())
+                .put("_trace", DataArray.empty().add("fake-discord"));
+    }
+
+    private DataObject guild() {
+        DataArray guildChannels = DataArray.empty();
+        DataArray threads = DataArray.empty();
+        for (Channel channel : channels.values()) {
+            (channel.isThread() ? threads : guildChannels).add(channel.toJson());
+        }
+
+        return DataObject.empty()
+                .put("id", Long.toString(guildId))
+                .put("name", "LoggerPunishment Test")
+                .put("owner_id", Long.toString(botUserId))
+                .put("unavailable", false)
+                .put("large", false)
+                .put("member_count", 1)
+                .put("members", DataArray.empty().add(selfMember()))
+                .put("roles", DataArray.empty().add(DataObject.empty()
+                        .put("id", Long.toString(guildId))
+                        .put("name", "@everyone")
+                        .put("color", 0)
+                        .put("hoist", false)
+                        .put("position", 0)
+                        .put("permissions", "8")
+                        .put("managed", false)
+                        .put("mentionable", false)
+                        .put("flags", 0)))
+                .put("channels", guildChannels)
+                .put("threads", threads)
+                .put("emojis", DataArray.empty())
+                .put("stickers", DataArray.empty())
+                .put("voice_states", DataArray.empty())
+                .put("presences", DataArray.empty())
+                .put("features", DataArray.empty())
+                .put("guild_scheduled_events", DataArray.empty())
+                .put("stage_instances", DataArray.empty())
+                .put("joined_at", OffsetDateTime.now(ZoneOffset.UTC).toString())
+                .put("preferred_locale", "ru")
+                .put("afk_timeout", 300)
+                .put("verification_level", 0)
+                .put("default_message_notifications", 0)
+                .put("explicit_content_filter", 0)
+                .put("mfa_level", 0)
+                .put("nsfw_level", 0)
+                .put("premium_tier", 0)
+                .put("premium_subscription_count", 0)
+                .put("premium_progress_bar_enabled", false)
+                .put("system_channel_flags", 0)
+                .put("max_members", 500000);
+    }
+
+    private DataObject selfUser() {
+        return user(botUserId, "LoggerPunishment", true)
+                .put("verified", true)
+                .put("mfa_enabled", false)
+                .put("flags", 0);
+    }
+
+    private DataObject selfMember() {
+        return member(selfUser());
+    }
+
+    private static DataObject user(long id, String name, boolean bot) {
+        return DataObject.empty()
+                .put("id", Long.toString(id))
+                .put("username", name)
+                .put("discriminator", "0000")
+                .put("bot", bot)
+                .put("system", false)
+                .put("public_flags", 0);
+    }
+
+    private static DataObject member(DataObject user) {
+        return DataObject.empty()
+                .put("user", user)
+                .put("roles", DataArray.empty())
+                .put("joined_at", OffsetDateTime.now(ZoneOffset.UTC).toString())
+                .put("deaf", false)
+                .put("mute", false)
+                .put("pending", false)
+                .put("flags", 0);
+    }
+
+    private DataObject message(long id, Channel channel, DataObject author, DataObject body) {
+        return DataObject.empty()
+                .put("id", Long.toString(id))
+                .put("channel_id", Long.toString(channel.id))
+                .put("guild_id", Long.toString(guildId))
+                .put("author", author)
+                .put("content", body.getString("content", ""))
+                .put("timestamp", OffsetDateTime.ofInstant(Instant.ofEpochMilli(snowflakeTime(id)), ZoneOffset.UTC).toString())
+                .put("tts", false)
+                .put("mention_everyone", false)
+                .put("mentions", DataArray.empty())
+                .put("mention_roles", DataArray.empty())
+                .put("attachments", DataArray.empty())
+                .put("embeds", richEmbeds(body.optArray("embeds").orElseGet(DataArray::empty)))
+                .put("components", body.optArray("components").orElseGet(DataArray::empty))
+                .put("pinned", false)
+                .put("type", 0)
+                .put("flags", 0);
+    }
+
+    /**
+     * Событие о сообщении пользователя содержит его участника гильдии
+     */
+    private static DataObject withMember(DataObject message, DataObject author) {
+        DataObject member = member(author);
+        member.remove("user");
+        return DataObject.fromJson(message.toString()).put("member", member);
+    }
+
+    /**
+     * Discord возвращает embed с типом rich, JDA без него не разберет ответ
+     */
+    private static DataArray richEmbeds(DataArray embeds) {
+        DataArray result = DataArray.empty();
+        for (int i = 0; i < embeds.length(); i++) {
+            DataObject embed = embeds.getObject(i);
+            if (!embed.hasKey("type")) {
+                embed.put("type", "rich");
+            }
+            result.add(embed);
+        }
+        return result;
+    }
+
+    private static MockResponse json(DataObject body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body.toString());
+    }
+
+    private static MockResponse error(int status, int code, String message) {
+        return new MockResponse()
+                .setResponseCode(status)
+                .setHeader("Content-Type", "application/json")
+                .setBody(DataObject.empty().put("code", code).put("message", message).toString());
+    }
+
+    private static DataObject body(RecordedRequest request) {
+        return DataObject.fromJson(request.getBody().readUtf8());
+    }
+
+    private MockResponse delayed(MockResponse response) {
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        return delay > 0 ? response.setHeadersDelay(delay, TimeUnit.MILLISECONDS) : response;
+    }
+
+    /**
+     * Маршрут без идентификаторов: channels/{id}/messages/{id}
+     */
+    private static String template(String[] parts) {
+        StringBuilder template = new StringBuilder();
+        for (String part : parts) {
+            if (template.length() > 0) {
+                template.append('/');
+            }
+            template.append(part.chars().allMatch(Character::isDigit) && !part.isEmpty() ? "{id}" : part);
+        }
+        return template.toString();
+    }
+
+    private long nextSnowflake() {
+        return ((System.currentTimeMillis() - DISCORD_EPOCH) << 22) | (snowflakeSequence.incrementAndGet() & 0x3FFFFF);
+    }
+
+    private static long snowflakeTime(long snowflake) {
+        return (snowflake >>> 22) + DISCORD_EPOCH;
+    }
+
+    // ==================== КАНАЛЫ ====================
+
+    /**
+     * Канал, форум или ветка форума (type 0, 15, 11) с сообщениями по возрастанию ID
+     */
+    private final class Channel {
+        private final long id;
+        private final int type;
+        private final String name;
+        private final long parentId;
+        private final ConcurrentSkipListMap<Long, DataObject> messages = new ConcurrentSkipListMap<>();
+
+        Channel(long id, int type, String name, long parentId) {
+            this.id = id;
+            this.type = type;
+            this.name = name;
+            this.parentId = parentId;
+        }
+
+        boolean isThread() {
+            return type == 11;
+        }
+
+        DataObject toJson() {
+            DataObject json = DataObject.empty()
+                    .put("id", Long.toString(id))
+                    .put("type", type)
+                    .put("name", name)
+                    .put("guild_id", Long.toString(guildId))
+                    .put("rate_limit_per_user", 0)
+                    .put("flags", 0);
+
+            if (isThread()) {
+                String created = OffsetDateTime.ofInstant(Instant.ofEpochMilli(snowflakeTime(id)), ZoneOffset.UTC).toString();
+                return json.put("parent_id", Long.toString(parentId))
+                        .put("owner_id", Long.toString(botUserId))
+                        .put("last_message_id", messages.isEmpty() ? Long.toString(id) : Long.toString(messages.lastKey()))
+                        .put("message_count", messages.size())
+                        .put("total_message_sent", messages.size())
+                        .put("member_count", 1)
+                        .put("applied_tags", DataArray.empty())
+                        .put("thread_metadata", DataObject.empty()
+                                .put("archived", false)
+                                .put("locked", false)
+                                .put("auto_archive_duration", 10080)
+                                .put("archive_timestamp", created)
+                                .put("create_timestamp", created));
+            }
+
+            json.put("position", 0)
+                    .put("nsfw", false)
+                    .put("permission_overwrites", DataArray.empty());
+            if (type == 15) {
+                json.put("available_tags", DataArray.empty())
+                        .put("default_forum_layout", 0)
+                        .put("default_thread_rate_limit_per_user", 0);
+            }
+            return json;
+        }
+    }
+
+    // ==================== СТАТИСТИКА ====================
+
+    String getStats() {
+        long total = requestsByRoute.values().stream().mapToLong(LongAdder::sum).sum();
+        StringBuilder stats = new StringBuilder();
+        stats.append(String.format("🧪 Заглушка Discord: запросов %d, 429 по корзинам %d, 429 глобальных %d, событий шлюза %d",
+                total, rateLimitedRequests.sum(), globalRateLimitedRequests.sum(), gatewayEvents.sum()));
+        requestsByRoute.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> stats.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue().sum()));
+        return stats.toString();
+    }
+}
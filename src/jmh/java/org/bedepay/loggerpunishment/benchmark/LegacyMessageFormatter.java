@@ -0,0 +1,248 @@
+package org.bedepay.loggerpunishment.benchmark;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import org.bedepay.loggerpunishment.LoggerPunishment;
+import org.bedepay.loggerpunishment.config.ConfigManager;
+import org.bedepay.loggerpunishment.model.PunishmentData;
+import org.bedepay.loggerpunishment.model.PunishmentStatistics;
+import org.bedepay.loggerpunishment.model.PunishmentType;
+import org.bedepay.loggerpunishment.util.TimeFormatter;
+
+import java.awt.Color;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Прежняя сборка embed без шаблонов: заголовки, цвета и подписи берутся из конфигурации
+ * и склеиваются заново для каждого сообщения. Оставлена только как точка отсчета
+ * для MessageFormatterBenchmark, в плагине не используется.
+ */
+final class LegacyMessageFormatter {
+
+    private final ConfigManager configManager;
+
+    LegacyMessageFormatter(LoggerPunishment plugin) {
+        this.configManager = plugin.getConfigManager();
+    }
+
+    MessageEmbed createPunishmentEmbed(PunishmentData punishment) {
+        EmbedBuilder builder = new EmbedBuilder();
+        ConfigManager.DiscordConfig discord = configManager.getDiscordConfig();
+
+        String typeKey = punishment.getType().name().toLowerCase();
+        String title = discord.punishmentTitles.getOrDefault(typeKey, punishment.getType().getDisplayName());
+        Color color = discord.colors.getOrDefault(typeKey, Color.RED);
+        String emoji = discord.emojis.getOrDefault(typeKey, punishment.getType().getEmoji());
+
+        builder.setTitle(emoji + " " + title);
+        builder.setColor(color);
+
+        builder.addField(
+            discord.emojis.getOrDefault("player", "👤") + " Игрок",
+            punishment.getPlayerName() + "\n`" + punishment.getPlayerUuid() + "`",
+            true
+        );
+
+        builder.addField(
+            discord.emojis.getOrDefault("moderator", "👮") + " Модератор",
+            punishment.getModeratorName() != null ? punishment.getModeratorName() : "Система",
+            true
+        );
+
+        String durationText;
+        if (punishment.isPermanent()) {
+            durationText = "Навсегда";
+        } else {
+            durationText = TimeFormatter.formatDuration(punishment.getDuration());
+            if (punishment.getExpiresAt() != null) {
+                durationText += "\nИстекает: " + TimeFormatter.formatDateTime(punishment.getExpiresAt());
+            }
+        }
+
+        builder.addField(
+            discord.emojis.getOrDefault("duration", "⏰") + " Длительность",
+            durationText,
+            true
+        );
+
+        builder.addField(
+            discord.emojis.getOrDefault("reason", "📝") + " Причина",
+            punishment.getReason(),
+            false
+        );
+
+        if (punishment.getPunishmentId() != null) {
+            builder.addField(
+                discord.emojis.getOrDefault("id", "🆔") + " ID",
+                "`" + punishment.getPunishmentId() + "`",
+                true
+            );
+        }
+
+        if (punishment.getType() == PunishmentType.JAIL && punishment.getJailName() != null) {
+            builder.addField("🏢 Тюрьма", punishment.getJailName(), true);
+        }
+
+        String status = punishment.isActive() ?
+            discord.emojis.getOrDefault("active", "🔴") + " Активно" :
+            discord.emojis.getOrDefault("expired", "⚪") + " Неактивно";
+        builder.addField("Статус", status, true);
+
+        builder.setTimestamp(punishment.getCreatedAt());
+        builder.setFooter("Создано");
+
+        return builder.build();
+    }
+
+    MessageEmbed createUnbanEmbed(PunishmentData punishment) {
+        EmbedBuilder builder = new EmbedBuilder();
+        ConfigManager.DiscordConfig discord = configManager.getDiscordConfig();
+
+        String unbanKey = "unban";
+        if (punishment.getType() == PunishmentType.MUTE) {
+            unbanKey = "unmute";
+        } else if (punishment.getType() == PunishmentType.JAIL) {
+            unbanKey = "unjail";
+        }
+
+        String title = discord.unbanTitles.getOrDefault(unbanKey, "Снятие наказания");
+        Color color = discord.colors.getOrDefault("unban", Color.GREEN);
+        String emoji = discord.emojis.getOrDefault("unban", "✅");
+
+        builder.setTitle(emoji + " " + title);
+        builder.setColor(color);
+
+        builder.addField(
+            discord.emojis.getOrDefault("player", "👤") + " Игрок",
+            punishment.getPlayerName(),
+            true
+        );
+
+        builder.addField(
+            discord.emojis.getOrDefault("moderator", "👮") + " Снял",
+            punishment.getUnbanModeratorName() != null ? punishment.getUnbanModeratorName() : "Система",
+            true
+        );
+
+        if (punishment.getUnbanType() != null) {
+            builder.addField(
+                "Тип снятия",
+                punishment.getUnbanType().getEmoji() + " " + punishment.getUnbanType().getDisplayName(),
+                true
+            );
+        }
+
+        if (punishment.getUnbanReason() != null && !punishment.getUnbanReason().isEmpty()) {
+            builder.addField(
+                discord.emojis.getOrDefault("reason", "📝") + " Причина снятия",
+                punishment.getUnbanReason(),
+                false
+            );
+        }
+
+        if (punishment.getUnbannedAt() != null) {
+            builder.setTimestamp(punishment.getUnbannedAt());
+            builder.setFooter("Снято");
+        }
+
+        return builder.build();
+    }
+
+    MessageEmbed createLogEmbed(PunishmentData punishment) {
+        EmbedBuilder builder = new EmbedBuilder();
+        ConfigManager.DiscordConfig discord = configManager.getDiscordConfig();
+
+        String typeKey = punishment.getType().name().toLowerCase();
+        String title = discord.punishmentTitles.getOrDefault(typeKey, punishment.getType().getDisplayName());
+        Color color = discord.colors.getOrDefault(typeKey, Color.ORANGE);
+        String emoji = discord.emojis.getOrDefault(typeKey, punishment.getType().getEmoji());
+
+        builder.setTitle(emoji + " " + title);
+        builder.setColor(color);
+
+        StringBuilder info = new StringBuilder();
+        info.append("**Игрок:** ").append(punishment.getPlayerName()).append("\n");
+        info.append("**Модератор:** ").append(punishment.getModeratorName() != null ? punishment.getModeratorName() : "Система").append("\n");
+
+        if (!punishment.isPermanent()) {
+            info.append("**Длительность:** ").append(TimeFormatter.formatDuration(punishment.getDuration())).append("\n");
+        } else {
+            info.append("**Длительность:** Навсегда\n");
+        }
+
+        info.append("**Причина:** ").append(punishment.getReason());
+
+        if (punishment.getPunishmentId() != null) {
+            info.append("\n**ID:** `").append(punishment.getPunishmentId()).append("`");
+        }
+
+        builder.setDescription(info.toString());
+        builder.setTimestamp(punishment.getCreatedAt());
+
+        return builder.build();
+    }
+
+    MessageEmbed createPlayerStatsEmbed(String playerName, String playerUuid, PunishmentStatistics statistics) {
+        Map<PunishmentType, Integer> totalCounts = statistics.getTotalCounts();
+        Map<PunishmentType, Integer> activeCounts = statistics.getActiveCounts();
+        List<PunishmentData> activePunishments = statistics.getActivePunishmentDetails();
+
+        EmbedBuilder builder = new EmbedBuilder();
+        ConfigManager.DiscordConfig discord = configManager.getDiscordConfig();
+
+        builder.setTitle(discord.emojis.getOrDefault("stats", "📊") + " Статистика игрока: " + playerName);
+        builder.setColor(discord.colors.getOrDefault("info", Color.BLUE));
+
+        StringBuilder totalStats = new StringBuilder();
+        totalStats.append("**Всего наказаний:** ").append(statistics.getTotalPunishments()).append("\n");
+
+        for (PunishmentType type : PunishmentType.values()) {
+            int count = totalCounts.getOrDefault(type, 0);
+            if (count > 0) {
+                totalStats.append(type.getEmoji()).append(" ").append(type.getDisplayName()).append(": ").append(count).append("\n");
+            }
+        }
+
+        builder.addField("Общая статистика", totalStats.toString(), true);
+
+        StringBuilder activeStats = new StringBuilder();
+        activeStats.append("**Активных:** ").append(statistics.getActivePunishments()).append("\n");
+
+        for (PunishmentType type : PunishmentType.values()) {
+            int count = activeCounts.getOrDefault(type, 0);
+            if (count > 0) {
+                activeStats.append(type.getEmoji()).append(" ").append(type.getDisplayName()).append(": ").append(count).append("\n");
+            }
+        }
+
+        builder.addField("Активные наказания", activeStats.toString(), true);
+
+        if (!activePunishments.isEmpty()) {
+            StringBuilder details = new StringBuilder();
+            for (PunishmentData punishment : activePunishments) {
+                details.append(punishment.getType().getEmoji()).append(" ");
+                if (punishment.isPermanent()) {
+                    details.append("Навсегда");
+                } else {
+                    details.append(TimeFormatter.formatTimeLeft(punishment.getExpiresAt()));
+                }
+                details.append(" - ").append(punishment.getReason()).append("\n");
+            }
+
+            if (details.length() > 1024) {
+                details.setLength(1021);
+                details.append("...");
+            }
+
+            builder.addField("Детали активных наказаний", details.toString(), false);
+        }
+
+        builder.addField("UUID", "`" + playerUuid + "`", false);
+        builder.setTimestamp(Instant.now());
+        builder.setFooter("Обновлено");
+
+        return builder.build();
+    }
+}
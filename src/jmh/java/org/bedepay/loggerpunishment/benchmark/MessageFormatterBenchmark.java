@@ -0,0 +1,119 @@
+package org.bedepay.loggerpunishment.benchmark;
+
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import org.bedepay.loggerpunishment.LoggerPunishment;
+import org.bedepay.loggerpunishment.discord.MessageFormatter;
+import org.bedepay.loggerpunishment.model.PunishmentData;
+import org.bedepay.loggerpunishment.model.PunishmentStatistics;
+import org.bedepay.loggerpunishment.model.PunishmentType;
+import org.bedepay.loggerpunishment.model.UnbanType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Создание embed-сообщений MessageFormatter (время и аллокации на одно сообщение).
+ * Методы *Legacy собирают те же embed прежним способом без шаблонов (LegacyMessageFormatter)
+ * для сравнения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageFormatterBenchmark {
+
+    private Path dataFolder;
+    private MessageFormatter formatter;
+    private LegacyMessageFormatter legacyFormatter;
+    private PunishmentData punishment;
+    private PunishmentData unban;
+    private PunishmentStatistics statistics;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataFolder = Files.createTempDirectory("loggerpunishment-jmh-formatter");
+        LoggerPunishment plugin = BenchmarkFixtures.createPlugin(dataFolder);
+        formatter = new MessageFormatter(plugin);
+        legacyFormatter = new LegacyMessageFormatter(plugin);
+
+        punishment = BenchmarkFixtures.samplePunishment("12345");
+
+        unban = BenchmarkFixtures.samplePunishment("12346");
+        unban.setActive(false);
+        unban.setUnbannedAt(Instant.now());
+        unban.setUnbanType(UnbanType.MANUAL);
+        unban.setUnbanModeratorName("Moderator");
+
+        PunishmentStatistics.Builder builder = PunishmentStatistics.builder(UUID.randomUUID(), PunishmentStatistics.TARGET_PLAYER);
+        List<PunishmentData> activePunishments = new ArrayList<>();
+        for (PunishmentType type : PunishmentType.values()) {
+            builder.totalCount(type, 3).activeCount(type, 1);
+            activePunishments.add(BenchmarkFixtures.samplePunishment("active-" + type.getCode()));
+        }
+        statistics = builder
+                .totalPunishments(3 * PunishmentType.values().length)
+                .activePunishments(PunishmentType.values().length)
+                .activePunishmentDetails(activePunishments)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkFixtures.deleteRecursively(dataFolder);
+    }
+
+    @Benchmark
+    public MessageEmbed punishmentEmbed() {
+        return formatter.createPunishmentEmbed(punishment);
+    }
+
+    @Benchmark
+    public MessageEmbed logEmbed() {
+        return formatter.createLogEmbed(punishment);
+    }
+
+    @Benchmark
+    public MessageEmbed unbanEmbed() {
+        return formatter.createUnbanEmbed(unban);
+    }
+
+    @Benchmark
+    public MessageEmbed playerStatsEmbed() {
+        return formatter.createPlayerStatsEmbed("Player_12345", punishment.getPlayerUuid().toString(),
+                statistics);
+    }
+
+    @Benchmark
+    public MessageEmbed punishmentEmbedLegacy() {
+        return legacyFormatter.createPunishmentEmbed(punishment);
+    }
+
+    @Benchmark
+    public MessageEmbed logEmbedLegacy() {
+        return legacyFormatter.createLogEmbed(punishment);
+    }
+
+    @Benchmark
+    public MessageEmbed unbanEmbedLegacy() {
+        return legacyFormatter.createUnbanEmbed(unban);
+    }
+
+    @Benchmark
+    public MessageEmbed playerStatsEmbedLegacy() {
+        return legacyFormatter.createPlayerStatsEmbed("Player_12345", punishment.getPlayerUuid().toString(),
+                statistics);
+    }
+}
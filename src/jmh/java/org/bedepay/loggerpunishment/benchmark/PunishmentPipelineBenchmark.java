@@ -0,0 +1,107 @@
+package org.bedepay.loggerpunishment.benchmark;
+
+import org.bedepay.loggerpunishment.LoggerPunishment;
+import org.bedepay.loggerpunishment.cache.CacheProvider;
+import org.bedepay.loggerpunishment.cache.LocalCacheProvider;
+import org.bedepay.loggerpunishment.database.DatabaseManager;
+import org.bedepay.loggerpunishment.discord.DiscordManager;
+import org.bedepay.loggerpunishment.model.PunishmentData;
+import org.bedepay.loggerpunishment.service.PunishmentService;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Полная обработка наказания: PunishmentService.processPunishment со встроенной SQLite.
+ * Discord заглушен (бот не готов, исходящая очередь не запущена), поэтому измеряется
+ * путь до фиксации наказания и записи очереди в одной транзакции BatchWriter.
+ * Вариант с 8 потоками показывает выигрыш от группового коммита.
+ * <p>
+ * engine=wal - текущие настройки: WAL, synchronous=NORMAL, один поток-писатель.
+ * engine=legacy - та же нагрузка на прежней схеме: журнал отката (DELETE, synchronous=FULL,
+ * значения драйвера по умолчанию для кэша и mmap), общий пул соединений и запись
+ * в вызывающем потоке без выделенного писателя.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PunishmentPipelineBenchmark {
+
+    private static final Map<String, Object> LEGACY_ENGINE = Map.of(
+            "database.sqlite.journal_mode", "DELETE",
+            "database.sqlite.synchronous", "FULL",
+            "database.sqlite.busy_timeout", 3000,
+            "database.sqlite.cache_size", -2000,
+            "database.sqlite.mmap_size", 0L,
+            "database.sqlite.single_writer", false);
+
+    private final AtomicLong punishmentIds = new AtomicLong();
+
+    @Param({"wal", "legacy"})
+    public String engine;
+
+    private Path dataFolder;
+    private DatabaseManager databaseManager;
+    private CacheProvider cacheProvider;
+    private PunishmentService punishmentService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataFolder = Files.createTempDirectory("loggerpunishment-jmh-pipeline");
+        LoggerPunishment plugin = BenchmarkFixtures.createPlugin(dataFolder,
+                "legacy".equals(engine) ? LEGACY_ENGINE : Map.of());
+
+        databaseManager = new DatabaseManager(plugin);
+        when(plugin.getDatabaseManager()).thenReturn(databaseManager);
+        databaseManager.initialize();
+
+        cacheProvider = new LocalCacheProvider(plugin);
+        when(plugin.getCacheProvider()).thenReturn(cacheProvider);
+
+        DiscordManager discordManager = Mockito.mock(DiscordManager.class);
+        when(plugin.getDiscordManager()).thenReturn(discordManager);
+
+        punishmentService = new PunishmentService(plugin);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        punishmentService.shutdown();
+        cacheProvider.shutdown();
+        databaseManager.shutdown();
+        BenchmarkFixtures.deleteRecursively(dataFolder);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void processPunishment() {
+        punishmentService.processPunishment(nextPunishment()).join();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void processPunishmentConcurrent() {
+        punishmentService.processPunishment(nextPunishment()).join();
+    }
+
+    private PunishmentData nextPunishment() {
+        return BenchmarkFixtures.samplePunishment("bench-" + punishmentIds.incrementAndGet());
+    }
+}
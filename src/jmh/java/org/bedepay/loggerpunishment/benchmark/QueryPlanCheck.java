@@ -0,0 +1,190 @@
+package org.bedepay.loggerpunishment.benchmark;
+
+import org.bedepay.loggerpunishment.LoggerPunishment;
+import org.bedepay.loggerpunishment.database.DatabaseManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Проверка планов запросов DatabaseManager на схеме, созданной миграциями SQLite.
+ * Для каждого запроса выполняется EXPLAIN QUERY PLAN; проверка падает, если таблица читается
+ * полным проходом (SCAN) или результат сортируется во временном B-дереве.
+ * Полный проход разрешен только запросам, которым по смыслу нужна вся таблица
+ * (пересборка и сверка punishment_statistics, подсчет очереди по статусам).
+ * <p>
+ * Запуск: {@code ./gradlew queryPlanCheck}. Тексты запросов повторяют SQL репозиториев
+ * пакета database (без кавычек jOOQ) и обновляются вместе с ними.
+ */
+public final class QueryPlanCheck {
+
+    private static final List<Query> QUERIES = List.of(
+            // punishment_logs
+            Query.indexed("getPunishmentById",
+                    "SELECT * FROM punishment_logs WHERE id = ?"),
+            Query.indexed("getActivePunishmentByPunishmentId",
+                    "SELECT * FROM punishment_logs WHERE punishment_id = ? AND active = true"),
+            Query.indexed("getExpiredPunishments",
+                    "SELECT * FROM punishment_logs WHERE active = true AND expires_at IS NOT NULL AND expires_at <= ?"),
+            Query.indexed("getPlayerActivePunishments",
+                    "SELECT * FROM punishment_logs WHERE player_uuid = ? AND active = true ORDER BY created_at DESC"),
+            Query.indexed("updatePunishment",
+                    "UPDATE punishment_logs SET active = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?"),
+            Query.indexed("recordDelivery",
+                    "UPDATE punishment_logs SET player_message_id = COALESCE(NULLIF(?, 0), player_message_id), updated_at = CURRENT_TIMESTAMP WHERE id = ?"),
+
+            // players и moderators
+            Query.indexed("getPlayer",
+                    "SELECT * FROM players WHERE player_uuid = ?"),
+            Query.indexed("getModerator",
+                    "SELECT * FROM moderators WHERE moderator_uuid = ?"),
+            Query.indexed("getModeratorByThreadId",
+                    "SELECT * FROM moderators WHERE discord_thread_id = ?"),
+            Query.indexed("getModeratorDiscordIdsByThread",
+                    "SELECT discord_thread_id, discord_id FROM moderators WHERE discord_thread_id > 0"),
+            Query.indexed("applyDeactivationCounters (players)",
+                    "UPDATE players SET active_punishments = CASE WHEN active_punishments > 0 THEN active_punishments - 1 ELSE 0 END "
+                            + "WHERE player_uuid = ? AND EXISTS (SELECT 1 FROM punishment_logs WHERE id = ? AND active = true)"),
+            Query.indexed("applyDeactivationCounters (moderators)",
+                    "UPDATE moderators SET active_issued = CASE WHEN active_issued > 0 THEN active_issued - 1 ELSE 0 END "
+                            + "WHERE moderator_uuid = ? AND EXISTS (SELECT 1 FROM punishment_logs WHERE id = ? AND active = true)"),
+
+            // punishment_statistics
+            Query.indexed("getPunishmentStatistics",
+                    "SELECT * FROM punishment_statistics WHERE target_uuid = ? AND target_type = ?"),
+            Query.indexed("applyStatisticsDeactivation",
+                    "UPDATE punishment_statistics SET active_punishments = active_punishments - 1 "
+                            + "WHERE target_uuid = ? AND target_type = ? "
+                            + "AND EXISTS (SELECT 1 FROM punishment_logs WHERE id = ? AND active = true)"),
+            Query.fullScan("statisticsAggregateSql (players)",
+                    "SELECT player_uuid, COUNT(*), SUM(CASE WHEN type = 'BAN' THEN 1 ELSE 0 END), "
+                            + "SUM(CASE WHEN active = true AND type = 'BAN' THEN 1 ELSE 0 END), MIN(created_at), MAX(created_at) "
+                            + "FROM punishment_logs WHERE player_uuid IS NOT NULL GROUP BY player_uuid"),
+            Query.fullScan("statisticsAggregateSql (moderators)",
+                    "SELECT moderator_uuid, COUNT(*), SUM(CASE WHEN type = 'BAN' THEN 1 ELSE 0 END), "
+                            + "SUM(CASE WHEN active = true AND type = 'BAN' THEN 1 ELSE 0 END), MIN(created_at), MAX(created_at) "
+                            + "FROM punishment_logs WHERE moderator_uuid IS NOT NULL GROUP BY moderator_uuid"),
+            Query.fullScan("countStatisticsDrift (orphans)",
+                    "SELECT COUNT(*) AS count FROM punishment_statistics s WHERE s.total_punishments = 0 OR NOT EXISTS ("
+                            + "SELECT 1 FROM punishment_logs p WHERE (s.target_type = 'PLAYER' AND p.player_uuid = s.target_uuid) "
+                            + "OR (s.target_type = 'MODERATOR' AND p.moderator_uuid = s.target_uuid))"),
+
+            // discord_queue
+            Query.indexed("claimOutboxEntries",
+                    "SELECT * FROM discord_queue WHERE status = ? AND (next_attempt_at IS NULL OR next_attempt_at <= ?) "
+                            + "AND (action_type <> 'EDIT_MESSAGE' OR NOT EXISTS (SELECT 1 FROM discord_queue AS send "
+                            + "WHERE send.punishment_record_id = discord_queue.punishment_record_id "
+                            + "AND send.action_type = 'SEND_MESSAGE' AND send.status IN ('PENDING', 'PROCESSING'))) "
+                            + "ORDER BY priority DESC, id ASC LIMIT ?"),
+            Query.indexed("claimOutboxEntries (claim)",
+                    "UPDATE discord_queue SET status = ?, last_attempt_at = ?, claim_token = ? WHERE id = ? AND status = ?"),
+            Query.indexed("completeOutboxEntry",
+                    "UPDATE discord_queue SET status = ?, action_data = ?, error_message = NULL "
+                            + "WHERE id = ? AND status = ? AND claim_token = ?"),
+            Query.indexed("renewOutboxClaims",
+                    "UPDATE discord_queue SET last_attempt_at = ? WHERE id = ? AND status = ? AND claim_token = ?"),
+            Query.indexed("recoverExpiredOutboxClaims",
+                    "UPDATE discord_queue SET status = ?, claim_token = NULL "
+                            + "WHERE status = ? AND (last_attempt_at IS NULL OR last_attempt_at < ?)"),
+            Query.indexed("deleteCompletedOutboxEntries",
+                    "DELETE FROM discord_queue WHERE status = ? AND created_at < ?"),
+            Query.fullScan("getOutboxStatusCounts",
+                    "SELECT status, COUNT(*) as count FROM discord_queue GROUP BY status"),
+
+            // plugin_settings
+            Query.indexed("getSetting",
+                    "SELECT value FROM plugin_settings WHERE key = ?")
+    );
+
+    private QueryPlanCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dataFolder = Files.createTempDirectory("loggerpunishment-query-plan");
+        DatabaseManager databaseManager = null;
+        int failures = 0;
+
+        try {
+            LoggerPunishment plugin = BenchmarkFixtures.createPlugin(dataFolder);
+            databaseManager = new DatabaseManager(plugin);
+            databaseManager.initialize();
+
+            try (Connection conn = databaseManager.getConnection()) {
+                for (Query query : QUERIES) {
+                    List<String> plan = explain(conn, query.sql());
+                    List<String> problems = problems(query, plan);
+
+                    System.out.printf("%-4s %s%n", problems.isEmpty() ? "OK" : "FAIL", query.name());
+                    for (String step : plan) {
+                        System.out.println("       " + step);
+                    }
+                    for (String problem : problems) {
+                        System.out.println("       ! " + problem);
+                    }
+                    if (!problems.isEmpty()) {
+                        failures++;
+                    }
+                }
+            }
+        } finally {
+            if (databaseManager != null) {
+                databaseManager.shutdown();
+            }
+            BenchmarkFixtures.deleteRecursively(dataFolder);
+        }
+
+        System.out.printf("%nЗапросов: %d, без индекса: %d%n", QUERIES.size(), failures);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static List<String> explain(Connection conn, String sql) throws SQLException {
+        List<String> plan = new ArrayList<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            int parameters = stmt.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                stmt.setNull(i, Types.VARCHAR);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.add(rs.getString("detail"));
+                }
+            }
+        }
+
+        return plan;
+    }
+
+    private static List<String> problems(Query query, List<String> plan) {
+        List<String> problems = new ArrayList<>();
+
+        for (String step : plan) {
+            if (step.startsWith("USE TEMP B-TREE")) {
+                problems.add("сортировка без индекса");
+            } else if (step.startsWith("SCAN ") && !query.fullScanAllowed()) {
+                problems.add("полный проход таблицы");
+            }
+        }
+
+        return problems;
+    }
+
+    private record Query(String name, String sql, boolean fullScanAllowed) {
+
+        static Query indexed(String name, String sql) {
+            return new Query(name, sql, false);
+        }
+
+        static Query fullScan(String name, String sql) {
+            return new Query(name, sql, true);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.bedepay.loggerpunishment.benchmark;
+
+import org.bedepay.loggerpunishment.util.TimeFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Форматирование длительности и относительного времени
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimeFormatterBenchmark {
+
+    // 45 секунд, 2 часа 30 минут, 7 дней, 30 дней 12 часов
+    @Param({"45", "9000", "604800", "2635200"})
+    public long seconds;
+
+    private Long duration;
+    private Instant instant;
+
+    @Setup
+    public void setUp() {
+        duration = seconds;
+        instant = Instant.now().minusSeconds(seconds);
+    }
+
+    @Benchmark
+    public String formatDuration() {
+        return TimeFormatter.formatDuration(duration);
+    }
+
+    @Benchmark
+    public String formatRelativeTime() {
+        return TimeFormatter.formatRelativeTime(instant);
+    }
+}
@@ -1,6 +1,9 @@
 package org.bedepay.loggerpunishment;
 
+import net.dv8tion.jda.api.JDA;
 import org.bedepay.loggerpunishment.api.AuthBotAPI;
+import org.bedepay.loggerpunishment.cache.CacheProvider;
+import org.bedepay.loggerpunishment.cache.LocalCacheProvider;
 import org.bedepay.loggerpunishment.command.CommandHandler;
 import org.bedepay.loggerpunishment.config.ConfigManager;
 import org.bedepay.loggerpunishment.database.DatabaseManager;
@@ -21,11 +24,12 @@ public final class LoggerPunishment extends JavaPlugin {
     private ConfigManager configManager;
     private DatabaseManager databaseManager;
     private RedisManager redisManager;
+    private CacheProvider cacheProvider;
     private AuthBotAPI authBotAPI;
     
     // Менеджеры компонентов
     private DiscordManager discordManager;
-    private ForumManager forumManager;
+    private volatile ForumManager forumManager;
     private MessageFormatter messageFormatter;
     private PunishmentListener punishmentListener;
     private PunishmentService punishmentService;
@@ -53,6 +57,9 @@ public final class LoggerPunishment extends JavaPlugin {
             // Инициализация Redis (опционально)
             initializeRedis();
             
+            // Выбор кэшей и блокировок: Redis или локальные
+            initializeCacheProvider();
+            
             // Инициализация AuthBot API
             initializeAuthBotAPI();
             
@@ -82,6 +89,15 @@ public final class LoggerPunishment extends JavaPlugin {
             getLogger().info("Остановка плагина LoggerPunishment...");
             
             // Graceful shutdown всех компонентов
+            // Сначала дожидаемся обработки наказаний, пока Discord и БД еще доступны
+            if (punishmentService != null) {
+                punishmentService.shutdown();
+            }
+            
+            if (forumManager != null) {
+                forumManager.shutdown();
+            }
+            
             if (discordManager != null) {
                 discordManager.shutdown();
             }
@@ -94,6 +110,10 @@ public final class LoggerPunishment extends JavaPlugin {
                 redisManager.shutdown();
             }
             
+            if (cacheProvider != null && cacheProvider != redisManager) {
+                cacheProvider.shutdown();
+            }
+            
             if (databaseManager != null) {
                 databaseManager.shutdown();
             }
@@ -146,7 +166,7 @@ public final class LoggerPunishment extends JavaPlugin {
             if (redisManager.isEnabled()) {
                 getLogger().info("Redis инициализирован успешно");
             } else {
-                getLogger().info("Redis не настроен или недоступен, продолжаем без кэширования");
+                getLogger().info("Redis не настроен или недоступен, продолжаем с локальным кэшированием");
             }
         } catch (Exception e) {
             getLogger().log(Level.WARNING, "Ошибка при инициализации Redis: " + e.getMessage());
@@ -154,6 +174,17 @@ public final class LoggerPunishment extends JavaPlugin {
         }
     }
     
+    /**
+     * Инициализация кэшей и блокировок (локальные, если Redis недоступен)
+     */
+    private void initializeCacheProvider() {
+        if (redisManager != null && redisManager.isEnabled()) {
+            cacheProvider = redisManager;
+        } else {
+            cacheProvider = new LocalCacheProvider(this);
+        }
+    }
+    
     /**
      * Инициализация AuthBot API
      */
@@ -202,6 +233,13 @@ public final class LoggerPunishment extends JavaPlugin {
         return redisManager;
     }
     
+    /**
+     * Получить кэши и блокировки (Redis или локальные)
+     */
+    public CacheProvider getCacheProvider() {
+        return cacheProvider;
+    }
+    
     /**
      * Получить AuthBot API
      */
@@ -218,24 +256,37 @@ public final class LoggerPunishment extends JavaPlugin {
             discordManager = new DiscordManager(this);
             discordManager.initialize();
             
-            if (discordManager.isEnabled()) {
-                // Инициализация ForumManager после DiscordManager
-                forumManager = new ForumManager(this, discordManager.getJDA());
-                getLogger().info("Discord инициализирован успешно");
-            } else {
-                getLogger().warning("Discord недоступен, уведомления отключены");
-            }
+            // ForumManager создается в onDiscordReady, наказания до этого момента копятся в очереди
+            getLogger().info("Подключение к Discord выполняется в фоне");
         } catch (Exception e) {
             getLogger().log(Level.WARNING, "Ошибка при инициализации Discord: " + e.getMessage());
         }
     }
     
+    /**
+     * Вызывается DiscordManager после готовности JDA (в том числе после переподключения)
+     */
+    public void onDiscordReady(JDA jda) {
+        try {
+            forumManager = new ForumManager(this, jda);
+            getLogger().info("Discord инициализирован успешно");
+            
+            // Отправить накопившиеся в очереди сообщения
+            if (punishmentService != null) {
+                punishmentService.getOutboxDispatcher().wakeUp();
+            }
+        } catch (Exception e) {
+            getLogger().log(Level.WARNING, "Ошибка при инициализации форумов Discord: " + e.getMessage(), e);
+        }
+    }
+    
     /**
      * Инициализация сервисов
      */
     private void initializeServices() {
         getLogger().info("Инициализация сервисов...");
         punishmentService = new PunishmentService(this);
+        punishmentService.start();
         punishmentListener = new PunishmentListener(this);
         commandHandler = new CommandHandler(this);
         messageFormatter = new MessageFormatter(this);
@@ -275,6 +326,23 @@ public final class LoggerPunishment extends JavaPlugin {
             }
         }.runTaskTimerAsynchronously(this, 20L * 60L * 5L, 20L * 60L * 5L);
         
+        // Сверка агрегированной статистики с журналом наказаний (при запуске заполняет пустую таблицу)
+        BukkitRunnable statisticsVerifier = new BukkitRunnable() {
+            @Override
+            public void run() {
+                if (databaseManager != null) {
+                    databaseManager.verifyPunishmentStatistics();
+                }
+            }
+        };
+        
+        int verifyInterval = configManager.getPluginSettings().statisticsVerifyInterval;
+        if (verifyInterval > 0) {
+            statisticsVerifier.runTaskTimerAsynchronously(this, 20L * 10L, 20L * 60L * verifyInterval);
+        } else {
+            statisticsVerifier.runTaskLaterAsynchronously(this, 20L * 10L);
+        }
+        
         getLogger().info("Периодические задачи запущены");
     }
     
@@ -210,9 +210,9 @@ public class AuthBotAPI {
         discordIdCache.put(playerUuid, discordId);
         cacheTimestamps.put(playerUuid, System.currentTimeMillis());
         
-        // Также кэшируем в Redis если доступен
-        if (plugin.getRedisManager() != null && plugin.getRedisManager().isEnabled()) {
-            plugin.getRedisManager().setPlayerDiscordId(playerUuid.toString(), discordId);
+        // Также кэшируем в общем кэше (Redis, если доступен)
+        if (plugin.getCacheProvider() != null && plugin.getCacheProvider().isDistributed()) {
+            plugin.getCacheProvider().setPlayerDiscordId(playerUuid.toString(), discordId);
         }
     }
     
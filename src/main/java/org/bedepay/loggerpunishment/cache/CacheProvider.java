@@ -0,0 +1,110 @@
+package org.bedepay.loggerpunishment.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Поставщик кэшей и блокировок: Redis для нескольких серверов или локальный для одного сервера
+ */
+public interface CacheProvider {
+
+    /**
+     * Разделяются ли кэши и блокировки между серверами
+     */
+    boolean isDistributed();
+
+    // ==================== КЭШИ ====================
+
+    /**
+     * Получить ID ветки игрока
+     */
+    Long getPlayerThreadId(String playerUuid);
+
+    /**
+     * Сохранить ID ветки игрока
+     */
+    void setPlayerThreadId(String playerUuid, Long threadId);
+
+    /**
+     * Получить ID ветки модератора
+     */
+    Long getModeratorThreadId(String moderatorUuid);
+
+    /**
+     * Сохранить ID ветки модератора
+     */
+    void setModeratorThreadId(String moderatorUuid, Long threadId);
+
+    /**
+     * Получить ID первого сообщения ветки форума
+     */
+    Long getStarterMessageId(long threadId);
+
+    /**
+     * Сохранить ID первого сообщения ветки форума
+     */
+    void setStarterMessageId(long threadId, Long messageId);
+
+    /**
+     * Получить Discord ID игрока
+     */
+    Long getPlayerDiscordId(String playerUuid);
+
+    /**
+     * Сохранить Discord ID игрока
+     */
+    void setPlayerDiscordId(String playerUuid, Long discordId);
+
+    /**
+     * Проверить разрешение на отправку сообщения
+     */
+    Boolean hasWritePermission(String key);
+
+    /**
+     * Сохранить разрешение на отправку сообщения
+     */
+    void setWritePermission(String key, boolean hasPermission);
+
+    /**
+     * Кэшировать ID ветки игрока
+     */
+    default void cachePlayerThreadId(String playerUuid, Long threadId) {
+        setPlayerThreadId(playerUuid, threadId);
+    }
+
+    /**
+     * Кэшировать ID ветки модератора
+     */
+    default void cacheModeratorThreadId(String moderatorUuid, Long threadId) {
+        setModeratorThreadId(moderatorUuid, threadId);
+    }
+
+    // ==================== БЛОКИРОВКИ ====================
+
+    /**
+     * Выполнить асинхронное действие под блокировкой создания ветки, не занимая поток
+     * ни на ожидание блокировки, ни на время действия. Действие запускается в executor,
+     * блокировка снимается после завершения его future. Если блокировку не удалось
+     * получить за waitMillis, future завершается null.
+     */
+    <T> CompletableFuture<T> withThreadCreationLockAsync(String uuid, long waitMillis, Executor executor,
+                                                         Supplier<CompletableFuture<T>> action);
+
+    // ==================== ОБСЛУЖИВАНИЕ ====================
+
+    /**
+     * Получить статистику кэшей
+     */
+    String getStats();
+
+    /**
+     * Очистить все кэши
+     */
+    void clearCaches();
+
+    /**
+     * Освободить ресурсы
+     */
+    void shutdown();
+}
@@ -0,0 +1,167 @@
+package org.bedepay.loggerpunishment.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.bedepay.loggerpunishment.LoggerPunishment;
+import org.bedepay.loggerpunishment.config.ConfigManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Локальные кэши для одного сервера (без Redis).
+ * Кэши ограничены по размеру (вытеснение W-TinyLFU) и по времени жизни.
+ */
+public class LocalCacheProvider implements CacheProvider {
+
+    private final Logger logger;
+
+    // Кэши
+    private final Cache<String, Long> playerThreadCache;
+    private final Cache<String, Long> moderatorThreadCache;
+    private final Cache<String, Long> starterMessageCache;
+    private final Cache<String, Long> playerDiscordCache;
+    private final Cache<String, Boolean> writePermissionsCache;
+
+    public LocalCacheProvider(LoggerPunishment plugin) {
+        this.logger = plugin.getLogger();
+
+        ConfigManager.CacheSettings cacheSettings = plugin.getConfigManager().getCacheSettings();
+        this.playerThreadCache = buildCache(cacheSettings.statsCacheSize, cacheSettings.threadCacheTtl);
+        this.moderatorThreadCache = buildCache(cacheSettings.statsCacheSize, cacheSettings.threadCacheTtl);
+        this.starterMessageCache = buildCache(cacheSettings.statsCacheSize, cacheSettings.threadCacheTtl);
+        this.playerDiscordCache = buildCache(cacheSettings.statsCacheSize, cacheSettings.playerDiscordCacheTtl);
+        this.writePermissionsCache = buildCache(cacheSettings.statsCacheSize, cacheSettings.permissionsCacheTtl);
+
+        logger.info("Используются локальные кэши (до " + cacheSettings.statsCacheSize + " записей в каждом)");
+    }
+
+    /**
+     * Кэш с ограничением размера и временем жизни записи
+     */
+    private static <V> Cache<String, V> buildCache(int size, int ttlMinutes) {
+        return Caffeine.newBuilder()
+                .maximumSize(Math.max(1, size))
+                .expireAfterWrite(Math.max(1, ttlMinutes), TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public boolean isDistributed() {
+        return false;
+    }
+
+    // ==================== МЕТОДЫ КЭШИРОВАНИЯ ====================
+
+    @Override
+    public Long getPlayerThreadId(String playerUuid) {
+        return playerThreadCache.getIfPresent(playerUuid);
+    }
+
+    @Override
+    public void setPlayerThreadId(String playerUuid, Long threadId) {
+        put(playerThreadCache, playerUuid, threadId);
+    }
+
+    @Override
+    public Long getModeratorThreadId(String moderatorUuid) {
+        return moderatorThreadCache.getIfPresent(moderatorUuid);
+    }
+
+    @Override
+    public void setModeratorThreadId(String moderatorUuid, Long threadId) {
+        put(moderatorThreadCache, moderatorUuid, threadId);
+    }
+
+    @Override
+    public Long getStarterMessageId(long threadId) {
+        return starterMessageCache.getIfPresent(String.valueOf(threadId));
+    }
+
+    @Override
+    public void setStarterMessageId(long threadId, Long messageId) {
+        put(starterMessageCache, String.valueOf(threadId), messageId);
+    }
+
+    @Override
+    public Long getPlayerDiscordId(String playerUuid) {
+        return playerDiscordCache.getIfPresent(playerUuid);
+    }
+
+    @Override
+    public void setPlayerDiscordId(String playerUuid, Long discordId) {
+        put(playerDiscordCache, playerUuid, discordId);
+    }
+
+    @Override
+    public Boolean hasWritePermission(String key) {
+        return writePermissionsCache.getIfPresent(key);
+    }
+
+    @Override
+    public void setWritePermission(String key, boolean hasPermission) {
+        writePermissionsCache.put(key, hasPermission);
+    }
+
+    /**
+     * Сохранить значение (null удаляет запись, как в RMap)
+     */
+    private static <V> void put(Cache<String, V> cache, String key, V value) {
+        if (value == null) {
+            cache.invalidate(key);
+        } else {
+            cache.put(key, value);
+        }
+    }
+
+    // ==================== МЕТОДЫ БЛОКИРОВОК ====================
+
+    @Override
+    public <T> CompletableFuture<T> withThreadCreationLockAsync(String uuid, long waitMillis, Executor executor,
+                                                                Supplier<CompletableFuture<T>> action) {
+        // На одном сервере повторное создание ветки уже исключает SingleFlight
+        return CompletableFuture.supplyAsync(action, executor).thenCompose(Function.identity());
+    }
+
+    // ==================== СТАТИСТИКА И ОБСЛУЖИВАНИЕ ====================
+
+    @Override
+    public String getStats() {
+        StringBuilder stats = new StringBuilder();
+        stats.append("Локальный кэш:\n");
+        appendCacheStats(stats, "Ветки игроков в кэше", playerThreadCache);
+        appendCacheStats(stats, "Ветки модераторов в кэше", moderatorThreadCache);
+        appendCacheStats(stats, "Первые сообщения веток в кэше", starterMessageCache);
+        appendCacheStats(stats, "Discord ID в кэше", playerDiscordCache);
+        appendCacheStats(stats, "Разрешения в кэше", writePermissionsCache);
+        return stats.toString();
+    }
+
+    private static void appendCacheStats(StringBuilder stats, String label, Cache<String, ?> cache) {
+        CacheStats cacheStats = cache.stats();
+        stats.append("- ").append(label).append(": ").append(cache.estimatedSize())
+                .append(String.format(" (попаданий %.1f%%)", cacheStats.hitRate() * 100))
+                .append("\n");
+    }
+
+    @Override
+    public void clearCaches() {
+        playerThreadCache.invalidateAll();
+        moderatorThreadCache.invalidateAll();
+        starterMessageCache.invalidateAll();
+        playerDiscordCache.invalidateAll();
+        writePermissionsCache.invalidateAll();
+        logger.info("Все локальные кэши очищены");
+    }
+
+    @Override
+    public void shutdown() {
+        clearCaches();
+    }
+}
@@ -126,9 +126,9 @@ public class CommandHandler implements CommandExecutor, TabCompleter {
                 stats.append("§e").append(plugin.getForumManager().getForumStats()).append("\n");
             }
             
-            // Статистика Redis
-            if (plugin.getRedisManager() != null && plugin.getRedisManager().isEnabled()) {
-                stats.append("§e").append(plugin.getRedisManager().getRedisStats()).append("\n");
+            // Статистика кэшей (Redis или локальных)
+            if (plugin.getCacheProvider() != null) {
+                stats.append("§e").append(plugin.getCacheProvider().getStats()).append("\n");
             }
             
             // Статистика AuthBot API
@@ -154,16 +154,21 @@ public class CommandHandler implements CommandExecutor, TabCompleter {
             return true;
         }
         
-        try {
-            if (plugin.getRedisManager() != null && plugin.getRedisManager().isEnabled()) {
-                int queueSize = plugin.getRedisManager().getQueueSize();
-                sender.sendMessage("§6Размер очереди Discord действий: §e" + queueSize);
-            } else {
-                sender.sendMessage("§cRedis не подключен, очередь недоступна");
+        // Запрос к базе данных выполняется вне основного потока
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                if (plugin.getPunishmentService() != null) {
+                    sender.sendMessage("§6" + plugin.getPunishmentService().getOutboxDispatcher().getStats());
+                }
+                
+                if (plugin.getRedisManager() != null && plugin.getRedisManager().isEnabled()) {
+                    int queueSize = plugin.getRedisManager().getQueueSize();
+                    sender.sendMessage("§6Размер очереди Discord действий (Redis): §e" + queueSize);
+                }
+            } catch (Exception e) {
+                sender.sendMessage("§cОшибка при получении размера очереди: " + e.getMessage());
             }
-        } catch (Exception e) {
-            sender.sendMessage("§cОшибка при получении размера очереди: " + e.getMessage());
-        }
+        });
         
         return true;
     }
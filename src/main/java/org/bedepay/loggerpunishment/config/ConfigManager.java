@@ -111,6 +111,12 @@ public class ConfigManager {
         ConfigurationSection sqlite = db.getConfigurationSection("sqlite");
         if (sqlite != null) {
             databaseConfig.sqliteFile = sqlite.getString("file", "punishment_logs.db");
+            databaseConfig.sqliteJournalMode = sqlite.getString("journal_mode", "WAL");
+            databaseConfig.sqliteSynchronous = sqlite.getString("synchronous", "NORMAL");
+            databaseConfig.sqliteBusyTimeout = sqlite.getInt("busy_timeout", 5000);
+            databaseConfig.sqliteCacheSize = sqlite.getInt("cache_size", -16000);
+            databaseConfig.sqliteMmapSize = sqlite.getLong("mmap_size", 268435456L);
+            databaseConfig.sqliteSingleWriter = sqlite.getBoolean("single_writer", true);
         }
         
         // MySQL настройки
@@ -132,6 +138,14 @@ public class ConfigManager {
             databaseConfig.idleTimeout = pool.getLong("idle_timeout", 600000);
             databaseConfig.maxLifetime = pool.getLong("max_lifetime", 1800000);
         }
+        
+        // Настройки пакетной записи
+        ConfigurationSection batch = db.getConfigurationSection("batch");
+        if (batch != null) {
+            databaseConfig.batchMaxSize = batch.getInt("max_size", 100);
+            databaseConfig.batchFlushInterval = batch.getLong("flush_interval", 5);
+            databaseConfig.batchQueueSize = batch.getInt("queue_size", 5000);
+        }
     }
     
     private void loadDiscordConfig() {
@@ -143,6 +157,8 @@ public class ConfigManager {
         discordConfig = new DiscordConfig();
         discordConfig.token = discord.getString("token", "YOUR_DISCORD_BOT_TOKEN");
         discordConfig.guildId = discord.getLong("guild_id", 0);
+        discordConfig.apiUrl = discord.getString("api_url", "");
+        discordConfig.gatewayUrl = discord.getString("gateway_url", "");
         
         // Каналы
         ConfigurationSection channels = discord.getConfigurationSection("channels");
@@ -265,6 +281,46 @@ public class ConfigManager {
         pluginSettings.verboseLogging = settings.getBoolean("verbose_logging", true);
         pluginSettings.autoBackup = settings.getBoolean("auto_backup", true);
         pluginSettings.backupIntervalHours = settings.getInt("backup_interval_hours", 24);
+        
+        // Пул обработки наказаний
+        ConfigurationSection processing = settings.getConfigurationSection("processing");
+        if (processing != null) {
+            pluginSettings.processingThreads = processing.getInt("threads", 4);
+            pluginSettings.processingQueueSize = processing.getInt("queue_size", 500);
+            pluginSettings.processingRejectionPolicy = processing.getString("rejection_policy", "caller_runs");
+            pluginSettings.processingBlockTimeout = processing.getLong("block_timeout", 5000);
+            pluginSettings.processingShutdownTimeout = processing.getInt("shutdown_timeout", 10);
+        }
+
+        pluginSettings.executionMode = settings.getString("execution_mode", "platform");
+
+        ConfigurationSection virtual = settings.getConfigurationSection("virtual_threads");
+        if (virtual != null) {
+            pluginSettings.virtualDatabasePermits = virtual.getInt("database_permits", 0);
+            pluginSettings.virtualDiscordPermits = virtual.getInt("discord_permits", 5);
+        }
+
+        // Исходящая очередь Discord
+        ConfigurationSection outbox = settings.getConfigurationSection("outbox");
+        if (outbox != null) {
+            pluginSettings.outboxPollInterval = outbox.getLong("poll_interval", 1000);
+            pluginSettings.outboxBatchSize = outbox.getInt("batch_size", 20);
+            pluginSettings.outboxMaxAttempts = outbox.getInt("max_attempts", 10);
+            pluginSettings.outboxMaxBackoff = outbox.getInt("max_backoff", 600);
+        }
+
+        // Очередь запросов каждого канала Discord
+        pluginSettings.discordChannelQueueSize = settings.getInt("discord_channel_queue_size", 200);
+        
+        // Фоновая очистка истории каналов
+        ConfigurationSection channelSweep = settings.getConfigurationSection("channel_sweep");
+        if (channelSweep != null) {
+            pluginSettings.channelSweepOnStartup = channelSweep.getBoolean("on_startup", true);
+            pluginSettings.channelSweepPageInterval = channelSweep.getLong("page_interval", 2000);
+        }
+        
+        // Проверка агрегированной статистики (минуты)
+        pluginSettings.statisticsVerifyInterval = settings.getInt("statistics_verify_interval", 360);
     }
     
     private void loadIntegrationSettings() {
@@ -344,6 +400,12 @@ public class ConfigManager {
     public static class DatabaseConfig {
         public String type = "sqlite";
         public String sqliteFile = "punishment_logs.db";
+        public String sqliteJournalMode = "WAL";
+        public String sqliteSynchronous = "NORMAL";
+        public int sqliteBusyTimeout = 5000;
+        public int sqliteCacheSize = -16000;
+        public long sqliteMmapSize = 268435456L;
+        public boolean sqliteSingleWriter = true;
         public String mysqlHost = "localhost";
         public int mysqlPort = 3306;
         public String mysqlDatabase = "minecraft";
@@ -354,11 +416,16 @@ public class ConfigManager {
         public long connectionTimeout = 30000;
         public long idleTimeout = 600000;
         public long maxLifetime = 1800000;
+        public int batchMaxSize = 100;
+        public long batchFlushInterval = 5;
+        public int batchQueueSize = 5000;
     }
     
     public static class DiscordConfig {
         public String token = "YOUR_DISCORD_BOT_TOKEN";
         public long guildId = 0;
+        public String apiUrl = "";
+        public String gatewayUrl = "";
         public long playersForumId = 0;
         public long moderatorsForumId = 0;
         public long logChannelId = 0;
@@ -400,6 +467,32 @@ public class ConfigManager {
         public boolean verboseLogging = true;
         public boolean autoBackup = true;
         public int backupIntervalHours = 24;
+        public int processingThreads = 4;
+        public int processingQueueSize = 500;
+        public String processingRejectionPolicy = "caller_runs";
+        public long processingBlockTimeout = 5000;
+        public int processingShutdownTimeout = 10;
+
+        // Режим выполнения: platform или virtual
+        public String executionMode = "platform";
+        public int virtualDatabasePermits = 0;
+        public int virtualDiscordPermits = 5;
+
+        // Исходящая очередь Discord
+        public long outboxPollInterval = 1000;
+        public int outboxBatchSize = 20;
+        public int outboxMaxAttempts = 10;
+        public int outboxMaxBackoff = 600;
+        
+        // Очередь запросов каждого канала Discord
+        public int discordChannelQueueSize = 200;
+        
+        // Фоновая очистка истории каналов
+        public boolean channelSweepOnStartup = true;
+        public long channelSweepPageInterval = 2000;
+
+        // Проверка таблицы punishment_statistics (минуты, 0 - только при запуске)
+        public int statisticsVerifyInterval = 360;
     }
     
     public static class IntegrationSettings {
@@ -0,0 +1,359 @@
+package org.bedepay.loggerpunishment.database;
+
+import org.bedepay.loggerpunishment.config.ConfigManager;
+import org.bedepay.loggerpunishment.model.OutboxEntry;
+import org.bedepay.loggerpunishment.model.PunishmentData;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Пакетная запись наказаний (group commit).
+ * Операции копятся до batch.max_size штук или batch.flush_interval мс
+ * и записываются одной транзакцией через addBatch/executeBatch.
+ * Для SQLite это единственный поток, который пишет в базу: остальные записи
+ * передаются сюда через submit() и выполняются на соединении писателя.
+ * При database.sqlite.single_writer: false потока нет: каждая операция пишется
+ * сразу в вызывающем потоке отдельной транзакцией на соединении из общего пула.
+ */
+public class BatchWriter {
+
+    private final DatabaseManager databaseManager;
+    private final Logger logger;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread writerThread;
+    private final boolean direct;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+
+    private volatile boolean running = true;
+
+    // Метрики
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong fallbackFlushes = new AtomicLong();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+
+    public BatchWriter(DatabaseManager databaseManager, ConfigManager.DatabaseConfig dbConfig, Logger logger) {
+        this.databaseManager = databaseManager;
+        this.logger = logger;
+        this.maxBatchSize = Math.max(1, dbConfig.batchMaxSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, dbConfig.batchFlushInterval));
+        this.queue = new LinkedBlockingQueue<>(Math.max(maxBatchSize, dbConfig.batchQueueSize));
+
+        this.direct = databaseManager.isSQLite() && !dbConfig.sqliteSingleWriter;
+
+        if (direct) {
+            this.writerThread = null;
+            return;
+        }
+
+        this.writerThread = new Thread(this::runLoop, "LoggerPunishment-BatchWriter");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // ==================== ПОСТАНОВКА ОПЕРАЦИЙ ====================
+
+    /**
+     * Вставить наказание (и запись исходящей очереди, если указана).
+     * Future завершается сгенерированным ID после фиксации транзакции.
+     */
+    public CompletableFuture<Long> insertPunishment(PunishmentData punishment, OutboxEntry outboxEntry) {
+        return enqueue(new PendingWrite(WriteKind.INSERT, punishment, outboxEntry, null)).thenApply(id -> (Long) id);
+    }
+
+    /**
+     * Записать снятие наказания (и добавить запись исходящей очереди, если указана)
+     */
+    public CompletableFuture<Void> updatePunishment(PunishmentData punishment, OutboxEntry outboxEntry) {
+        return enqueue(new PendingWrite(WriteKind.UPDATE, punishment, outboxEntry, null)).thenApply(id -> null);
+    }
+
+    /**
+     * Записать ID веток и сообщений после доставки в Discord, не трогая состояние наказания
+     */
+    public CompletableFuture<Void> recordDelivery(PunishmentData punishment) {
+        return enqueue(new PendingWrite(WriteKind.DELIVERY, punishment, null, null)).thenApply(id -> null);
+    }
+
+    /**
+     * Выполнить произвольную запись на соединении писателя в составе очередного пакета
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(DatabaseManager.ConnectionWork<T> work) {
+        return enqueue(new PendingWrite(WriteKind.WORK, null, null, work)).thenApply(result -> (T) result);
+    }
+
+    /**
+     * Выполняется ли код в потоке пакетной записи
+     */
+    public boolean isWriterThread() {
+        return Thread.currentThread() == writerThread;
+    }
+
+    private CompletableFuture<Object> enqueue(PendingWrite write) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Пакетная запись остановлена"));
+        }
+
+        if (direct) {
+            flush(new ArrayList<>(List.of(write)));
+            return write.future;
+        }
+
+        try {
+            // При заполненной очереди вызывающий поток ждет - естественное ограничение нагрузки
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return write.future;
+    }
+
+    // ==================== ЗАПИСЬ ====================
+
+    /**
+     * Основной цикл: собрать пакет и записать его
+     */
+    private void runLoop() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                collect(batch);
+                flush(batch);
+
+            } catch (InterruptedException e) {
+                // Остановка: дописываем все, что осталось
+                queue.drainTo(batch);
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                break;
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Ошибка в потоке пакетной записи: " + e.getMessage(), e);
+                batch.forEach(write -> write.future.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Добрать операции в пакет, пока не истек интервал или не достигнут размер
+     */
+    private void collect(List<PendingWrite> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                return;
+            }
+
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Записать пакет одной транзакцией; при ошибке - по одной операции, чтобы не терять весь пакет
+     */
+    private void flush(List<PendingWrite> batch) {
+        try {
+            writeInTransaction(batch);
+
+            flushes.incrementAndGet();
+            writes.addAndGet(batch.size());
+            largestBatch.accumulateAndGet(batch.size(), Math::max);
+            batch.forEach(write -> write.future.complete(write.kind == WriteKind.WORK ? write.result : write.punishment.getId()));
+
+        } catch (SQLException | RuntimeException e) {
+            if (batch.size() == 1) {
+                if (batch.get(0).kind != WriteKind.WORK) {
+                    logger.log(Level.SEVERE, "Ошибка при записи наказания: " + e.getMessage(), e);
+                }
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+
+            fallbackFlushes.incrementAndGet();
+            logger.warning("Пакетная запись из " + batch.size() + " операций не удалась (" + e.getMessage() + "), запись по одной");
+
+            for (PendingWrite write : batch) {
+                flush(new ArrayList<>(List.of(write)));
+            }
+        }
+    }
+
+    private void writeInTransaction(List<PendingWrite> batch) throws SQLException {
+        try (Connection conn = databaseManager.getWriteConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try {
+                writeInserts(conn, batch);
+                writeUpdates(conn, batch);
+                writeDeliveries(conn, batch);
+                writeOutboxEntries(conn, batch);
+                executeWork(conn, batch);
+
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void writeInserts(Connection conn, List<PendingWrite> batch) throws SQLException {
+        List<PunishmentData> inserts = batch.stream()
+                .filter(write -> write.kind == WriteKind.INSERT)
+                .map(write -> write.punishment)
+                .toList();
+        if (inserts.isEmpty()) {
+            return;
+        }
+
+        databaseManager.applyInsertCounters(conn, inserts);
+        databaseManager.punishments().insertAll(conn, inserts);
+    }
+
+    private void writeUpdates(Connection conn, List<PendingWrite> batch) throws SQLException {
+        List<PunishmentData> updates = batch.stream()
+                .filter(write -> write.kind == WriteKind.UPDATE)
+                .map(write -> write.punishment)
+                .toList();
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        databaseManager.applyDeactivationCounters(conn, updates);
+        databaseManager.punishments().updateAll(conn, updates);
+    }
+
+    private void writeDeliveries(Connection conn, List<PendingWrite> batch) throws SQLException {
+        List<PunishmentData> deliveries = batch.stream()
+                .filter(write -> write.kind == WriteKind.DELIVERY)
+                .map(write -> write.punishment)
+                .toList();
+
+        databaseManager.punishments().updateDeliveryAll(conn, deliveries);
+    }
+
+    private void writeOutboxEntries(Connection conn, List<PendingWrite> batch) throws SQLException {
+        List<OutboxEntry> entries = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            if (write.outboxEntry != null) {
+                write.outboxEntry.setPunishmentRecordId(write.punishment.getId());
+                entries.add(write.outboxEntry);
+            }
+        }
+
+        databaseManager.outbox().insertAll(conn, entries);
+    }
+
+    /**
+     * Выполнить поставленные через submit() операции в той же транзакции
+     */
+    private void executeWork(Connection conn, List<PendingWrite> batch) throws SQLException {
+        for (PendingWrite write : batch) {
+            if (write.kind == WriteKind.WORK) {
+                write.result = write.work.execute(conn);
+            }
+        }
+    }
+
+    // ==================== СОСТОЯНИЕ ====================
+
+    /**
+     * Получить статистику пакетной записи
+     */
+    public String getStats() {
+        long flushCount = flushes.get();
+        return String.format("🗃️ Пакетная запись: в очереди %d, фиксаций %d, операций %d (в среднем %.1f, максимум %d), откатов на поштучную запись %d",
+                queue.size(),
+                flushCount,
+                writes.get(),
+                flushCount > 0 ? (double) writes.get() / flushCount : 0.0,
+                largestBatch.get(),
+                fallbackFlushes.get());
+    }
+
+    /**
+     * Остановить запись, дописав накопленные операции
+     */
+    public void shutdown() {
+        running = false;
+        if (direct) {
+            return;
+        }
+
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (writerThread.isAlive()) {
+            writerThread.interrupt();
+            logger.warning("Поток пакетной записи не завершился вовремя, осталось операций: " + queue.size());
+        }
+
+        // Операции, поставленные уже после остановки цикла
+        List<PendingWrite> rejected = new ArrayList<>();
+        queue.drainTo(rejected);
+        rejected.forEach(write -> write.future.completeExceptionally(new IllegalStateException("Пакетная запись остановлена")));
+    }
+
+    /**
+     * Операция, ожидающая записи
+     */
+    private static final class PendingWrite {
+        final WriteKind kind;
+        final PunishmentData punishment;
+        final OutboxEntry outboxEntry;
+        final DatabaseManager.ConnectionWork<?> work;
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        Object result;
+
+        PendingWrite(WriteKind kind, PunishmentData punishment, OutboxEntry outboxEntry, DatabaseManager.ConnectionWork<?> work) {
+            this.kind = kind;
+            this.punishment = punishment;
+            this.outboxEntry = outboxEntry;
+            this.work = work;
+        }
+    }
+
+    /**
+     * Вид операции
+     */
+    private enum WriteKind {
+        INSERT, UPDATE, DELIVERY, WORK
+    }
+}
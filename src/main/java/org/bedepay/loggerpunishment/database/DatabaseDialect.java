@@ -0,0 +1,92 @@
+package org.bedepay.loggerpunishment.database;
+
+import org.bedepay.loggerpunishment.database.DatabaseTables.PunishmentLogs;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Param;
+import org.jooq.Query;
+import org.jooq.SQLDialect;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+
+/**
+ * Построение SQL под диалект базы данных через jOOQ.
+ * jOOQ здесь только рендерит запросы с параметрами "?": выполнение, привязка параметров
+ * и чтение результатов остаются на JDBC, поэтому форматы хранения (например, TIMESTAMP в SQLite)
+ * не меняются. Запросы рендерятся один раз при создании репозиториев.
+ */
+final class DatabaseDialect {
+
+    static {
+        // Без баннера и советов jOOQ в логе сервера
+        System.setProperty("org.jooq.no-logo", "true");
+        System.setProperty("org.jooq.no-tips", "true");
+    }
+
+    private final boolean mysql;
+    private final DSLContext dsl;
+
+    DatabaseDialect(boolean mysql) {
+        this.mysql = mysql;
+        this.dsl = DSL.using(mysql ? SQLDialect.MYSQL : SQLDialect.SQLITE, new Settings().withRenderFormatted(false));
+    }
+
+    boolean isMySQL() {
+        return mysql;
+    }
+
+    DSLContext dsl() {
+        return dsl;
+    }
+
+    /**
+     * SQL запроса с параметрами "?" в порядке их появления в построителе
+     */
+    String render(Query query) {
+        return dsl.render(query);
+    }
+
+    /**
+     * Значение колонки из вставляемой строки в ветке обновления upsert:
+     * excluded.col в SQLite (ON CONFLICT), псевдоним строки VALUES (...) AS t в MySQL
+     * (ON DUPLICATE KEY, MySQL 8.0.19+) вместо устаревшей функции VALUES(col)
+     */
+    <T> Field<T> inserted(Field<T> field) {
+        return DSL.excluded(field);
+    }
+
+    /**
+     * Параметр "?" с типом колонки
+     */
+    static <T> Param<T> param(Field<T> field) {
+        return DSL.param(field.getName(), field.getDataType());
+    }
+
+    /**
+     * Условие "колонка = true". Пишется буквально: jOOQ выводит для SQLite "= 1",
+     * а частичный индекс idx_punishments_expiring объявлен с условием active = true,
+     * и планировщик SQLite сопоставляет условия только по тексту
+     */
+    static Condition isTrue(Field<Boolean> field) {
+        return DSL.condition("{0} = true", field);
+    }
+
+    /**
+     * Счетчик, уменьшенный на единицу, но не ниже нуля
+     */
+    static Field<Integer> decremented(Field<Integer> counter) {
+        return DSL.when(counter.gt(DSL.inline(0)), counter.minus(DSL.inline(1))).otherwise(DSL.inline(0));
+    }
+
+    /**
+     * Наказание с ID из параметра еще активно: счетчики активных уменьшаются один раз,
+     * повторное снятие того же наказания их не меняет
+     */
+    static Condition punishmentStillActive() {
+        return DSL.exists(DSL.selectOne()
+                .from(PunishmentLogs.TABLE)
+                .where(PunishmentLogs.ID.eq(param(PunishmentLogs.ID)))
+                .and(isTrue(PunishmentLogs.ACTIVE)));
+    }
+}
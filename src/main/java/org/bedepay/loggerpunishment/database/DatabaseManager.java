@@ -4,11 +4,12 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.bedepay.loggerpunishment.LoggerPunishment;
 import org.bedepay.loggerpunishment.config.ConfigManager;
+import org.bedepay.loggerpunishment.discord.ForumManager;
 import org.bedepay.loggerpunishment.model.ModeratorData;
+import org.bedepay.loggerpunishment.model.OutboxEntry;
 import org.bedepay.loggerpunishment.model.PlayerData;
 import org.bedepay.loggerpunishment.model.PunishmentData;
-import org.bedepay.loggerpunishment.model.PunishmentType;
-import org.bedepay.loggerpunishment.model.UnbanType;
+import org.bedepay.loggerpunishment.model.PunishmentStatistics;
 
 import javax.sql.DataSource;
 import java.io.File;
@@ -17,17 +18,18 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,6 +42,16 @@ public class DatabaseManager {
     private final Logger logger;
     private final ConfigManager configManager;
     private HikariDataSource dataSource;
+    private HikariDataSource writeDataSource;
+    private volatile BatchWriter batchWriter;
+    
+    // Запросы, построенные под диалект базы при инициализации
+    private PunishmentRepository punishments;
+    private PlayerRepository players;
+    private ModeratorRepository moderators;
+    private StatisticsRepository statistics;
+    private OutboxRepository outbox;
+    private SettingsRepository settings;
     
     public DatabaseManager(LoggerPunishment plugin) {
         this.plugin = plugin;
@@ -67,6 +79,8 @@ public class DatabaseManager {
                 throw new IllegalArgumentException("Неподдерживаемый тип базы данных: " + dbConfig.type);
             }
             
+            createRepositories();
+            
             // Общие настройки пула соединений
             config.setMaximumPoolSize(dbConfig.maximumPoolSize);
             config.setMinimumIdle(dbConfig.minimumIdle);
@@ -75,8 +89,25 @@ public class DatabaseManager {
             config.setMaxLifetime(dbConfig.maxLifetime);
             config.setLeakDetectionThreshold(60000); // 60 секунд
             
+            if (isSQLite() && dbConfig.sqliteSingleWriter) {
+                // SQLite допускает только одного писателя: одно соединение на запись, остальные только читают
+                HikariConfig writeConfig = new HikariConfig();
+                config.copyStateTo(writeConfig);
+                writeConfig.setPoolName("LoggerPunishment-SQLite-Writer");
+                writeConfig.setMaximumPoolSize(1);
+                writeConfig.setMinimumIdle(1);
+                
+                writeDataSource = new HikariDataSource(writeConfig);
+                
+                config.setPoolName("LoggerPunishment-SQLite-Reader");
+                config.setConnectionInitSql("PRAGMA query_only = 1");
+            }
+            
             // Создание пула соединений
             dataSource = new HikariDataSource(config);
+            if (writeDataSource == null) {
+                writeDataSource = dataSource;
+            }
             
             // Проверка подключения
             testConnection();
@@ -84,6 +115,9 @@ public class DatabaseManager {
             // Выполнение миграций
             runMigrations();
             
+            // Запуск пакетной записи наказаний
+            batchWriter = new BatchWriter(this, dbConfig, logger);
+            
             logger.info("База данных успешно инициализирована (" + dbConfig.type.toUpperCase() + ")");
             
         } catch (Exception e) {
@@ -114,7 +148,15 @@ public class DatabaseManager {
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
         config.addDataSourceProperty("foreign_keys", "true");
         
-        logger.info("Настройка SQLite: " + dbPath);
+        // Прагмы применяются драйвером к каждому новому соединению
+        config.addDataSourceProperty("journal_mode", dbConfig.sqliteJournalMode);
+        config.addDataSourceProperty("synchronous", dbConfig.sqliteSynchronous);
+        config.addDataSourceProperty("busy_timeout", String.valueOf(dbConfig.sqliteBusyTimeout));
+        config.addDataSourceProperty("cache_size", String.valueOf(dbConfig.sqliteCacheSize));
+        config.addDataSourceProperty("mmap_size", String.valueOf(dbConfig.sqliteMmapSize));
+        
+        logger.info("Настройка SQLite: " + dbPath + " (journal_mode=" + dbConfig.sqliteJournalMode
+                + ", synchronous=" + dbConfig.sqliteSynchronous + ")");
     }
     
     /**
@@ -143,6 +185,20 @@ public class DatabaseManager {
         logger.info("Настройка MySQL: " + dbConfig.mysqlHost + ":" + dbConfig.mysqlPort + "/" + dbConfig.mysqlDatabase);
     }
     
+    /**
+     * Построение SQL всех репозиториев под выбранный диалект (один раз при запуске)
+     */
+    private void createRepositories() {
+        DatabaseDialect dialect = new DatabaseDialect(isMySQL());
+        
+        punishments = new PunishmentRepository(dialect);
+        players = new PlayerRepository(dialect);
+        moderators = new ModeratorRepository(dialect);
+        statistics = new StatisticsRepository(dialect);
+        outbox = new OutboxRepository(dialect);
+        settings = new SettingsRepository(dialect);
+    }
+    
     /**
      * Проверка подключения к базе данных
      */
@@ -157,213 +213,113 @@ public class DatabaseManager {
     }
     
     /**
-     * Выполнение миграций базы данных
+     * Выполнение миграций базы данных (только недостающих версий схемы)
      */
     private void runMigrations() {
         try {
-            logger.info("Выполнение миграций базы данных...");
-            
-            // Читаем SQL схему из ресурсов
-            String schemaSQL = readSchemaFromResources();
-            
-            // Для SQLite не используем транзакции при создании таблиц
-            try (Connection connection = getConnection();
-                 Statement statement = connection.createStatement()) {
-                
-                // Разделяем SQL на отдельные команды, учитывая многострочные команды
-                List<String> sqlCommands = parseSQLCommands(schemaSQL);
-                
-                logger.info("Найдено " + sqlCommands.size() + " SQL команд для выполнения");
-                
-                for (String sql : sqlCommands) {
-                    sql = sql.trim();
-                    if (!sql.isEmpty() && !sql.startsWith("--")) {
-                        try {
-                            statement.execute(sql);
-                        } catch (SQLException e) {
-                            // Игнорируем ошибки "уже существует" для SQLite
-                            if (!e.getMessage().contains("already exists") && 
-                                !e.getMessage().contains("duplicate column") &&
-                                !e.getMessage().contains("object name already exists")) {
-                                logger.warning("Ошибка при выполнении SQL: " + sql.substring(0, Math.min(sql.length(), 100)) + "... - " + e.getMessage());
-                            }
-                        }
-                    }
-                }
-                
-                logger.info("Миграции базы данных завершены");
+            int applied = new SchemaMigrator(plugin, this).migrate();
+            if (applied > 0) {
+                logger.info("Миграции базы данных завершены (применено: " + applied + ")");
+            } else {
+                logger.info("Схема базы данных актуальна (версия " + SchemaMigrator.latestVersion() + ")");
             }
             
-        } catch (Exception e) {
+        } catch (SQLException e) {
             logger.log(Level.SEVERE, "Ошибка при выполнении миграций: " + e.getMessage(), e);
             throw new RuntimeException("Не удалось выполнить миграции базы данных", e);
         }
     }
     
     /**
-     * Чтение SQL схемы из ресурсов
+     * Получить подключение к базе данных (для SQLite - только для чтения, запись идет через write())
      */
-    private String readSchemaFromResources() throws IOException {
-        StringBuilder content = new StringBuilder();
-        
-        try (Scanner scanner = new Scanner(
-                plugin.getResource("database_schema.sql"), "UTF-8")) {
-            
-            while (scanner.hasNextLine()) {
-                content.append(scanner.nextLine()).append("\n");
-            }
+    public Connection getConnection() throws SQLException {
+        if (dataSource == null || dataSource.isClosed()) {
+            throw new SQLException("База данных не инициализирована или закрыта");
         }
-        
-        return content.toString();
+        return dataSource.getConnection();
     }
     
     /**
-     * Парсинг SQL команд с учетом многострочных команд
+     * Получить соединение для записи (для SQLite - единственное соединение писателя).
+     * Обычно используется через write(), чтобы запись шла через поток пакетной записи.
      */
-    private List<String> parseSQLCommands(String sql) {
-        List<String> commands = new ArrayList<>();
-        StringBuilder currentCommand = new StringBuilder();
-        boolean inTrigger = false;
-        boolean inCreateTable = false;
-        boolean inCreateIndex = false;
-        int parenthesesLevel = 0;
-        String currentConstruct = "";
-        
-        String[] lines = sql.split("\n");
-        
-        for (String line : lines) {
-            String trimmedLine = line.trim();
-            
-            // Пропускаем комментарии и пустые строки
-            if (trimmedLine.isEmpty() || trimmedLine.startsWith("--")) {
-                continue;
-            }
-            
-            // Определяем начало различных конструкций
-            String upperLine = trimmedLine.toUpperCase();
-            
-            // Если уже внутри конструкции
-            if (inTrigger || inCreateTable || inCreateIndex) {
-                currentCommand.append(" ").append(trimmedLine);
-                
-                // Подсчитываем скобки для CREATE TABLE
-                if (inCreateTable) {
-                    for (char c : trimmedLine.toCharArray()) {
-                        if (c == '(') parenthesesLevel++;
-                        else if (c == ')') parenthesesLevel--;
-                    }
-                    
-                    // CREATE TABLE заканчивается когда скобки закрыты и есть ;
-                    if (parenthesesLevel == 0 && trimmedLine.endsWith(";")) {
-                        finishCommand(commands, currentCommand);
-                        inCreateTable = false;
-                        currentConstruct = "";
-                    }
-                } else if (inTrigger) {
-                    // TRIGGER заканчивается на END;
-                    if (upperLine.equals("END;") || upperLine.endsWith(" END;")) {
-                        finishCommand(commands, currentCommand);
-                        inTrigger = false;
-                        currentConstruct = "";
-                    }
-                } else if (inCreateIndex) {
-                    // INDEX - простая однострочная команда
-                    if (trimmedLine.endsWith(";")) {
-                        finishCommand(commands, currentCommand);
-                        inCreateIndex = false;
-                        currentConstruct = "";
-                    }
-                }
-                continue;
-            }
-            
-            // Завершаем предыдущую команду если начинается новая конструкция
-            if (currentCommand.length() > 0 && 
-                (upperLine.startsWith("CREATE TABLE") || 
-                 upperLine.startsWith("CREATE TRIGGER") || 
-                 upperLine.startsWith("CREATE INDEX"))) {
-                finishCommand(commands, currentCommand);
-            }
-            
-            // Обработка начала конструкций
-            if (upperLine.startsWith("CREATE TRIGGER")) {
-                inTrigger = true;
-                currentConstruct = "TRIGGER";
-                currentCommand.append(trimmedLine);
-            } else if (upperLine.startsWith("CREATE TABLE")) {
-                inCreateTable = true;
-                currentConstruct = "TABLE";
-                parenthesesLevel = 0;
-                currentCommand.append(trimmedLine);
-                
-                // Подсчитываем скобки в первой строке
-                for (char c : trimmedLine.toCharArray()) {
-                    if (c == '(') parenthesesLevel++;
-                    else if (c == ')') parenthesesLevel--;
-                }
-                
-                // Если команда завершена в одной строке
-                if (parenthesesLevel == 0 && trimmedLine.endsWith(";")) {
-                    finishCommand(commands, currentCommand);
-                    inCreateTable = false;
-                    currentConstruct = "";
-                }
-            } else if (upperLine.startsWith("CREATE INDEX") || upperLine.startsWith("CREATE UNIQUE INDEX")) {
-                inCreateIndex = true;
-                currentConstruct = "INDEX";
-                currentCommand.append(trimmedLine);
-                
-                // Если команда завершена в одной строке
-                if (trimmedLine.endsWith(";")) {
-                    finishCommand(commands, currentCommand);
-                    inCreateIndex = false;
-                    currentConstruct = "";
-                }
-            } else {
-                // Обычная команда
-                currentCommand.append(" ").append(trimmedLine);
+    Connection getWriteConnection() throws SQLException {
+        if (writeDataSource == null || writeDataSource.isClosed()) {
+            throw new SQLException("База данных не инициализирована или закрыта");
+        }
+        return writeDataSource.getConnection();
+    }
+    
+    /**
+     * Выполнить запись в транзакции. Для SQLite операция ставится в очередь потока пакетной записи,
+     * который владеет единственным соединением писателя; вызывающий поток ждет результата.
+     */
+    <T> T write(ConnectionWork<T> work) throws SQLException {
+        BatchWriter writer = batchWriter;
+        if (!isSQLite() || writer == null || writer.isWriterThread()) {
+            try (Connection conn = getWriteConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
                 
-                // Простые команды заканчиваются на ;
-                if (trimmedLine.endsWith(";")) {
-                    finishCommand(commands, currentCommand);
+                try {
+                    T result = work.execute(conn);
+                    conn.commit();
+                    return result;
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
                 }
             }
         }
         
-        // Добавляем последнюю команду если есть
-        if (currentCommand.length() > 0) {
-            finishCommand(commands, currentCommand);
+        try {
+            return writer.submit(work).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new SQLException(cause);
         }
-        
-        return commands;
     }
     
     /**
-     * Завершить и добавить команду в список
+     * Операция над соединением с базой данных
      */
-    private void finishCommand(List<String> commands, StringBuilder currentCommand) {
-        String command = currentCommand.toString().trim();
-        if (command.endsWith(";")) {
-            command = command.substring(0, command.length() - 1).trim();
-        }
-        if (!command.isEmpty()) {
-            commands.add(command);
-        }
-        currentCommand.setLength(0);
+    @FunctionalInterface
+    public interface ConnectionWork<T> {
+        T execute(Connection conn) throws SQLException;
     }
     
     /**
-     * Получить подключение к базе данных
+     * Получить пакетную запись наказаний
      */
-    public Connection getConnection() throws SQLException {
-        if (dataSource == null || dataSource.isClosed()) {
-            throw new SQLException("База данных не инициализирована или закрыта");
-        }
-        return dataSource.getConnection();
+    public BatchWriter getBatchWriter() {
+        return batchWriter;
+    }
+    
+    /**
+     * Используется ли MySQL
+     */
+    public boolean isMySQL() {
+        return "mysql".equalsIgnoreCase(configManager.getDatabaseConfig().type);
+    }
+    
+    /**
+     * Используется ли SQLite
+     */
+    public boolean isSQLite() {
+        return "sqlite".equalsIgnoreCase(configManager.getDatabaseConfig().type);
     }
     
     /**
-     * Получить DataSource для JOOQ
+     * Получить DataSource для JOOQ (для SQLite - пул только для чтения)
      */
     public DataSource getDataSource() {
         return dataSource;
@@ -393,11 +349,34 @@ public class DatabaseManager {
             return "DataSource не инициализирован";
         }
         
-        return String.format("Pool Stats - Active: %d, Idle: %d, Total: %d, Waiting: %d",
+        String stats = String.format("Pool Stats - Active: %d, Idle: %d, Total: %d, Waiting: %d",
                 dataSource.getHikariPoolMXBean().getActiveConnections(),
                 dataSource.getHikariPoolMXBean().getIdleConnections(),
                 dataSource.getHikariPoolMXBean().getTotalConnections(),
                 dataSource.getHikariPoolMXBean().getThreadsAwaitingConnection());
+        
+        if (writeDataSource != null && writeDataSource != dataSource) {
+            stats += String.format(" | Writer - Active: %d, Waiting: %d",
+                    writeDataSource.getHikariPoolMXBean().getActiveConnections(),
+                    writeDataSource.getHikariPoolMXBean().getThreadsAwaitingConnection());
+        }
+        
+        return stats;
+    }
+    
+    /**
+     * Количество потоков, ожидающих соединение (чтение и запись)
+     */
+    public int getThreadsAwaitingConnection() {
+        if (dataSource == null) {
+            return 0;
+        }
+        
+        int waiting = dataSource.getHikariPoolMXBean().getThreadsAwaitingConnection();
+        if (writeDataSource != null && writeDataSource != dataSource) {
+            waiting += writeDataSource.getHikariPoolMXBean().getThreadsAwaitingConnection();
+        }
+        return waiting;
     }
     
     /**
@@ -431,6 +410,15 @@ public class DatabaseManager {
             String backupFileName = "punishment_logs_backup_" + timestamp + ".db";
             File backupFile = new File(backupFolder, backupFileName);
             
+            // Перенести журнал WAL в основной файл, иначе копия не увидит последние записи
+            // Соединение писателя занимается ненадолго, пакетная запись дождется его в пуле
+            try (Connection conn = getWriteConnection();
+                 Statement statement = conn.createStatement()) {
+                statement.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            } catch (SQLException e) {
+                logger.warning("Не удалось выполнить checkpoint WAL перед резервным копированием: " + e.getMessage());
+            }
+            
             // Копирование файла
             Path source = dbFile.toPath();
             Path target = backupFile.toPath();
@@ -479,11 +467,20 @@ public class DatabaseManager {
             if (dataSource != null && !dataSource.isClosed()) {
                 logger.info("Закрытие подключения к базе данных...");
                 
+                // Дописать накопленные операции до закрытия пула
+                if (batchWriter != null) {
+                    batchWriter.shutdown();
+                    batchWriter = null;
+                }
+                
                 // Создание финальной резервной копии
                 if (configManager.getPluginSettings().autoBackup) {
                     createBackup();
                 }
                 
+                if (writeDataSource != null && writeDataSource != dataSource) {
+                    writeDataSource.close();
+                }
                 dataSource.close();
                 logger.info("Подключение к базе данных закрыто");
             }
@@ -498,39 +495,12 @@ public class DatabaseManager {
      * Сохранить наказание в базу данных
      */
     public void savePunishment(PunishmentData punishment) {
-        String sql = """
-            INSERT INTO punishment_logs (
-                type, player_uuid, player_name, moderator_uuid, moderator_name, 
-                punishment_id, reason, duration, expires_at, jail_name,
-                player_thread_id, moderator_thread_id, active, created_at
-            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-            """;
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setString(1, punishment.getType().name());
-            stmt.setString(2, punishment.getPlayerUuid().toString());
-            stmt.setString(3, punishment.getPlayerName());
-            stmt.setString(4, punishment.getModeratorUuid() != null ? punishment.getModeratorUuid().toString() : null);
-            stmt.setString(5, punishment.getModeratorName());
-            stmt.setString(6, punishment.getPunishmentId());
-            stmt.setString(7, punishment.getReason());
-            stmt.setLong(8, punishment.getDuration() != null ? punishment.getDuration() : 0);
-            stmt.setTimestamp(9, punishment.getExpiresAt() != null ? Timestamp.from(punishment.getExpiresAt()) : null);
-            stmt.setString(10, punishment.getJailName());
-            stmt.setLong(11, punishment.getPlayerThreadId() != null ? punishment.getPlayerThreadId() : 0);
-            stmt.setLong(12, punishment.getModeratorThreadId() != null ? punishment.getModeratorThreadId() : 0);
-            stmt.setBoolean(13, punishment.isActive());
-            stmt.setTimestamp(14, Timestamp.from(punishment.getCreatedAt()));
-            
-            stmt.executeUpdate();
-            
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    punishment.setId(generatedKeys.getLong(1));
-                }
-            }
+        try {
+            write(conn -> {
+                applyInsertCounters(conn, List.of(punishment));
+                punishments.insertAll(conn, List.of(punishment));
+                return null;
+            });
             
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Ошибка при сохранении наказания: " + e.getMessage(), e);
@@ -539,36 +509,15 @@ public class DatabaseManager {
     }
     
     /**
-     * Обновить наказание в базе данных
+     * Записать снятие наказания в базу данных
      */
     public void updatePunishment(PunishmentData punishment) {
-        String sql = """
-            UPDATE punishment_logs SET 
-                player_thread_id = ?, moderator_thread_id = ?, 
-                player_message_id = ?, moderator_message_id = ?, log_message_id = ?,
-                active = ?, unbanned_at = ?, unban_reason = ?, 
-                unban_moderator_uuid = ?, unban_moderator_name = ?, unban_type = ?,
-                updated_at = CURRENT_TIMESTAMP
-            WHERE id = ?
-            """;
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setLong(1, punishment.getPlayerThreadId() != null ? punishment.getPlayerThreadId() : 0);
-            stmt.setLong(2, punishment.getModeratorThreadId() != null ? punishment.getModeratorThreadId() : 0);
-            stmt.setLong(3, punishment.getPlayerMessageId() != null ? punishment.getPlayerMessageId() : 0);
-            stmt.setLong(4, punishment.getModeratorMessageId() != null ? punishment.getModeratorMessageId() : 0);
-            stmt.setLong(5, punishment.getLogMessageId() != null ? punishment.getLogMessageId() : 0);
-            stmt.setBoolean(6, punishment.isActive());
-            stmt.setTimestamp(7, punishment.getUnbannedAt() != null ? Timestamp.from(punishment.getUnbannedAt()) : null);
-            stmt.setString(8, punishment.getUnbanReason());
-            stmt.setString(9, punishment.getUnbanModeratorUuid() != null ? punishment.getUnbanModeratorUuid().toString() : null);
-            stmt.setString(10, punishment.getUnbanModeratorName());
-            stmt.setString(11, punishment.getUnbanType() != null ? punishment.getUnbanType().name() : null);
-            stmt.setLong(12, punishment.getId());
-            
-            stmt.executeUpdate();
+        try {
+            write(conn -> {
+                applyDeactivationCounters(conn, List.of(punishment));
+                punishments.updateAll(conn, List.of(punishment));
+                return null;
+            });
             
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Ошибка при обновлении наказания: " + e.getMessage(), e);
@@ -577,20 +526,41 @@ public class DatabaseManager {
     }
     
     /**
-     * Получить наказание по ID наказания (из LiteBans/CMI)
+     * Записать ID веток и сообщений наказания после отправки в Discord
      */
-    public PunishmentData getPunishmentByPunishmentId(String punishmentId) {
-        String sql = "SELECT * FROM punishment_logs WHERE punishment_id = ? AND active = true";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    public void updatePunishmentMessages(PunishmentData punishment) {
+        try {
+            write(conn -> {
+                punishments.updateDeliveryAll(conn, List.of(punishment));
+                return null;
+            });
             
-            stmt.setString(1, punishmentId);
-            ResultSet rs = stmt.executeQuery();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Ошибка при сохранении ID сообщений наказания: " + e.getMessage(), e);
+            throw new RuntimeException("Не удалось сохранить ID сообщений наказания в базу данных", e);
+        }
+    }
+    
+    /**
+     * Получить наказание по внутреннему ID записи
+     */
+    public PunishmentData getPunishmentById(long id) {
+        try (Connection conn = getConnection()) {
+            return punishments.findById(conn, id);
             
-            if (rs.next()) {
-                return mapResultSetToPunishment(rs);
-            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Ошибка при поиске наказания по ID записи: " + e.getMessage(), e);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Получить наказание по ID наказания (из LiteBans/CMI)
+     */
+    public PunishmentData getPunishmentByPunishmentId(String punishmentId) {
+        try (Connection conn = getConnection()) {
+            return punishments.findActiveByPunishmentId(conn, punishmentId);
             
         } catch (SQLException e) {
             logger.log(Level.WARNING, "Ошибка при поиске наказания по ID: " + e.getMessage(), e);
@@ -603,26 +573,14 @@ public class DatabaseManager {
      * Получить истекшие наказания
      */
     public List<PunishmentData> getExpiredPunishments() {
-        String sql = """
-            SELECT * FROM punishment_logs 
-            WHERE active = true AND expires_at IS NOT NULL AND expires_at <= CURRENT_TIMESTAMP
-            """;
-        
-        List<PunishmentData> expired = new ArrayList<>();
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                expired.add(mapResultSetToPunishment(rs));
-            }
+        try (Connection conn = getConnection()) {
+            return punishments.findExpired(conn, Instant.now());
             
         } catch (SQLException e) {
             logger.log(Level.WARNING, "Ошибка при поиске истекших наказаний: " + e.getMessage(), e);
         }
         
-        return expired;
+        return new ArrayList<>();
     }
     
     // ==================== МЕТОДЫ ДЛЯ РАБОТЫ С ИГРОКАМИ ====================
@@ -631,17 +589,8 @@ public class DatabaseManager {
      * Получить игрока по UUID
      */
     public PlayerData getPlayerByUuid(UUID playerUuid) {
-        String sql = "SELECT * FROM players WHERE player_uuid = ?";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, playerUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return mapResultSetToPlayer(rs);
-            }
+        try (Connection conn = getConnection()) {
+            return players.find(conn, playerUuid);
             
         } catch (SQLException e) {
             logger.log(Level.WARNING, "Ошибка при поиске игрока: " + e.getMessage(), e);
@@ -651,31 +600,42 @@ public class DatabaseManager {
     }
     
     /**
-     * Сохранить или обновить игрока
+     * Сохранить или обновить игрока (один upsert без предварительного чтения).
+     * Счетчики наказаний ведутся инкрементально при записи наказаний и здесь не перезаписываются.
      */
     public void saveOrUpdatePlayer(PlayerData player) {
-        String sql = """
-            INSERT OR REPLACE INTO players (
-                player_uuid, player_name, discord_thread_id, 
-                total_punishments, active_punishments, last_punishment_at, updated_at
-            ) VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
-            """;
+        saveOrUpdatePlayers(List.of(player));
+    }
+    
+    /**
+     * Поставить сохранение игрока в очередь записи, не дожидаясь фиксации.
+     * Для потоков, которые нельзя блокировать (обратные вызовы JDA).
+     */
+    public CompletableFuture<Void> saveOrUpdatePlayerAsync(PlayerData player) {
+        return batchWriter.<Void>submit(conn -> {
+            players.upsertAll(conn, List.of(player));
+            return null;
+        });
+    }
+    
+    /**
+     * Сохранить или обновить нескольких игроков одним пакетом в одной транзакции записи.
+     * Upsert атомарен на уровне строки, поэтому внешняя блокировка статистики не нужна.
+     */
+    public void saveOrUpdatePlayers(Collection<PlayerData> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
         
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, player.getPlayerUuid().toString());
-            stmt.setString(2, player.getPlayerName());
-            stmt.setLong(3, player.getDiscordThreadId() != null ? player.getDiscordThreadId() : 0);
-            stmt.setInt(4, player.getTotalPunishments());
-            stmt.setInt(5, player.getActivePunishments());
-            stmt.setTimestamp(6, player.getLastPunishmentAt() != null ? Timestamp.from(player.getLastPunishmentAt()) : null);
-            
-            stmt.executeUpdate();
+        try {
+            write(conn -> {
+                players.upsertAll(conn, batch);
+                return null;
+            });
             
         } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Ошибка при сохранении игрока: " + e.getMessage(), e);
-            throw new RuntimeException("Не удалось сохранить игрока в базу данных", e);
+            logger.log(Level.SEVERE, "Ошибка при сохранении игроков: " + e.getMessage(), e);
+            throw new RuntimeException("Не удалось сохранить игроков в базу данных", e);
         }
     }
     
@@ -685,17 +645,8 @@ public class DatabaseManager {
      * Получить модератора по UUID
      */
     public ModeratorData getModeratorByUuid(UUID moderatorUuid) {
-        String sql = "SELECT * FROM moderators WHERE moderator_uuid = ?";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, moderatorUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return mapResultSetToModerator(rs);
-            }
+        try (Connection conn = getConnection()) {
+            return moderators.find(conn, moderatorUuid);
             
         } catch (SQLException e) {
             logger.log(Level.WARNING, "Ошибка при поиске модератора: " + e.getMessage(), e);
@@ -708,17 +659,8 @@ public class DatabaseManager {
      * Получить модератора по ID ветки Discord
      */
     public ModeratorData getModeratorByThreadId(long threadId) {
-        String sql = "SELECT * FROM moderators WHERE discord_thread_id = ?";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setLong(1, threadId);
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return mapResultSetToModerator(rs);
-            }
+        try (Connection conn = getConnection()) {
+            return moderators.findByThreadId(conn, threadId);
             
         } catch (SQLException e) {
             logger.log(Level.WARNING, "Ошибка при поиске модератора по ветке: " + e.getMessage(), e);
@@ -728,377 +670,349 @@ public class DatabaseManager {
     }
     
     /**
-     * Сохранить или обновить модератора
+     * Получить Discord ID модераторов по ID их веток (0 - Discord не привязан)
      */
-    public void saveOrUpdateModerator(ModeratorData moderator) {
-        String sql = """
-            INSERT OR REPLACE INTO moderators (
-                moderator_uuid, moderator_name, discord_id, discord_thread_id,
-                total_issued, active_issued, last_action_at, updated_at
-            ) VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
-            """;
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, moderator.getModeratorUuid().toString());
-            stmt.setString(2, moderator.getModeratorName());
-            stmt.setLong(3, moderator.getDiscordId() != null ? moderator.getDiscordId() : 0);
-            stmt.setLong(4, moderator.getDiscordThreadId() != null ? moderator.getDiscordThreadId() : 0);
-            stmt.setInt(5, moderator.getTotalIssued());
-            stmt.setInt(6, moderator.getActiveIssued());
-            stmt.setTimestamp(7, moderator.getLastActionAt() != null ? Timestamp.from(moderator.getLastActionAt()) : null);
-            
-            stmt.executeUpdate();
+    public Map<Long, Long> getModeratorDiscordIdsByThread() {
+        try (Connection conn = getConnection()) {
+            return moderators.findDiscordIdsByThread(conn);
             
         } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Ошибка при сохранении модератора: " + e.getMessage(), e);
-            throw new RuntimeException("Не удалось сохранить модератора в базу данных", e);
+            logger.log(Level.WARNING, "Ошибка при загрузке веток модераторов: " + e.getMessage(), e);
         }
+        
+        return new HashMap<>();
+    }
+    
+    /**
+     * Сохранить или обновить модератора (один upsert без предварительного чтения).
+     * Счетчики выданных наказаний ведутся инкрементально при записи наказаний и здесь не перезаписываются.
+     */
+    public void saveOrUpdateModerator(ModeratorData moderator) {
+        saveOrUpdateModerators(List.of(moderator));
     }
     
-    // ==================== МЕТОДЫ СТАТИСТИКИ ====================
+    /**
+     * Поставить сохранение модератора в очередь записи, не дожидаясь фиксации.
+     * Для потоков, которые нельзя блокировать (обратные вызовы JDA).
+     */
+    public CompletableFuture<Void> saveOrUpdateModeratorAsync(ModeratorData moderator) {
+        return batchWriter.<Void>submit(conn -> {
+            moderators.upsertAll(conn, List.of(moderator));
+            return null;
+        }).thenRun(() -> notifyModeratorDiscordIds(List.of(moderator)));
+    }
     
     /**
-     * Получить статистику наказаний игрока
+     * Сохранить или обновить нескольких модераторов одним пакетом в одной транзакции записи.
+     * Upsert атомарен на уровне строки, поэтому внешняя блокировка статистики не нужна.
      */
-    public Map<PunishmentType, Integer> getPlayerPunishmentCounts(UUID playerUuid) {
-        String sql = "SELECT type, COUNT(*) as count FROM punishment_logs WHERE player_uuid = ? GROUP BY type";
-        Map<PunishmentType, Integer> counts = new HashMap<>();
+    public void saveOrUpdateModerators(Collection<ModeratorData> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
         
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, playerUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            while (rs.next()) {
-                PunishmentType type = PunishmentType.valueOf(rs.getString("type"));
-                int count = rs.getInt("count");
-                counts.put(type, count);
-            }
+        try {
+            write(conn -> {
+                moderators.upsertAll(conn, batch);
+                return null;
+            });
             
         } catch (SQLException e) {
-            logger.log(Level.WARNING, "Ошибка при получении статистики игрока: " + e.getMessage(), e);
+            logger.log(Level.SEVERE, "Ошибка при сохранении модераторов: " + e.getMessage(), e);
+            throw new RuntimeException("Не удалось сохранить модераторов в базу данных", e);
         }
         
-        return counts;
+        notifyModeratorDiscordIds(batch);
     }
     
     /**
-     * Получить количество активных наказаний игрока по типам
+     * Сообщить ForumManager о сохраненных ID Discord модераторов (индекс владельцев веток)
      */
-    public Map<PunishmentType, Integer> getPlayerActivePunishmentCounts(UUID playerUuid) {
-        String sql = "SELECT type, COUNT(*) as count FROM punishment_logs WHERE player_uuid = ? AND active = true GROUP BY type";
-        Map<PunishmentType, Integer> counts = new HashMap<>();
+    private void notifyModeratorDiscordIds(Collection<ModeratorData> batch) {
+        ForumManager forumManager = plugin.getForumManager();
+        if (forumManager == null) {
+            return;
+        }
         
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, playerUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            while (rs.next()) {
-                PunishmentType type = PunishmentType.valueOf(rs.getString("type"));
-                int count = rs.getInt("count");
-                counts.put(type, count);
+        for (ModeratorData moderator : batch) {
+            if (moderator.getDiscordId() != null && moderator.getDiscordId() > 0) {
+                forumManager.onModeratorDiscordIdSaved(moderator);
             }
-            
-        } catch (SQLException e) {
-            logger.log(Level.WARNING, "Ошибка при подсчете активных наказаний игрока по типам: " + e.getMessage(), e);
         }
-        
-        return counts;
     }
     
+    // ==================== СЧЕТЧИКИ НАКАЗАНИЙ ====================
+    
     /**
-     * Получить список активных наказаний игрока
+     * Увеличить счетчики игроков, модераторов и punishment_statistics для новых наказаний.
+     * Вызывается в транзакции записи до вставки наказаний: строки игрока и модератора
+     * нужны внешним ключам punishment_logs.
      */
-    public List<PunishmentData> getPlayerActivePunishments(UUID playerUuid) {
-        String sql = "SELECT * FROM punishment_logs WHERE player_uuid = ? AND active = true ORDER BY created_at DESC";
-        List<PunishmentData> punishments = new ArrayList<>();
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, playerUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            while (rs.next()) {
-                punishments.add(mapResultSetToPunishment(rs));
-            }
-            
-        } catch (SQLException e) {
-            logger.log(Level.WARNING, "Ошибка при получении активных наказаний игрока: " + e.getMessage(), e);
+    void applyInsertCounters(Connection conn, List<PunishmentData> inserted) throws SQLException {
+        if (inserted.isEmpty()) {
+            return;
         }
         
-        return punishments;
+        players.incrementCounters(conn, inserted);
+        moderators.incrementCounters(conn, inserted);
+        statistics.applyInsert(conn, inserted);
     }
     
     /**
-     * Получить статистику выданных наказаний модератора
+     * Уменьшить счетчики активных наказаний для снятых наказаний.
+     * Вызывается в транзакции записи до обновления наказаний: уменьшение применяется,
+     * только если в базе наказание еще активно, поэтому повторное обновление ничего не меняет.
      */
-    public Map<PunishmentType, Integer> getModeratorIssuedCounts(UUID moderatorUuid) {
-        String sql = "SELECT type, COUNT(*) as count FROM punishment_logs WHERE moderator_uuid = ? GROUP BY type";
-        Map<PunishmentType, Integer> counts = new HashMap<>();
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, moderatorUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            while (rs.next()) {
-                PunishmentType type = PunishmentType.valueOf(rs.getString("type"));
-                int count = rs.getInt("count");
-                counts.put(type, count);
+    void applyDeactivationCounters(Connection conn, List<PunishmentData> updated) throws SQLException {
+        // Одно наказание может попасть в пакет дважды (снятие и ID сообщений) - уменьшаем один раз
+        Map<Long, PunishmentData> deactivated = new LinkedHashMap<>();
+        for (PunishmentData punishment : updated) {
+            if (!punishment.isActive() && punishment.getId() != null) {
+                deactivated.putIfAbsent(punishment.getId(), punishment);
             }
-            
-        } catch (SQLException e) {
-            logger.log(Level.WARNING, "Ошибка при получении статистики модератора: " + e.getMessage(), e);
         }
         
-        return counts;
+        if (deactivated.isEmpty()) {
+            return;
+        }
+        
+        statistics.applyDeactivation(conn, deactivated.values());
+        players.decrementActive(conn, deactivated.values());
+        moderators.decrementActive(conn, deactivated.values());
     }
     
+    // ==================== АГРЕГИРОВАННАЯ СТАТИСТИКА ====================
+    
     /**
-     * Получить общее количество наказаний игрока
+     * Получить снимок статистики игрока или модератора (пустой, если наказаний не было).
+     * Все счетчики читаются одной строкой punishment_statistics, активные наказания игрока -
+     * через то же соединение и только если счетчик активных не нулевой.
      */
-    public int getPlayerTotalPunishments(UUID playerUuid) {
-        String sql = "SELECT COUNT(*) as count FROM punishment_logs WHERE player_uuid = ?";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, playerUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getInt("count");
+    public PunishmentStatistics getPunishmentStatistics(UUID targetUuid, String targetType) {
+        try (Connection conn = getConnection()) {
+            PunishmentStatistics snapshot = statistics.find(conn, targetUuid, targetType, punishments);
+            if (snapshot != null) {
+                return snapshot;
             }
             
         } catch (SQLException e) {
-            logger.log(Level.WARNING, "Ошибка при подсчете наказаний игрока: " + e.getMessage(), e);
+            logger.log(Level.WARNING, "Ошибка при получении статистики наказаний: " + e.getMessage(), e);
         }
         
-        return 0;
+        return PunishmentStatistics.empty(targetUuid, targetType);
     }
     
     /**
-     * Получить количество активных наказаний игрока
+     * Сверить punishment_statistics с журналом наказаний и пересобрать таблицу при расхождении
      */
-    public int getPlayerActivePunishmentsCount(UUID playerUuid) {
-        String sql = "SELECT COUNT(*) as count FROM punishment_logs WHERE player_uuid = ? AND active = true";
+    public void verifyPunishmentStatistics() {
+        int drift = countStatisticsDrift();
+        if (drift < 0) {
+            return;
+        }
         
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, playerUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getInt("count");
+        if (drift == 0) {
+            if (configManager.getPluginSettings().debugMode) {
+                logger.info("Агрегированная статистика наказаний совпадает с журналом");
             }
-            
-        } catch (SQLException e) {
-            logger.log(Level.WARNING, "Ошибка при подсчете активных наказаний игрока: " + e.getMessage(), e);
+            return;
         }
         
-        return 0;
+        logger.warning("Расхождение агрегированной статистики наказаний: " + drift + " записей, выполняется пересборка");
+        int rows = rebuildPunishmentStatistics();
+        if (rows >= 0) {
+            logger.info("Статистика наказаний пересобрана: " + rows + " записей");
+        }
     }
     
     /**
-     * Получить общее количество выданных наказаний модератора
+     * Количество записей статистики, не совпадающих с журналом наказаний (-1 при ошибке)
      */
-    public int getModeratorTotalIssued(UUID moderatorUuid) {
-        String sql = "SELECT COUNT(*) as count FROM punishment_logs WHERE moderator_uuid = ?";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, moderatorUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getInt("count");
-            }
+    private int countStatisticsDrift() {
+        try (Connection conn = getConnection()) {
+            return statistics.countDrift(conn);
             
         } catch (SQLException e) {
-            logger.log(Level.WARNING, "Ошибка при подсчете наказаний модератора: " + e.getMessage(), e);
+            logger.log(Level.WARNING, "Ошибка при сверке статистики наказаний: " + e.getMessage(), e);
         }
         
-        return 0;
+        return -1;
     }
     
     /**
-     * Получить количество активных наказаний выданных модератором
+     * Пересобрать punishment_statistics из журнала наказаний (-1 при ошибке)
      */
-    public int getModeratorActiveIssued(UUID moderatorUuid) {
-        String sql = "SELECT COUNT(*) as count FROM punishment_logs WHERE moderator_uuid = ? AND active = true";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, moderatorUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getInt("count");
-            }
+    public int rebuildPunishmentStatistics() {
+        try {
+            // Через писателя: пересборка не пересекается с инкрементальными обновлениями
+            return write(statistics::rebuild);
             
         } catch (SQLException e) {
-            logger.log(Level.WARNING, "Ошибка при подсчете активных наказаний модератора: " + e.getMessage(), e);
+            logger.log(Level.WARNING, "Ошибка при пересборке статистики наказаний: " + e.getMessage(), e);
         }
         
-        return 0;
+        return -1;
     }
     
-    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
+    // ==================== МЕТОДЫ ДЛЯ ОЧЕРЕДИ DISCORD ====================
     
     /**
-     * Преобразование ResultSet в PunishmentData
+     * Захватить готовые к отправке записи очереди (по приоритету) и пометить их как PROCESSING
      */
-    private PunishmentData mapResultSetToPunishment(ResultSet rs) throws SQLException {
-        PunishmentData punishment = new PunishmentData();
-        
-        punishment.setId(rs.getLong("id"));
-        punishment.setType(PunishmentType.valueOf(rs.getString("type")));
-        punishment.setPlayerUuid(UUID.fromString(rs.getString("player_uuid")));
-        punishment.setPlayerName(rs.getString("player_name"));
-        
-        String moderatorUuidStr = rs.getString("moderator_uuid");
-        if (moderatorUuidStr != null) {
-            punishment.setModeratorUuid(UUID.fromString(moderatorUuidStr));
-        }
-        
-        punishment.setModeratorName(rs.getString("moderator_name"));
-        punishment.setPunishmentId(rs.getString("punishment_id"));
-        punishment.setReason(rs.getString("reason"));
-        
-        long duration = rs.getLong("duration");
-        if (duration > 0) {
-            punishment.setDuration(duration);
-        }
-        
-        Timestamp expiresAt = rs.getTimestamp("expires_at");
-        if (expiresAt != null) {
-            punishment.setExpiresAt(expiresAt.toInstant());
-        }
+    public List<OutboxEntry> claimOutboxEntries(int limit) {
+        Instant now = Instant.now();
         
-        punishment.setJailName(rs.getString("jail_name"));
-        
-        long playerThreadId = rs.getLong("player_thread_id");
-        if (playerThreadId > 0) {
-            punishment.setPlayerThreadId(playerThreadId);
-        }
-        
-        long moderatorThreadId = rs.getLong("moderator_thread_id");
-        if (moderatorThreadId > 0) {
-            punishment.setModeratorThreadId(moderatorThreadId);
-        }
-        
-        long playerMessageId = rs.getLong("player_message_id");
-        if (playerMessageId > 0) {
-            punishment.setPlayerMessageId(playerMessageId);
-        }
-        
-        long moderatorMessageId = rs.getLong("moderator_message_id");
-        if (moderatorMessageId > 0) {
-            punishment.setModeratorMessageId(moderatorMessageId);
-        }
-        
-        long logMessageId = rs.getLong("log_message_id");
-        if (logMessageId > 0) {
-            punishment.setLogMessageId(logMessageId);
+        try {
+            return write(conn -> outbox.claim(conn, limit, now));
+            
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Ошибка при выборке очереди Discord: " + e.getMessage(), e);
         }
         
-        punishment.setActive(rs.getBoolean("active"));
-        
-        Timestamp unbannedAt = rs.getTimestamp("unbanned_at");
-        if (unbannedAt != null) {
-            punishment.setUnbannedAt(unbannedAt.toInstant());
+        return new ArrayList<>();
+    }
+    
+    /**
+     * Отметить запись очереди как выполненную.
+     * Возвращает false, если запись уже вернули в очередь и захватили заново.
+     */
+    public boolean completeOutboxEntry(OutboxEntry entry) {
+        try {
+            return write(conn -> outbox.complete(conn, entry));
+            
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Ошибка при завершении записи очереди: " + e.getMessage(), e);
         }
         
-        punishment.setUnbanReason(rs.getString("unban_reason"));
-        
-        String unbanModeratorUuidStr = rs.getString("unban_moderator_uuid");
-        if (unbanModeratorUuidStr != null) {
-            punishment.setUnbanModeratorUuid(UUID.fromString(unbanModeratorUuidStr));
+        return false;
+    }
+    
+    /**
+     * Сохранить неудачную попытку: вернуть запись в PENDING с новым временем или пометить FAILED.
+     * Возвращает false, если запись уже вернули в очередь и захватили заново.
+     */
+    public boolean rescheduleOutboxEntry(OutboxEntry entry) {
+        try {
+            return write(conn -> outbox.reschedule(conn, entry));
+            
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Ошибка при обновлении записи очереди: " + e.getMessage(), e);
         }
         
-        punishment.setUnbanModeratorName(rs.getString("unban_moderator_name"));
+        return false;
+    }
+    
+    /**
+     * Продлить аренду записей очереди, которые еще доставляются
+     */
+    public void renewOutboxClaims(Collection<OutboxEntry> entries) {
+        Instant now = Instant.now();
         
-        String unbanTypeStr = rs.getString("unban_type");
-        if (unbanTypeStr != null) {
-            punishment.setUnbanType(UnbanType.valueOf(unbanTypeStr));
+        try {
+            write(conn -> {
+                outbox.renewClaims(conn, entries, now);
+                return null;
+            });
+            
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Ошибка при продлении захвата очереди Discord: " + e.getMessage(), e);
         }
-        
-        punishment.setCreatedAt(rs.getTimestamp("created_at").toInstant());
-        punishment.setUpdatedAt(rs.getTimestamp("updated_at").toInstant());
-        
-        return punishment;
     }
     
     /**
-     * Преобразование ResultSet в PlayerData
+     * Вернуть в PENDING записи, захваченные раньше claimedBefore и не завершенные
+     * (сервер, который их доставлял, остановился аварийно)
      */
-    private PlayerData mapResultSetToPlayer(ResultSet rs) throws SQLException {
-        PlayerData player = new PlayerData();
-        
-        player.setId(rs.getLong("id"));
-        player.setPlayerUuid(UUID.fromString(rs.getString("player_uuid")));
-        player.setPlayerName(rs.getString("player_name"));
-        
-        long threadId = rs.getLong("discord_thread_id");
-        if (threadId > 0) {
-            player.setDiscordThreadId(threadId);
+    public int recoverExpiredOutboxClaims(Instant claimedBefore) {
+        try {
+            return write(conn -> outbox.releaseExpiredClaims(conn, claimedBefore));
+            
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Ошибка при восстановлении очереди Discord: " + e.getMessage(), e);
         }
         
-        player.setTotalPunishments(rs.getInt("total_punishments"));
-        player.setActivePunishments(rs.getInt("active_punishments"));
-        
-        Timestamp lastPunishment = rs.getTimestamp("last_punishment_at");
-        if (lastPunishment != null) {
-            player.setLastPunishmentAt(lastPunishment.toInstant());
+        return 0;
+    }
+    
+    /**
+     * Удалить выполненные записи очереди старше указанного времени
+     */
+    public int deleteCompletedOutboxEntries(Instant olderThan) {
+        try {
+            return write(conn -> outbox.deleteCompleted(conn, olderThan));
+            
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Ошибка при очистке очереди Discord: " + e.getMessage(), e);
         }
         
-        player.setCreatedAt(rs.getTimestamp("created_at").toInstant());
-        player.setUpdatedAt(rs.getTimestamp("updated_at").toInstant());
-        
-        return player;
+        return 0;
     }
     
     /**
-     * Преобразование ResultSet в ModeratorData
+     * Получить количество записей очереди по статусам
      */
-    private ModeratorData mapResultSetToModerator(ResultSet rs) throws SQLException {
-        ModeratorData moderator = new ModeratorData();
-        
-        moderator.setId(rs.getLong("id"));
-        moderator.setModeratorUuid(UUID.fromString(rs.getString("moderator_uuid")));
-        moderator.setModeratorName(rs.getString("moderator_name"));
-        
-        long discordId = rs.getLong("discord_id");
-        if (discordId > 0) {
-            moderator.setDiscordId(discordId);
+    public Map<String, Integer> getOutboxStatusCounts() {
+        try (Connection conn = getConnection()) {
+            return outbox.countByStatus(conn);
+            
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Ошибка при подсчете очереди Discord: " + e.getMessage(), e);
         }
         
-        long threadId = rs.getLong("discord_thread_id");
-        if (threadId > 0) {
-            moderator.setDiscordThreadId(threadId);
+        return new HashMap<>();
+    }
+    
+    // ==================== НАСТРОЙКИ ПЛАГИНА ====================
+    
+    /**
+     * Получить значение из plugin_settings (null, если не задано)
+     */
+    public String getSetting(String key) {
+        try (Connection conn = getConnection()) {
+            return settings.find(conn, key);
+            
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Ошибка при чтении настройки " + key + ": " + e.getMessage(), e);
         }
         
-        moderator.setTotalIssued(rs.getInt("total_issued"));
-        moderator.setActiveIssued(rs.getInt("active_issued"));
-        
-        Timestamp lastAction = rs.getTimestamp("last_action_at");
-        if (lastAction != null) {
-            moderator.setLastActionAt(lastAction.toInstant());
+        return null;
+    }
+    
+    /**
+     * Сохранить значение в plugin_settings
+     */
+    public void setSetting(String key, String value, String description) {
+        try {
+            write(conn -> {
+                settings.upsert(conn, key, value, description);
+                return null;
+            });
+            
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Ошибка при сохранении настройки " + key + ": " + e.getMessage(), e);
         }
-        
-        moderator.setCreatedAt(rs.getTimestamp("created_at").toInstant());
-        moderator.setUpdatedAt(rs.getTimestamp("updated_at").toInstant());
-        
-        return moderator;
     }
-} 
\ No newline at end of file
+    
+    // ==================== РЕПОЗИТОРИИ ====================
+    
+    /**
+     * Запросы к punishment_logs (для пакетной записи)
+     */
+    PunishmentRepository punishments() {
+        return punishments;
+    }
+    
+    /**
+     * Запросы к discord_queue (для пакетной записи)
+     */
+    OutboxRepository outbox() {
+        return outbox;
+    }
+    
+    /**
+     * Запросы к plugin_settings (для миграций схемы)
+     */
+    SettingsRepository settings() {
+        return settings;
+    }
+}
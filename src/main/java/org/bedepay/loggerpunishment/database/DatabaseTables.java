@@ -0,0 +1,239 @@
+package org.bedepay.loggerpunishment.database;
+
+import org.bedepay.loggerpunishment.model.PunishmentStatistics;
+import org.bedepay.loggerpunishment.model.PunishmentType;
+import org.jooq.DataType;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Модель таблиц для jOOQ: таблицы и колонки из миграций db/migration.
+ * Списки ALL задают явную проекцию SELECT вместо SELECT *.
+ */
+final class DatabaseTables {
+
+    private DatabaseTables() {
+    }
+
+    private static Table<Record> table(String table) {
+        return DSL.table(DSL.name(table));
+    }
+
+    private static <T> Field<T> field(String table, String column, DataType<T> type) {
+        return DSL.field(DSL.name(table, column), type);
+    }
+
+    // ==================== НАКАЗАНИЯ ====================
+
+    static final class PunishmentLogs {
+        private static final String NAME = "punishment_logs";
+
+        static final Table<Record> TABLE = table(NAME);
+
+        static final Field<Long> ID = field(NAME, "id", SQLDataType.BIGINT);
+        static final Field<String> TYPE = field(NAME, "type", SQLDataType.VARCHAR(10));
+        static final Field<String> PLAYER_UUID = field(NAME, "player_uuid", SQLDataType.VARCHAR(36));
+        static final Field<String> PLAYER_NAME = field(NAME, "player_name", SQLDataType.VARCHAR(16));
+        static final Field<String> MODERATOR_UUID = field(NAME, "moderator_uuid", SQLDataType.VARCHAR(36));
+        static final Field<String> MODERATOR_NAME = field(NAME, "moderator_name", SQLDataType.VARCHAR(32));
+        static final Field<String> PUNISHMENT_ID = field(NAME, "punishment_id", SQLDataType.VARCHAR(50));
+        static final Field<String> REASON = field(NAME, "reason", SQLDataType.CLOB);
+        static final Field<Long> DURATION = field(NAME, "duration", SQLDataType.BIGINT);
+        static final Field<Timestamp> EXPIRES_AT = field(NAME, "expires_at", SQLDataType.TIMESTAMP);
+        static final Field<String> JAIL_NAME = field(NAME, "jail_name", SQLDataType.VARCHAR(32));
+        static final Field<Long> PLAYER_THREAD_ID = field(NAME, "player_thread_id", SQLDataType.BIGINT);
+        static final Field<Long> MODERATOR_THREAD_ID = field(NAME, "moderator_thread_id", SQLDataType.BIGINT);
+        static final Field<Long> PLAYER_MESSAGE_ID = field(NAME, "player_message_id", SQLDataType.BIGINT);
+        static final Field<Long> MODERATOR_MESSAGE_ID = field(NAME, "moderator_message_id", SQLDataType.BIGINT);
+        static final Field<Long> LOG_MESSAGE_ID = field(NAME, "log_message_id", SQLDataType.BIGINT);
+        static final Field<Boolean> ACTIVE = field(NAME, "active", SQLDataType.BOOLEAN);
+        static final Field<Timestamp> UNBANNED_AT = field(NAME, "unbanned_at", SQLDataType.TIMESTAMP);
+        static final Field<String> UNBAN_REASON = field(NAME, "unban_reason", SQLDataType.CLOB);
+        static final Field<String> UNBAN_MODERATOR_UUID = field(NAME, "unban_moderator_uuid", SQLDataType.VARCHAR(36));
+        static final Field<String> UNBAN_MODERATOR_NAME = field(NAME, "unban_moderator_name", SQLDataType.VARCHAR(32));
+        static final Field<String> UNBAN_TYPE = field(NAME, "unban_type", SQLDataType.VARCHAR(10));
+        static final Field<Timestamp> CREATED_AT = field(NAME, "created_at", SQLDataType.TIMESTAMP);
+        static final Field<Timestamp> UPDATED_AT = field(NAME, "updated_at", SQLDataType.TIMESTAMP);
+
+        static final List<Field<?>> ALL = List.of(
+                ID, TYPE, PLAYER_UUID, PLAYER_NAME, MODERATOR_UUID, MODERATOR_NAME, PUNISHMENT_ID,
+                REASON, DURATION, EXPIRES_AT, JAIL_NAME,
+                PLAYER_THREAD_ID, MODERATOR_THREAD_ID, PLAYER_MESSAGE_ID, MODERATOR_MESSAGE_ID, LOG_MESSAGE_ID,
+                ACTIVE, UNBANNED_AT, UNBAN_REASON, UNBAN_MODERATOR_UUID, UNBAN_MODERATOR_NAME, UNBAN_TYPE,
+                CREATED_AT, UPDATED_AT
+        );
+
+        private PunishmentLogs() {
+        }
+    }
+
+    // ==================== ИГРОКИ И МОДЕРАТОРЫ ====================
+
+    static final class Players {
+        private static final String NAME = "players";
+
+        static final Table<Record> TABLE = table(NAME);
+
+        static final Field<Long> ID = field(NAME, "id", SQLDataType.BIGINT);
+        static final Field<String> PLAYER_UUID = field(NAME, "player_uuid", SQLDataType.VARCHAR(36));
+        static final Field<String> PLAYER_NAME = field(NAME, "player_name", SQLDataType.VARCHAR(16));
+        static final Field<Long> DISCORD_THREAD_ID = field(NAME, "discord_thread_id", SQLDataType.BIGINT);
+        static final Field<Long> DISCORD_STARTER_MESSAGE_ID = field(NAME, "discord_starter_message_id", SQLDataType.BIGINT);
+        static final Field<Integer> TOTAL_PUNISHMENTS = field(NAME, "total_punishments", SQLDataType.INTEGER);
+        static final Field<Integer> ACTIVE_PUNISHMENTS = field(NAME, "active_punishments", SQLDataType.INTEGER);
+        static final Field<Timestamp> LAST_PUNISHMENT_AT = field(NAME, "last_punishment_at", SQLDataType.TIMESTAMP);
+        static final Field<Timestamp> CREATED_AT = field(NAME, "created_at", SQLDataType.TIMESTAMP);
+        static final Field<Timestamp> UPDATED_AT = field(NAME, "updated_at", SQLDataType.TIMESTAMP);
+
+        static final List<Field<?>> ALL = List.of(
+                ID, PLAYER_UUID, PLAYER_NAME, DISCORD_THREAD_ID, DISCORD_STARTER_MESSAGE_ID,
+                TOTAL_PUNISHMENTS, ACTIVE_PUNISHMENTS, LAST_PUNISHMENT_AT, CREATED_AT, UPDATED_AT
+        );
+
+        private Players() {
+        }
+    }
+
+    static final class Moderators {
+        private static final String NAME = "moderators";
+
+        static final Table<Record> TABLE = table(NAME);
+
+        static final Field<Long> ID = field(NAME, "id", SQLDataType.BIGINT);
+        static final Field<String> MODERATOR_UUID = field(NAME, "moderator_uuid", SQLDataType.VARCHAR(36));
+        static final Field<String> MODERATOR_NAME = field(NAME, "moderator_name", SQLDataType.VARCHAR(16));
+        static final Field<Long> DISCORD_ID = field(NAME, "discord_id", SQLDataType.BIGINT);
+        static final Field<Long> DISCORD_THREAD_ID = field(NAME, "discord_thread_id", SQLDataType.BIGINT);
+        static final Field<Long> DISCORD_STARTER_MESSAGE_ID = field(NAME, "discord_starter_message_id", SQLDataType.BIGINT);
+        static final Field<Integer> TOTAL_ISSUED = field(NAME, "total_issued", SQLDataType.INTEGER);
+        static final Field<Integer> ACTIVE_ISSUED = field(NAME, "active_issued", SQLDataType.INTEGER);
+        static final Field<Timestamp> LAST_ACTION_AT = field(NAME, "last_action_at", SQLDataType.TIMESTAMP);
+        static final Field<Timestamp> CREATED_AT = field(NAME, "created_at", SQLDataType.TIMESTAMP);
+        static final Field<Timestamp> UPDATED_AT = field(NAME, "updated_at", SQLDataType.TIMESTAMP);
+
+        static final List<Field<?>> ALL = List.of(
+                ID, MODERATOR_UUID, MODERATOR_NAME, DISCORD_ID, DISCORD_THREAD_ID, DISCORD_STARTER_MESSAGE_ID,
+                TOTAL_ISSUED, ACTIVE_ISSUED, LAST_ACTION_AT, CREATED_AT, UPDATED_AT
+        );
+
+        private Moderators() {
+        }
+    }
+
+    // ==================== СТАТИСТИКА ====================
+
+    static final class Statistics {
+        private static final String NAME = "punishment_statistics";
+
+        static final Table<Record> TABLE = table(NAME);
+
+        static final Field<Long> ID = field(NAME, "id", SQLDataType.BIGINT);
+        static final Field<String> TARGET_UUID = field(NAME, "target_uuid", SQLDataType.VARCHAR(36));
+        static final Field<String> TARGET_TYPE = field(NAME, "target_type", SQLDataType.VARCHAR(10));
+        static final Field<Integer> TOTAL_PUNISHMENTS = field(NAME, "total_punishments", SQLDataType.INTEGER);
+        static final Field<Integer> ACTIVE_PUNISHMENTS = field(NAME, "active_punishments", SQLDataType.INTEGER);
+        static final Field<Timestamp> FIRST_PUNISHMENT_AT = field(NAME, "first_punishment_at", SQLDataType.TIMESTAMP);
+        static final Field<Timestamp> LAST_PUNISHMENT_AT = field(NAME, "last_punishment_at", SQLDataType.TIMESTAMP);
+        static final Field<Timestamp> LAST_UPDATED_AT = field(NAME, "last_updated_at", SQLDataType.TIMESTAMP);
+
+        // Счетчики по типам: total_bans, total_mutes, ... и active_bans, active_mutes, active_jails
+        static final Map<PunishmentType, Field<Integer>> TOTAL_BY_TYPE = counters("total_", false);
+        static final Map<PunishmentType, Field<Integer>> ACTIVE_BY_TYPE = counters("active_", true);
+
+        /**
+         * Все счетчики в порядке: total_punishments, total_по_типам, active_punishments, active_по_типам
+         */
+        static final List<Field<Integer>> COUNTERS = buildCounters();
+
+        static final List<Field<?>> ALL = buildAll();
+
+        private Statistics() {
+        }
+
+        private static Map<PunishmentType, Field<Integer>> counters(String prefix, boolean revocableOnly) {
+            Map<PunishmentType, Field<Integer>> counters = new EnumMap<>(PunishmentType.class);
+            Arrays.stream(PunishmentType.values())
+                    .filter(type -> !revocableOnly || type.canBeRevoked())
+                    .forEach(type -> counters.put(type,
+                            field(NAME, prefix + PunishmentStatistics.columnSuffix(type), SQLDataType.INTEGER)));
+            return Collections.unmodifiableMap(counters);
+        }
+
+        private static List<Field<Integer>> buildCounters() {
+            List<Field<Integer>> counters = new ArrayList<>();
+            counters.add(TOTAL_PUNISHMENTS);
+            counters.addAll(TOTAL_BY_TYPE.values());
+            counters.add(ACTIVE_PUNISHMENTS);
+            counters.addAll(ACTIVE_BY_TYPE.values());
+            return List.copyOf(counters);
+        }
+
+        private static List<Field<?>> buildAll() {
+            List<Field<?>> all = new ArrayList<>(List.of(ID, TARGET_UUID, TARGET_TYPE));
+            all.addAll(COUNTERS);
+            all.addAll(List.of(FIRST_PUNISHMENT_AT, LAST_PUNISHMENT_AT, LAST_UPDATED_AT));
+            return List.copyOf(all);
+        }
+    }
+
+    // ==================== ОЧЕРЕДЬ DISCORD ====================
+
+    static final class DiscordQueue {
+        private static final String NAME = "discord_queue";
+
+        static final Table<Record> TABLE = table(NAME);
+
+        static final Field<Long> ID = field(NAME, "id", SQLDataType.BIGINT);
+        static final Field<String> ACTION_TYPE = field(NAME, "action_type", SQLDataType.VARCHAR(20));
+        static final Field<Long> TARGET_CHANNEL_ID = field(NAME, "target_channel_id", SQLDataType.BIGINT);
+        static final Field<Long> TARGET_MESSAGE_ID = field(NAME, "target_message_id", SQLDataType.BIGINT);
+        static final Field<Long> TARGET_THREAD_ID = field(NAME, "target_thread_id", SQLDataType.BIGINT);
+        static final Field<String> ACTION_DATA = field(NAME, "action_data", SQLDataType.CLOB);
+        static final Field<Long> PUNISHMENT_RECORD_ID = field(NAME, "punishment_record_id", SQLDataType.BIGINT);
+        static final Field<Integer> PRIORITY = field(NAME, "priority", SQLDataType.INTEGER);
+        static final Field<Integer> MAX_ATTEMPTS = field(NAME, "max_attempts", SQLDataType.INTEGER);
+        static final Field<Integer> CURRENT_ATTEMPTS = field(NAME, "current_attempts", SQLDataType.INTEGER);
+        static final Field<Timestamp> LAST_ATTEMPT_AT = field(NAME, "last_attempt_at", SQLDataType.TIMESTAMP);
+        static final Field<Timestamp> NEXT_ATTEMPT_AT = field(NAME, "next_attempt_at", SQLDataType.TIMESTAMP);
+        static final Field<String> STATUS = field(NAME, "status", SQLDataType.VARCHAR(10));
+        static final Field<String> ERROR_MESSAGE = field(NAME, "error_message", SQLDataType.CLOB);
+        static final Field<String> CLAIM_TOKEN = field(NAME, "claim_token", SQLDataType.VARCHAR(36));
+        static final Field<Timestamp> CREATED_AT = field(NAME, "created_at", SQLDataType.TIMESTAMP);
+
+        static final List<Field<?>> ALL = List.of(
+                ID, ACTION_TYPE, TARGET_CHANNEL_ID, TARGET_MESSAGE_ID, TARGET_THREAD_ID, ACTION_DATA,
+                PUNISHMENT_RECORD_ID, PRIORITY, MAX_ATTEMPTS, CURRENT_ATTEMPTS, LAST_ATTEMPT_AT, NEXT_ATTEMPT_AT,
+                STATUS, ERROR_MESSAGE, CLAIM_TOKEN, CREATED_AT
+        );
+
+        private DiscordQueue() {
+        }
+    }
+
+    // ==================== НАСТРОЙКИ ====================
+
+    static final class PluginSettings {
+        private static final String NAME = "plugin_settings";
+
+        static final Table<Record> TABLE = table(NAME);
+
+        static final Field<String> KEY = field(NAME, "key", SQLDataType.VARCHAR(50));
+        static final Field<String> VALUE = field(NAME, "value", SQLDataType.CLOB);
+        static final Field<String> DESCRIPTION = field(NAME, "description", SQLDataType.CLOB);
+        static final Field<Timestamp> UPDATED_AT = field(NAME, "updated_at", SQLDataType.TIMESTAMP);
+
+        private PluginSettings() {
+        }
+    }
+}
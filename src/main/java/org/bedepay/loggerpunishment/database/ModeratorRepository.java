@@ -0,0 +1,232 @@
+package org.bedepay.loggerpunishment.database;
+
+import org.bedepay.loggerpunishment.database.DatabaseTables.Moderators;
+import org.bedepay.loggerpunishment.model.ModeratorData;
+import org.bedepay.loggerpunishment.model.PunishmentData;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.decremented;
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.param;
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.punishmentStillActive;
+
+/**
+ * Запросы к moderators. Как и у игроков, счетчики выданных наказаний меняются
+ * только вместе с записью наказаний.
+ */
+final class ModeratorRepository {
+
+    private final String selectByUuidSql;
+    private final String selectByThreadIdSql;
+    private final String selectDiscordIdsByThreadSql;
+    private final String upsertSql;
+    private final String incrementCountersSql;
+    private final String decrementActiveSql;
+
+    ModeratorRepository(DatabaseDialect dialect) {
+        DSLContext dsl = dialect.dsl();
+
+        this.selectByUuidSql = dialect.render(dsl.select(Moderators.ALL)
+                .from(Moderators.TABLE)
+                .where(Moderators.MODERATOR_UUID.eq(param(Moderators.MODERATOR_UUID))));
+
+        this.selectByThreadIdSql = dialect.render(dsl.select(Moderators.ALL)
+                .from(Moderators.TABLE)
+                .where(Moderators.DISCORD_THREAD_ID.eq(param(Moderators.DISCORD_THREAD_ID))));
+
+        // Диапазон вместо IS NOT NULL: 0 означает "ветки нет", и idx_moderators_thread отсекает такие строки
+        this.selectDiscordIdsByThreadSql = dialect.render(dsl.select(Moderators.DISCORD_THREAD_ID, Moderators.DISCORD_ID)
+                .from(Moderators.TABLE)
+                .where(Moderators.DISCORD_THREAD_ID.gt(DSL.inline(0L))));
+
+        // 0 в ID Discord означает "не передано" и не затирает сохраненное значение
+        this.upsertSql = dialect.render(dsl.insertInto(Moderators.TABLE,
+                        Moderators.MODERATOR_UUID, Moderators.MODERATOR_NAME, Moderators.DISCORD_ID,
+                        Moderators.DISCORD_THREAD_ID, Moderators.DISCORD_STARTER_MESSAGE_ID, Moderators.UPDATED_AT)
+                .values(param(Moderators.MODERATOR_UUID), param(Moderators.MODERATOR_NAME), param(Moderators.DISCORD_ID),
+                        param(Moderators.DISCORD_THREAD_ID), param(Moderators.DISCORD_STARTER_MESSAGE_ID), DSL.currentTimestamp())
+                .onConflict(Moderators.MODERATOR_UUID)
+                .doUpdate()
+                .set(Moderators.MODERATOR_NAME, dialect.inserted(Moderators.MODERATOR_NAME))
+                .set(Moderators.DISCORD_ID, DSL.coalesce(
+                        DSL.nullif(dialect.inserted(Moderators.DISCORD_ID), DSL.inline(0L)), Moderators.DISCORD_ID))
+                .set(Moderators.DISCORD_THREAD_ID, DSL.coalesce(
+                        DSL.nullif(dialect.inserted(Moderators.DISCORD_THREAD_ID), DSL.inline(0L)), Moderators.DISCORD_THREAD_ID))
+                .set(Moderators.DISCORD_STARTER_MESSAGE_ID, DSL.coalesce(
+                        DSL.nullif(dialect.inserted(Moderators.DISCORD_STARTER_MESSAGE_ID), DSL.inline(0L)), Moderators.DISCORD_STARTER_MESSAGE_ID))
+                .set(Moderators.UPDATED_AT, DSL.currentTimestamp()));
+
+        this.incrementCountersSql = dialect.render(dsl.insertInto(Moderators.TABLE,
+                        Moderators.MODERATOR_UUID, Moderators.MODERATOR_NAME, Moderators.TOTAL_ISSUED,
+                        Moderators.ACTIVE_ISSUED, Moderators.LAST_ACTION_AT)
+                .values(param(Moderators.MODERATOR_UUID), param(Moderators.MODERATOR_NAME), DSL.inline(1),
+                        param(Moderators.ACTIVE_ISSUED), param(Moderators.LAST_ACTION_AT))
+                .onConflict(Moderators.MODERATOR_UUID)
+                .doUpdate()
+                .set(Moderators.MODERATOR_NAME, dialect.inserted(Moderators.MODERATOR_NAME))
+                .set(Moderators.TOTAL_ISSUED, Moderators.TOTAL_ISSUED.plus(DSL.inline(1)))
+                .set(Moderators.ACTIVE_ISSUED, Moderators.ACTIVE_ISSUED.plus(dialect.inserted(Moderators.ACTIVE_ISSUED)))
+                .set(Moderators.LAST_ACTION_AT, dialect.inserted(Moderators.LAST_ACTION_AT))
+                .set(Moderators.UPDATED_AT, DSL.currentTimestamp()));
+
+        this.decrementActiveSql = dialect.render(dsl.update(Moderators.TABLE)
+                .set(Moderators.ACTIVE_ISSUED, decremented(Moderators.ACTIVE_ISSUED))
+                .set(Moderators.UPDATED_AT, DSL.currentTimestamp())
+                .where(Moderators.MODERATOR_UUID.eq(param(Moderators.MODERATOR_UUID)))
+                .and(punishmentStillActive()));
+    }
+
+    ModeratorData find(Connection conn, UUID moderatorUuid) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(selectByUuidSql)) {
+            stmt.setString(1, moderatorUuid.toString());
+            return first(stmt);
+        }
+    }
+
+    ModeratorData findByThreadId(Connection conn, long threadId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(selectByThreadIdSql)) {
+            stmt.setLong(1, threadId);
+            return first(stmt);
+        }
+    }
+
+    /**
+     * Discord ID модераторов по ID их веток (0 - Discord не привязан)
+     */
+    Map<Long, Long> findDiscordIdsByThread(Connection conn) throws SQLException {
+        Map<Long, Long> index = new HashMap<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(selectDiscordIdsByThreadSql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                // Ветки без привязанного ID Discord не попадают в индекс
+                long discordId = rs.getLong(Moderators.DISCORD_ID.getName());
+                if (discordId > 0) {
+                    index.put(rs.getLong(Moderators.DISCORD_THREAD_ID.getName()), discordId);
+                }
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Вставить модераторов или обновить имя и данные Discord. Каждая строка - один атомарный
+     * upsert, поэтому параллельные вызовы для одного модератора не требуют внешней блокировки.
+     */
+    void upsertAll(Connection conn, Collection<ModeratorData> moderators) throws SQLException {
+        if (moderators.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(upsertSql)) {
+            for (ModeratorData moderator : moderators) {
+                stmt.setString(1, moderator.getModeratorUuid().toString());
+                stmt.setString(2, moderator.getModeratorName());
+                stmt.setLong(3, moderator.getDiscordId() != null ? moderator.getDiscordId() : 0);
+                stmt.setLong(4, moderator.getDiscordThreadId() != null ? moderator.getDiscordThreadId() : 0);
+                stmt.setLong(5, moderator.getStarterMessageId() != null ? moderator.getStarterMessageId() : 0);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Увеличить счетчики модераторов для новых наказаний (наказания без модератора пропускаются)
+     */
+    void incrementCounters(Connection conn, List<PunishmentData> punishments) throws SQLException {
+        List<PunishmentData> withModerator = punishments.stream()
+                .filter(punishment -> punishment.getModeratorUuid() != null)
+                .toList();
+        if (withModerator.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(incrementCountersSql)) {
+            for (PunishmentData punishment : withModerator) {
+                stmt.setString(1, punishment.getModeratorUuid().toString());
+                stmt.setString(2, punishment.getModeratorName());
+                stmt.setInt(3, punishment.isActive() ? 1 : 0);
+                stmt.setTimestamp(4, Timestamp.from(punishment.getCreatedAt()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Уменьшить счетчик активных выданных наказаний, пока наказание в базе еще активно
+     */
+    void decrementActive(Connection conn, Collection<PunishmentData> punishments) throws SQLException {
+        List<PunishmentData> withModerator = punishments.stream()
+                .filter(punishment -> punishment.getModeratorUuid() != null)
+                .toList();
+        if (withModerator.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(decrementActiveSql)) {
+            for (PunishmentData punishment : withModerator) {
+                stmt.setString(1, punishment.getModeratorUuid().toString());
+                stmt.setLong(2, punishment.getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private ModeratorData first(PreparedStatement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? map(rs) : null;
+        }
+    }
+
+    private ModeratorData map(ResultSet rs) throws SQLException {
+        ModeratorData moderator = new ModeratorData();
+
+        moderator.setId(rs.getLong(Moderators.ID.getName()));
+        moderator.setModeratorUuid(UUID.fromString(rs.getString(Moderators.MODERATOR_UUID.getName())));
+        moderator.setModeratorName(rs.getString(Moderators.MODERATOR_NAME.getName()));
+
+        long discordId = rs.getLong(Moderators.DISCORD_ID.getName());
+        if (discordId > 0) {
+            moderator.setDiscordId(discordId);
+        }
+
+        long threadId = rs.getLong(Moderators.DISCORD_THREAD_ID.getName());
+        if (threadId > 0) {
+            moderator.setDiscordThreadId(threadId);
+        }
+
+        long starterMessageId = rs.getLong(Moderators.DISCORD_STARTER_MESSAGE_ID.getName());
+        if (starterMessageId > 0) {
+            moderator.setStarterMessageId(starterMessageId);
+        }
+
+        moderator.setTotalIssued(rs.getInt(Moderators.TOTAL_ISSUED.getName()));
+        moderator.setActiveIssued(rs.getInt(Moderators.ACTIVE_ISSUED.getName()));
+
+        Timestamp lastAction = rs.getTimestamp(Moderators.LAST_ACTION_AT.getName());
+        if (lastAction != null) {
+            moderator.setLastActionAt(lastAction.toInstant());
+        }
+
+        moderator.setCreatedAt(rs.getTimestamp(Moderators.CREATED_AT.getName()).toInstant());
+        moderator.setUpdatedAt(rs.getTimestamp(Moderators.UPDATED_AT.getName()).toInstant());
+
+        return moderator;
+    }
+}
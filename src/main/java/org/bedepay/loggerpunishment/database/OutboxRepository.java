@@ -0,0 +1,329 @@
+package org.bedepay.loggerpunishment.database;
+
+import org.bedepay.loggerpunishment.database.DatabaseTables.DiscordQueue;
+import org.bedepay.loggerpunishment.model.OutboxEntry;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.param;
+
+/**
+ * Запросы к discord_queue (исходящая очередь Discord)
+ */
+final class OutboxRepository {
+
+    private final String insertSql;
+    private final String selectReadySql;
+    private final String claimSql;
+    private final String completeSql;
+    private final String rescheduleSql;
+    private final String renewClaimSql;
+    private final String releaseExpiredClaimsSql;
+    private final String deleteCompletedSql;
+    private final String countByStatusSql;
+
+    OutboxRepository(DatabaseDialect dialect) {
+        DSLContext dsl = dialect.dsl();
+
+        this.insertSql = dialect.render(dsl.insertInto(DiscordQueue.TABLE,
+                        DiscordQueue.ACTION_TYPE, DiscordQueue.TARGET_CHANNEL_ID, DiscordQueue.TARGET_MESSAGE_ID,
+                        DiscordQueue.TARGET_THREAD_ID, DiscordQueue.ACTION_DATA, DiscordQueue.PUNISHMENT_RECORD_ID,
+                        DiscordQueue.PRIORITY, DiscordQueue.MAX_ATTEMPTS, DiscordQueue.CURRENT_ATTEMPTS,
+                        DiscordQueue.NEXT_ATTEMPT_AT, DiscordQueue.STATUS, DiscordQueue.CREATED_AT)
+                .values(param(DiscordQueue.ACTION_TYPE), param(DiscordQueue.TARGET_CHANNEL_ID), param(DiscordQueue.TARGET_MESSAGE_ID),
+                        param(DiscordQueue.TARGET_THREAD_ID), param(DiscordQueue.ACTION_DATA), param(DiscordQueue.PUNISHMENT_RECORD_ID),
+                        param(DiscordQueue.PRIORITY), param(DiscordQueue.MAX_ATTEMPTS), DSL.inline(0),
+                        param(DiscordQueue.NEXT_ATTEMPT_AT), param(DiscordQueue.STATUS), param(DiscordQueue.CREATED_AT)));
+
+        // Снятие ждет, пока запись о самом наказании не будет доставлена (или не исчерпает попытки):
+        // правка сообщений раньше их отправки ничего бы не изменила
+        this.selectReadySql = dialect.render(dsl.select(DiscordQueue.ALL)
+                .from(DiscordQueue.TABLE)
+                .where(DiscordQueue.STATUS.eq(param(DiscordQueue.STATUS)))
+                .and(DiscordQueue.NEXT_ATTEMPT_AT.isNull().or(DiscordQueue.NEXT_ATTEMPT_AT.le(param(DiscordQueue.NEXT_ATTEMPT_AT))))
+                .and(DiscordQueue.ACTION_TYPE.ne(DSL.inline(OutboxEntry.ACTION_EDIT_MESSAGE)).or(punishmentDelivered()))
+                .orderBy(DiscordQueue.PRIORITY.desc(), DiscordQueue.ID.asc())
+                .limit(DSL.param("limit", Integer.class)));
+
+        this.claimSql = dialect.render(dsl.update(DiscordQueue.TABLE)
+                .set(DiscordQueue.STATUS, param(DiscordQueue.STATUS))
+                .set(DiscordQueue.LAST_ATTEMPT_AT, param(DiscordQueue.LAST_ATTEMPT_AT))
+                .set(DiscordQueue.CLAIM_TOKEN, param(DiscordQueue.CLAIM_TOKEN))
+                .where(DiscordQueue.ID.eq(param(DiscordQueue.ID)))
+                .and(DiscordQueue.STATUS.eq(param(DiscordQueue.STATUS))));
+
+        // Результат записывается только под меткой захвата: если запись вернули в очередь
+        // и захватили заново, запоздавшая первая попытка ничего не перезапишет
+        this.completeSql = dialect.render(dsl.update(DiscordQueue.TABLE)
+                .set(DiscordQueue.STATUS, param(DiscordQueue.STATUS))
+                .set(DiscordQueue.ACTION_DATA, param(DiscordQueue.ACTION_DATA))
+                .set(DiscordQueue.ERROR_MESSAGE, DSL.inline(null, DiscordQueue.ERROR_MESSAGE))
+                .where(claimedBy()));
+
+        this.rescheduleSql = dialect.render(dsl.update(DiscordQueue.TABLE)
+                .set(DiscordQueue.STATUS, param(DiscordQueue.STATUS))
+                .set(DiscordQueue.ACTION_DATA, param(DiscordQueue.ACTION_DATA))
+                .set(DiscordQueue.CURRENT_ATTEMPTS, param(DiscordQueue.CURRENT_ATTEMPTS))
+                .set(DiscordQueue.NEXT_ATTEMPT_AT, param(DiscordQueue.NEXT_ATTEMPT_AT))
+                .set(DiscordQueue.ERROR_MESSAGE, param(DiscordQueue.ERROR_MESSAGE))
+                .where(claimedBy()));
+
+        this.renewClaimSql = dialect.render(dsl.update(DiscordQueue.TABLE)
+                .set(DiscordQueue.LAST_ATTEMPT_AT, param(DiscordQueue.LAST_ATTEMPT_AT))
+                .where(claimedBy()));
+
+        // last_attempt_at записывается при захвате и продлении и служит сроком аренды записи
+        this.releaseExpiredClaimsSql = dialect.render(dsl.update(DiscordQueue.TABLE)
+                .set(DiscordQueue.STATUS, param(DiscordQueue.STATUS))
+                .set(DiscordQueue.CLAIM_TOKEN, DSL.inline(null, DiscordQueue.CLAIM_TOKEN))
+                .where(DiscordQueue.STATUS.eq(param(DiscordQueue.STATUS)))
+                .and(DiscordQueue.LAST_ATTEMPT_AT.isNull().or(DiscordQueue.LAST_ATTEMPT_AT.lt(param(DiscordQueue.LAST_ATTEMPT_AT)))));
+
+        this.deleteCompletedSql = dialect.render(dsl.deleteFrom(DiscordQueue.TABLE)
+                .where(DiscordQueue.STATUS.eq(param(DiscordQueue.STATUS)))
+                .and(DiscordQueue.CREATED_AT.lt(param(DiscordQueue.CREATED_AT))));
+
+        this.countByStatusSql = dialect.render(dsl.select(DiscordQueue.STATUS, DSL.count())
+                .from(DiscordQueue.TABLE)
+                .groupBy(DiscordQueue.STATUS));
+    }
+
+    /**
+     * Добавить записи одним пакетом
+     */
+    void insertAll(Connection conn, List<OutboxEntry> entries) throws SQLException {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(insertSql)) {
+            for (OutboxEntry entry : entries) {
+                stmt.setString(1, entry.getActionType());
+                stmt.setLong(2, entry.getTargetChannelId());
+                stmt.setLong(3, entry.getTargetMessageId() != null ? entry.getTargetMessageId() : 0);
+                stmt.setLong(4, entry.getTargetThreadId() != null ? entry.getTargetThreadId() : 0);
+                stmt.setString(5, entry.toActionData());
+                stmt.setLong(6, entry.getPunishmentRecordId());
+                stmt.setInt(7, entry.getPriority());
+                stmt.setInt(8, entry.getMaxAttempts());
+                stmt.setTimestamp(9, Timestamp.from(entry.getNextAttemptAt()));
+                stmt.setString(10, OutboxEntry.STATUS_PENDING);
+                stmt.setTimestamp(11, Timestamp.from(entry.getCreatedAt()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Захватить готовые к отправке записи (по приоритету) и пометить их как PROCESSING
+     */
+    List<OutboxEntry> claim(Connection conn, int limit, Instant now) throws SQLException {
+        Timestamp timestamp = Timestamp.from(now);
+        String token = UUID.randomUUID().toString();
+        List<OutboxEntry> candidates = new ArrayList<>();
+        List<OutboxEntry> claimed = new ArrayList<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(selectReadySql)) {
+            stmt.setString(1, OutboxEntry.STATUS_PENDING);
+            stmt.setTimestamp(2, timestamp);
+            stmt.setInt(3, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    candidates.add(map(rs));
+                }
+            }
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(claimSql)) {
+            for (OutboxEntry entry : candidates) {
+                stmt.setString(1, OutboxEntry.STATUS_PROCESSING);
+                stmt.setTimestamp(2, timestamp);
+                stmt.setString(3, token);
+                stmt.setLong(4, entry.getId());
+                stmt.setString(5, OutboxEntry.STATUS_PENDING);
+
+                // Запись могла быть захвачена другим сервером с общей БД
+                if (stmt.executeUpdate() == 1) {
+                    entry.setStatus(OutboxEntry.STATUS_PROCESSING);
+                    entry.setClaimToken(token);
+                    claimed.add(entry);
+                }
+            }
+        }
+
+        return claimed;
+    }
+
+    /**
+     * @return false, если запись уже не принадлежит этому захвату
+     */
+    boolean complete(Connection conn, OutboxEntry entry) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(completeSql)) {
+            stmt.setString(1, OutboxEntry.STATUS_COMPLETED);
+            stmt.setString(2, entry.toActionData());
+            setClaim(stmt, 3, entry);
+
+            return stmt.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * @return false, если запись уже не принадлежит этому захвату
+     */
+    boolean reschedule(Connection conn, OutboxEntry entry) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(rescheduleSql)) {
+            stmt.setString(1, entry.getStatus());
+            stmt.setString(2, entry.toActionData());
+            stmt.setInt(3, entry.getCurrentAttempts());
+            stmt.setTimestamp(4, entry.getNextAttemptAt() != null ? Timestamp.from(entry.getNextAttemptAt()) : null);
+            stmt.setString(5, entry.getErrorMessage());
+            setClaim(stmt, 6, entry);
+
+            return stmt.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * Продлить аренду записей, которые этот сервер еще доставляет
+     */
+    void renewClaims(Connection conn, Collection<OutboxEntry> entries, Instant now) throws SQLException {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Timestamp timestamp = Timestamp.from(now);
+
+        try (PreparedStatement stmt = conn.prepareStatement(renewClaimSql)) {
+            for (OutboxEntry entry : entries) {
+                stmt.setTimestamp(1, timestamp);
+                setClaim(stmt, 2, entry);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Вернуть в PENDING записи, захваченные раньше claimedBefore и так и не завершенные.
+     * Записи, которые сейчас доставляют другие серверы с общей базой, не затрагиваются.
+     */
+    int releaseExpiredClaims(Connection conn, Instant claimedBefore) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(releaseExpiredClaimsSql)) {
+            stmt.setString(1, OutboxEntry.STATUS_PENDING);
+            stmt.setString(2, OutboxEntry.STATUS_PROCESSING);
+            stmt.setTimestamp(3, Timestamp.from(claimedBefore));
+
+            return stmt.executeUpdate();
+        }
+    }
+
+    int deleteCompleted(Connection conn, Instant olderThan) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(deleteCompletedSql)) {
+            stmt.setString(1, OutboxEntry.STATUS_COMPLETED);
+            stmt.setTimestamp(2, Timestamp.from(olderThan));
+
+            return stmt.executeUpdate();
+        }
+    }
+
+    Map<String, Integer> countByStatus(Connection conn) throws SQLException {
+        Map<String, Integer> counts = new HashMap<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(countByStatusSql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * Запись захвачена и метка захвата совпадает: id, status, claim_token
+     */
+    private static Condition claimedBy() {
+        return DiscordQueue.ID.eq(param(DiscordQueue.ID))
+                .and(DiscordQueue.STATUS.eq(param(DiscordQueue.STATUS)))
+                .and(DiscordQueue.CLAIM_TOKEN.eq(param(DiscordQueue.CLAIM_TOKEN)));
+    }
+
+    private static void setClaim(PreparedStatement stmt, int index, OutboxEntry entry) throws SQLException {
+        stmt.setLong(index, entry.getId());
+        stmt.setString(index + 1, OutboxEntry.STATUS_PROCESSING);
+        stmt.setString(index + 2, entry.getClaimToken());
+    }
+
+    /**
+     * Для наказания записи нет ни одной ожидающей или доставляемой записи об отправке
+     */
+    private static Condition punishmentDelivered() {
+        Table<Record> send = DiscordQueue.TABLE.as("send");
+        Field<Long> sendPunishment = DSL.field(DSL.name("send", DiscordQueue.PUNISHMENT_RECORD_ID.getName()), SQLDataType.BIGINT);
+        Field<String> sendAction = DSL.field(DSL.name("send", DiscordQueue.ACTION_TYPE.getName()), SQLDataType.VARCHAR);
+        Field<String> sendStatus = DSL.field(DSL.name("send", DiscordQueue.STATUS.getName()), SQLDataType.VARCHAR);
+
+        return DSL.notExists(DSL.selectOne()
+                .from(send)
+                .where(sendPunishment.eq(DiscordQueue.PUNISHMENT_RECORD_ID))
+                .and(sendAction.eq(DSL.inline(OutboxEntry.ACTION_SEND_MESSAGE)))
+                .and(sendStatus.in(DSL.inline(OutboxEntry.STATUS_PENDING), DSL.inline(OutboxEntry.STATUS_PROCESSING))));
+    }
+
+    private OutboxEntry map(ResultSet rs) throws SQLException {
+        OutboxEntry entry = new OutboxEntry();
+
+        entry.setId(rs.getLong(DiscordQueue.ID.getName()));
+        entry.setActionType(rs.getString(DiscordQueue.ACTION_TYPE.getName()));
+        entry.setTargetChannelId(rs.getLong(DiscordQueue.TARGET_CHANNEL_ID.getName()));
+
+        long messageId = rs.getLong(DiscordQueue.TARGET_MESSAGE_ID.getName());
+        if (messageId > 0) {
+            entry.setTargetMessageId(messageId);
+        }
+
+        long threadId = rs.getLong(DiscordQueue.TARGET_THREAD_ID.getName());
+        if (threadId > 0) {
+            entry.setTargetThreadId(threadId);
+        }
+
+        entry.applyActionData(rs.getString(DiscordQueue.ACTION_DATA.getName()));
+        entry.setPriority(rs.getInt(DiscordQueue.PRIORITY.getName()));
+        entry.setMaxAttempts(rs.getInt(DiscordQueue.MAX_ATTEMPTS.getName()));
+        entry.setCurrentAttempts(rs.getInt(DiscordQueue.CURRENT_ATTEMPTS.getName()));
+        entry.setStatus(rs.getString(DiscordQueue.STATUS.getName()));
+        entry.setErrorMessage(rs.getString(DiscordQueue.ERROR_MESSAGE.getName()));
+        entry.setClaimToken(rs.getString(DiscordQueue.CLAIM_TOKEN.getName()));
+
+        Timestamp nextAttempt = rs.getTimestamp(DiscordQueue.NEXT_ATTEMPT_AT.getName());
+        entry.setNextAttemptAt(nextAttempt != null ? nextAttempt.toInstant() : null);
+
+        Timestamp createdAt = rs.getTimestamp(DiscordQueue.CREATED_AT.getName());
+        if (createdAt != null) {
+            entry.setCreatedAt(createdAt.toInstant());
+        }
+
+        return entry;
+    }
+}
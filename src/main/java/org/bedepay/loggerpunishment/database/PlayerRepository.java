@@ -0,0 +1,166 @@
+package org.bedepay.loggerpunishment.database;
+
+import org.bedepay.loggerpunishment.database.DatabaseTables.Players;
+import org.bedepay.loggerpunishment.model.PlayerData;
+import org.bedepay.loggerpunishment.model.PunishmentData;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.decremented;
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.param;
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.punishmentStillActive;
+
+/**
+ * Запросы к players. Счетчики наказаний меняются только вместе с записью наказаний
+ * (incrementCounters/decrementActive), upsert их не трогает.
+ */
+final class PlayerRepository {
+
+    private final String selectByUuidSql;
+    private final String upsertSql;
+    private final String incrementCountersSql;
+    private final String decrementActiveSql;
+
+    PlayerRepository(DatabaseDialect dialect) {
+        DSLContext dsl = dialect.dsl();
+
+        this.selectByUuidSql = dialect.render(dsl.select(Players.ALL)
+                .from(Players.TABLE)
+                .where(Players.PLAYER_UUID.eq(param(Players.PLAYER_UUID))));
+
+        // 0 в ID Discord означает "не передано" и не затирает сохраненное значение
+        this.upsertSql = dialect.render(dsl.insertInto(Players.TABLE,
+                        Players.PLAYER_UUID, Players.PLAYER_NAME, Players.DISCORD_THREAD_ID,
+                        Players.DISCORD_STARTER_MESSAGE_ID, Players.UPDATED_AT)
+                .values(param(Players.PLAYER_UUID), param(Players.PLAYER_NAME), param(Players.DISCORD_THREAD_ID),
+                        param(Players.DISCORD_STARTER_MESSAGE_ID), DSL.currentTimestamp())
+                .onConflict(Players.PLAYER_UUID)
+                .doUpdate()
+                .set(Players.PLAYER_NAME, dialect.inserted(Players.PLAYER_NAME))
+                .set(Players.DISCORD_THREAD_ID, DSL.coalesce(
+                        DSL.nullif(dialect.inserted(Players.DISCORD_THREAD_ID), DSL.inline(0L)), Players.DISCORD_THREAD_ID))
+                .set(Players.DISCORD_STARTER_MESSAGE_ID, DSL.coalesce(
+                        DSL.nullif(dialect.inserted(Players.DISCORD_STARTER_MESSAGE_ID), DSL.inline(0L)), Players.DISCORD_STARTER_MESSAGE_ID))
+                .set(Players.UPDATED_AT, DSL.currentTimestamp()));
+
+        this.incrementCountersSql = dialect.render(dsl.insertInto(Players.TABLE,
+                        Players.PLAYER_UUID, Players.PLAYER_NAME, Players.TOTAL_PUNISHMENTS,
+                        Players.ACTIVE_PUNISHMENTS, Players.LAST_PUNISHMENT_AT)
+                .values(param(Players.PLAYER_UUID), param(Players.PLAYER_NAME), DSL.inline(1),
+                        param(Players.ACTIVE_PUNISHMENTS), param(Players.LAST_PUNISHMENT_AT))
+                .onConflict(Players.PLAYER_UUID)
+                .doUpdate()
+                .set(Players.PLAYER_NAME, dialect.inserted(Players.PLAYER_NAME))
+                .set(Players.TOTAL_PUNISHMENTS, Players.TOTAL_PUNISHMENTS.plus(DSL.inline(1)))
+                .set(Players.ACTIVE_PUNISHMENTS, Players.ACTIVE_PUNISHMENTS.plus(dialect.inserted(Players.ACTIVE_PUNISHMENTS)))
+                .set(Players.LAST_PUNISHMENT_AT, dialect.inserted(Players.LAST_PUNISHMENT_AT))
+                .set(Players.UPDATED_AT, DSL.currentTimestamp()));
+
+        this.decrementActiveSql = dialect.render(dsl.update(Players.TABLE)
+                .set(Players.ACTIVE_PUNISHMENTS, decremented(Players.ACTIVE_PUNISHMENTS))
+                .set(Players.UPDATED_AT, DSL.currentTimestamp())
+                .where(Players.PLAYER_UUID.eq(param(Players.PLAYER_UUID)))
+                .and(punishmentStillActive()));
+    }
+
+    PlayerData find(Connection conn, UUID playerUuid) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(selectByUuidSql)) {
+            stmt.setString(1, playerUuid.toString());
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? map(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Вставить игроков или обновить имя и данные Discord. Каждая строка - один атомарный
+     * upsert, поэтому параллельные вызовы для одного игрока не требуют внешней блокировки.
+     */
+    void upsertAll(Connection conn, Collection<PlayerData> players) throws SQLException {
+        if (players.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(upsertSql)) {
+            for (PlayerData player : players) {
+                stmt.setString(1, player.getPlayerUuid().toString());
+                stmt.setString(2, player.getPlayerName());
+                stmt.setLong(3, player.getDiscordThreadId() != null ? player.getDiscordThreadId() : 0);
+                stmt.setLong(4, player.getStarterMessageId() != null ? player.getStarterMessageId() : 0);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Увеличить счетчики игроков для новых наказаний (строка игрока создается при первом наказании)
+     */
+    void incrementCounters(Connection conn, List<PunishmentData> punishments) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(incrementCountersSql)) {
+            for (PunishmentData punishment : punishments) {
+                stmt.setString(1, punishment.getPlayerUuid().toString());
+                stmt.setString(2, punishment.getPlayerName());
+                stmt.setInt(3, punishment.isActive() ? 1 : 0);
+                stmt.setTimestamp(4, Timestamp.from(punishment.getCreatedAt()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Уменьшить счетчик активных наказаний, пока наказание в базе еще активно
+     */
+    void decrementActive(Connection conn, Collection<PunishmentData> punishments) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(decrementActiveSql)) {
+            for (PunishmentData punishment : punishments) {
+                stmt.setString(1, punishment.getPlayerUuid().toString());
+                stmt.setLong(2, punishment.getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private PlayerData map(ResultSet rs) throws SQLException {
+        PlayerData player = new PlayerData();
+
+        player.setId(rs.getLong(Players.ID.getName()));
+        player.setPlayerUuid(UUID.fromString(rs.getString(Players.PLAYER_UUID.getName())));
+        player.setPlayerName(rs.getString(Players.PLAYER_NAME.getName()));
+
+        long threadId = rs.getLong(Players.DISCORD_THREAD_ID.getName());
+        if (threadId > 0) {
+            player.setDiscordThreadId(threadId);
+        }
+
+        long starterMessageId = rs.getLong(Players.DISCORD_STARTER_MESSAGE_ID.getName());
+        if (starterMessageId > 0) {
+            player.setStarterMessageId(starterMessageId);
+        }
+
+        player.setTotalPunishments(rs.getInt(Players.TOTAL_PUNISHMENTS.getName()));
+        player.setActivePunishments(rs.getInt(Players.ACTIVE_PUNISHMENTS.getName()));
+
+        Timestamp lastPunishment = rs.getTimestamp(Players.LAST_PUNISHMENT_AT.getName());
+        if (lastPunishment != null) {
+            player.setLastPunishmentAt(lastPunishment.toInstant());
+        }
+
+        player.setCreatedAt(rs.getTimestamp(Players.CREATED_AT.getName()).toInstant());
+        player.setUpdatedAt(rs.getTimestamp(Players.UPDATED_AT.getName()).toInstant());
+
+        return player;
+    }
+}
@@ -0,0 +1,363 @@
+package org.bedepay.loggerpunishment.database;
+
+import org.bedepay.loggerpunishment.database.DatabaseTables.PunishmentLogs;
+import org.bedepay.loggerpunishment.model.PunishmentData;
+import org.bedepay.loggerpunishment.model.PunishmentType;
+import org.bedepay.loggerpunishment.model.UnbanType;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.isTrue;
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.param;
+
+/**
+ * Запросы к punishment_logs. Методы работают на переданном соединении,
+ * транзакциями управляет DatabaseManager или BatchWriter.
+ */
+final class PunishmentRepository {
+
+    private final String insertSql;
+    private final String updateSql;
+    private final String updateDeliverySql;
+    private final String selectByIdSql;
+    private final String selectActiveByPunishmentIdSql;
+    private final String selectExpiredSql;
+    private final String selectActiveByPlayerSql;
+
+    // MySQL возвращает ключи для всего пакета; драйвер SQLite getGeneratedKeys не поддерживает,
+    // поэтому ID каждой строки читается через last_insert_rowid() на том же соединении
+    private final boolean batchGeneratedKeys;
+    private static final String LAST_INSERT_ROWID_SQL = "SELECT last_insert_rowid()";
+
+    PunishmentRepository(DatabaseDialect dialect) {
+        DSLContext dsl = dialect.dsl();
+        this.batchGeneratedKeys = dialect.isMySQL();
+
+        this.insertSql = dialect.render(dsl.insertInto(PunishmentLogs.TABLE,
+                        PunishmentLogs.TYPE, PunishmentLogs.PLAYER_UUID, PunishmentLogs.PLAYER_NAME,
+                        PunishmentLogs.MODERATOR_UUID, PunishmentLogs.MODERATOR_NAME, PunishmentLogs.PUNISHMENT_ID,
+                        PunishmentLogs.REASON, PunishmentLogs.DURATION, PunishmentLogs.EXPIRES_AT, PunishmentLogs.JAIL_NAME,
+                        PunishmentLogs.PLAYER_THREAD_ID, PunishmentLogs.MODERATOR_THREAD_ID,
+                        PunishmentLogs.ACTIVE, PunishmentLogs.CREATED_AT)
+                .values(param(PunishmentLogs.TYPE), param(PunishmentLogs.PLAYER_UUID), param(PunishmentLogs.PLAYER_NAME),
+                        param(PunishmentLogs.MODERATOR_UUID), param(PunishmentLogs.MODERATOR_NAME), param(PunishmentLogs.PUNISHMENT_ID),
+                        param(PunishmentLogs.REASON), param(PunishmentLogs.DURATION), param(PunishmentLogs.EXPIRES_AT), param(PunishmentLogs.JAIL_NAME),
+                        param(PunishmentLogs.PLAYER_THREAD_ID), param(PunishmentLogs.MODERATOR_THREAD_ID),
+                        param(PunishmentLogs.ACTIVE), param(PunishmentLogs.CREATED_AT)));
+
+        // Снятие наказания меняет только его состояние: ID веток и сообщений пишет доставка
+        this.updateSql = dialect.render(dsl.update(PunishmentLogs.TABLE)
+                .set(PunishmentLogs.ACTIVE, param(PunishmentLogs.ACTIVE))
+                .set(PunishmentLogs.UNBANNED_AT, param(PunishmentLogs.UNBANNED_AT))
+                .set(PunishmentLogs.UNBAN_REASON, param(PunishmentLogs.UNBAN_REASON))
+                .set(PunishmentLogs.UNBAN_MODERATOR_UUID, param(PunishmentLogs.UNBAN_MODERATOR_UUID))
+                .set(PunishmentLogs.UNBAN_MODERATOR_NAME, param(PunishmentLogs.UNBAN_MODERATOR_NAME))
+                .set(PunishmentLogs.UNBAN_TYPE, param(PunishmentLogs.UNBAN_TYPE))
+                .set(PunishmentLogs.UPDATED_AT, DSL.currentTimestamp())
+                .where(PunishmentLogs.ID.eq(param(PunishmentLogs.ID))));
+
+        // Результат доставки в Discord: только ID веток и сообщений, 0 не затирает сохраненное значение.
+        // Состояние наказания не трогается, поэтому разбан, записанный во время доставки, не откатывается.
+        this.updateDeliverySql = dialect.render(dsl.update(PunishmentLogs.TABLE)
+                .set(PunishmentLogs.PLAYER_THREAD_ID, keepUnlessSet(PunishmentLogs.PLAYER_THREAD_ID))
+                .set(PunishmentLogs.MODERATOR_THREAD_ID, keepUnlessSet(PunishmentLogs.MODERATOR_THREAD_ID))
+                .set(PunishmentLogs.PLAYER_MESSAGE_ID, keepUnlessSet(PunishmentLogs.PLAYER_MESSAGE_ID))
+                .set(PunishmentLogs.MODERATOR_MESSAGE_ID, keepUnlessSet(PunishmentLogs.MODERATOR_MESSAGE_ID))
+                .set(PunishmentLogs.LOG_MESSAGE_ID, keepUnlessSet(PunishmentLogs.LOG_MESSAGE_ID))
+                .set(PunishmentLogs.UPDATED_AT, DSL.currentTimestamp())
+                .where(PunishmentLogs.ID.eq(param(PunishmentLogs.ID))));
+
+        this.selectByIdSql = dialect.render(dsl.select(PunishmentLogs.ALL)
+                .from(PunishmentLogs.TABLE)
+                .where(PunishmentLogs.ID.eq(param(PunishmentLogs.ID))));
+
+        this.selectActiveByPunishmentIdSql = dialect.render(dsl.select(PunishmentLogs.ALL)
+                .from(PunishmentLogs.TABLE)
+                .where(PunishmentLogs.PUNISHMENT_ID.eq(param(PunishmentLogs.PUNISHMENT_ID)))
+                .and(isTrue(PunishmentLogs.ACTIVE)));
+
+        // Условие совпадает с условием частичного индекса idx_punishments_expiring
+        this.selectExpiredSql = dialect.render(dsl.select(PunishmentLogs.ALL)
+                .from(PunishmentLogs.TABLE)
+                .where(isTrue(PunishmentLogs.ACTIVE))
+                .and(PunishmentLogs.EXPIRES_AT.isNotNull())
+                .and(PunishmentLogs.EXPIRES_AT.le(param(PunishmentLogs.EXPIRES_AT))));
+
+        this.selectActiveByPlayerSql = dialect.render(dsl.select(PunishmentLogs.ALL)
+                .from(PunishmentLogs.TABLE)
+                .where(PunishmentLogs.PLAYER_UUID.eq(param(PunishmentLogs.PLAYER_UUID)))
+                .and(isTrue(PunishmentLogs.ACTIVE))
+                .orderBy(PunishmentLogs.CREATED_AT.desc()));
+    }
+
+    // ==================== ЗАПИСЬ ====================
+
+    /**
+     * Вставить наказания и заполнить их сгенерированные ID
+     */
+    void insertAll(Connection conn, List<PunishmentData> punishments) throws SQLException {
+        if (punishments.isEmpty()) {
+            return;
+        }
+
+        if (batchGeneratedKeys) {
+            try (PreparedStatement stmt = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+                for (PunishmentData punishment : punishments) {
+                    bindInsert(stmt, punishment);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    for (PunishmentData punishment : punishments) {
+                        if (!keys.next()) {
+                            throw new SQLException("Драйвер вернул меньше ключей, чем строк в пакете");
+                        }
+                        punishment.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return;
+        }
+
+        // Внутри одной транзакции это все равно одна фиксация на весь пакет
+        try (PreparedStatement stmt = conn.prepareStatement(insertSql);
+             PreparedStatement lastId = conn.prepareStatement(LAST_INSERT_ROWID_SQL)) {
+            for (PunishmentData punishment : punishments) {
+                bindInsert(stmt, punishment);
+                stmt.executeUpdate();
+
+                try (ResultSet keys = lastId.executeQuery()) {
+                    if (keys.next()) {
+                        punishment.setId(keys.getLong(1));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Записать снятие наказаний одним пакетом (активность и данные разбана)
+     */
+    void updateAll(Connection conn, List<PunishmentData> punishments) throws SQLException {
+        if (punishments.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(updateSql)) {
+            for (PunishmentData punishment : punishments) {
+                bindUpdate(stmt, punishment);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Записать ID веток и сообщений после доставки в Discord одним пакетом
+     */
+    void updateDeliveryAll(Connection conn, List<PunishmentData> punishments) throws SQLException {
+        if (punishments.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(updateDeliverySql)) {
+            for (PunishmentData punishment : punishments) {
+                stmt.setLong(1, punishment.getPlayerThreadId() != null ? punishment.getPlayerThreadId() : 0);
+                stmt.setLong(2, punishment.getModeratorThreadId() != null ? punishment.getModeratorThreadId() : 0);
+                stmt.setLong(3, punishment.getPlayerMessageId() != null ? punishment.getPlayerMessageId() : 0);
+                stmt.setLong(4, punishment.getModeratorMessageId() != null ? punishment.getModeratorMessageId() : 0);
+                stmt.setLong(5, punishment.getLogMessageId() != null ? punishment.getLogMessageId() : 0);
+                stmt.setLong(6, punishment.getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void bindInsert(PreparedStatement stmt, PunishmentData punishment) throws SQLException {
+        stmt.setString(1, punishment.getType().name());
+        stmt.setString(2, punishment.getPlayerUuid().toString());
+        stmt.setString(3, punishment.getPlayerName());
+        stmt.setString(4, punishment.getModeratorUuid() != null ? punishment.getModeratorUuid().toString() : null);
+        stmt.setString(5, punishment.getModeratorName());
+        stmt.setString(6, punishment.getPunishmentId());
+        stmt.setString(7, punishment.getReason());
+        stmt.setLong(8, punishment.getDuration() != null ? punishment.getDuration() : 0);
+        stmt.setTimestamp(9, punishment.getExpiresAt() != null ? Timestamp.from(punishment.getExpiresAt()) : null);
+        stmt.setString(10, punishment.getJailName());
+        stmt.setLong(11, punishment.getPlayerThreadId() != null ? punishment.getPlayerThreadId() : 0);
+        stmt.setLong(12, punishment.getModeratorThreadId() != null ? punishment.getModeratorThreadId() : 0);
+        stmt.setBoolean(13, punishment.isActive());
+        stmt.setTimestamp(14, Timestamp.from(punishment.getCreatedAt()));
+    }
+
+    private void bindUpdate(PreparedStatement stmt, PunishmentData punishment) throws SQLException {
+        stmt.setBoolean(1, punishment.isActive());
+        stmt.setTimestamp(2, punishment.getUnbannedAt() != null ? Timestamp.from(punishment.getUnbannedAt()) : null);
+        stmt.setString(3, punishment.getUnbanReason());
+        stmt.setString(4, punishment.getUnbanModeratorUuid() != null ? punishment.getUnbanModeratorUuid().toString() : null);
+        stmt.setString(5, punishment.getUnbanModeratorName());
+        stmt.setString(6, punishment.getUnbanType() != null ? punishment.getUnbanType().name() : null);
+        stmt.setLong(7, punishment.getId());
+    }
+
+    /**
+     * Новое значение ID, если оно передано (не 0), иначе сохраненное
+     */
+    private static Field<Long> keepUnlessSet(Field<Long> field) {
+        return DSL.coalesce(DSL.nullif(param(field), DSL.inline(0L)), field);
+    }
+
+    // ==================== ЧТЕНИЕ ====================
+
+    PunishmentData findById(Connection conn, long id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(selectByIdSql)) {
+            stmt.setLong(1, id);
+            return first(stmt);
+        }
+    }
+
+    PunishmentData findActiveByPunishmentId(Connection conn, String punishmentId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(selectActiveByPunishmentIdSql)) {
+            stmt.setString(1, punishmentId);
+            return first(stmt);
+        }
+    }
+
+    /**
+     * Активные наказания со сроком, истекшим к моменту now.
+     * Время передается параметром: в SQLite expires_at хранится в формате драйвера,
+     * и сравнение с CURRENT_TIMESTAMP (текстом) было бы некорректным
+     */
+    List<PunishmentData> findExpired(Connection conn, Instant now) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(selectExpiredSql)) {
+            stmt.setTimestamp(1, Timestamp.from(now));
+            return all(stmt);
+        }
+    }
+
+    /**
+     * Активные наказания игрока, новые первыми
+     */
+    List<PunishmentData> findActiveByPlayer(Connection conn, UUID playerUuid) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(selectActiveByPlayerSql)) {
+            stmt.setString(1, playerUuid.toString());
+            return all(stmt);
+        }
+    }
+
+    private PunishmentData first(PreparedStatement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? map(rs) : null;
+        }
+    }
+
+    private List<PunishmentData> all(PreparedStatement stmt) throws SQLException {
+        List<PunishmentData> punishments = new ArrayList<>();
+
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                punishments.add(map(rs));
+            }
+        }
+
+        return punishments;
+    }
+
+    /**
+     * Преобразование строки punishment_logs (проекция PunishmentLogs.ALL) в PunishmentData
+     */
+    PunishmentData map(ResultSet rs) throws SQLException {
+        PunishmentData punishment = new PunishmentData();
+
+        punishment.setId(rs.getLong(PunishmentLogs.ID.getName()));
+        punishment.setType(PunishmentType.valueOf(rs.getString(PunishmentLogs.TYPE.getName())));
+        punishment.setPlayerUuid(UUID.fromString(rs.getString(PunishmentLogs.PLAYER_UUID.getName())));
+        punishment.setPlayerName(rs.getString(PunishmentLogs.PLAYER_NAME.getName()));
+
+        String moderatorUuid = rs.getString(PunishmentLogs.MODERATOR_UUID.getName());
+        if (moderatorUuid != null) {
+            punishment.setModeratorUuid(UUID.fromString(moderatorUuid));
+        }
+
+        punishment.setModeratorName(rs.getString(PunishmentLogs.MODERATOR_NAME.getName()));
+        punishment.setPunishmentId(rs.getString(PunishmentLogs.PUNISHMENT_ID.getName()));
+        punishment.setReason(rs.getString(PunishmentLogs.REASON.getName()));
+
+        long duration = rs.getLong(PunishmentLogs.DURATION.getName());
+        if (duration > 0) {
+            punishment.setDuration(duration);
+        }
+
+        Timestamp expiresAt = rs.getTimestamp(PunishmentLogs.EXPIRES_AT.getName());
+        if (expiresAt != null) {
+            punishment.setExpiresAt(expiresAt.toInstant());
+        }
+
+        punishment.setJailName(rs.getString(PunishmentLogs.JAIL_NAME.getName()));
+
+        long playerThreadId = rs.getLong(PunishmentLogs.PLAYER_THREAD_ID.getName());
+        if (playerThreadId > 0) {
+            punishment.setPlayerThreadId(playerThreadId);
+        }
+
+        long moderatorThreadId = rs.getLong(PunishmentLogs.MODERATOR_THREAD_ID.getName());
+        if (moderatorThreadId > 0) {
+            punishment.setModeratorThreadId(moderatorThreadId);
+        }
+
+        long playerMessageId = rs.getLong(PunishmentLogs.PLAYER_MESSAGE_ID.getName());
+        if (playerMessageId > 0) {
+            punishment.setPlayerMessageId(playerMessageId);
+        }
+
+        long moderatorMessageId = rs.getLong(PunishmentLogs.MODERATOR_MESSAGE_ID.getName());
+        if (moderatorMessageId > 0) {
+            punishment.setModeratorMessageId(moderatorMessageId);
+        }
+
+        long logMessageId = rs.getLong(PunishmentLogs.LOG_MESSAGE_ID.getName());
+        if (logMessageId > 0) {
+            punishment.setLogMessageId(logMessageId);
+        }
+
+        punishment.setActive(rs.getBoolean(PunishmentLogs.ACTIVE.getName()));
+
+        Timestamp unbannedAt = rs.getTimestamp(PunishmentLogs.UNBANNED_AT.getName());
+        if (unbannedAt != null) {
+            punishment.setUnbannedAt(unbannedAt.toInstant());
+        }
+
+        punishment.setUnbanReason(rs.getString(PunishmentLogs.UNBAN_REASON.getName()));
+
+        String unbanModeratorUuid = rs.getString(PunishmentLogs.UNBAN_MODERATOR_UUID.getName());
+        if (unbanModeratorUuid != null) {
+            punishment.setUnbanModeratorUuid(UUID.fromString(unbanModeratorUuid));
+        }
+
+        punishment.setUnbanModeratorName(rs.getString(PunishmentLogs.UNBAN_MODERATOR_NAME.getName()));
+
+        String unbanType = rs.getString(PunishmentLogs.UNBAN_TYPE.getName());
+        if (unbanType != null) {
+            punishment.setUnbanType(UnbanType.valueOf(unbanType));
+        }
+
+        punishment.setCreatedAt(rs.getTimestamp(PunishmentLogs.CREATED_AT.getName()).toInstant());
+        punishment.setUpdatedAt(rs.getTimestamp(PunishmentLogs.UPDATED_AT.getName()).toInstant());
+
+        return punishment;
+    }
+}
@@ -0,0 +1,280 @@
+package org.bedepay.loggerpunishment.database;
+
+import org.bedepay.loggerpunishment.LoggerPunishment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Версионные миграции схемы.
+ * Текущая версия хранится в plugin_settings (ключ schema_version); при запуске применяются
+ * только миграции с большим номером, каждая в своей транзакции вместе с записью новой версии.
+ * Скрипты лежат в db/migration/{sqlite|mysql}/V{номер}__{название}.sql.
+ * Если версия актуальна, запуск ограничивается одним SELECT без DDL.
+ */
+public class SchemaMigrator {
+
+    static final String SCHEMA_VERSION_KEY = "schema_version";
+
+    /**
+     * Миграции по порядку. Новая миграция добавляется в конец с номером на единицу больше
+     * и двумя скриптами (SQLite и MySQL).
+     */
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "baseline"),
+            new Migration(2, "outbox_punishment"),
+            new Migration(3, "outbox_claim_token")
+    );
+
+    /**
+     * Колонки, добавленные в базы до появления версий схемы: V1 создает таблицы через
+     * IF NOT EXISTS, поэтому в старой SQLite базе их нужно добавить отдельно
+     */
+    private static final List<String[]> LEGACY_COLUMNS = List.of(
+            new String[] {"moderators", "discord_starter_message_id", "BIGINT NULL"},
+            new String[] {"players", "discord_starter_message_id", "BIGINT NULL"}
+    );
+
+    // Блокировка MySQL на время миграций, чтобы несколько серверов с общей базой не мигрировали одновременно
+    private static final String MYSQL_LOCK_NAME = "loggerpunishment_schema";
+    private static final int MYSQL_LOCK_TIMEOUT_SECONDS = 60;
+
+    private final LoggerPunishment plugin;
+    private final DatabaseManager databaseManager;
+    private final Logger logger;
+    private final boolean mysql;
+
+    public SchemaMigrator(LoggerPunishment plugin, DatabaseManager databaseManager) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.logger = plugin.getLogger();
+        this.mysql = databaseManager.isMySQL();
+    }
+
+    /**
+     * Применить недостающие миграции.
+     *
+     * @return число примененных миграций
+     */
+    public int migrate() throws SQLException {
+        int latest = latestVersion();
+
+        try (Connection conn = databaseManager.getWriteConnection()) {
+            int current = readVersion(conn);
+            if (current == latest) {
+                return 0;
+            }
+            if (current > latest) {
+                logger.warning("Версия схемы базы данных (" + current + ") новее, чем поддерживает плагин ("
+                        + latest + "). Миграции пропущены");
+                return 0;
+            }
+
+            if (mysql) {
+                acquireMySQLLock(conn);
+            }
+
+            try {
+                // Другой сервер мог применить миграции, пока мы ждали блокировку
+                current = readVersion(conn);
+                if (current == 0 && tableExists(conn, "punishment_logs")) {
+                    logger.info("Найдена база без версии схемы, она будет приведена к версии 1");
+                    addLegacyColumns(conn);
+                }
+
+                int applied = 0;
+                for (Migration migration : MIGRATIONS) {
+                    if (migration.version() > current) {
+                        apply(conn, migration);
+                        applied++;
+                    }
+                }
+                return applied;
+
+            } finally {
+                if (mysql) {
+                    releaseMySQLLock(conn);
+                }
+            }
+        }
+    }
+
+    static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+    }
+
+    // ==================== ПРИМЕНЕНИЕ МИГРАЦИЙ ====================
+
+    /**
+     * Применить одну миграцию в транзакции. В MySQL DDL фиксируется сразу,
+     * поэтому скрипты MySQL пишутся так, чтобы их повторный запуск был безопасен.
+     */
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        String resource = migration.resource(mysql ? "mysql" : "sqlite");
+        List<String> statements = splitStatements(readResource(resource));
+
+        long started = System.currentTimeMillis();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+            writeVersion(conn, migration.version());
+            conn.commit();
+
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("Миграция " + resource + " не применена: " + e.getMessage(), e);
+
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        logger.info("Применена миграция схемы " + migration.version() + " (" + migration.description() + ", "
+                + statements.size() + " команд, " + (System.currentTimeMillis() - started) + " мс)");
+    }
+
+    private int readVersion(Connection conn) throws SQLException {
+        if (!tableExists(conn, "plugin_settings")) {
+            return 0;
+        }
+
+        String value = databaseManager.settings().find(conn, SCHEMA_VERSION_KEY);
+        if (value == null) {
+            return 0;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new SQLException("Некорректная версия схемы в plugin_settings: " + value);
+        }
+    }
+
+    private void writeVersion(Connection conn, int version) throws SQLException {
+        databaseManager.settings().upsert(conn, SCHEMA_VERSION_KEY, String.valueOf(version),
+                "Версия схемы базы данных (номер последней миграции)");
+    }
+
+    // ==================== СТАРЫЕ БАЗЫ ====================
+
+    private void addLegacyColumns(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String[] column : LEGACY_COLUMNS) {
+                if (tableExists(conn, column[0]) && !columnExists(conn, column[0], column[1])) {
+                    stmt.execute("ALTER TABLE " + column[0] + " ADD COLUMN " + column[1] + " " + column[2]);
+                    logger.info("Добавлена колонка " + column[0] + "." + column[1]);
+                }
+            }
+        }
+    }
+
+    private boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getTables(conn.getCatalog(), null, table, new String[] {"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    private boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getColumns(conn.getCatalog(), null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    // ==================== БЛОКИРОВКА MYSQL ====================
+
+    private void acquireMySQLLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, MYSQL_LOCK_NAME);
+            stmt.setInt(2, MYSQL_LOCK_TIMEOUT_SECONDS);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Не удалось получить блокировку миграций за "
+                            + MYSQL_LOCK_TIMEOUT_SECONDS + " секунд");
+                }
+            }
+        }
+    }
+
+    private void releaseMySQLLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, MYSQL_LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            logger.warning("Не удалось снять блокировку миграций: " + e.getMessage());
+        }
+    }
+
+    // ==================== СКРИПТЫ ====================
+
+    private String readResource(String resource) throws SQLException {
+        try (InputStream in = plugin.getResource(resource)) {
+            if (in == null) {
+                throw new SQLException("Скрипт миграции не найден: " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Не удалось прочитать скрипт миграции " + resource, e);
+        }
+    }
+
+    /**
+     * Разбить скрипт на команды: команда заканчивается строкой с ';' в конце,
+     * тело триггера (BEGIN ... END;) остается одной командой. Строки-комментарии пропускаются.
+     */
+    static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inTrigger = false;
+
+        for (String line : script.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+
+            String upper = trimmed.toUpperCase();
+            if (current.length() == 0 && upper.startsWith("CREATE TRIGGER")) {
+                inTrigger = true;
+            }
+
+            current.append(current.length() == 0 ? "" : "\n").append(line);
+
+            boolean finished = inTrigger ? upper.equals("END;") : trimmed.endsWith(";");
+            if (finished) {
+                String statement = current.toString().trim();
+                statements.add(inTrigger ? statement : statement.substring(0, statement.length() - 1));
+                current.setLength(0);
+                inTrigger = false;
+            }
+        }
+
+        if (current.length() > 0) {
+            statements.add(current.toString().trim());
+        }
+
+        return statements;
+    }
+
+    private record Migration(int version, String description) {
+
+        String resource(String dialect) {
+            return "db/migration/" + dialect + "/V" + version + "__" + description + ".sql";
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.bedepay.loggerpunishment.database;
+
+import org.bedepay.loggerpunishment.database.DatabaseTables.PluginSettings;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.param;
+
+/**
+ * Запросы к plugin_settings. Колонка key в MySQL - зарезервированное слово,
+ * jOOQ экранирует ее сам.
+ */
+final class SettingsRepository {
+
+    private final String selectSql;
+    private final String upsertSql;
+
+    SettingsRepository(DatabaseDialect dialect) {
+        DSLContext dsl = dialect.dsl();
+
+        this.selectSql = dialect.render(dsl.select(PluginSettings.VALUE)
+                .from(PluginSettings.TABLE)
+                .where(PluginSettings.KEY.eq(param(PluginSettings.KEY))));
+
+        // Описание задается только при первой записи
+        this.upsertSql = dialect.render(dsl.insertInto(PluginSettings.TABLE,
+                        PluginSettings.KEY, PluginSettings.VALUE, PluginSettings.DESCRIPTION, PluginSettings.UPDATED_AT)
+                .values(param(PluginSettings.KEY), param(PluginSettings.VALUE), param(PluginSettings.DESCRIPTION),
+                        DSL.currentTimestamp())
+                .onConflict(PluginSettings.KEY)
+                .doUpdate()
+                .set(PluginSettings.VALUE, dialect.inserted(PluginSettings.VALUE))
+                .set(PluginSettings.UPDATED_AT, DSL.currentTimestamp()));
+    }
+
+    /**
+     * Значение настройки (null, если не задано)
+     */
+    String find(Connection conn, String key) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+            stmt.setString(1, key);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(PluginSettings.VALUE.getName()) : null;
+            }
+        }
+    }
+
+    void upsert(Connection conn, String key, String value, String description) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(upsertSql)) {
+            stmt.setString(1, key);
+            stmt.setString(2, value);
+            stmt.setString(3, description);
+
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package org.bedepay.loggerpunishment.database;
+
+import org.bedepay.loggerpunishment.database.DatabaseTables.PunishmentLogs;
+import org.bedepay.loggerpunishment.database.DatabaseTables.Statistics;
+import org.bedepay.loggerpunishment.model.PunishmentData;
+import org.bedepay.loggerpunishment.model.PunishmentStatistics;
+import org.bedepay.loggerpunishment.model.PunishmentType;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Select;
+import org.jooq.SelectField;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.decremented;
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.isTrue;
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.param;
+import static org.bedepay.loggerpunishment.database.DatabaseDialect.punishmentStillActive;
+
+/**
+ * Запросы к punishment_statistics: инкрементальные обновления при записи наказаний,
+ * чтение снимка и сверка/пересборка по журналу punishment_logs.
+ */
+final class StatisticsRepository {
+
+    // Колонки вставки: цель, все счетчики, первое и последнее наказание
+    private static final List<Field<?>> INSERT_COLUMNS = insertColumns();
+
+    private final String selectSql;
+    private final String insertSql;
+    private final Map<PunishmentType, String> deactivationSql = new EnumMap<>(PunishmentType.class);
+    private final String mismatchCountSql;
+    private final String orphanCountSql;
+    private final String deleteAllSql;
+    private final String rebuildSql;
+
+    StatisticsRepository(DatabaseDialect dialect) {
+        DSLContext dsl = dialect.dsl();
+
+        this.selectSql = dialect.render(dsl.select(Statistics.ALL)
+                .from(Statistics.TABLE)
+                .where(Statistics.TARGET_UUID.eq(param(Statistics.TARGET_UUID)))
+                .and(Statistics.TARGET_TYPE.eq(param(Statistics.TARGET_TYPE))));
+
+        // Счетчики во вставке - приращения: при конфликте они прибавляются к сохраненным
+        List<Field<?>> values = new ArrayList<>();
+        for (Field<?> column : INSERT_COLUMNS) {
+            values.add(param(column));
+        }
+
+        Map<Field<?>, Field<?>> increments = new LinkedHashMap<>();
+        for (Field<Integer> counter : Statistics.COUNTERS) {
+            increments.put(counter, counter.plus(dialect.inserted(counter)));
+        }
+        increments.put(Statistics.LAST_PUNISHMENT_AT, dialect.inserted(Statistics.LAST_PUNISHMENT_AT));
+        increments.put(Statistics.LAST_UPDATED_AT, DSL.currentTimestamp());
+
+        this.insertSql = dialect.render(dsl.insertInto(Statistics.TABLE)
+                .columns(INSERT_COLUMNS)
+                .values(values)
+                .onConflict(Statistics.TARGET_UUID, Statistics.TARGET_TYPE)
+                .doUpdate()
+                .set(increments));
+
+        Statistics.ACTIVE_BY_TYPE.forEach((type, column) -> deactivationSql.put(type, dialect.render(dsl.update(Statistics.TABLE)
+                .set(Statistics.ACTIVE_PUNISHMENTS, decremented(Statistics.ACTIVE_PUNISHMENTS))
+                .set(column, decremented(column))
+                .set(Statistics.LAST_UPDATED_AT, DSL.currentTimestamp())
+                .where(Statistics.TARGET_UUID.eq(param(Statistics.TARGET_UUID)))
+                .and(Statistics.TARGET_TYPE.eq(param(Statistics.TARGET_TYPE)))
+                .and(punishmentStillActive()))));
+
+        // Сверка: строки журнала без совпадающей статистики и статистика без строк журнала
+        Table<Record> actual = aggregate(dsl).asTable("actual");
+        Condition mismatch = Statistics.ID.isNull();
+        for (Field<Integer> counter : Statistics.COUNTERS) {
+            mismatch = mismatch.or(counter.ne(aliased(actual, counter)));
+        }
+
+        this.mismatchCountSql = dialect.render(dsl.selectCount()
+                .from(actual)
+                .leftJoin(Statistics.TABLE)
+                .on(Statistics.TARGET_UUID.eq(aliased(actual, Statistics.TARGET_UUID)))
+                .and(Statistics.TARGET_TYPE.eq(aliased(actual, Statistics.TARGET_TYPE)))
+                .where(mismatch));
+
+        this.orphanCountSql = dialect.render(dsl.selectCount()
+                .from(Statistics.TABLE)
+                .where(Statistics.TOTAL_PUNISHMENTS.eq(DSL.inline(0)))
+                .or(DSL.notExists(DSL.selectOne()
+                        .from(PunishmentLogs.TABLE)
+                        .where(Statistics.TARGET_TYPE.eq(DSL.inline(PunishmentStatistics.TARGET_PLAYER))
+                                .and(PunishmentLogs.PLAYER_UUID.eq(Statistics.TARGET_UUID)))
+                        .or(Statistics.TARGET_TYPE.eq(DSL.inline(PunishmentStatistics.TARGET_MODERATOR))
+                                .and(PunishmentLogs.MODERATOR_UUID.eq(Statistics.TARGET_UUID))))));
+
+        // Пересборка: вся таблица заново из журнала
+        Table<Record> aggregated = aggregate(dsl).asTable("aggregated");
+        List<Field<?>> aggregatedColumns = new ArrayList<>();
+        for (Field<?> column : INSERT_COLUMNS) {
+            aggregatedColumns.add(aliased(aggregated, column));
+        }
+
+        this.deleteAllSql = dialect.render(dsl.deleteFrom(Statistics.TABLE));
+        this.rebuildSql = dialect.render(dsl.insertInto(Statistics.TABLE)
+                .columns(INSERT_COLUMNS)
+                .select(dsl.select(aggregatedColumns).from(aggregated)));
+    }
+
+    // ==================== ИНКРЕМЕНТАЛЬНЫЕ ОБНОВЛЕНИЯ ====================
+
+    /**
+     * Добавить новые наказания: единица в счетчиках типа наказания у игрока и модератора
+     */
+    void applyInsert(Connection conn, List<PunishmentData> punishments) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(insertSql)) {
+            for (PunishmentData punishment : punishments) {
+                bindDelta(stmt, punishment.getPlayerUuid(), PunishmentStatistics.TARGET_PLAYER, punishment);
+                stmt.addBatch();
+
+                if (punishment.getModeratorUuid() != null) {
+                    bindDelta(stmt, punishment.getModeratorUuid(), PunishmentStatistics.TARGET_MODERATOR, punishment);
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void bindDelta(PreparedStatement stmt, UUID targetUuid, String targetType,
+                           PunishmentData punishment) throws SQLException {
+        boolean active = punishment.isActive() && punishment.getType().canBeRevoked();
+        Timestamp createdAt = Timestamp.from(punishment.getCreatedAt());
+        int index = 1;
+
+        stmt.setString(index++, targetUuid.toString());
+        stmt.setString(index++, targetType);
+
+        stmt.setInt(index++, 1);
+        for (PunishmentType type : Statistics.TOTAL_BY_TYPE.keySet()) {
+            stmt.setInt(index++, type == punishment.getType() ? 1 : 0);
+        }
+
+        stmt.setInt(index++, active ? 1 : 0);
+        for (PunishmentType type : Statistics.ACTIVE_BY_TYPE.keySet()) {
+            stmt.setInt(index++, active && type == punishment.getType() ? 1 : 0);
+        }
+
+        stmt.setTimestamp(index++, createdAt);
+        stmt.setTimestamp(index, createdAt);
+    }
+
+    /**
+     * Уменьшить активные счетчики для снятых наказаний, пока наказание в базе еще активно
+     */
+    void applyDeactivation(Connection conn, Collection<PunishmentData> punishments) throws SQLException {
+        for (Map.Entry<PunishmentType, String> entry : deactivationSql.entrySet()) {
+            List<PunishmentData> ofType = punishments.stream()
+                    .filter(punishment -> punishment.getType() == entry.getKey())
+                    .toList();
+            if (ofType.isEmpty()) {
+                continue;
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(entry.getValue())) {
+                for (PunishmentData punishment : ofType) {
+                    stmt.setString(1, punishment.getPlayerUuid().toString());
+                    stmt.setString(2, PunishmentStatistics.TARGET_PLAYER);
+                    stmt.setLong(3, punishment.getId());
+                    stmt.addBatch();
+
+                    if (punishment.getModeratorUuid() != null) {
+                        stmt.setString(1, punishment.getModeratorUuid().toString());
+                        stmt.setString(2, PunishmentStatistics.TARGET_MODERATOR);
+                        stmt.setLong(3, punishment.getId());
+                        stmt.addBatch();
+                    }
+                }
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    // ==================== ЧТЕНИЕ ====================
+
+    /**
+     * Снимок статистики (null, если наказаний не было). Для игрока с активными наказаниями
+     * их список читается через то же соединение.
+     */
+    PunishmentStatistics find(Connection conn, UUID targetUuid, String targetType,
+                              PunishmentRepository punishments) throws SQLException {
+        PunishmentStatistics.Builder statistics;
+        int activePunishments;
+
+        try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+            stmt.setString(1, targetUuid.toString());
+            stmt.setString(2, targetType);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                statistics = map(rs);
+                activePunishments = rs.getInt(Statistics.ACTIVE_PUNISHMENTS.getName());
+            }
+        }
+
+        if (PunishmentStatistics.TARGET_PLAYER.equals(targetType) && activePunishments > 0) {
+            statistics.activePunishmentDetails(punishments.findActiveByPlayer(conn, targetUuid));
+        }
+        return statistics.build();
+    }
+
+    private PunishmentStatistics.Builder map(ResultSet rs) throws SQLException {
+        PunishmentStatistics.Builder statistics = PunishmentStatistics.builder(
+                UUID.fromString(rs.getString(Statistics.TARGET_UUID.getName())), rs.getString(Statistics.TARGET_TYPE.getName()))
+                .totalPunishments(rs.getInt(Statistics.TOTAL_PUNISHMENTS.getName()))
+                .activePunishments(rs.getInt(Statistics.ACTIVE_PUNISHMENTS.getName()));
+
+        for (Map.Entry<PunishmentType, Field<Integer>> counter : Statistics.TOTAL_BY_TYPE.entrySet()) {
+            int total = rs.getInt(counter.getValue().getName());
+            if (total > 0) {
+                statistics.totalCount(counter.getKey(), total);
+            }
+        }
+
+        for (Map.Entry<PunishmentType, Field<Integer>> counter : Statistics.ACTIVE_BY_TYPE.entrySet()) {
+            int active = rs.getInt(counter.getValue().getName());
+            if (active > 0) {
+                statistics.activeCount(counter.getKey(), active);
+            }
+        }
+
+        Timestamp firstPunishmentAt = rs.getTimestamp(Statistics.FIRST_PUNISHMENT_AT.getName());
+        if (firstPunishmentAt != null) {
+            statistics.firstPunishmentAt(firstPunishmentAt.toInstant());
+        }
+
+        Timestamp lastPunishmentAt = rs.getTimestamp(Statistics.LAST_PUNISHMENT_AT.getName());
+        if (lastPunishmentAt != null) {
+            statistics.lastPunishmentAt(lastPunishmentAt.toInstant());
+        }
+
+        return statistics;
+    }
+
+    // ==================== СВЕРКА И ПЕРЕСБОРКА ====================
+
+    /**
+     * Количество записей статистики, не совпадающих с журналом наказаний
+     */
+    int countDrift(Connection conn) throws SQLException {
+        int drift = 0;
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : List.of(mismatchCountSql, orphanCountSql)) {
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    if (rs.next()) {
+                        drift += rs.getInt(1);
+                    }
+                }
+            }
+        }
+
+        return drift;
+    }
+
+    /**
+     * Пересобрать таблицу из журнала наказаний (в транзакции записи)
+     *
+     * @return число записей статистики
+     */
+    int rebuild(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(deleteAllSql);
+            return stmt.executeUpdate(rebuildSql);
+        }
+    }
+
+    /**
+     * Статистика, посчитанная напрямую по punishment_logs, для игроков и модераторов
+     */
+    private static Select<Record> aggregate(DSLContext dsl) {
+        return aggregate(dsl, PunishmentLogs.PLAYER_UUID, PunishmentStatistics.TARGET_PLAYER)
+                .unionAll(aggregate(dsl, PunishmentLogs.MODERATOR_UUID, PunishmentStatistics.TARGET_MODERATOR));
+    }
+
+    private static Select<Record> aggregate(DSLContext dsl, Field<String> uuidColumn, String targetType) {
+        Field<?>[] revocable = Statistics.ACTIVE_BY_TYPE.keySet().stream()
+                .map(type -> DSL.inline(type.name()))
+                .toArray(Field<?>[]::new);
+
+        List<SelectField<?>> fields = new ArrayList<>();
+        fields.add(uuidColumn.as(Statistics.TARGET_UUID.getName()));
+        fields.add(DSL.inline(targetType).as(Statistics.TARGET_TYPE.getName()));
+        fields.add(DSL.count().as(Statistics.TOTAL_PUNISHMENTS.getName()));
+
+        Statistics.TOTAL_BY_TYPE.forEach((type, counter) -> fields.add(
+                countWhere(PunishmentLogs.TYPE.eq(DSL.inline(type.name()))).as(counter.getName())));
+
+        fields.add(countWhere(isTrue(PunishmentLogs.ACTIVE).and(PunishmentLogs.TYPE.in(revocable)))
+                .as(Statistics.ACTIVE_PUNISHMENTS.getName()));
+
+        Statistics.ACTIVE_BY_TYPE.forEach((type, counter) -> fields.add(
+                countWhere(isTrue(PunishmentLogs.ACTIVE).and(PunishmentLogs.TYPE.eq(DSL.inline(type.name()))))
+                        .as(counter.getName())));
+
+        fields.add(DSL.min(PunishmentLogs.CREATED_AT).as(Statistics.FIRST_PUNISHMENT_AT.getName()));
+        fields.add(DSL.max(PunishmentLogs.CREATED_AT).as(Statistics.LAST_PUNISHMENT_AT.getName()));
+
+        return dsl.select(fields)
+                .from(PunishmentLogs.TABLE)
+                .where(uuidColumn.isNotNull())
+                .groupBy(uuidColumn);
+    }
+
+    private static Field<BigDecimal> countWhere(Condition condition) {
+        return DSL.sum(DSL.when(condition, DSL.inline(1)).otherwise(DSL.inline(0)));
+    }
+
+    /**
+     * Колонка производной таблицы с тем же именем и типом, что у колонки punishment_statistics
+     */
+    private static <T> Field<T> aliased(Table<?> table, Field<T> column) {
+        return DSL.field(DSL.name(table.getName(), column.getName()), column.getDataType());
+    }
+
+    private static List<Field<?>> insertColumns() {
+        List<Field<?>> columns = new ArrayList<>(List.of(Statistics.TARGET_UUID, Statistics.TARGET_TYPE));
+        columns.addAll(Statistics.COUNTERS);
+        columns.addAll(List.of(Statistics.FIRST_PUNISHMENT_AT, Statistics.LAST_PUNISHMENT_AT));
+        return List.copyOf(columns);
+    }
+}
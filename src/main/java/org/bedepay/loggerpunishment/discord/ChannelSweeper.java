@@ -0,0 +1,208 @@
+package org.bedepay.loggerpunishment.discord;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.concrete.ForumChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import org.bedepay.loggerpunishment.LoggerPunishment;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Фоновая очистка всей истории каналов от сообщений не от ботов.
+ * История читается страницами по 100 сообщений от старых к новым, позиция каждого канала
+ * сохраняется в plugin_settings, поэтому после перезапуска очистка продолжается с места остановки,
+ * а повторный проход смотрит только новые сообщения. Сообщения моложе 14 дней удаляются
+ * массово (purgeMessages), более старые - по одному. Страницы читаются не чаще page_interval
+ * и пропускаются, пока в диспетчере Discord есть ожидающие запросы.
+ * Для форумов проверяются активные ветки (в архивных ветках Discord не дает удалять сообщения).
+ */
+public class ChannelSweeper {
+
+    private static final int PAGE_SIZE = 100;
+    private static final String CHECKPOINT_PREFIX = "sweep_checkpoint:";
+
+    private final LoggerPunishment plugin;
+    private final Logger logger;
+    private final DiscordDispatcher dispatcher;
+    private final BiPredicate<GuildMessageChannel, Long> keepFilter;
+    private final ScheduledExecutorService scheduler;
+
+    // Каналы в очереди очистки и их позиции (ID последнего проверенного сообщения)
+    private final Map<Long, GuildMessageChannel> channels = new LinkedHashMap<>();
+    private final Map<Long, Long> checkpoints = new ConcurrentHashMap<>();
+    private volatile boolean pageInProgress = false;
+
+    // Метрики
+    private final AtomicLong scannedPages = new AtomicLong();
+    private final AtomicLong scannedMessages = new AtomicLong();
+    private final AtomicLong deletedMessages = new AtomicLong();
+    private final AtomicLong deferredPages = new AtomicLong();
+    private final AtomicLong completedChannels = new AtomicLong();
+
+    /**
+     * @param keepFilter возвращает true, если сообщение автора в канале нужно оставить
+     */
+    public ChannelSweeper(LoggerPunishment plugin, DiscordDispatcher dispatcher, long pageIntervalMillis,
+                          BiPredicate<GuildMessageChannel, Long> keepFilter) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.dispatcher = dispatcher;
+        this.keepFilter = keepFilter;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LoggerPunishment-ChannelSweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = Math.max(100, pageIntervalMillis);
+        scheduler.scheduleWithFixedDelay(this::step, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Поставить канал в очередь очистки (для форума - все его активные ветки)
+     */
+    public void sweep(GuildChannel channel) {
+        if (channel instanceof ForumChannel forum) {
+            forum.getThreadChannels().forEach(this::sweep);
+        } else if (channel instanceof GuildMessageChannel messageChannel) {
+            synchronized (channels) {
+                channels.putIfAbsent(messageChannel.getIdLong(), messageChannel);
+            }
+        }
+    }
+
+    /**
+     * Проверить одну страницу истории первого канала в очереди
+     */
+    private void step() {
+        if (pageInProgress) {
+            return;
+        }
+
+        // Живые отправки важнее очистки
+        if (dispatcher.getQueuedRequests() > 0) {
+            deferredPages.incrementAndGet();
+            return;
+        }
+
+        GuildMessageChannel channel;
+        synchronized (channels) {
+            if (channels.isEmpty()) {
+                return;
+            }
+            channel = channels.values().iterator().next();
+        }
+
+        pageInProgress = true;
+        long after = getCheckpoint(channel.getIdLong());
+
+        try {
+            dispatcher.submit(channel.getIdLong(), DiscordDispatcher.Priority.CLEANUP,
+                            () -> channel.getHistoryAfter(after, PAGE_SIZE).submit())
+                    .thenComposeAsync(history -> processPage(channel, history.getRetrievedHistory()), scheduler)
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            logger.warning("Ошибка при очистке канала " + channel.getName() + ": " + error.getMessage());
+                            finish(channel);
+                        }
+                        pageInProgress = false;
+                    });
+        } catch (Exception e) {
+            logger.warning("Ошибка при очистке канала " + channel.getName() + ": " + e.getMessage());
+            finish(channel);
+            pageInProgress = false;
+        }
+    }
+
+    /**
+     * Удалить сообщения не от ботов со страницы и сохранить позицию
+     */
+    private CompletableFuture<Void> processPage(GuildMessageChannel channel, List<Message> messages) {
+        scannedPages.incrementAndGet();
+        scannedMessages.addAndGet(messages.size());
+
+        if (messages.isEmpty()) {
+            finish(channel);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long newest = messages.stream().mapToLong(Message::getIdLong).max().getAsLong();
+        List<Message> toDelete = messages.stream()
+                .filter(message -> !message.getAuthor().isBot())
+                .filter(message -> !keepFilter.test(channel, message.getAuthor().getIdLong()))
+                .collect(Collectors.toList());
+
+        CompletableFuture<Void> deletion = CompletableFuture.completedFuture(null);
+        if (!toDelete.isEmpty()) {
+            deletion = dispatcher.submit(channel.getIdLong(), DiscordDispatcher.Priority.CLEANUP,
+                    () -> CompletableFuture.allOf(channel.purgeMessages(toDelete).toArray(new CompletableFuture<?>[0])));
+        }
+
+        return deletion.thenRunAsync(() -> {
+            deletedMessages.addAndGet(toDelete.size());
+            saveCheckpoint(channel.getIdLong(), newest);
+
+            if (messages.size() < PAGE_SIZE) {
+                finish(channel);
+            }
+        }, scheduler);
+    }
+
+    private void finish(GuildMessageChannel channel) {
+        synchronized (channels) {
+            if (channels.remove(channel.getIdLong()) == null) {
+                return;
+            }
+        }
+        completedChannels.incrementAndGet();
+    }
+
+    private long getCheckpoint(long channelId) {
+        return checkpoints.computeIfAbsent(channelId, id -> {
+            String value = plugin.getDatabaseManager().getSetting(CHECKPOINT_PREFIX + id);
+            try {
+                return value != null ? Long.parseLong(value) : 0L;
+            } catch (NumberFormatException e) {
+                return 0L;
+            }
+        });
+    }
+
+    private void saveCheckpoint(long channelId, long messageId) {
+        checkpoints.put(channelId, messageId);
+        plugin.getDatabaseManager().setSetting(CHECKPOINT_PREFIX + channelId, Long.toString(messageId),
+                "Последнее проверенное сообщение при очистке канала");
+    }
+
+    /**
+     * Получить статистику очистки истории
+     */
+    public String getStats() {
+        int pending;
+        synchronized (channels) {
+            pending = channels.size();
+        }
+        return String.format("🧽 Очистка истории: каналов в очереди %d, завершено %d, страниц %d, сообщений %d, удалено %d, отложено %d",
+                pending, completedChannels.get(), scannedPages.get(), scannedMessages.get(),
+                deletedMessages.get(), deferredPages.get());
+    }
+
+    /**
+     * Остановка: позиции уже сохранены, очистка продолжится при следующем запуске
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,289 @@
+package org.bedepay.loggerpunishment.discord;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Диспетчер запросов к Discord с очередью на каждый канал.
+ * В одном канале одновременно выполняется один запрос, остальные ждут в порядке приоритета
+ * (новое наказание, снятие, статистика, очистка). Ограничения скорости по маршрутам
+ * соблюдает сам JDA, диспетчер лишь не дает второстепенным правкам занять бакет канала
+ * раньше важных сообщений. Ожидающий запрос с тем же ключом объединения заменяется новым,
+ * при переполнении очереди канала статистика и очистка отбрасываются.
+ */
+public class DiscordDispatcher {
+
+    /**
+     * Приоритет запроса (меньше - важнее)
+     */
+    public enum Priority {
+        PUNISHMENT,
+        UNBAN,
+        STATS,
+        CLEANUP
+    }
+
+    private static final Comparator<Task<?>> TASK_ORDER = Comparator
+            .comparing((Task<?> task) -> task.priority)
+            .thenComparingLong(task -> task.sequence);
+
+    private final Logger logger;
+    private final int maxChannelQueue;
+    private final Map<Long, ChannelQueue> channels = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean running = true;
+
+    // Метрики
+    private final AtomicInteger queuedRequests = new AtomicInteger();
+    private final AtomicLong submittedRequests = new AtomicLong();
+    private final AtomicLong startedRequests = new AtomicLong();
+    private final AtomicLong completedRequests = new AtomicLong();
+    private final AtomicLong supersededRequests = new AtomicLong();
+    private final AtomicLong droppedRequests = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong maxWaitMillis = new AtomicLong();
+
+    public DiscordDispatcher(Logger logger, int maxChannelQueue) {
+        this.logger = logger;
+        this.maxChannelQueue = Math.max(1, maxChannelQueue);
+    }
+
+    /**
+     * Поставить запрос в очередь канала
+     */
+    public <T> CompletableFuture<T> submit(long channelId, Priority priority, Supplier<CompletableFuture<T>> request) {
+        return submit(channelId, priority, null, request);
+    }
+
+    /**
+     * Поставить запрос в очередь канала. Ожидающий запрос с тем же mergeKey заменяется,
+     * его результат совпадает с результатом нового запроса.
+     */
+    public <T> CompletableFuture<T> submit(long channelId, Priority priority, String mergeKey,
+                                           Supplier<CompletableFuture<T>> request) {
+        Task<T> task = new Task<>(priority, mergeKey, request, sequence.incrementAndGet());
+
+        if (!running) {
+            droppedRequests.incrementAndGet();
+            task.result.completeExceptionally(new RejectedExecutionException("Диспетчер Discord остановлен"));
+            return task.result;
+        }
+
+        submittedRequests.incrementAndGet();
+
+        while (true) {
+            ChannelQueue queue = channels.computeIfAbsent(channelId, id -> new ChannelQueue());
+            Boolean start = queue.enqueue(task);
+            if (start == null) {
+                // Очередь канала только что освобождена, берем новую
+                continue;
+            }
+            if (start) {
+                drain(channelId, queue);
+            }
+            return task.result;
+        }
+    }
+
+    /**
+     * Выполнять запросы канала по одному, пока очередь не опустеет
+     */
+    private void drain(long channelId, ChannelQueue queue) {
+        while (true) {
+            Task<?> task = queue.next();
+            if (task == null) {
+                channels.remove(channelId, queue);
+                return;
+            }
+
+            recordWait(System.currentTimeMillis() - task.enqueuedAt);
+            CompletableFuture<?> request = task.start();
+
+            if (!request.isDone()) {
+                request.whenComplete((value, error) -> drain(channelId, queue));
+                return;
+            }
+        }
+    }
+
+    private void recordWait(long waitMillis) {
+        startedRequests.incrementAndGet();
+        totalWaitMillis.addAndGet(waitMillis);
+        maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+    }
+
+    /**
+     * Получить статистику диспетчера
+     */
+    public String getStats() {
+        long started = startedRequests.get();
+        long averageWait = started > 0 ? totalWaitMillis.get() / started : 0;
+        return String.format("📨 Discord: в очереди %d (каналов %d), выполнено %d из %d, объединено %d, отброшено %d, ожидание ср. %d мс / макс. %d мс",
+                queuedRequests.get(), channels.size(), completedRequests.get(), submittedRequests.get(),
+                supersededRequests.get(), droppedRequests.get(), averageWait, maxWaitMillis.get());
+    }
+
+    public int getQueuedRequests() {
+        return queuedRequests.get();
+    }
+
+    /**
+     * Остановка: ожидающие запросы завершаются с ошибкой (исходящая очередь повторит их при запуске)
+     */
+    public void shutdown() {
+        running = false;
+
+        int cancelled = 0;
+        for (ChannelQueue queue : channels.values()) {
+            cancelled += queue.cancelAll();
+        }
+
+        if (cancelled > 0) {
+            logger.warning("Отменено запросов к Discord при остановке: " + cancelled);
+        }
+    }
+
+    /**
+     * Очередь одного канала
+     */
+    private final class ChannelQueue {
+        private final PriorityQueue<Task<?>> pending = new PriorityQueue<>(TASK_ORDER);
+        private final Map<String, Task<?>> byMergeKey = new HashMap<>();
+        private boolean busy;
+        private boolean retired;
+
+        /**
+         * Добавить запрос: true - нужно запустить обработку, false - запрос ждет или отброшен,
+         * null - очередь уже освобождена
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private synchronized Boolean enqueue(Task<?> task) {
+            if (retired) {
+                return null;
+            }
+
+            if (task.mergeKey != null) {
+                Task<?> previous = byMergeKey.remove(task.mergeKey);
+                if (previous != null && pending.remove(previous)) {
+                    queuedRequests.decrementAndGet();
+                    supersededRequests.incrementAndGet();
+                    ((Task) previous).follow(task);
+                }
+            }
+
+            if (pending.size() >= maxChannelQueue && task.priority.compareTo(Priority.STATS) >= 0) {
+                droppedRequests.incrementAndGet();
+                task.result.completeExceptionally(new RejectedExecutionException(
+                        "Очередь канала Discord переполнена (" + maxChannelQueue + ")"));
+                return false;
+            }
+
+            pending.add(task);
+            queuedRequests.incrementAndGet();
+            if (task.mergeKey != null) {
+                byMergeKey.put(task.mergeKey, task);
+            }
+
+            if (busy) {
+                return false;
+            }
+            busy = true;
+            return true;
+        }
+
+        /**
+         * Следующий запрос; если очередь пуста, она освобождается и больше не принимает запросы
+         */
+        private synchronized Task<?> next() {
+            Task<?> task = pending.poll();
+            if (task == null) {
+                busy = false;
+                retired = true;
+                return null;
+            }
+
+            queuedRequests.decrementAndGet();
+            if (task.mergeKey != null) {
+                byMergeKey.remove(task.mergeKey, task);
+            }
+            return task;
+        }
+
+        private synchronized int cancelAll() {
+            int count = 0;
+            Task<?> task;
+            while ((task = pending.poll()) != null) {
+                queuedRequests.decrementAndGet();
+                droppedRequests.incrementAndGet();
+                task.result.completeExceptionally(new RejectedExecutionException("Диспетчер Discord остановлен"));
+                count++;
+            }
+            byMergeKey.clear();
+            return count;
+        }
+    }
+
+    /**
+     * Запрос в очереди канала
+     */
+    private final class Task<T> {
+        private final Priority priority;
+        private final String mergeKey;
+        private final Supplier<CompletableFuture<T>> request;
+        private final long sequence;
+        private final long enqueuedAt = System.currentTimeMillis();
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Task(Priority priority, String mergeKey, Supplier<CompletableFuture<T>> request, long sequence) {
+            this.priority = priority;
+            this.mergeKey = mergeKey;
+            this.request = request;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Выполнить запрос и передать его результат ожидающим
+         */
+        private CompletableFuture<T> start() {
+            CompletableFuture<T> future;
+            try {
+                future = request.get();
+                if (future == null) {
+                    future = CompletableFuture.completedFuture(null);
+                }
+            } catch (Throwable e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+
+            future.whenComplete((value, error) -> {
+                completedRequests.incrementAndGet();
+                complete(value, error);
+            });
+            return future;
+        }
+
+        /**
+         * Замененный запрос получает результат заменившего
+         */
+        private void follow(Task<T> replacement) {
+            replacement.result.whenComplete(this::complete);
+        }
+
+        private void complete(T value, Throwable error) {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+}
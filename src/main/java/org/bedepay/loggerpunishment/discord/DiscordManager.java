@@ -6,8 +6,10 @@ import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.requests.RestConfig;
 import net.dv8tion.jda.api.utils.ChunkingFilter;
 import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import net.dv8tion.jda.api.utils.SessionControllerAdapter;
 import org.bedepay.loggerpunishment.LoggerPunishment;
 import org.bedepay.loggerpunishment.config.ConfigManager;
 import org.bedepay.loggerpunishment.model.PunishmentData;
@@ -26,21 +28,23 @@ public class DiscordManager {
     private final ConfigManager config;
     private final MessageFormatter messageFormatter;
     private final Logger logger;
+    private final DiscordDispatcher dispatcher;
     
-    private JDA jda;
+    private volatile JDA jda;
     private TextChannel playerChannel;
     private TextChannel moderatorChannel;
     private TextChannel logChannel;
     private Guild guild;
     
-    private boolean enabled = false;
-    private boolean ready = false;
+    private volatile boolean enabled = false;
+    private volatile boolean ready = false;
     
     public DiscordManager(LoggerPunishment plugin) {
         this.plugin = plugin;
         this.config = plugin.getConfigManager();
         this.messageFormatter = new MessageFormatter(plugin);
         this.logger = plugin.getLogger();
+        this.dispatcher = new DiscordDispatcher(logger, config.getPluginSettings().discordChannelQueueSize);
     }
     
     /**
@@ -68,6 +72,23 @@ public class DiscordManager {
                             GatewayIntent.GUILD_MEMBERS
                     );
             
+            // Другие адреса API и шлюза (локальная заглушка Discord для нагрузочных тестов)
+            ConfigManager.DiscordConfig discordConfig = config.getDiscordConfig();
+            if (!discordConfig.apiUrl.isEmpty()) {
+                builder.setRestConfig(new RestConfig().setBaseUrl(discordConfig.apiUrl));
+                logger.warning("Discord API переопределен: " + discordConfig.apiUrl);
+            }
+            if (!discordConfig.gatewayUrl.isEmpty()) {
+                String gatewayUrl = discordConfig.gatewayUrl;
+                builder.setSessionController(new SessionControllerAdapter() {
+                    @Override
+                    public String getGateway() {
+                        return gatewayUrl;
+                    }
+                });
+                logger.warning("Шлюз Discord переопределен: " + gatewayUrl);
+            }
+            
             // Асинхронная инициализация
             CompletableFuture.supplyAsync(() -> {
                 try {
@@ -108,6 +129,9 @@ public class DiscordManager {
                 // Запуск периодических задач
                 startPeriodicTasks();
                 
+                // Создание форумов и запуск доставки очереди
+                plugin.onDiscordReady(readyJda);
+                
             }).exceptionally(throwable -> {
                 logger.log(Level.SEVERE, "Ошибка при инициализации Discord бота: " + throwable.getMessage(), throwable);
                 this.enabled = false;
@@ -242,7 +266,7 @@ public class DiscordManager {
                     playerChannel.sendMessageEmbeds(messageFormatter.createPlayerNotification(punishment))
                             .queue(message -> {
                                 punishment.setPlayerMessageId(message.getIdLong());
-                                plugin.getDatabaseManager().updatePunishment(punishment);
+                                plugin.getDatabaseManager().updatePunishmentMessages(punishment);
                             });
                 }
                 
@@ -251,7 +275,7 @@ public class DiscordManager {
                     moderatorChannel.sendMessageEmbeds(messageFormatter.createModeratorNotification(punishment))
                             .queue(message -> {
                                 punishment.setModeratorMessageId(message.getIdLong());
-                                plugin.getDatabaseManager().updatePunishment(punishment);
+                                plugin.getDatabaseManager().updatePunishmentMessages(punishment);
                             });
                 }
                 
@@ -260,7 +284,7 @@ public class DiscordManager {
                     logChannel.sendMessageEmbeds(messageFormatter.createLogNotification(punishment))
                             .queue(message -> {
                                 punishment.setLogMessageId(message.getIdLong());
-                                plugin.getDatabaseManager().updatePunishment(punishment);
+                                plugin.getDatabaseManager().updatePunishmentMessages(punishment);
                             });
                 }
                 
@@ -340,10 +364,19 @@ public class DiscordManager {
         return jda;
     }
     
+    /**
+     * Получить диспетчер запросов к Discord
+     */
+    public DiscordDispatcher getDispatcher() {
+        return dispatcher;
+    }
+    
     /**
      * Остановка Discord бота
      */
     public void shutdown() {
+        dispatcher.shutdown();
+        
         if (jda != null) {
             plugin.getLogger().info("Отключение Discord бота...");
             jda.shutdown();
@@ -1,5 +1,7 @@
 package org.bedepay.loggerpunishment.discord;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.channel.concrete.ForumChannel;
 import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
@@ -7,25 +9,27 @@ import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.requests.restaction.ForumPostAction;
 import net.dv8tion.jda.api.utils.messages.MessageCreateData;
-import net.dv8tion.jda.api.entities.MessageHistory;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
 import org.bedepay.loggerpunishment.LoggerPunishment;
+import org.bedepay.loggerpunishment.config.ConfigManager;
 import org.bedepay.loggerpunishment.model.ModeratorData;
 import org.bedepay.loggerpunishment.model.PlayerData;
 import org.bedepay.loggerpunishment.model.PunishmentData;
+import org.bedepay.loggerpunishment.model.PunishmentStatistics;
 import org.bedepay.loggerpunishment.model.PunishmentType;
-import org.redisson.api.RAtomicLong;
-import org.redisson.api.RLock;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -36,8 +40,14 @@ public class ForumManager extends ListenerAdapter {
     private final LoggerPunishment plugin;
     private final JDA jda;
     private final MessageFormatter messageFormatter;
+    private final DiscordDispatcher dispatcher;
+    private final MessageCleanupBatcher cleanupBatcher;
+    private final ChannelSweeper channelSweeper;
     private final Logger logger;
     
+    // Discord ID владельцев веток модераторов (0 - не привязан), чтобы не обращаться к БД на каждое сообщение
+    private final LoadingCache<Long, Long> moderatorDiscordByThread;
+    
     private ForumChannel playerForum;
     private ForumChannel moderatorForum;
     private TextChannel logChannel;
@@ -46,11 +56,32 @@ public class ForumManager extends ListenerAdapter {
         this.plugin = plugin;
         this.jda = jda;
         this.messageFormatter = new MessageFormatter(plugin);
+        this.dispatcher = plugin.getDiscordManager().getDispatcher();
         this.logger = plugin.getLogger();
         
+        ConfigManager.CacheSettings cacheSettings = plugin.getConfigManager().getCacheSettings();
+        this.moderatorDiscordByThread = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, cacheSettings.statsCacheSize))
+                .expireAfterWrite(Math.max(1, cacheSettings.threadCacheTtl), TimeUnit.MINUTES)
+                .build(this::loadModeratorDiscordId);
+        ConfigManager.PluginSettings settings = plugin.getConfigManager().getPluginSettings();
+        this.cleanupBatcher = new MessageCleanupBatcher(logger, dispatcher,
+                settings.messageCleanupDelay * 1000L, this::isThreadOwnerMessage);
+        this.channelSweeper = new ChannelSweeper(plugin, dispatcher,
+                settings.channelSweepPageInterval, this::isThreadOwnerMessage);
+        
         // Инициализация форумов
         initializeForums();
         
+        // Индекс веток модераторов загружается одним запросом
+        moderatorDiscordByThread.putAll(plugin.getDatabaseManager().getModeratorDiscordIdsByThread());
+        
+        // Досматриваем сообщения, написанные в ветках, пока плагин был выключен
+        if (settings.channelSweepOnStartup) {
+            cleanupNonBotMessages(playerForum);
+            cleanupNonBotMessages(moderatorForum);
+        }
+        
         // Регистрация слушателя для удаления сообщений не от бота
         jda.addEventListener(this);
     }
@@ -86,285 +117,57 @@ public class ForumManager extends ListenerAdapter {
     }
     
     /**
-     * Обработка наказания - создание/обновление веток
-     */
-    public CompletableFuture<Void> processPunishment(PunishmentData punishment) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                // Обработка ветки игрока
-                processPlayerThread(punishment);
-                
-                // Обработка ветки модератора
-                processModeratorThread(punishment);
-                
-            } catch (Exception e) {
-                plugin.getLogger().log(Level.SEVERE, "Ошибка при обработке форумов: " + e.getMessage(), e);
-            }
-        });
-    }
-    
-    /**
-     * Обработка ветки игрока
-     */
-    private void processPlayerThread(PunishmentData punishment) {
-        if (playerForum == null) return;
-        
-        String lockKey = "player_thread_" + punishment.getPlayerUuid();
-        RLock lock = plugin.getRedisManager().getLock(lockKey);
-        
-        try {
-            if (lock.tryLock(10, TimeUnit.SECONDS)) {
-                // Получение или создание ветки игрока
-                ThreadChannel thread = getOrCreatePlayerThread(punishment);
-                
-                if (thread != null) {
-                    punishment.setPlayerThreadId(thread.getIdLong());
-                    
-                    // Отправка сообщения о наказании
-                    MessageEmbed embed = messageFormatter.createPunishmentEmbed(punishment);
-                    thread.sendMessageEmbeds(embed).queue(message -> {
-                        punishment.setPlayerMessageId(message.getIdLong());
-                        plugin.getDatabaseManager().updatePunishment(punishment);
-                    });
-                    
-                    // Обновление статистики в главном сообщении
-                    updatePlayerThreadStats(thread, punishment.getPlayerUuid());
-                }
-            }
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.WARNING, "Ошибка при обработке ветки игрока: " + e.getMessage(), e);
-        } finally {
-            if (lock.isHeldByCurrentThread()) {
-                lock.unlock();
-            }
-        }
-    }
-    
-    /**
-     * Обработка ветки модератора
-     */
-    private void processModeratorThread(PunishmentData punishment) {
-        if (moderatorForum == null || punishment.getModeratorUuid() == null) return;
-        
-        String lockKey = "moderator_thread_" + punishment.getModeratorUuid();
-        RLock lock = plugin.getRedisManager().getLock(lockKey);
-        
-        try {
-            if (lock.tryLock(10, TimeUnit.SECONDS)) {
-                // Получение или создание ветки модератора
-                ThreadChannel thread = getOrCreateModeratorThread(punishment);
-                
-                if (thread != null) {
-                    punishment.setModeratorThreadId(thread.getIdLong());
-                    
-                    // Отправка сообщения о наказании
-                    MessageEmbed embed = messageFormatter.createPunishmentEmbed(punishment);
-                    thread.sendMessageEmbeds(embed).queue(message -> {
-                        punishment.setModeratorMessageId(message.getIdLong());
-                        plugin.getDatabaseManager().updatePunishment(punishment);
-                    });
-                    
-                    // Обновление статистики в главном сообщении
-                    updateModeratorThreadStats(thread, punishment.getModeratorUuid());
-                }
-            }
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.WARNING, "Ошибка при обработке ветки модератора: " + e.getMessage(), e);
-        } finally {
-            if (lock.isHeldByCurrentThread()) {
-                lock.unlock();
-            }
-        }
-    }
-    
-    /**
-     * Получить или создать ветку игрока
+     * Удаление сообщений не от бота в форумах
      */
-    private ThreadChannel getOrCreatePlayerThread(PunishmentData punishment) {
-        // Поиск существующей ветки в БД
-        PlayerData player = plugin.getDatabaseManager().getPlayerByUuid(punishment.getPlayerUuid());
-        
-        if (player != null && player.getDiscordThreadId() != null) {
-            ThreadChannel existingThread = jda.getThreadChannelById(player.getDiscordThreadId());
-            if (existingThread != null && !existingThread.isArchived()) {
-                return existingThread;
-            }
+    @Override
+    public void onMessageReceived(MessageReceivedEvent event) {
+        if (event.getAuthor().equals(jda.getSelfUser())) {
+            return; // Пропускаем сообщения от бота
         }
         
-        // Создание новой ветки
-        String threadName = "🎮 " + punishment.getPlayerName();
-        MessageEmbed statsEmbed = messageFormatter.createPunishmentEmbed(new PunishmentData());
-        
-        playerForum.createForumPost(threadName, MessageCreateData.fromEmbeds(statsEmbed)).queue(forumPost -> {
-            ThreadChannel newThread = forumPost.getThreadChannel();
-            
-            // Сохранение ID ветки в БД
-            PlayerData playerData = player;
-            if (playerData == null) {
-                playerData = new PlayerData(punishment.getPlayerUuid(), punishment.getPlayerName());
-            }
-            playerData.setDiscordThreadId(newThread.getIdLong());
-            plugin.getDatabaseManager().saveOrUpdatePlayer(playerData);
+        if (event.getChannel() instanceof ThreadChannel) {
+            ThreadChannel thread = (ThreadChannel) event.getChannel();
             
-            // Кэширование в Redis
-            plugin.getRedisManager().cachePlayerThreadId(punishment.getPlayerUuid().toString(), newThread.getIdLong());
-        });
-        
-        return null; // Возвращаем null, т.к. создание асинхронное
-    }
-    
-    /**
-     * Получить или создать ветку модератора
-     */
-    private ThreadChannel getOrCreateModeratorThread(PunishmentData punishment) {
-        // Поиск существующей ветки в БД
-        ModeratorData moderator = plugin.getDatabaseManager().getModeratorByUuid(punishment.getModeratorUuid());
-        
-        if (moderator != null && moderator.getDiscordThreadId() != null) {
-            ThreadChannel existingThread = jda.getThreadChannelById(moderator.getDiscordThreadId());
-            if (existingThread != null && !existingThread.isArchived()) {
-                return existingThread;
+            // Проверяем, что это ветка в наших форумах
+            if (isPlayerForum(thread) || isModeratorForum(thread)) {
+                // Удаляем сообщения пакетами после задержки очистки,
+                // сообщения самого модератора в его ветке остаются (проверка при сбросе)
+                cleanupBatcher.add(thread, event.getMessageIdLong(), event.getAuthor().getIdLong());
             }
         }
-        
-        // Создание новой ветки
-        String threadName = "👮 " + punishment.getModeratorName();
-        MessageEmbed statsEmbed = messageFormatter.createPunishmentEmbed(new PunishmentData());
-        
-        moderatorForum.createForumPost(threadName, MessageCreateData.fromEmbeds(statsEmbed)).queue(forumPost -> {
-            ThreadChannel newThread = forumPost.getThreadChannel();
-            
-            // Сохранение ID ветки в БД
-            ModeratorData moderatorData = moderator;
-            if (moderatorData == null) {
-                moderatorData = new ModeratorData(punishment.getModeratorUuid(), punishment.getModeratorName());
-            }
-            moderatorData.setDiscordThreadId(newThread.getIdLong());
-            plugin.getDatabaseManager().saveOrUpdateModerator(moderatorData);
-            
-            // Кэширование в Redis
-            plugin.getRedisManager().cacheModeratorThreadId(punishment.getModeratorUuid().toString(), newThread.getIdLong());
-        });
-        
-        return null; // Возвращаем null, т.к. создание асинхронное
     }
     
     /**
-     * Обновление статистики в ветке игрока
+     * Сообщение написал владелец ветки модератора
      */
-    private void updatePlayerThreadStats(ThreadChannel thread, java.util.UUID playerUuid) {
-        String atomicKey = "player_stats_update_" + playerUuid;
-        RAtomicLong lastUpdate = plugin.getRedisManager().getAtomicLong(atomicKey);
-        
-        long now = System.currentTimeMillis();
-        long lastUpdateTime = lastUpdate.get();
-        
-        // Обновляем статистику не чаще раза в минуту
-        if (now - lastUpdateTime > 60000) {
-            if (lastUpdate.compareAndSet(lastUpdateTime, now)) {
-                PlayerData player = plugin.getDatabaseManager().getPlayerByUuid(playerUuid);
-                if (player != null) {
-                    MessageEmbed statsEmbed = messageFormatter.createPunishmentEmbed(new PunishmentData());
-                    
-                    // Обновляем первое сообщение в ветке
-                    thread.getHistoryFromBeginning(1).queue(history -> {
-                        if (!history.getRetrievedHistory().isEmpty()) {
-                            Message firstMessage = history.getRetrievedHistory().get(0);
-                            if (firstMessage.getAuthor().equals(jda.getSelfUser())) {
-                                firstMessage.editMessageEmbeds(statsEmbed).queue();
-                            }
-                        }
-                    });
-                }
-            }
+    private boolean isThreadOwnerMessage(GuildMessageChannel channel, Long authorId) {
+        if (!(channel instanceof ThreadChannel thread) || !isModeratorForum(thread)) {
+            return false;
         }
-    }
-    
-    /**
-     * Обновление статистики в ветке модератора
-     */
-    private void updateModeratorThreadStats(ThreadChannel thread, java.util.UUID moderatorUuid) {
-        String atomicKey = "moderator_stats_update_" + moderatorUuid;
-        RAtomicLong lastUpdate = plugin.getRedisManager().getAtomicLong(atomicKey);
-        
-        long now = System.currentTimeMillis();
-        long lastUpdateTime = lastUpdate.get();
         
-        // Обновляем статистику не чаще раза в минуту
-        if (now - lastUpdateTime > 60000) {
-            if (lastUpdate.compareAndSet(lastUpdateTime, now)) {
-                ModeratorData moderator = plugin.getDatabaseManager().getModeratorByUuid(moderatorUuid);
-                if (moderator != null) {
-                    MessageEmbed statsEmbed = messageFormatter.createPunishmentEmbed(new PunishmentData());
-                    
-                    // Обновляем первое сообщение в ветке
-                    thread.getHistoryFromBeginning(1).queue(history -> {
-                        if (!history.getRetrievedHistory().isEmpty()) {
-                            Message firstMessage = history.getRetrievedHistory().get(0);
-                            if (firstMessage.getAuthor().equals(jda.getSelfUser())) {
-                                firstMessage.editMessageEmbeds(statsEmbed).queue();
-                            }
-                        }
-                    });
-                }
-            }
-        }
+        Long discordId = moderatorDiscordByThread.get(thread.getIdLong());
+        return discordId != null && discordId.equals(authorId);
     }
     
     /**
-     * Обработка снятия наказания - редактирование сообщений
+     * ID Discord владельца ветки. Если ID не привязан, возвращается null и Caffeine его не кэширует:
+     * привязанный позже ID подхватывается со следующего сообщения, а не через thread_cache_ttl.
      */
-    public void processUnban(PunishmentData punishment) {
-        // Редактирование сообщения в ветке игрока
-        if (punishment.getPlayerThreadId() != null && punishment.getPlayerMessageId() != null) {
-            ThreadChannel playerThread = jda.getThreadChannelById(punishment.getPlayerThreadId());
-            if (playerThread != null) {
-                playerThread.retrieveMessageById(punishment.getPlayerMessageId()).queue(message -> {
-                    MessageEmbed unbanEmbed = messageFormatter.createUnbanEmbed(punishment);
-                    message.editMessageEmbeds(message.getEmbeds().get(0), unbanEmbed).queue();
-                });
-            }
-        }
-        
-        // Редактирование сообщения в ветке модератора
-        if (punishment.getModeratorThreadId() != null && punishment.getModeratorMessageId() != null) {
-            ThreadChannel moderatorThread = jda.getThreadChannelById(punishment.getModeratorThreadId());
-            if (moderatorThread != null) {
-                moderatorThread.retrieveMessageById(punishment.getModeratorMessageId()).queue(message -> {
-                    MessageEmbed unbanEmbed = messageFormatter.createUnbanEmbed(punishment);
-                    message.editMessageEmbeds(message.getEmbeds().get(0), unbanEmbed).queue();
-                });
-            }
-        }
+    private Long loadModeratorDiscordId(long threadId) {
+        ModeratorData moderator = plugin.getDatabaseManager().getModeratorByThreadId(threadId);
+        return moderator != null && moderator.getDiscordId() != null && moderator.getDiscordId() > 0
+                ? moderator.getDiscordId() : null;
     }
     
     /**
-     * Удаление сообщений не от бота в форумах
+     * Модератор сохранен с ID Discord: обновить индекс владельцев веток.
+     * Если ветка в данных не указана, индекс сбрасывается и загружается заново по мере сообщений.
      */
-    @Override
-    public void onMessageReceived(MessageReceivedEvent event) {
-        if (event.getAuthor().equals(jda.getSelfUser())) {
-            return; // Пропускаем сообщения от бота
-        }
-        
-        if (event.getChannel() instanceof ThreadChannel) {
-            ThreadChannel thread = (ThreadChannel) event.getChannel();
-            
-            // Проверяем, что это ветка в наших форумах
-            if (isPlayerForum(thread) || isModeratorForum(thread)) {
-                
-                // Для ветки модератора - оставляем сообщения от самого модератора
-                if (isModeratorForum(thread)) {
-                    ModeratorData moderator = getModeratorByThread(thread.getIdLong());
-                    if (moderator != null && moderator.getDiscordId() != null && 
-                        event.getAuthor().getIdLong() == moderator.getDiscordId()) {
-                        return; // Не удаляем сообщения от самого модератора
-                    }
-                }
-                
-                // Удаляем сообщение с задержкой
-                event.getMessage().delete().queueAfter(1, TimeUnit.SECONDS);
-            }
+    public void onModeratorDiscordIdSaved(ModeratorData moderator) {
+        if (moderator.getDiscordThreadId() != null && moderator.getDiscordThreadId() > 0) {
+            moderatorDiscordByThread.put(moderator.getDiscordThreadId(), moderator.getDiscordId());
+        } else {
+            moderatorDiscordByThread.invalidateAll();
         }
     }
     
@@ -376,71 +179,94 @@ public class ForumManager extends ListenerAdapter {
         return moderatorForum != null && thread.getParentChannel().getIdLong() == moderatorForum.getIdLong();
     }
     
-    private ModeratorData getModeratorByThread(long threadId) {
-        return plugin.getDatabaseManager().getModeratorByThreadId(threadId);
-    }
-    
     // ==================== СОЗДАНИЕ ВЕТОК ====================
     
     /**
-     * Создать ветку для игрока
+     * Создать ветку для игрока (асинхронно, null при ошибке)
      */
-    public ThreadChannel createPlayerThread(PlayerData player) {
+    public CompletableFuture<ThreadChannel> createPlayerThread(PlayerData player) {
         if (playerForum == null) {
             logger.warning("Форум для игроков не найден!");
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
         
         try {
             String threadName = "👤 " + player.getPlayerName();
             
-            // Создаем основное сообщение (временно используем простой embed)
-            MessageEmbed mainEmbed = messageFormatter.createPunishmentEmbed(new PunishmentData());
+            // Основное сообщение - пустая статистика, ее заменит первое обновление статистики
+            MessageEmbed mainEmbed = messageFormatter.createPlayerStatsEmbed(player.getPlayerName(),
+                    player.getPlayerUuid().toString(),
+                    PunishmentStatistics.empty(player.getPlayerUuid(), PunishmentStatistics.TARGET_PLAYER));
             
             // Создаем ветку
             ForumPostAction action = playerForum.createForumPost(threadName, 
                     MessageCreateData.fromEmbeds(mainEmbed));
             
-            ThreadChannel thread = action.complete().getThreadChannel();
-            
-            logger.info("Создана ветка для игрока " + player.getPlayerName() + " (ID: " + thread.getIdLong() + ")");
-            
-            return thread;
+            return dispatcher.submit(playerForum.getIdLong(), DiscordDispatcher.Priority.PUNISHMENT, action::submit)
+                    .thenApply(post -> {
+                        ThreadChannel thread = post.getThreadChannel();
+                        
+                        // ID первого сообщения сохраняется вместе с веткой, чтобы редактировать его без чтения истории
+                        player.setStarterMessageId(post.getMessage().getIdLong());
+                        plugin.getCacheProvider().setStarterMessageId(thread.getIdLong(), post.getMessage().getIdLong());
+                        
+                        logger.info("Создана ветка для игрока " + player.getPlayerName() + " (ID: " + thread.getIdLong() + ")");
+                        return thread;
+                    })
+                    .exceptionally(e -> {
+                        logger.log(Level.SEVERE, "Ошибка при создании ветки для игрока " + player.getPlayerName(), e);
+                        return null;
+                    });
             
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Ошибка при создании ветки для игрока " + player.getPlayerName(), e);
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
     }
     
     /**
-     * Создать ветку для модератора
+     * Создать ветку для модератора (асинхронно, null при ошибке)
      */
-    public ThreadChannel createModeratorThread(ModeratorData moderator) {
+    public CompletableFuture<ThreadChannel> createModeratorThread(ModeratorData moderator) {
         if (moderatorForum == null) {
             logger.warning("Форум для модераторов не найден!");
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
         
         try {
             String threadName = "👮 " + moderator.getModeratorName();
             
-            // Создаем основное сообщение (временно используем простой embed)
-            MessageEmbed mainEmbed = messageFormatter.createPunishmentEmbed(new PunishmentData());
+            // Основное сообщение - пустая статистика, ее заменит первое обновление статистики
+            MessageEmbed mainEmbed = messageFormatter.createModeratorStatsEmbed(moderator.getModeratorName(),
+                    moderator.getModeratorUuid().toString(),
+                    PunishmentStatistics.empty(moderator.getModeratorUuid(), PunishmentStatistics.TARGET_MODERATOR));
             
             // Создаем ветку
             ForumPostAction action = moderatorForum.createForumPost(threadName, 
                     MessageCreateData.fromEmbeds(mainEmbed));
             
-            ThreadChannel thread = action.complete().getThreadChannel();
-            
-            logger.info("Создана ветка для модератора " + moderator.getModeratorName() + " (ID: " + thread.getIdLong() + ")");
-            
-            return thread;
+            return dispatcher.submit(moderatorForum.getIdLong(), DiscordDispatcher.Priority.PUNISHMENT, action::submit)
+                    .thenApply(post -> {
+                        ThreadChannel thread = post.getThreadChannel();
+                        
+                        // ID первого сообщения сохраняется вместе с веткой, чтобы редактировать его без чтения истории
+                        moderator.setStarterMessageId(post.getMessage().getIdLong());
+                        plugin.getCacheProvider().setStarterMessageId(thread.getIdLong(), post.getMessage().getIdLong());
+                        if (moderator.getDiscordId() != null && moderator.getDiscordId() > 0) {
+                            moderatorDiscordByThread.put(thread.getIdLong(), moderator.getDiscordId());
+                        }
+                        
+                        logger.info("Создана ветка для модератора " + moderator.getModeratorName() + " (ID: " + thread.getIdLong() + ")");
+                        return thread;
+                    })
+                    .exceptionally(e -> {
+                        logger.log(Level.SEVERE, "Ошибка при создании ветки для модератора " + moderator.getModeratorName(), e);
+                        return null;
+                    });
             
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Ошибка при создании ветки для модератора " + moderator.getModeratorName(), e);
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
     }
     
@@ -492,17 +318,29 @@ public class ForumManager extends ListenerAdapter {
      * Отправить сообщение о наказании в ветку игрока
      */
     public Message sendPlayerPunishmentMessage(ThreadChannel playerThread, PunishmentData punishment) {
+        return sendPlayerPunishmentMessageAsync(playerThread, punishment).join();
+    }
+    
+    /**
+     * Асинхронно отправить сообщение о наказании в ветку игрока (null при ошибке)
+     */
+    public CompletableFuture<Message> sendPlayerPunishmentMessageAsync(ThreadChannel playerThread, PunishmentData punishment) {
         if (playerThread == null) {
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
         
         try {
             MessageEmbed embed = messageFormatter.createPunishmentEmbed(punishment);
-            return playerThread.sendMessageEmbeds(embed).complete();
+            return dispatcher.submit(playerThread.getIdLong(), DiscordDispatcher.Priority.PUNISHMENT,
+                            () -> playerThread.sendMessageEmbeds(embed).submit())
+                    .exceptionally(e -> {
+                        logger.warning("Ошибка при отправке сообщения в ветку игрока: " + e.getMessage());
+                        return null;
+                    });
             
         } catch (Exception e) {
             logger.warning("Ошибка при отправке сообщения в ветку игрока: " + e.getMessage());
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
     }
     
@@ -510,17 +348,29 @@ public class ForumManager extends ListenerAdapter {
      * Отправить сообщение о наказании в ветку модератора
      */
     public Message sendModeratorPunishmentMessage(ThreadChannel moderatorThread, PunishmentData punishment) {
+        return sendModeratorPunishmentMessageAsync(moderatorThread, punishment).join();
+    }
+    
+    /**
+     * Асинхронно отправить сообщение о наказании в ветку модератора (null при ошибке)
+     */
+    public CompletableFuture<Message> sendModeratorPunishmentMessageAsync(ThreadChannel moderatorThread, PunishmentData punishment) {
         if (moderatorThread == null) {
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
         
         try {
             MessageEmbed embed = messageFormatter.createPunishmentEmbed(punishment);
-            return moderatorThread.sendMessageEmbeds(embed).complete();
+            return dispatcher.submit(moderatorThread.getIdLong(), DiscordDispatcher.Priority.PUNISHMENT,
+                            () -> moderatorThread.sendMessageEmbeds(embed).submit())
+                    .exceptionally(e -> {
+                        logger.warning("Ошибка при отправке сообщения в ветку модератора: " + e.getMessage());
+                        return null;
+                    });
             
         } catch (Exception e) {
             logger.warning("Ошибка при отправке сообщения в ветку модератора: " + e.getMessage());
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
     }
     
@@ -528,62 +378,64 @@ public class ForumManager extends ListenerAdapter {
      * Отправить сообщение в лог канал
      */
     public Message sendLogMessage(PunishmentData punishment) {
+        return sendLogMessageAsync(punishment).join();
+    }
+    
+    /**
+     * Асинхронно отправить сообщение в лог канал (null при ошибке)
+     */
+    public CompletableFuture<Message> sendLogMessageAsync(PunishmentData punishment) {
         try {
             if (logChannel == null) {
                 logger.warning("Лог канал не найден!");
-                return null;
+                return CompletableFuture.completedFuture(null);
             }
             
             MessageEmbed embed;
+            DiscordDispatcher.Priority priority;
             if (punishment.isActive()) {
                 embed = messageFormatter.createLogEmbed(punishment);
+                priority = DiscordDispatcher.Priority.PUNISHMENT;
             } else {
                 embed = messageFormatter.createUnbanEmbed(punishment);
+                priority = DiscordDispatcher.Priority.UNBAN;
             }
             
-            return logChannel.sendMessageEmbeds(embed).complete();
+            return dispatcher.submit(logChannel.getIdLong(), priority,
+                            () -> logChannel.sendMessageEmbeds(embed).submit())
+                    .exceptionally(e -> {
+                        logger.warning("Ошибка при отправке сообщения в лог канал: " + e.getMessage());
+                        return null;
+                    });
             
         } catch (Exception e) {
             logger.warning("Ошибка при отправке сообщения в лог канал: " + e.getMessage());
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
     }
     
     // ==================== ОБНОВЛЕНИЕ СООБЩЕНИЙ ====================
     
     /**
-     * Обновить основное сообщение в ветке игрока
+     * Обновить основное сообщение в ветке игрока по готовому снимку статистики
+     * (снимок читается из БД до постановки задачи Discord)
      */
-    public void updatePlayerThreadMainMessage(ThreadChannel playerThread, PlayerData player) {
-        if (playerThread == null || player == null) {
+    public void updatePlayerThreadMainMessage(ThreadChannel playerThread, PlayerData player, PunishmentStatistics statistics) {
+        if (playerThread == null || player == null || statistics == null) {
             return;
         }
         
         try {
-            // Получаем статистику из базы данных
-            Map<PunishmentType, Integer> totalCounts = plugin.getDatabaseManager().getPlayerPunishmentCounts(player.getPlayerUuid());
-            Map<PunishmentType, Integer> activeCounts = plugin.getDatabaseManager().getPlayerActivePunishmentCounts(player.getPlayerUuid());
-            List<PunishmentData> activePunishments = plugin.getDatabaseManager().getPlayerActivePunishments(player.getPlayerUuid());
-            
             // Создаем embed статистики
             MessageEmbed statsEmbed = messageFormatter.createPlayerStatsEmbed(
                 player.getPlayerName(), 
                 player.getPlayerUuid().toString(),
-                totalCounts,
-                activeCounts,
-                activePunishments
+                statistics
             );
             
             // Обновляем первое сообщение в ветке
-            playerThread.getHistoryFromBeginning(1).queue(history -> {
-                if (!history.getRetrievedHistory().isEmpty()) {
-                    Message firstMessage = history.getRetrievedHistory().get(0);
-                    if (firstMessage.getAuthor().equals(jda.getSelfUser())) {
-                        firstMessage.editMessageEmbeds(statsEmbed).queue();
-                        logger.info("Обновлена статистика игрока: " + player.getPlayerName());
-                    }
-                }
-            });
+            editStarterMessage(playerThread, player.getStarterMessageId(), statsEmbed,
+                    starterMessageId -> savePlayerStarterMessage(player, starterMessageId));
             
         } catch (Exception e) {
             logger.warning("Ошибка при обновлении статистики игрока " + player.getPlayerName() + ": " + e.getMessage());
@@ -591,36 +443,25 @@ public class ForumManager extends ListenerAdapter {
     }
     
     /**
-     * Обновить основное сообщение в ветке модератора
+     * Обновить основное сообщение в ветке модератора по готовому снимку статистики
+     * (снимок читается из БД до постановки задачи Discord)
      */
-    public void updateModeratorThreadMainMessage(ThreadChannel moderatorThread, ModeratorData moderator) {
-        if (moderatorThread == null || moderator == null) {
+    public void updateModeratorThreadMainMessage(ThreadChannel moderatorThread, ModeratorData moderator, PunishmentStatistics statistics) {
+        if (moderatorThread == null || moderator == null || statistics == null) {
             return;
         }
         
         try {
-            // Получаем статистику из базы данных
-            Map<PunishmentType, Integer> issuedCounts = plugin.getDatabaseManager().getModeratorIssuedCounts(moderator.getModeratorUuid());
-            
             // Создаем embed статистики
             MessageEmbed statsEmbed = messageFormatter.createModeratorStatsEmbed(
                 moderator.getModeratorName(),
                 moderator.getModeratorUuid().toString(),
-                issuedCounts,
-                moderator.getTotalIssued(),
-                moderator.getActiveIssued()
+                statistics
             );
             
             // Обновляем первое сообщение в ветке
-            moderatorThread.getHistoryFromBeginning(1).queue(history -> {
-                if (!history.getRetrievedHistory().isEmpty()) {
-                    Message firstMessage = history.getRetrievedHistory().get(0);
-                    if (firstMessage.getAuthor().equals(jda.getSelfUser())) {
-                        firstMessage.editMessageEmbeds(statsEmbed).queue();
-                        logger.info("Обновлена статистика модератора: " + moderator.getModeratorName());
-                    }
-                }
-            });
+            editStarterMessage(moderatorThread, moderator.getStarterMessageId(), statsEmbed,
+                    starterMessageId -> saveModeratorStarterMessage(moderator, starterMessageId));
             
         } catch (Exception e) {
             logger.warning("Ошибка при обновлении статистики модератора " + moderator.getModeratorName() + ": " + e.getMessage());
@@ -628,53 +469,155 @@ public class ForumManager extends ListenerAdapter {
     }
     
     /**
-     * Обновить сообщение о наказании в ветке игрока
+     * Отредактировать первое сообщение ветки по сохраненному ID без чтения истории.
+     * Для веток без сохраненного ID (или если сообщение удалено) ID один раз определяется
+     * по истории ветки и передается в onResolved для сохранения.
      */
-    public void updatePlayerPunishmentMessage(long messageId, ThreadChannel playerThread, PunishmentData punishment) {
-        if (playerThread == null) {
-            return;
+    private void editStarterMessage(ThreadChannel thread, Long knownMessageId, MessageEmbed embed, LongConsumer onResolved) {
+        Long messageId = plugin.getCacheProvider().getStarterMessageId(thread.getIdLong());
+        if (messageId == null) {
+            messageId = knownMessageId;
         }
         
-        try {
-            playerThread.retrieveMessageById(messageId).queue(
-                message -> {
-                    MessageEmbed updatedEmbed = messageFormatter.createPunishmentEmbed(punishment);
-                    message.editMessageEmbeds(updatedEmbed).queue();
-                },
-                throwable -> logger.warning("Не удалось найти сообщение для обновления: " + messageId)
-            );
-            
-        } catch (Exception e) {
-            logger.warning("Ошибка при обновлении сообщения о наказании в ветке игрока: " + e.getMessage());
+        if (messageId == null) {
+            resolveStarterMessage(thread, embed, onResolved);
+            return;
         }
+        
+        long starterMessageId = messageId;
+        dispatcher.submit(thread.getIdLong(), DiscordDispatcher.Priority.STATS, starterMergeKey(thread),
+                        () -> thread.editMessageEmbedsById(starterMessageId, embed).submit())
+                .whenComplete((message, error) -> {
+                    if (error == null) {
+                        plugin.getCacheProvider().setStarterMessageId(thread.getIdLong(), starterMessageId);
+                        return;
+                    }
+                    
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof ErrorResponseException
+                            && ((ErrorResponseException) cause).getErrorResponse() == ErrorResponse.UNKNOWN_MESSAGE) {
+                        plugin.getCacheProvider().setStarterMessageId(thread.getIdLong(), null);
+                        resolveStarterMessage(thread, embed, onResolved);
+                    } else {
+                        logger.warning("Ошибка при обновлении первого сообщения ветки " + thread.getName() + ": " + cause.getMessage());
+                    }
+                });
+    }
+    
+    /**
+     * Ключ объединения правок первого сообщения ветки: в очереди остается только последняя статистика
+     */
+    private static String starterMergeKey(ThreadChannel thread) {
+        return "starter:" + thread.getIdLong();
+    }
+    
+    /**
+     * Найти первое сообщение бота в ветке, сохранить его ID и отредактировать
+     */
+    private void resolveStarterMessage(ThreadChannel thread, MessageEmbed embed, LongConsumer onResolved) {
+        dispatcher.submit(thread.getIdLong(), DiscordDispatcher.Priority.STATS, starterMergeKey(thread),
+                        () -> thread.getHistoryFromBeginning(1).submit().thenCompose(history -> {
+                            if (history.getRetrievedHistory().isEmpty()) {
+                                return CompletableFuture.<Message>completedFuture(null);
+                            }
+                            
+                            Message firstMessage = history.getRetrievedHistory().get(0);
+                            if (!firstMessage.getAuthor().equals(jda.getSelfUser())) {
+                                return CompletableFuture.<Message>completedFuture(null);
+                            }
+                            
+                            plugin.getCacheProvider().setStarterMessageId(thread.getIdLong(), firstMessage.getIdLong());
+                            onResolved.accept(firstMessage.getIdLong());
+                            return firstMessage.editMessageEmbeds(embed).submit();
+                        }))
+                .exceptionally(error -> {
+                    logger.warning("Ошибка при чтении истории ветки " + thread.getName() + ": " + error.getMessage());
+                    return null;
+                });
+    }
+    
+    /**
+     * Сохранить найденный ID первого сообщения ветки игрока.
+     * Вызывается в потоке обратного вызова JDA, поэтому запись ставится в очередь без ожидания.
+     */
+    private void savePlayerStarterMessage(PlayerData player, long starterMessageId) {
+        player.setStarterMessageId(starterMessageId);
+        plugin.getDatabaseManager().saveOrUpdatePlayerAsync(player)
+                .exceptionally(e -> {
+                    logger.warning("Не удалось сохранить ID первого сообщения ветки игрока " + player.getPlayerName() + ": " + e.getMessage());
+                    return null;
+                });
+    }
+    
+    /**
+     * Сохранить найденный ID первого сообщения ветки модератора.
+     * Вызывается в потоке обратного вызова JDA, поэтому запись ставится в очередь без ожидания.
+     */
+    private void saveModeratorStarterMessage(ModeratorData moderator, long starterMessageId) {
+        moderator.setStarterMessageId(starterMessageId);
+        plugin.getDatabaseManager().saveOrUpdateModeratorAsync(moderator)
+                .exceptionally(e -> {
+                    logger.warning("Не удалось сохранить ID первого сообщения ветки модератора " + moderator.getModeratorName() + ": " + e.getMessage());
+                    return null;
+                });
+    }
+    
+    /**
+     * Обновить сообщение о наказании в ветке игрока
+     */
+    public void updatePlayerPunishmentMessage(long messageId, ThreadChannel playerThread, PunishmentData punishment) {
+        updatePlayerPunishmentMessageAsync(messageId, playerThread, punishment);
+    }
+    
+    /**
+     * Асинхронно обновить сообщение о наказании в ветке игрока (true при успехе)
+     */
+    public CompletableFuture<Boolean> updatePlayerPunishmentMessageAsync(long messageId, ThreadChannel playerThread, PunishmentData punishment) {
+        return editPunishmentMessage(messageId, playerThread, punishment, "игрока");
     }
     
     /**
      * Обновить сообщение о наказании в ветке модератора
      */
     public void updateModeratorPunishmentMessage(long messageId, ThreadChannel moderatorThread, PunishmentData punishment) {
-        if (moderatorThread == null) {
-            return;
+        updateModeratorPunishmentMessageAsync(messageId, moderatorThread, punishment);
+    }
+    
+    /**
+     * Асинхронно обновить сообщение о наказании в ветке модератора (true при успехе)
+     */
+    public CompletableFuture<Boolean> updateModeratorPunishmentMessageAsync(long messageId, ThreadChannel moderatorThread, PunishmentData punishment) {
+        return editPunishmentMessage(messageId, moderatorThread, punishment, "модератора");
+    }
+    
+    /**
+     * Перерисовать сообщение о наказании в ветке
+     */
+    private CompletableFuture<Boolean> editPunishmentMessage(long messageId, ThreadChannel thread, PunishmentData punishment, String owner) {
+        if (thread == null) {
+            return CompletableFuture.completedFuture(false);
         }
         
         try {
-            moderatorThread.retrieveMessageById(messageId).queue(
-                message -> {
-                    MessageEmbed updatedEmbed = messageFormatter.createPunishmentEmbed(punishment);
-                    message.editMessageEmbeds(updatedEmbed).queue();
-                },
-                throwable -> logger.warning("Не удалось найти сообщение для обновления: " + messageId)
-            );
+            MessageEmbed updatedEmbed = messageFormatter.createPunishmentEmbed(punishment);
+            return dispatcher.submit(thread.getIdLong(), DiscordDispatcher.Priority.UNBAN, "punishment:" + messageId,
+                            () -> thread.editMessageEmbedsById(messageId, updatedEmbed).submit())
+                    .thenApply(message -> true)
+                    .exceptionally(e -> {
+                        logger.warning("Не удалось обновить сообщение " + messageId + " в ветке " + owner + ": " + e.getMessage());
+                        return false;
+                    });
             
         } catch (Exception e) {
-            logger.warning("Ошибка при обновлении сообщения о наказании в ветке модератора: " + e.getMessage());
+            logger.warning("Ошибка при обновлении сообщения о наказании в ветке " + owner + ": " + e.getMessage());
+            return CompletableFuture.completedFuture(false);
         }
     }
     
     // ==================== ОЧИСТКА КАНАЛОВ ====================
     
     /**
-     * Удалить сообщения не от ботов из канала
+     * Удалить сообщения не от ботов из канала (в фоне, по всей истории; для форума - из всех активных веток)
      */
     public void cleanupNonBotMessages(GuildChannel channel) {
         if (channel == null || !plugin.getDiscordManager().isReady()) {
@@ -682,67 +625,18 @@ public class ForumManager extends ListenerAdapter {
         }
         
         try {
-            if (channel instanceof TextChannel textChannel) {
-                cleanupTextChannel(textChannel);
-            } else if (channel instanceof ThreadChannel threadChannel) {
-                cleanupThreadChannel(threadChannel);
-            }
-            
+            channelSweeper.sweep(channel);
         } catch (Exception e) {
             logger.warning("Ошибка при очистке канала " + channel.getName() + ": " + e.getMessage());
         }
     }
     
     /**
-     * Очистить текстовый канал от сообщений не от ботов
-     */
-    private void cleanupTextChannel(TextChannel channel) {
-        try {
-            MessageHistory history = channel.getHistory();
-            List<Message> messages = history.retrievePast(100).complete();
-            
-            List<Message> toDelete = messages.stream()
-                    .filter(msg -> !msg.getAuthor().isBot())
-                    .collect(Collectors.toList());
-            
-            if (!toDelete.isEmpty()) {
-                if (toDelete.size() == 1) {
-                    toDelete.get(0).delete().queue();
-                } else {
-                    channel.deleteMessages(toDelete).queue();
-                }
-                
-                logger.info("Удалено " + toDelete.size() + " сообщений не от ботов из канала " + channel.getName());
-            }
-            
-        } catch (Exception e) {
-            logger.warning("Ошибка при очистке текстового канала: " + e.getMessage());
-        }
-    }
-    
-    /**
-     * Очистить ветку от сообщений не от ботов
+     * Остановка пакетной и фоновой очистки
      */
-    private void cleanupThreadChannel(ThreadChannel channel) {
-        try {
-            MessageHistory history = channel.getHistory();
-            List<Message> messages = history.retrievePast(100).complete();
-            
-            List<Message> toDelete = messages.stream()
-                    .filter(msg -> !msg.getAuthor().isBot())
-                    .collect(Collectors.toList());
-            
-            for (Message message : toDelete) {
-                message.delete().queue();
-            }
-            
-            if (!toDelete.isEmpty()) {
-                logger.info("Удалено " + toDelete.size() + " сообщений не от ботов из ветки " + channel.getName());
-            }
-            
-        } catch (Exception e) {
-            logger.warning("Ошибка при очистке ветки: " + e.getMessage());
-        }
+    public void shutdown() {
+        cleanupBatcher.shutdown();
+        channelSweeper.shutdown();
     }
     
     // ==================== СТАТИСТИКА ФОРУМОВ ====================
@@ -773,11 +667,14 @@ public class ForumManager extends ListenerAdapter {
             
             TextChannel logChannel = getLogChannel();
             if (logChannel != null) {
-                stats.append("📝 Лог канал: активен");
+                stats.append("📝 Лог канал: активен\n");
             } else {
-                stats.append("📝 Лог канал: не найден");
+                stats.append("📝 Лог канал: не найден\n");
             }
             
+            stats.append(cleanupBatcher.getStats()).append("\n");
+            stats.append(channelSweeper.getStats());
+            
             return stats.toString();
             
         } catch (Exception e) {
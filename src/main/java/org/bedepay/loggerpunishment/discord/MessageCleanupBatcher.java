@@ -0,0 +1,171 @@
+package org.bedepay.loggerpunishment.discord;
+
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.logging.Logger;
+
+/**
+ * Пакетное удаление сообщений не от бота.
+ * ID сообщений копятся по каналам в течение задержки очистки, затем удаляются
+ * одним bulk-запросом на каждые 100 сообщений (одно сообщение удаляется обычным запросом).
+ * Проверка, нужно ли оставить сообщение, выполняется при сбросе в потоке очистки,
+ * а не в потоке событий JDA.
+ */
+public class MessageCleanupBatcher {
+
+    // Ограничение Discord на одно массовое удаление
+    private static final int BULK_DELETE_LIMIT = 100;
+
+    private final Logger logger;
+    private final DiscordDispatcher dispatcher;
+    private final long delayMillis;
+    private final BiPredicate<GuildMessageChannel, Long> keepFilter;
+    private final ScheduledExecutorService scheduler;
+    private final Map<Long, PendingChannel> pending = new ConcurrentHashMap<>();
+
+    // Метрики
+    private final AtomicLong bufferedMessages = new AtomicLong();
+    private final AtomicLong keptMessages = new AtomicLong();
+    private final AtomicLong deletedMessages = new AtomicLong();
+    private final AtomicLong bulkRequests = new AtomicLong();
+    private final AtomicLong singleRequests = new AtomicLong();
+
+    /**
+     * @param keepFilter возвращает true, если сообщение автора в канале нужно оставить
+     */
+    public MessageCleanupBatcher(Logger logger, DiscordDispatcher dispatcher, long delayMillis,
+                                 BiPredicate<GuildMessageChannel, Long> keepFilter) {
+        this.logger = logger;
+        this.dispatcher = dispatcher;
+        this.delayMillis = Math.max(0, delayMillis);
+        this.keepFilter = keepFilter;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LoggerPunishment-MessageCleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Добавить сообщение к удалению. Первое сообщение канала запускает отсчет задержки.
+     */
+    public void add(GuildMessageChannel channel, long messageId, long authorId) {
+        bufferedMessages.incrementAndGet();
+
+        try {
+            pending.compute(channel.getIdLong(), (channelId, batch) -> {
+                if (batch == null) {
+                    batch = new PendingChannel(channel);
+                    scheduler.schedule(() -> flush(channelId), delayMillis, TimeUnit.MILLISECONDS);
+                }
+                batch.messages.add(new PendingMessage(messageId, authorId));
+                return batch;
+            });
+        } catch (RejectedExecutionException e) {
+            // Очистка остановлена
+        }
+    }
+
+    /**
+     * Удалить накопленные сообщения канала
+     */
+    private void flush(long channelId) {
+        PendingChannel batch = pending.remove(channelId);
+        if (batch == null) {
+            return;
+        }
+
+        List<String> toDelete = new ArrayList<>(batch.messages.size());
+        for (PendingMessage message : batch.messages) {
+            try {
+                if (keepFilter.test(batch.channel, message.authorId())) {
+                    keptMessages.incrementAndGet();
+                    continue;
+                }
+            } catch (Exception e) {
+                logger.warning("Ошибка при проверке автора сообщения в канале " + batch.channel.getName() + ": " + e.getMessage());
+                continue;
+            }
+            toDelete.add(Long.toUnsignedString(message.messageId()));
+        }
+
+        for (int from = 0; from < toDelete.size(); from += BULK_DELETE_LIMIT) {
+            delete(batch.channel, toDelete.subList(from, Math.min(from + BULK_DELETE_LIMIT, toDelete.size())));
+        }
+    }
+
+    /**
+     * Удалить до 100 сообщений одним запросом. Если bulk-запрос отклонен
+     * (например, одно из сообщений уже удалено), сообщения удаляются по одному.
+     */
+    private void delete(GuildMessageChannel channel, List<String> messageIds) {
+        List<String> chunk = new ArrayList<>(messageIds);
+
+        if (chunk.size() == 1) {
+            deleteSingle(channel, chunk.get(0));
+            return;
+        }
+
+        bulkRequests.incrementAndGet();
+        dispatcher.submit(channel.getIdLong(), DiscordDispatcher.Priority.CLEANUP,
+                        () -> channel.deleteMessagesByIds(chunk).submit())
+                .whenComplete((result, error) -> {
+                    if (error == null) {
+                        deletedMessages.addAndGet(chunk.size());
+                    } else if (!(error.getCause() instanceof RejectedExecutionException)
+                            && !(error instanceof RejectedExecutionException)) {
+                        chunk.forEach(messageId -> deleteSingle(channel, messageId));
+                    }
+                });
+    }
+
+    private void deleteSingle(GuildMessageChannel channel, String messageId) {
+        singleRequests.incrementAndGet();
+        dispatcher.submit(channel.getIdLong(), DiscordDispatcher.Priority.CLEANUP,
+                        () -> channel.deleteMessageById(messageId).submit())
+                .thenRun(deletedMessages::incrementAndGet)
+                .exceptionally(e -> null); // Сообщение уже удалено или очередь канала переполнена
+    }
+
+    /**
+     * Получить статистику очистки
+     */
+    public String getStats() {
+        return String.format("🧹 Очистка: получено %d, оставлено %d, удалено %d (пакетов %d, одиночных %d), ожидают каналов %d",
+                bufferedMessages.get(), keptMessages.get(), deletedMessages.get(),
+                bulkRequests.get(), singleRequests.get(), pending.size());
+    }
+
+    /**
+     * Остановка: накопленные удаления отбрасываются
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        pending.clear();
+    }
+
+    /**
+     * Сообщения одного канала, ожидающие удаления
+     */
+    private static final class PendingChannel {
+        private final GuildMessageChannel channel;
+        private final List<PendingMessage> messages = new ArrayList<>();
+
+        private PendingChannel(GuildMessageChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private record PendingMessage(long messageId, long authorId) {
+    }
+}
@@ -7,6 +7,7 @@ import org.bedepay.loggerpunishment.config.ConfigManager;
 import org.bedepay.loggerpunishment.model.ModeratorData;
 import org.bedepay.loggerpunishment.model.PlayerData;
 import org.bedepay.loggerpunishment.model.PunishmentData;
+import org.bedepay.loggerpunishment.model.PunishmentStatistics;
 import org.bedepay.loggerpunishment.model.PunishmentType;
 import org.bedepay.loggerpunishment.model.UnbanType;
 import org.bedepay.loggerpunishment.util.TimeFormatter;
@@ -16,6 +17,7 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,6 +29,9 @@ public class MessageFormatter {
     private final LoggerPunishment plugin;
     private final ConfigManager configManager;
     
+    // Шаблоны для текущей конфигурации, пересобираются после перезагрузки
+    private volatile Templates templates;
+    
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss")
             .withZone(ZoneId.systemDefault());
     
@@ -37,6 +42,20 @@ public class MessageFormatter {
     public MessageFormatter(LoggerPunishment plugin) {
         this.plugin = plugin;
         this.configManager = plugin.getConfigManager();
+        this.templates = new Templates(configManager.getDiscordConfig());
+    }
+    
+    /**
+     * Шаблоны текущей конфигурации (после /punishmentlogs reload секция discord загружается заново)
+     */
+    private Templates templates() {
+        ConfigManager.DiscordConfig discord = configManager.getDiscordConfig();
+        Templates current = templates;
+        if (current.source != discord) {
+            current = new Templates(discord);
+            templates = current;
+        }
+        return current;
     }
     
     /**
@@ -44,26 +63,22 @@ public class MessageFormatter {
      */
     public MessageEmbed createPunishmentEmbed(PunishmentData punishment) {
         EmbedBuilder builder = new EmbedBuilder();
-        ConfigManager.DiscordConfig discord = configManager.getDiscordConfig();
+        Templates templates = templates();
         
         // Заголовок и цвет
-        String typeKey = punishment.getType().name().toLowerCase();
-        String title = discord.punishmentTitles.getOrDefault(typeKey, punishment.getType().getDisplayName());
-        Color color = discord.colors.getOrDefault(typeKey, Color.RED);
-        String emoji = discord.emojis.getOrDefault(typeKey, punishment.getType().getEmoji());
-        
-        builder.setTitle(emoji + " " + title);
-        builder.setColor(color);
+        Header header = templates.punishmentHeaders.get(punishment.getType());
+        builder.setTitle(header.title);
+        builder.setColor(header.color);
         
         // Основная информация
         builder.addField(
-            discord.emojis.getOrDefault("player", "👤") + " Игрок",
+            templates.playerField,
             punishment.getPlayerName() + "\n`" + punishment.getPlayerUuid() + "`",
             true
         );
         
         builder.addField(
-            discord.emojis.getOrDefault("moderator", "👮") + " Модератор", 
+            templates.moderatorField, 
             punishment.getModeratorName() != null ? punishment.getModeratorName() : "Система",
             true
         );
@@ -80,14 +95,14 @@ public class MessageFormatter {
         }
         
         builder.addField(
-            discord.emojis.getOrDefault("duration", "⏰") + " Длительность",
+            templates.durationField,
             durationText,
             true
         );
         
         // Причина
         builder.addField(
-            discord.emojis.getOrDefault("reason", "📝") + " Причина",
+            templates.reasonField,
             punishment.getReason(),
             false
         );
@@ -95,7 +110,7 @@ public class MessageFormatter {
         // ID наказания
         if (punishment.getPunishmentId() != null) {
             builder.addField(
-                discord.emojis.getOrDefault("id", "🆔") + " ID",
+                templates.idField,
                 "`" + punishment.getPunishmentId() + "`",
                 true
             );
@@ -107,9 +122,7 @@ public class MessageFormatter {
         }
         
         // Статус
-        String status = punishment.isActive() ? 
-            discord.emojis.getOrDefault("active", "🔴") + " Активно" :
-            discord.emojis.getOrDefault("expired", "⚪") + " Неактивно";
+        String status = punishment.isActive() ? templates.activeStatus : templates.inactiveStatus;
         builder.addField("Статус", status, true);
         
         // Время создания
@@ -124,32 +137,22 @@ public class MessageFormatter {
      */
     public MessageEmbed createUnbanEmbed(PunishmentData punishment) {
         EmbedBuilder builder = new EmbedBuilder();
-        ConfigManager.DiscordConfig discord = configManager.getDiscordConfig();
+        Templates templates = templates();
         
-        // Определяем тип разбана
-        String unbanKey = "unban";
-        if (punishment.getType() == PunishmentType.MUTE) {
-            unbanKey = "unmute";
-        } else if (punishment.getType() == PunishmentType.JAIL) {
-            unbanKey = "unjail";
-        }
-        
-        String title = discord.unbanTitles.getOrDefault(unbanKey, "Снятие наказания");
-        Color color = discord.colors.getOrDefault("unban", Color.GREEN);
-        String emoji = discord.emojis.getOrDefault("unban", "✅");
-        
-        builder.setTitle(emoji + " " + title);
-        builder.setColor(color);
+        // Заголовок по типу разбана
+        Header header = templates.unbanHeaders.get(punishment.getType());
+        builder.setTitle(header.title);
+        builder.setColor(header.color);
         
         // Основная информация
         builder.addField(
-            discord.emojis.getOrDefault("player", "👤") + " Игрок",
+            templates.playerField,
             punishment.getPlayerName(),
             true
         );
         
         builder.addField(
-            discord.emojis.getOrDefault("moderator", "👮") + " Снял",
+            templates.unbanModeratorField,
             punishment.getUnbanModeratorName() != null ? punishment.getUnbanModeratorName() : "Система",
             true
         );
@@ -166,7 +169,7 @@ public class MessageFormatter {
         // Причина снятия
         if (punishment.getUnbanReason() != null && !punishment.getUnbanReason().isEmpty()) {
             builder.addField(
-                discord.emojis.getOrDefault("reason", "📝") + " Причина снятия",
+                templates.unbanReasonField,
                 punishment.getUnbanReason(),
                 false
             );
@@ -186,15 +189,10 @@ public class MessageFormatter {
      */
     public MessageEmbed createLogEmbed(PunishmentData punishment) {
         EmbedBuilder builder = new EmbedBuilder();
-        ConfigManager.DiscordConfig discord = configManager.getDiscordConfig();
-        
-        String typeKey = punishment.getType().name().toLowerCase();
-        String title = discord.punishmentTitles.getOrDefault(typeKey, punishment.getType().getDisplayName());
-        Color color = discord.colors.getOrDefault(typeKey, Color.ORANGE);
-        String emoji = discord.emojis.getOrDefault(typeKey, punishment.getType().getEmoji());
+        Header header = templates().logHeaders.get(punishment.getType());
         
-        builder.setTitle(emoji + " " + title);
-        builder.setColor(color);
+        builder.setTitle(header.title);
+        builder.setColor(header.color);
         
         // Краткая информация в одном поле
         StringBuilder info = new StringBuilder();
@@ -220,27 +218,29 @@ public class MessageFormatter {
     }
     
     /**
-     * Создать embed статистики игрока
+     * Создать embed статистики игрока (счетчики и активные наказания из снимка punishment_statistics)
      */
     public MessageEmbed createPlayerStatsEmbed(String playerName, String playerUuid, 
-                                             Map<PunishmentType, Integer> totalCounts,
-                                             Map<PunishmentType, Integer> activeCounts,
-                                             List<PunishmentData> activePunishments) {
+                                             PunishmentStatistics statistics) {
+        Map<PunishmentType, Integer> totalCounts = statistics.getTotalCounts();
+        Map<PunishmentType, Integer> activeCounts = statistics.getActiveCounts();
+        List<PunishmentData> activePunishments = statistics.getActivePunishmentDetails();
+        
         EmbedBuilder builder = new EmbedBuilder();
-        ConfigManager.DiscordConfig discord = configManager.getDiscordConfig();
+        Templates templates = templates();
         
-        builder.setTitle(discord.emojis.getOrDefault("stats", "📊") + " Статистика игрока: " + playerName);
-        builder.setColor(discord.colors.getOrDefault("info", Color.BLUE));
+        builder.setTitle(templates.playerStatsTitle + playerName);
+        builder.setColor(templates.statsColor);
         
         // Общая статистика
         StringBuilder totalStats = new StringBuilder();
-        int totalPunishments = totalCounts.values().stream().mapToInt(Integer::intValue).sum();
+        int totalPunishments = statistics.getTotalPunishments();
         totalStats.append("**Всего наказаний:** ").append(totalPunishments).append("\n");
         
         for (PunishmentType type : PunishmentType.values()) {
             int count = totalCounts.getOrDefault(type, 0);
             if (count > 0) {
-                totalStats.append(type.getEmoji()).append(" ").append(type.getDisplayName()).append(": ").append(count).append("\n");
+                totalStats.append(templates.typeLabels.get(type)).append(count).append("\n");
             }
         }
         
@@ -248,13 +248,13 @@ public class MessageFormatter {
         
         // Активные наказания
         StringBuilder activeStats = new StringBuilder();
-        int totalActive = activeCounts.values().stream().mapToInt(Integer::intValue).sum();
+        int totalActive = statistics.getActivePunishments();
         activeStats.append("**Активных:** ").append(totalActive).append("\n");
         
         for (PunishmentType type : PunishmentType.values()) {
             int count = activeCounts.getOrDefault(type, 0);
             if (count > 0) {
-                activeStats.append(type.getEmoji()).append(" ").append(type.getDisplayName()).append(": ").append(count).append("\n");
+                activeStats.append(templates.typeLabels.get(type)).append(count).append("\n");
             }
         }
         
@@ -289,16 +289,19 @@ public class MessageFormatter {
     }
     
     /**
-     * Создать embed статистики модератора
+     * Создать embed статистики модератора (счетчики из таблицы punishment_statistics)
      */
     public MessageEmbed createModeratorStatsEmbed(String moderatorName, String moderatorUuid,
-                                                Map<PunishmentType, Integer> issuedCounts,
-                                                int totalIssued, int activeIssued) {
+                                                PunishmentStatistics statistics) {
+        Map<PunishmentType, Integer> issuedCounts = statistics.getTotalCounts();
+        int totalIssued = statistics.getTotalPunishments();
+        int activeIssued = statistics.getActivePunishments();
+        
         EmbedBuilder builder = new EmbedBuilder();
-        ConfigManager.DiscordConfig discord = configManager.getDiscordConfig();
+        Templates templates = templates();
         
-        builder.setTitle(discord.emojis.getOrDefault("stats", "📊") + " Статистика модератора: " + moderatorName);
-        builder.setColor(discord.colors.getOrDefault("info", Color.BLUE));
+        builder.setTitle(templates.moderatorStatsTitle + moderatorName);
+        builder.setColor(templates.statsColor);
         
         // Общая статистика
         StringBuilder totalStats = new StringBuilder();
@@ -312,7 +315,7 @@ public class MessageFormatter {
         for (PunishmentType type : PunishmentType.values()) {
             int count = issuedCounts.getOrDefault(type, 0);
             if (count > 0) {
-                typeStats.append(type.getEmoji()).append(" ").append(type.getDisplayName()).append(": ").append(count).append("\n");
+                typeStats.append(templates.typeLabels.get(type)).append(count).append("\n");
             }
         }
         
@@ -426,4 +429,99 @@ public class MessageFormatter {
         }
         return PLAYER_AVATAR_BASE_URL + playerUuid.replace("-", "") + "/64";
     }
+    
+    // ==================== ШАБЛОНЫ ====================
+    
+    /**
+     * Заголовок и цвет embed
+     */
+    private static final class Header {
+        private final String title;
+        private final Color color;
+        
+        private Header(String emoji, String title, Color color) {
+            this.title = emoji + " " + title;
+            this.color = color;
+        }
+    }
+    
+    /**
+     * Скомпилированные шаблоны embed для одной загруженной конфигурации.
+     * Заголовки, цвета и подписи полей берутся из секции discord.messages один раз,
+     * при отправке подставляются только данные наказания.
+     */
+    private static final class Templates {
+        private final ConfigManager.DiscordConfig source;
+        
+        private final Map<PunishmentType, Header> punishmentHeaders = new EnumMap<>(PunishmentType.class);
+        private final Map<PunishmentType, Header> logHeaders = new EnumMap<>(PunishmentType.class);
+        private final Map<PunishmentType, Header> unbanHeaders = new EnumMap<>(PunishmentType.class);
+        private final Map<PunishmentType, String> typeLabels = new EnumMap<>(PunishmentType.class);
+        
+        // Подписи полей
+        private final String playerField;
+        private final String moderatorField;
+        private final String unbanModeratorField;
+        private final String durationField;
+        private final String reasonField;
+        private final String unbanReasonField;
+        private final String idField;
+        private final String activeStatus;
+        private final String inactiveStatus;
+        
+        // Статистика веток
+        private final String playerStatsTitle;
+        private final String moderatorStatsTitle;
+        private final Color statsColor;
+        
+        private Templates(ConfigManager.DiscordConfig discord) {
+            this.source = discord;
+            
+            String unbanEmoji = discord.emojis.getOrDefault("unban", "✅");
+            Color unbanColor = discord.colors.getOrDefault("unban", Color.GREEN);
+            
+            for (PunishmentType type : PunishmentType.values()) {
+                String typeKey = type.name().toLowerCase();
+                String title = discord.punishmentTitles.getOrDefault(typeKey, type.getDisplayName());
+                String emoji = discord.emojis.getOrDefault(typeKey, type.getEmoji());
+                
+                punishmentHeaders.put(type, new Header(emoji, title, discord.colors.getOrDefault(typeKey, Color.RED)));
+                logHeaders.put(type, new Header(emoji, title, discord.colors.getOrDefault(typeKey, Color.ORANGE)));
+                unbanHeaders.put(type, new Header(unbanEmoji,
+                        discord.unbanTitles.getOrDefault(unbanKey(type), "Снятие наказания"), unbanColor));
+                typeLabels.put(type, type.getEmoji() + " " + type.getDisplayName() + ": ");
+            }
+            
+            String playerEmoji = discord.emojis.getOrDefault("player", "👤");
+            String moderatorEmoji = discord.emojis.getOrDefault("moderator", "👮");
+            String reasonEmoji = discord.emojis.getOrDefault("reason", "📝");
+            
+            this.playerField = playerEmoji + " Игрок";
+            this.moderatorField = moderatorEmoji + " Модератор";
+            this.unbanModeratorField = moderatorEmoji + " Снял";
+            this.durationField = discord.emojis.getOrDefault("duration", "⏰") + " Длительность";
+            this.reasonField = reasonEmoji + " Причина";
+            this.unbanReasonField = reasonEmoji + " Причина снятия";
+            this.idField = discord.emojis.getOrDefault("id", "🆔") + " ID";
+            this.activeStatus = discord.emojis.getOrDefault("active", "🔴") + " Активно";
+            this.inactiveStatus = discord.emojis.getOrDefault("expired", "⚪") + " Неактивно";
+            
+            String statsEmoji = discord.emojis.getOrDefault("stats", "📊");
+            this.playerStatsTitle = statsEmoji + " Статистика игрока: ";
+            this.moderatorStatsTitle = statsEmoji + " Статистика модератора: ";
+            this.statsColor = discord.colors.getOrDefault("info", Color.BLUE);
+        }
+        
+        /**
+         * Ключ заголовка снятия наказания в discord.messages.unban_titles
+         */
+        private static String unbanKey(PunishmentType type) {
+            if (type == PunishmentType.MUTE) {
+                return "unmute";
+            } else if (type == PunishmentType.JAIL) {
+                return "unjail";
+            }
+            return "unban";
+        }
+    }
 } 
\ No newline at end of file
@@ -8,6 +8,7 @@ import org.bedepay.loggerpunishment.service.PunishmentService;
 import org.bedepay.loggerpunishment.util.TimeFormatter;
 import org.bukkit.Bukkit;
 
+import java.util.Arrays;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -81,12 +82,15 @@ public class PunishmentListener {
     private void registerLiteBansEvent(Object eventsInstance, String eventType, LiteBansEventHandler handler) {
         try {
             Class<?> eventTypeClass = Class.forName("litebans.api.Events$Type");
-            Object eventTypeEnum = Enum.valueOf((Class<Enum>) eventTypeClass, eventType);
+            Object eventTypeEnum = Arrays.stream(eventTypeClass.getEnumConstants())
+                    .filter(constant -> ((Enum<?>) constant).name().equals(eventType))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Неизвестный тип события LiteBans: " + eventType));
             
             // Создаем обработчик события
             Object eventHandler = java.lang.reflect.Proxy.newProxyInstance(
                 getClass().getClassLoader(),
-                new Class[]{Class.forName("litebans.api.events.LiteBansEvent")},
+                new Class<?>[]{Class.forName("litebans.api.events.LiteBansEvent")},
                 (proxy, method, args) -> {
                     if (method.getName().equals("onEvent")) {
                         handler.handle(args[0]);
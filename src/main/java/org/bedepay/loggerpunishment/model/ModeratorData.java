@@ -12,6 +12,7 @@ public class ModeratorData {
     private String moderatorName;
     private Long discordId;
     private Long discordThreadId;
+    private Long starterMessageId;
     private int totalIssued = 0;
     private int activeIssued = 0;
     private Instant lastActionAt;
@@ -46,6 +47,9 @@ public class ModeratorData {
     public Long getDiscordThreadId() { return discordThreadId; }
     public void setDiscordThreadId(Long discordThreadId) { this.discordThreadId = discordThreadId; }
     
+    public Long getStarterMessageId() { return starterMessageId; }
+    public void setStarterMessageId(Long starterMessageId) { this.starterMessageId = starterMessageId; }
+    
     public int getTotalIssued() { return totalIssued; }
     public void setTotalIssued(int totalIssued) { this.totalIssued = totalIssued; }
     
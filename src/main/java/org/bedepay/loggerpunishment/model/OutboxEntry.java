@@ -0,0 +1,170 @@
+package org.bedepay.loggerpunishment.model;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Запись исходящей очереди Discord (таблица discord_queue)
+ */
+public class OutboxEntry {
+
+    // Типы действий
+    public static final String ACTION_SEND_MESSAGE = "SEND_MESSAGE";
+    public static final String ACTION_EDIT_MESSAGE = "EDIT_MESSAGE";
+
+    // Статусы
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_PROCESSING = "PROCESSING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    // Шаги доставки
+    public static final String STEP_PLAYER = "player";
+    public static final String STEP_MODERATOR = "moderator";
+    public static final String STEP_LOG = "log";
+
+    // Приоритеты
+    public static final int PRIORITY_PUNISHMENT = 10;
+    public static final int PRIORITY_UNBAN = 5;
+
+    private Long id;
+    private String actionType;
+    private long targetChannelId;
+    private Long targetMessageId;
+    private Long targetThreadId;
+    private long punishmentRecordId;
+    private final Set<String> completedSteps = ConcurrentHashMap.newKeySet();
+    private int priority;
+    private int maxAttempts = 3;
+    private int currentAttempts = 0;
+    private String status = STATUS_PENDING;
+    private String errorMessage;
+    private String claimToken;
+    private Instant nextAttemptAt;
+    private Instant createdAt;
+
+    // Конструкторы
+    public OutboxEntry() {
+        this.createdAt = Instant.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public OutboxEntry(String actionType, int priority, int maxAttempts) {
+        this();
+        this.actionType = actionType;
+        this.priority = priority;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Запись для отправки нового наказания
+     */
+    public static OutboxEntry forPunishment(int maxAttempts) {
+        return new OutboxEntry(ACTION_SEND_MESSAGE, PRIORITY_PUNISHMENT, maxAttempts);
+    }
+
+    /**
+     * Запись для обновления сообщений после снятия наказания
+     */
+    public static OutboxEntry forUnban(int maxAttempts) {
+        return new OutboxEntry(ACTION_EDIT_MESSAGE, PRIORITY_UNBAN, maxAttempts);
+    }
+
+    // ==================== СЕРИАЛИЗАЦИЯ ====================
+
+    /**
+     * Данные действия в формате JSON для колонки action_data
+     */
+    public String toActionData() {
+        JsonObject data = new JsonObject();
+        data.addProperty("punishment", punishmentRecordId);
+
+        JsonArray steps = new JsonArray();
+        completedSteps.forEach(steps::add);
+        data.add("completed", steps);
+
+        return data.toString();
+    }
+
+    /**
+     * Прочитать данные действия из JSON
+     */
+    public void applyActionData(String json) {
+        completedSteps.clear();
+        if (json == null || json.isEmpty()) {
+            return;
+        }
+
+        JsonObject data = JsonParser.parseString(json).getAsJsonObject();
+        if (data.has("punishment")) {
+            punishmentRecordId = data.get("punishment").getAsLong();
+        }
+
+        if (data.has("completed")) {
+            for (JsonElement step : data.getAsJsonArray("completed")) {
+                completedSteps.add(step.getAsString());
+            }
+        }
+    }
+
+    // Геттеры и сеттеры
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getActionType() { return actionType; }
+    public void setActionType(String actionType) { this.actionType = actionType; }
+
+    public long getTargetChannelId() { return targetChannelId; }
+    public void setTargetChannelId(long targetChannelId) { this.targetChannelId = targetChannelId; }
+
+    public Long getTargetMessageId() { return targetMessageId; }
+    public void setTargetMessageId(Long targetMessageId) { this.targetMessageId = targetMessageId; }
+
+    public Long getTargetThreadId() { return targetThreadId; }
+    public void setTargetThreadId(Long targetThreadId) { this.targetThreadId = targetThreadId; }
+
+    public long getPunishmentRecordId() { return punishmentRecordId; }
+    public void setPunishmentRecordId(long punishmentRecordId) { this.punishmentRecordId = punishmentRecordId; }
+
+    public Set<String> getCompletedSteps() { return completedSteps; }
+
+    public int getPriority() { return priority; }
+    public void setPriority(int priority) { this.priority = priority; }
+
+    public int getMaxAttempts() { return maxAttempts; }
+    public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+
+    public int getCurrentAttempts() { return currentAttempts; }
+    public void setCurrentAttempts(int currentAttempts) { this.currentAttempts = currentAttempts; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public String getClaimToken() { return claimToken; }
+    public void setClaimToken(String claimToken) { this.claimToken = claimToken; }
+
+    public Instant getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(Instant nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public boolean isUnban() {
+        return ACTION_EDIT_MESSAGE.equals(actionType);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OutboxEntry{id=%d, action=%s, punishment=%d, attempts=%d/%d, status=%s}",
+                           id, actionType, punishmentRecordId, currentAttempts, maxAttempts, status);
+    }
+}
@@ -11,6 +11,7 @@ public class PlayerData {
     private UUID playerUuid;
     private String playerName;
     private Long discordThreadId;
+    private Long starterMessageId;
     private int totalPunishments = 0;
     private int activePunishments = 0;
     private Instant lastPunishmentAt;
@@ -42,6 +43,9 @@ public class PlayerData {
     public Long getDiscordThreadId() { return discordThreadId; }
     public void setDiscordThreadId(Long discordThreadId) { this.discordThreadId = discordThreadId; }
     
+    public Long getStarterMessageId() { return starterMessageId; }
+    public void setStarterMessageId(Long starterMessageId) { this.starterMessageId = starterMessageId; }
+    
     public int getTotalPunishments() { return totalPunishments; }
     public void setTotalPunishments(int totalPunishments) { this.totalPunishments = totalPunishments; }
     
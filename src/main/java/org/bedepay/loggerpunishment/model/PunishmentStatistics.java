@@ -0,0 +1,143 @@
+package org.bedepay.loggerpunishment.model;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Неизменяемый снимок статистики наказаний игрока или модератора (таблица punishment_statistics).
+ * Активными считаются только наказания, которые можно снять (бан, мут, тюрьма).
+ * Для игрока снимок также содержит его активные наказания для списка в embed.
+ */
+public final class PunishmentStatistics {
+    
+    // Типы цели
+    public static final String TARGET_PLAYER = "PLAYER";
+    public static final String TARGET_MODERATOR = "MODERATOR";
+    
+    private final UUID targetUuid;
+    private final String targetType;
+    private final Map<PunishmentType, Integer> totalCounts;
+    private final Map<PunishmentType, Integer> activeCounts;
+    private final int totalPunishments;
+    private final int activePunishments;
+    private final Instant firstPunishmentAt;
+    private final Instant lastPunishmentAt;
+    private final List<PunishmentData> activePunishmentDetails;
+    
+    private PunishmentStatistics(Builder builder) {
+        this.targetUuid = builder.targetUuid;
+        this.targetType = builder.targetType;
+        this.totalCounts = Collections.unmodifiableMap(new EnumMap<>(builder.totalCounts));
+        this.activeCounts = Collections.unmodifiableMap(new EnumMap<>(builder.activeCounts));
+        this.totalPunishments = builder.totalPunishments;
+        this.activePunishments = builder.activePunishments;
+        this.firstPunishmentAt = builder.firstPunishmentAt;
+        this.lastPunishmentAt = builder.lastPunishmentAt;
+        this.activePunishmentDetails = List.copyOf(builder.activePunishmentDetails);
+    }
+    
+    /**
+     * Пустая статистика (для цели без наказаний)
+     */
+    public static PunishmentStatistics empty(UUID targetUuid, String targetType) {
+        return builder(targetUuid, targetType).build();
+    }
+    
+    public static Builder builder(UUID targetUuid, String targetType) {
+        return new Builder(targetUuid, targetType);
+    }
+    
+    /**
+     * Имя колонки счетчика в punishment_statistics для типа наказания (bans, mutes, kicks, jails)
+     */
+    public static String columnSuffix(PunishmentType type) {
+        return type.getCode() + "s";
+    }
+    
+    // Геттеры
+    public UUID getTargetUuid() { return targetUuid; }
+    public String getTargetType() { return targetType; }
+    
+    public Map<PunishmentType, Integer> getTotalCounts() { return totalCounts; }
+    public Map<PunishmentType, Integer> getActiveCounts() { return activeCounts; }
+    
+    public int getTotalPunishments() { return totalPunishments; }
+    public int getActivePunishments() { return activePunishments; }
+    
+    public Instant getFirstPunishmentAt() { return firstPunishmentAt; }
+    public Instant getLastPunishmentAt() { return lastPunishmentAt; }
+    
+    /**
+     * Активные наказания игрока, новые первыми (для модератора - пустой список)
+     */
+    public List<PunishmentData> getActivePunishmentDetails() { return activePunishmentDetails; }
+    
+    @Override
+    public String toString() {
+        return String.format("PunishmentStatistics{target=%s:%s, total=%d, active=%d}",
+                           targetType, targetUuid, totalPunishments, activePunishments);
+    }
+    
+    /**
+     * Сборка снимка при чтении из базы данных
+     */
+    public static final class Builder {
+        private final UUID targetUuid;
+        private final String targetType;
+        private final Map<PunishmentType, Integer> totalCounts = new EnumMap<>(PunishmentType.class);
+        private final Map<PunishmentType, Integer> activeCounts = new EnumMap<>(PunishmentType.class);
+        private int totalPunishments;
+        private int activePunishments;
+        private Instant firstPunishmentAt;
+        private Instant lastPunishmentAt;
+        private List<PunishmentData> activePunishmentDetails = List.of();
+        
+        private Builder(UUID targetUuid, String targetType) {
+            this.targetUuid = targetUuid;
+            this.targetType = targetType;
+        }
+        
+        public Builder totalCount(PunishmentType type, int count) {
+            totalCounts.put(type, count);
+            return this;
+        }
+        
+        public Builder activeCount(PunishmentType type, int count) {
+            activeCounts.put(type, count);
+            return this;
+        }
+        
+        public Builder totalPunishments(int totalPunishments) {
+            this.totalPunishments = totalPunishments;
+            return this;
+        }
+        
+        public Builder activePunishments(int activePunishments) {
+            this.activePunishments = activePunishments;
+            return this;
+        }
+        
+        public Builder firstPunishmentAt(Instant firstPunishmentAt) {
+            this.firstPunishmentAt = firstPunishmentAt;
+            return this;
+        }
+        
+        public Builder lastPunishmentAt(Instant lastPunishmentAt) {
+            this.lastPunishmentAt = lastPunishmentAt;
+            return this;
+        }
+        
+        public Builder activePunishmentDetails(List<PunishmentData> activePunishmentDetails) {
+            this.activePunishmentDetails = activePunishmentDetails;
+            return this;
+        }
+        
+        public PunishmentStatistics build() {
+            return new PunishmentStatistics(this);
+        }
+    }
+}
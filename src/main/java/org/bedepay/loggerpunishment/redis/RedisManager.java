@@ -1,19 +1,25 @@
 package org.bedepay.loggerpunishment.redis;
 
 import org.bedepay.loggerpunishment.LoggerPunishment;
+import org.bedepay.loggerpunishment.cache.CacheProvider;
 import org.bedepay.loggerpunishment.config.ConfigManager;
 import org.redisson.Redisson;
 import org.redisson.api.*;
 import org.redisson.config.Config;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Менеджер Redis для кэширования и синхронизации
+ * Менеджер Redis для кэширования и синхронизации между серверами
  */
-public class RedisManager {
+public class RedisManager implements CacheProvider {
     
     private final LoggerPunishment plugin;
     private final Logger logger;
@@ -21,18 +27,17 @@ public class RedisManager {
     private RedissonClient redisson;
     private boolean enabled = false;
     
-    // Кэши
-    private RMap<String, Long> playerThreadCache;
-    private RMap<String, Long> moderatorThreadCache;
-    private RMap<String, Long> playerDiscordCache;
-    private RMap<String, Boolean> writePermissionsCache;
+    // Кэши: локальная копия (L1) на каждом сервере, инвалидация через pub/sub Redis
+    private RLocalCachedMap<String, Long> playerThreadCache;
+    private RLocalCachedMap<String, Long> moderatorThreadCache;
+    private RLocalCachedMap<String, Long> starterMessageCache;
+    private RLocalCachedMap<String, Long> playerDiscordCache;
+    private RLocalCachedMap<String, Boolean> writePermissionsCache;
     private RQueue<String> pendingDiscordActions;
     
     // Блокировки
     private static final String LOCK_PREFIX = "punishment_lock:";
-    private static final String MESSAGE_DELETE_LOCK = LOCK_PREFIX + "message_delete:";
     private static final String THREAD_CREATE_LOCK = LOCK_PREFIX + "thread_create:";
-    private static final String STATS_UPDATE_LOCK = LOCK_PREFIX + "stats_update:";
     
     public RedisManager(LoggerPunishment plugin) {
         this.plugin = plugin;
@@ -103,7 +108,7 @@ public class RedisManager {
     private void testConnection() {
         try {
             RBucket<String> testBucket = redisson.getBucket("test_connection");
-            testBucket.set("test", 1, TimeUnit.SECONDS);
+            testBucket.set("test", Duration.ofSeconds(1));
             String result = testBucket.get();
             
             if (!"test".equals(result)) {
@@ -125,25 +130,47 @@ public class RedisManager {
         ConfigManager.CacheSettings cacheSettings = configManager.getCacheSettings();
         
         // Кэш ID веток игроков
-        playerThreadCache = redisson.getMap("player_threads");
-        playerThreadCache.expire(cacheSettings.threadCacheTtl, TimeUnit.MINUTES);
+        playerThreadCache = redisson.getLocalCachedMap("player_threads",
+                localCacheOptions(cacheSettings.statsCacheSize, cacheSettings.threadCacheTtl));
+        playerThreadCache.expire(Duration.ofMinutes(cacheSettings.threadCacheTtl));
         
         // Кэш ID веток модераторов
-        moderatorThreadCache = redisson.getMap("moderator_threads");
-        moderatorThreadCache.expire(cacheSettings.threadCacheTtl, TimeUnit.MINUTES);
+        moderatorThreadCache = redisson.getLocalCachedMap("moderator_threads",
+                localCacheOptions(cacheSettings.statsCacheSize, cacheSettings.threadCacheTtl));
+        moderatorThreadCache.expire(Duration.ofMinutes(cacheSettings.threadCacheTtl));
+        
+        // Кэш ID первых сообщений веток
+        starterMessageCache = redisson.getLocalCachedMap("starter_messages",
+                localCacheOptions(cacheSettings.statsCacheSize, cacheSettings.threadCacheTtl));
+        starterMessageCache.expire(Duration.ofMinutes(cacheSettings.threadCacheTtl));
         
         // Кэш Discord ID игроков
-        playerDiscordCache = redisson.getMap("player_discord_ids");
-        playerDiscordCache.expire(cacheSettings.playerDiscordCacheTtl, TimeUnit.MINUTES);
+        playerDiscordCache = redisson.getLocalCachedMap("player_discord_ids",
+                localCacheOptions(cacheSettings.statsCacheSize, cacheSettings.playerDiscordCacheTtl));
+        playerDiscordCache.expire(Duration.ofMinutes(cacheSettings.playerDiscordCacheTtl));
         
         // Кэш разрешений на отправку сообщений
-        writePermissionsCache = redisson.getMap("write_permissions");
-        writePermissionsCache.expire(cacheSettings.permissionsCacheTtl, TimeUnit.MINUTES);
+        writePermissionsCache = redisson.getLocalCachedMap("write_permissions",
+                localCacheOptions(cacheSettings.statsCacheSize, cacheSettings.permissionsCacheTtl));
+        writePermissionsCache.expire(Duration.ofMinutes(cacheSettings.permissionsCacheTtl));
         
         // Очередь действий Discord
         pendingDiscordActions = redisson.getQueue("pending_discord_actions");
         
-        logger.info("Кэши Redis инициализированы");
+        logger.info("Кэши Redis инициализированы (локальный кэш: до " + cacheSettings.statsCacheSize + " записей)");
+    }
+    
+    /**
+     * Настройки локального кэша: ограниченный размер и TTL, изменения на других серверах
+     * сбрасывают локальные копии через pub/sub, после переподключения кэш очищается
+     */
+    private static <K, V> LocalCachedMapOptions<K, V> localCacheOptions(int size, int ttlMinutes) {
+        return LocalCachedMapOptions.<K, V>defaults()
+                .cacheSize(Math.max(0, size))
+                .timeToLive(Math.max(1, ttlMinutes), TimeUnit.MINUTES)
+                .evictionPolicy(LocalCachedMapOptions.EvictionPolicy.LFU)
+                .syncStrategy(LocalCachedMapOptions.SyncStrategy.INVALIDATE)
+                .reconnectionStrategy(LocalCachedMapOptions.ReconnectionStrategy.CLEAR);
     }
     
     /**
@@ -153,6 +180,11 @@ public class RedisManager {
         return enabled && redisson != null && !redisson.isShutdown();
     }
     
+    @Override
+    public boolean isDistributed() {
+        return true;
+    }
+    
     // ==================== МЕТОДЫ КЭШИРОВАНИЯ ====================
     
     /**
@@ -210,107 +242,96 @@ public class RedisManager {
     }
     
     /**
-     * Получить Discord ID игрока
+     * Получить ID первого сообщения ветки форума
      */
-    public Long getPlayerDiscordId(String playerUuid) {
+    public Long getStarterMessageId(long threadId) {
         if (!isEnabled()) return null;
         
         try {
-            return playerDiscordCache.get(playerUuid);
+            return starterMessageCache.get(String.valueOf(threadId));
         } catch (Exception e) {
-            logger.warning("Ошибка при получении Discord ID из кэша: " + e.getMessage());
+            logger.warning("Ошибка при получении ID первого сообщения ветки из кэша: " + e.getMessage());
             return null;
         }
     }
     
     /**
-     * Сохранить Discord ID игрока
+     * Сохранить ID первого сообщения ветки форума
      */
-    public void setPlayerDiscordId(String playerUuid, Long discordId) {
+    public void setStarterMessageId(long threadId, Long messageId) {
         if (!isEnabled()) return;
         
         try {
-            playerDiscordCache.put(playerUuid, discordId);
+            if (messageId == null) {
+                starterMessageCache.fastRemove(String.valueOf(threadId));
+            } else {
+                starterMessageCache.fastPut(String.valueOf(threadId), messageId);
+            }
         } catch (Exception e) {
-            logger.warning("Ошибка при сохранении Discord ID в кэш: " + e.getMessage());
+            logger.warning("Ошибка при сохранении ID первого сообщения ветки в кэш: " + e.getMessage());
         }
     }
     
     /**
-     * Проверить разрешение на отправку сообщения
+     * Получить Discord ID игрока
      */
-    public Boolean hasWritePermission(String key) {
+    public Long getPlayerDiscordId(String playerUuid) {
         if (!isEnabled()) return null;
         
         try {
-            return writePermissionsCache.get(key);
+            return playerDiscordCache.get(playerUuid);
         } catch (Exception e) {
-            logger.warning("Ошибка при проверке разрешений из кэша: " + e.getMessage());
+            logger.warning("Ошибка при получении Discord ID из кэша: " + e.getMessage());
             return null;
         }
     }
     
     /**
-     * Сохранить разрешение на отправку сообщения
+     * Сохранить Discord ID игрока
      */
-    public void setWritePermission(String key, boolean hasPermission) {
+    public void setPlayerDiscordId(String playerUuid, Long discordId) {
         if (!isEnabled()) return;
         
         try {
-            writePermissionsCache.put(key, hasPermission);
+            playerDiscordCache.put(playerUuid, discordId);
         } catch (Exception e) {
-            logger.warning("Ошибка при сохранении разрешений в кэш: " + e.getMessage());
+            logger.warning("Ошибка при сохранении Discord ID в кэш: " + e.getMessage());
         }
     }
     
     /**
-     * Кэшировать ID ветки игрока
-     */
-    public void cachePlayerThreadId(String playerUuid, Long threadId) {
-        setPlayerThreadId(playerUuid, threadId);
-    }
-    
-    /**
-     * Кэшировать ID ветки модератора
-     */
-    public void cacheModeratorThreadId(String moderatorUuid, Long threadId) {
-        setModeratorThreadId(moderatorUuid, threadId);
-    }
-    
-    // ==================== МЕТОДЫ БЛОКИРОВОК ====================
-    
-    /**
-     * Получить блокировку по ключу
+     * Проверить разрешение на отправку сообщения
      */
-    public RLock getLock(String key) {
+    public Boolean hasWritePermission(String key) {
         if (!isEnabled()) return null;
         
         try {
-            return redisson.getLock(LOCK_PREFIX + key);
+            return writePermissionsCache.get(key);
         } catch (Exception e) {
-            logger.warning("Ошибка при получении блокировки: " + e.getMessage());
+            logger.warning("Ошибка при проверке разрешений из кэша: " + e.getMessage());
             return null;
         }
     }
     
     /**
-     * Получить блокировку для удаления сообщения
+     * Сохранить разрешение на отправку сообщения
      */
-    public RLock getMessageDeletionLock(long messageId) {
-        if (!isEnabled()) return null;
+    public void setWritePermission(String key, boolean hasPermission) {
+        if (!isEnabled()) return;
         
         try {
-            return redisson.getLock(MESSAGE_DELETE_LOCK + messageId);
+            writePermissionsCache.put(key, hasPermission);
         } catch (Exception e) {
-            logger.warning("Ошибка при получении блокировки удаления сообщения: " + e.getMessage());
-            return null;
+            logger.warning("Ошибка при сохранении разрешений в кэш: " + e.getMessage());
         }
     }
     
+    // ==================== МЕТОДЫ БЛОКИРОВОК ====================
+    
     /**
      * Получить блокировку для создания ветки
      */
-    public RLock getThreadCreationLock(String uuid) {
+    private RLock getThreadCreationLock(String uuid) {
         if (!isEnabled()) return null;
         
         try {
@@ -322,49 +343,46 @@ public class RedisManager {
     }
     
     /**
-     * Получить блокировку для обновления статистики
+     * Выполнить асинхронное действие под блокировкой создания ветки.
+     * Владелец блокировки задается явно, а не потоком: продолжения выполняются в других потоках,
+     * и ни один из них не ждет блокировку или создание ветки синхронно.
      */
-    public RLock getStatsUpdateLock(String identifier) {
-        if (!isEnabled()) return null;
-        
-        try {
-            return redisson.getLock(STATS_UPDATE_LOCK + identifier);
-        } catch (Exception e) {
-            logger.warning("Ошибка при получении блокировки обновления статистики: " + e.getMessage());
-            return null;
-        }
-    }
-    
-    /**
-     * Выполнить действие с блокировкой
-     */
-    public boolean executeWithLock(RLock lock, int timeoutSeconds, Runnable action) {
+    @Override
+    public <T> CompletableFuture<T> withThreadCreationLockAsync(String uuid, long waitMillis, Executor executor,
+                                                                Supplier<CompletableFuture<T>> action) {
+        RLock lock = getThreadCreationLock(uuid);
         if (lock == null) {
-            // Если Redis недоступен, выполняем без блокировки
-            action.run();
-            return true;
+            return CompletableFuture.completedFuture(null);
         }
         
-        try {
-            if (lock.tryLock(timeoutSeconds, TimeUnit.SECONDS)) {
-                try {
-                    action.run();
-                    return true;
-                } finally {
-                    lock.unlock();
-                }
-            } else {
-                logger.warning("Не удалось получить блокировку в течение " + timeoutSeconds + " секунд");
-                return false;
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logger.warning("Прервано ожидание блокировки: " + e.getMessage());
-            return false;
-        } catch (Exception e) {
-            logger.warning("Ошибка при выполнении действия с блокировкой: " + e.getMessage());
-            return false;
-        }
+        long ownerId = ThreadLocalRandom.current().nextLong();
+        
+        // Без срока аренды: сторожевой таймер Redisson продлевает блокировку, пока ветка создается
+        // (в волну очередь канала может держать создание дольше любого фиксированного срока),
+        // а если сервер упадет, не сняв ее, блокировка истечет сама.
+        // Продолжение уходит в executor, чтобы обращения к Redis из действия не выполнялись в потоках Netty
+        return lock.tryLockAsync(waitMillis, -1, TimeUnit.MILLISECONDS, ownerId)
+                .toCompletableFuture()
+                .thenComposeAsync(locked -> {
+                    if (!Boolean.TRUE.equals(locked)) {
+                        logger.warning("Не удалось получить блокировку создания ветки " + uuid + " за " + waitMillis + " мс");
+                        return CompletableFuture.<T>completedFuture(null);
+                    }
+                    
+                    CompletableFuture<T> result;
+                    try {
+                        result = action.get();
+                    } catch (RuntimeException e) {
+                        result = CompletableFuture.failedFuture(e);
+                    }
+                    
+                    return result.whenComplete((value, error) -> lock.unlockAsync(ownerId)
+                            .whenComplete((unlocked, unlockError) -> {
+                                if (unlockError != null) {
+                                    logger.warning("Ошибка при снятии блокировки создания ветки: " + unlockError.getMessage());
+                                }
+                            }));
+                }, executor);
     }
     
     // ==================== ОЧЕРЕДЬ ДЕЙСТВИЙ ====================
@@ -426,30 +444,6 @@ public class RedisManager {
         }
     }
     
-    /**
-     * Проверить и обновить время последнего обновления статистики
-     */
-    public boolean shouldUpdateStats(String key, long intervalMillis) {
-        if (!isEnabled()) return true; // Без Redis обновляем всегда
-        
-        try {
-            RAtomicLong lastUpdate = getAtomicLong("last_stats_update:" + key);
-            if (lastUpdate == null) return true;
-            
-            long currentTime = System.currentTimeMillis();
-            long lastUpdateTime = lastUpdate.get();
-            
-            if (currentTime - lastUpdateTime > intervalMillis) {
-                return lastUpdate.compareAndSet(lastUpdateTime, currentTime);
-            }
-            
-            return false;
-        } catch (Exception e) {
-            logger.warning("Ошибка при проверке времени обновления статистики: " + e.getMessage());
-            return true;
-        }
-    }
-    
     // ==================== СТАТИСТИКА И МОНИТОРИНГ ====================
     
     /**
@@ -463,10 +457,16 @@ public class RedisManager {
         try {
             StringBuilder stats = new StringBuilder();
             stats.append("Redis статистика:\n");
-            stats.append("- Ветки игроков в кэше: ").append(playerThreadCache.size()).append("\n");
-            stats.append("- Ветки модераторов в кэше: ").append(moderatorThreadCache.size()).append("\n");
-            stats.append("- Discord ID в кэше: ").append(playerDiscordCache.size()).append("\n");
-            stats.append("- Разрешения в кэше: ").append(writePermissionsCache.size()).append("\n");
+            stats.append("- Ветки игроков в кэше: ").append(playerThreadCache.size())
+                    .append(" (локально ").append(playerThreadCache.getCachedMap().size()).append(")\n");
+            stats.append("- Ветки модераторов в кэше: ").append(moderatorThreadCache.size())
+                    .append(" (локально ").append(moderatorThreadCache.getCachedMap().size()).append(")\n");
+            stats.append("- Первые сообщения веток в кэше: ").append(starterMessageCache.size())
+                    .append(" (локально ").append(starterMessageCache.getCachedMap().size()).append(")\n");
+            stats.append("- Discord ID в кэше: ").append(playerDiscordCache.size())
+                    .append(" (локально ").append(playerDiscordCache.getCachedMap().size()).append(")\n");
+            stats.append("- Разрешения в кэше: ").append(writePermissionsCache.size())
+                    .append(" (локально ").append(writePermissionsCache.getCachedMap().size()).append(")\n");
             stats.append("- Действий в очереди: ").append(pendingDiscordActions.size());
             
             return stats.toString();
@@ -475,6 +475,11 @@ public class RedisManager {
         }
     }
     
+    @Override
+    public String getStats() {
+        return getRedisStats();
+    }
+    
     /**
      * Очистить все кэши
      */
@@ -484,6 +489,7 @@ public class RedisManager {
         try {
             playerThreadCache.clear();
             moderatorThreadCache.clear();
+            starterMessageCache.clear();
             playerDiscordCache.clear();
             writePermissionsCache.clear();
             logger.info("Все кэши Redis очищены");
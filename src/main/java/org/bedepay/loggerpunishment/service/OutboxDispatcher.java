@@ -0,0 +1,297 @@
+package org.bedepay.loggerpunishment.service;
+
+import org.bedepay.loggerpunishment.LoggerPunishment;
+import org.bedepay.loggerpunishment.config.ConfigManager;
+import org.bedepay.loggerpunishment.database.DatabaseManager;
+import org.bedepay.loggerpunishment.discord.DiscordManager;
+import org.bedepay.loggerpunishment.model.OutboxEntry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Диспетчер исходящей очереди Discord (таблица discord_queue).
+ * Забирает записи по приоритету, доставляет их через PunishmentService
+ * и при ошибках откладывает повтор с экспоненциальной задержкой.
+ */
+public class OutboxDispatcher {
+
+    // Сколько проход ждет пачку, прежде чем отпустить поток диспетчера; записи при этом доставляются дальше
+    private static final long BATCH_TIMEOUT_SECONDS = 60;
+
+    // Срок аренды захваченной записи. Пока запись доставляется, аренда продлевается каждые
+    // CLAIM_RENEW_SECONDS, поэтому истекает она только у записей остановившегося сервера
+    private static final long CLAIM_LEASE_SECONDS = 300;
+    private static final long CLAIM_RENEW_SECONDS = 60;
+
+    private final LoggerPunishment plugin;
+    private final PunishmentService punishmentService;
+    private final DatabaseManager databaseManager;
+    private final Logger logger;
+    private final Executor stages;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<Long, OutboxEntry> inFlight = new ConcurrentHashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean running = false;
+
+    // Метрики
+    private final AtomicLong deliveredEntries = new AtomicLong();
+    private final AtomicLong retriedEntries = new AtomicLong();
+    private final AtomicLong failedEntries = new AtomicLong();
+
+    public OutboxDispatcher(LoggerPunishment plugin, PunishmentService punishmentService, Executor stages) {
+        this.plugin = plugin;
+        this.punishmentService = punishmentService;
+        this.databaseManager = plugin.getDatabaseManager();
+        this.logger = plugin.getLogger();
+        this.stages = stages;
+        // Второй поток продлевает аренду, пока первый ждет пачку
+        this.scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "LoggerPunishment-Outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запуск диспетчера с восстановлением записей, зависших после аварийной остановки
+     */
+    public void start() {
+        // Файл SQLite принадлежит одному серверу: все захваченные записи остались от прошлого запуска
+        recoverExpiredClaims(databaseManager.isSQLite() ? Instant.now() : Instant.now().minusSeconds(CLAIM_LEASE_SECONDS));
+
+        running = true;
+
+        long interval = Math.max(100, settings().outboxPollInterval);
+        scheduler.scheduleWithFixedDelay(this::drain, interval, interval, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::maintainClaims, CLAIM_RENEW_SECONDS, CLAIM_RENEW_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::purgeCompleted, 1, 60, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Запросить внеочередной проход по очереди (после добавления записи или подключения Discord)
+     */
+    public void wakeUp() {
+        if (!running) {
+            return;
+        }
+
+        try {
+            scheduler.execute(this::drain);
+        } catch (RejectedExecutionException ignored) {
+            // Диспетчер остановлен
+        }
+    }
+
+    // ==================== ОБРАБОТКА ОЧЕРЕДИ ====================
+
+    /**
+     * Доставить все готовые записи пачками, пока Discord доступен
+     */
+    private void drain() {
+        if (!running || !draining.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            while (running && isDiscordAvailable()) {
+                List<OutboxEntry> batch = databaseManager.claimOutboxEntries(Math.max(1, settings().outboxBatchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                List<CompletableFuture<Void>> deliveries = new ArrayList<>(batch.size());
+                for (OutboxEntry entry : batch) {
+                    deliveries.add(dispatch(entry));
+                }
+
+                try {
+                    CompletableFuture.allOf(deliveries.toArray(new CompletableFuture<?>[0]))
+                            .get(BATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    // Записи завершатся сами, следующий проход начнется по таймеру
+                    logger.warning("Доставка пачки очереди Discord заняла больше " + BATCH_TIMEOUT_SECONDS + " сек.");
+                    break;
+                }
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Ошибка при обработке очереди Discord: " + e.getMessage(), e);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    /**
+     * Доставить одну запись и сохранить результат
+     */
+    private CompletableFuture<Void> dispatch(OutboxEntry entry) {
+        CompletableFuture<Boolean> delivery;
+        try {
+            delivery = punishmentService.deliver(entry);
+        } catch (Exception e) {
+            delivery = CompletableFuture.failedFuture(e);
+        }
+
+        inFlight.put(entry.getId(), entry);
+
+        // Доставка может завершиться в потоке записи BatchWriter: результат сохраняем в пуле этапов
+        return delivery.handleAsync((delivered, error) -> {
+            try {
+                if (error == null && Boolean.TRUE.equals(delivered)) {
+                    if (databaseManager.completeOutboxEntry(entry)) {
+                        deliveredEntries.incrementAndGet();
+                    } else {
+                        logClaimLost(entry);
+                    }
+                } else {
+                    reschedule(entry, error != null ? error.getMessage() : "не все сообщения доставлены");
+                }
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Ошибка при сохранении результата доставки " + entry + ": " + e.getMessage(), e);
+            } finally {
+                inFlight.remove(entry.getId());
+            }
+            return null;
+        }, stages);
+    }
+
+    /**
+     * Отложить повтор с экспоненциальной задержкой или пометить запись как FAILED
+     */
+    private void reschedule(OutboxEntry entry, String reason) {
+        ConfigManager.PluginSettings settings = settings();
+
+        int attempts = entry.getCurrentAttempts() + 1;
+        entry.setCurrentAttempts(attempts);
+        entry.setErrorMessage(reason);
+
+        if (attempts >= entry.getMaxAttempts()) {
+            entry.setStatus(OutboxEntry.STATUS_FAILED);
+            failedEntries.incrementAndGet();
+            logger.warning("Запись очереди Discord не доставлена после " + attempts + " попыток: " + entry + " (" + reason + ")");
+        } else {
+            long delay = Math.min(
+                    Math.max(1, settings.outboxMaxBackoff) * 1000L,
+                    Math.max(100, settings.sendRetryDelay) * (1L << Math.min(attempts - 1, 20)));
+
+            entry.setStatus(OutboxEntry.STATUS_PENDING);
+            entry.setNextAttemptAt(Instant.now().plusMillis(delay));
+            retriedEntries.incrementAndGet();
+
+            if (settings.debugMode) {
+                logger.info("Повтор записи очереди Discord через " + delay + " мс: " + entry + " (" + reason + ")");
+            }
+        }
+
+        if (!databaseManager.rescheduleOutboxEntry(entry)) {
+            logClaimLost(entry);
+        }
+    }
+
+    /**
+     * Продлить аренду доставляемых записей и вернуть в очередь брошенные
+     */
+    private void maintainClaims() {
+        if (!inFlight.isEmpty()) {
+            databaseManager.renewOutboxClaims(List.copyOf(inFlight.values()));
+        }
+
+        recoverExpiredClaims(Instant.now().minusSeconds(CLAIM_LEASE_SECONDS));
+    }
+
+    /**
+     * Вернуть в очередь записи, аренда которых истекла. С общей базой MySQL
+     * записи, которые сейчас доставляют другие серверы, остаются у них; брошенные записи
+     * остановившегося сервера подбирают остальные, не дожидаясь его перезапуска.
+     */
+    private void recoverExpiredClaims(Instant claimedBefore) {
+        try {
+            int recovered = databaseManager.recoverExpiredOutboxClaims(claimedBefore);
+            if (recovered > 0) {
+                logger.info("Возвращено в очередь Discord брошенных записей: " + recovered);
+            }
+        } catch (Exception e) {
+            logger.warning("Ошибка при восстановлении очереди Discord: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Удалить выполненные записи старше queue_message_retention
+     */
+    private void purgeCompleted() {
+        try {
+            Instant threshold = Instant.now().minus(Duration.ofHours(Math.max(1, settings().queueMessageRetention)));
+            int removed = databaseManager.deleteCompletedOutboxEntries(threshold);
+            if (removed > 0 && settings().debugMode) {
+                logger.info("Удалено выполненных записей очереди Discord: " + removed);
+            }
+        } catch (Exception e) {
+            logger.warning("Ошибка при очистке очереди Discord: " + e.getMessage());
+        }
+    }
+
+    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
+
+    private void logClaimLost(OutboxEntry entry) {
+        logger.warning("Результат доставки не сохранен: запись очереди Discord уже возвращена в очередь " + entry);
+    }
+
+    private boolean isDiscordAvailable() {
+        DiscordManager discordManager = plugin.getDiscordManager();
+        return discordManager != null && discordManager.isReady() && plugin.getForumManager() != null;
+    }
+
+    private ConfigManager.PluginSettings settings() {
+        return plugin.getConfigManager().getPluginSettings();
+    }
+
+    /**
+     * Получить статистику очереди
+     */
+    public String getStats() {
+        Map<String, Integer> counts = databaseManager.getOutboxStatusCounts();
+        return String.format("📬 Очередь Discord: ожидают %d, в работе %d, не доставлено %d | доставлено %d, повторов %d, отказов %d",
+                counts.getOrDefault(OutboxEntry.STATUS_PENDING, 0),
+                counts.getOrDefault(OutboxEntry.STATUS_PROCESSING, 0),
+                counts.getOrDefault(OutboxEntry.STATUS_FAILED, 0),
+                deliveredEntries.get(),
+                retriedEntries.get(),
+                failedEntries.get());
+    }
+
+    /**
+     * Остановка диспетчера. Недоставленные записи остаются в базе и будут отправлены после запуска.
+     */
+    public void shutdown() {
+        running = false;
+        scheduler.shutdown();
+
+        try {
+            if (!scheduler.awaitTermination(settings().processingShutdownTimeout, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package org.bedepay.loggerpunishment.service;
+
+import org.bedepay.loggerpunishment.config.ConfigManager;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Исполнитель конвейера обработки наказаний.
+ * Блокирующие вызовы JDBC и Discord выполняются здесь, а не в общем ForkJoinPool.
+ * В режиме platform используется ограниченный пул потоков, в режиме virtual
+ * каждое наказание получает свой виртуальный поток (Java 21+), а доступ к
+ * БД и Discord ограничивается семафорами.
+ * <p>
+ * Политика переполнения применяется только к новым задачам (submit). Внутренние этапы
+ * уже принятой задачи (stageAsync) выполняются отдельным исполнителем без отказов:
+ * иначе поток пула ждал бы места в своей же очереди, а наполовину выполненная
+ * задача (наказание уже записано) могла бы потерять последующие этапы.
+ */
+public class ProcessingExecutor implements Executor {
+
+    private final Logger logger;
+    private final ExecutionMode mode;
+    private final ExecutorService delegate;
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService stageExecutor;
+    private final ThreadPoolExecutor stagePool;
+    private final RejectionPolicy rejectionPolicy;
+    private final long blockTimeoutMillis;
+    private final int queueCapacity;
+
+    // Ограничения доступа к ресурсам (только для режима virtual)
+    private final Semaphore databasePermits;
+    private final Semaphore discordPermits;
+
+    // Метрики
+    private final AtomicLong submittedTasks = new AtomicLong();
+    private final AtomicLong rejectedTasks = new AtomicLong();
+    private final AtomicLong callerRunsTasks = new AtomicLong();
+    private final AtomicLong completedVirtualTasks = new AtomicLong();
+    private final AtomicInteger inFlightTasks = new AtomicInteger();
+    private final AtomicInteger peakInFlightTasks = new AtomicInteger();
+    // Глубина очереди: в режиме platform - очередь пула, в режиме virtual - ожидающие разрешений семафоров
+    private final AtomicInteger permitWaiters = new AtomicInteger();
+    private final AtomicInteger peakQueueSize = new AtomicInteger();
+
+    public ProcessingExecutor(Logger logger, ConfigManager.PluginSettings settings, int databasePoolSize) {
+        this.logger = logger;
+        this.rejectionPolicy = RejectionPolicy.fromConfig(settings.processingRejectionPolicy);
+        this.blockTimeoutMillis = Math.max(0, settings.processingBlockTimeout);
+        this.queueCapacity = Math.max(1, settings.processingQueueSize);
+
+        ExecutorService virtualExecutor = null;
+        if (ExecutionMode.fromConfig(settings.executionMode) == ExecutionMode.VIRTUAL) {
+            virtualExecutor = createVirtualThreadExecutor();
+            if (virtualExecutor == null) {
+                logger.warning("Виртуальные потоки недоступны (требуется Java 21+), используется режим platform");
+            }
+        }
+
+        if (virtualExecutor != null) {
+            this.mode = ExecutionMode.VIRTUAL;
+            this.pool = null;
+            this.delegate = virtualExecutor;
+            this.stagePool = null;
+            this.stageExecutor = virtualExecutor;
+
+            int dbPermits = settings.virtualDatabasePermits > 0 ? settings.virtualDatabasePermits : databasePoolSize;
+            this.databasePermits = new Semaphore(Math.max(1, dbPermits), true);
+            this.discordPermits = new Semaphore(Math.max(1, settings.virtualDiscordPermits), true);
+
+            logger.info("Обработка наказаний на виртуальных потоках: разрешений БД " + databasePermits.availablePermits()
+                    + ", разрешений Discord " + discordPermits.availablePermits());
+        } else {
+            int threads = Math.max(1, settings.processingThreads);
+
+            this.mode = ExecutionMode.PLATFORM;
+            this.pool = new ThreadPoolExecutor(
+                    threads,
+                    threads,
+                    60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    new NamedThreadFactory("LoggerPunishment-Processing"),
+                    new BackpressureHandler()
+            );
+            this.pool.allowCoreThreadTimeOut(true);
+            this.delegate = pool;
+
+            // Очередь этапов не ограничена: ее размер ограничен числом принятых задач
+            this.stagePool = new ThreadPoolExecutor(
+                    threads,
+                    threads,
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new NamedThreadFactory("LoggerPunishment-Stage")
+            );
+            this.stagePool.allowCoreThreadTimeOut(true);
+            this.stageExecutor = stagePool;
+            this.databasePermits = null;
+            this.discordPermits = null;
+
+            logger.info("Пул обработки наказаний: потоков " + threads + ", очередь " + queueCapacity
+                    + ", политика " + rejectionPolicy.name().toLowerCase());
+        }
+    }
+
+    /**
+     * Создать исполнитель "поток на задачу" с виртуальными потоками.
+     * Вызывается через рефлексию, т.к. плагин компилируется под Java 17.
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, "LoggerPunishment-Virtual-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+
+            Method newThreadPerTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTask.invoke(null, factory);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // ==================== ОТПРАВКА ЗАДАЧ ====================
+
+    @Override
+    public void execute(Runnable task) {
+        submittedTasks.incrementAndGet();
+
+        if (mode == ExecutionMode.VIRTUAL) {
+            int inFlight = inFlightTasks.incrementAndGet();
+            peakInFlightTasks.accumulateAndGet(inFlight, Math::max);
+
+            try {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        inFlightTasks.decrementAndGet();
+                        completedVirtualTasks.incrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlightTasks.decrementAndGet();
+                rejectedTasks.incrementAndGet();
+                throw e;
+            }
+            return;
+        }
+
+        pool.execute(task);
+
+        int queueSize = pool.getQueue().size();
+        peakQueueSize.accumulateAndGet(queueSize, Math::max);
+    }
+
+    /**
+     * Принять новую задачу конвейера. Только здесь применяется политика переполнения:
+     * при отказе задача целиком не начинается, а future завершается с RejectedExecutionException.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> job) {
+        try {
+            return CompletableFuture.supplyAsync(job, this).thenCompose(Function.identity());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Выполнить внутренний этап уже принятой задачи. Этапы не отклоняются из-за
+     * переполнения и не занимают очередь новых задач.
+     */
+    public <T> CompletableFuture<T> stageAsync(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, stageExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Исполнитель внутренних этапов (для отложенных обновлений и продолжений)
+     */
+    public Executor stages() {
+        return stageExecutor;
+    }
+
+    // ==================== ОГРАНИЧЕНИЕ РЕСУРСОВ ====================
+
+    /**
+     * Выполнить блокирующий вызов к базе данных
+     */
+    public <T> T withDatabase(Supplier<T> call) {
+        return withPermit(databasePermits, call);
+    }
+
+    /**
+     * Выполнить блокирующий вызов к базе данных без результата
+     */
+    public void withDatabase(Runnable call) {
+        withPermit(databasePermits, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Выполнить блокирующий вызов к Discord
+     */
+    public <T> T withDiscord(Supplier<T> call) {
+        return withPermit(discordPermits, call);
+    }
+
+    /**
+     * Выполнить блокирующий вызов к Discord без результата
+     */
+    public void withDiscord(Runnable call) {
+        withPermit(discordPermits, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Выполнить неблокирующий запрос к Discord; разрешение удерживается до завершения запроса
+     */
+    public <T> CompletableFuture<T> withDiscordAsync(Supplier<CompletableFuture<T>> call) {
+        if (discordPermits == null) {
+            return call.get();
+        }
+
+        try {
+            acquire(discordPermits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Ожидание разрешения прервано", e));
+        }
+
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            discordPermits.release();
+            throw e;
+        }
+
+        return future.whenComplete((result, error) -> discordPermits.release());
+    }
+
+    /**
+     * Выполнить вызов, удерживая разрешение семафора (в режиме platform - без ограничений)
+     */
+    private <T> T withPermit(Semaphore permits, Supplier<T> call) {
+        if (permits == null) {
+            return call.get();
+        }
+
+        try {
+            acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Ожидание разрешения прервано", e);
+        }
+
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Получить разрешение; задачи, которым пришлось ждать, учитываются как очередь режима virtual
+     */
+    private void acquire(Semaphore permits) throws InterruptedException {
+        // tryAcquire с таймаутом соблюдает очередность справедливого семафора
+        if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+            return;
+        }
+
+        peakQueueSize.accumulateAndGet(permitWaiters.incrementAndGet(), Math::max);
+        try {
+            permits.acquire();
+        } finally {
+            permitWaiters.decrementAndGet();
+        }
+    }
+
+    // ==================== МЕТРИКИ ====================
+
+    /**
+     * Текущий режим выполнения
+     */
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Текущая глубина очереди (для виртуальных потоков - задачи, ожидающие разрешений БД и Discord)
+     */
+    public int getQueueSize() {
+        return mode == ExecutionMode.VIRTUAL ? permitWaiters.get() : pool.getQueue().size();
+    }
+
+    /**
+     * Количество отклоненных задач
+     */
+    public long getRejectedTasks() {
+        return rejectedTasks.get();
+    }
+
+    /**
+     * Получить статистику пула
+     */
+    public String getStats() {
+        if (mode == ExecutionMode.VIRTUAL) {
+            return String.format("⚙️ Виртуальные потоки: в работе %d (пик %d), ожидают разрешений %d (пик %d), выполнено %d, отклонено %d, свободно разрешений БД %d (ожидают %d), Discord %d (ожидают %d)",
+                    inFlightTasks.get(),
+                    peakInFlightTasks.get(),
+                    permitWaiters.get(),
+                    peakQueueSize.get(),
+                    completedVirtualTasks.get(),
+                    rejectedTasks.get(),
+                    databasePermits.availablePermits(),
+                    databasePermits.getQueueLength(),
+                    discordPermits.availablePermits(),
+                    discordPermits.getQueueLength());
+        }
+
+        return String.format("⚙️ Пул обработки: активных %d/%d, очередь %d/%d (пик %d), выполнено %d, отклонено %d, в вызывающем потоке %d | этапы: активных %d, очередь %d, выполнено %d",
+                pool.getActiveCount(),
+                pool.getMaximumPoolSize(),
+                pool.getQueue().size(),
+                queueCapacity,
+                peakQueueSize.get(),
+                pool.getCompletedTaskCount(),
+                rejectedTasks.get(),
+                callerRunsTasks.get(),
+                stagePool.getActiveCount(),
+                stagePool.getQueue().size(),
+                stagePool.getCompletedTaskCount());
+    }
+
+    /**
+     * Остановить пул, дождавшись завершения поставленных задач.
+     * Исполнитель этапов останавливается вторым: принятые задачи еще ставят в него этапы.
+     */
+    public void shutdown(long timeoutSeconds) {
+        awaitShutdown(delegate, "Пул обработки", timeoutSeconds);
+        if (stageExecutor != delegate) {
+            awaitShutdown(stageExecutor, "Исполнитель этапов обработки", timeoutSeconds);
+        }
+    }
+
+    private void awaitShutdown(ExecutorService executor, String name, long timeoutSeconds) {
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                int dropped = executor.shutdownNow().size();
+                logger.warning(name + " не завершился за " + timeoutSeconds + " сек., отменено задач: " + dropped);
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== РЕЖИМЫ И ПОЛИТИКИ ====================
+
+    /**
+     * Режим выполнения конвейера
+     */
+    public enum ExecutionMode {
+        PLATFORM,
+        VIRTUAL;
+
+        static ExecutionMode fromConfig(String value) {
+            return value != null && value.trim().equalsIgnoreCase("virtual") ? VIRTUAL : PLATFORM;
+        }
+    }
+
+    /**
+     * Политика при переполнении очереди
+     */
+    public enum RejectionPolicy {
+        CALLER_RUNS,
+        BLOCK,
+        DISCARD;
+
+        static RejectionPolicy fromConfig(String value) {
+            if (value == null) {
+                return CALLER_RUNS;
+            }
+
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return CALLER_RUNS;
+            }
+        }
+    }
+
+    /**
+     * Обработчик переполнения очереди
+     */
+    private class BackpressureHandler implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor pool) {
+            if (pool.isShutdown()) {
+                reject("пул обработки остановлен");
+            }
+
+            switch (rejectionPolicy) {
+                case CALLER_RUNS -> {
+                    callerRunsTasks.incrementAndGet();
+                    task.run();
+                }
+                case BLOCK -> {
+                    try {
+                        if (!pool.getQueue().offer(task, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                            reject("очередь заполнена дольше " + blockTimeoutMillis + " мс");
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        reject("ожидание места в очереди прервано");
+                    }
+                }
+                default -> reject("очередь заполнена");
+            }
+        }
+
+        private void reject(String reason) {
+            long rejected = rejectedTasks.incrementAndGet();
+            logger.log(Level.WARNING, "Задача обработки наказания отклонена: " + reason + " (всего отклонено: " + rejected + ")");
+            throw new RejectedExecutionException(reason);
+        }
+    }
+
+    /**
+     * Фабрика именованных потоков
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,24 +1,27 @@
 package org.bedepay.loggerpunishment.service;
 
 import org.bedepay.loggerpunishment.LoggerPunishment;
+import org.bedepay.loggerpunishment.cache.CacheProvider;
 import org.bedepay.loggerpunishment.database.DatabaseManager;
 import org.bedepay.loggerpunishment.discord.DiscordManager;
 import org.bedepay.loggerpunishment.discord.ForumManager;
 import org.bedepay.loggerpunishment.model.ModeratorData;
+import org.bedepay.loggerpunishment.model.OutboxEntry;
 import org.bedepay.loggerpunishment.model.PlayerData;
 import org.bedepay.loggerpunishment.model.PunishmentData;
+import org.bedepay.loggerpunishment.model.PunishmentStatistics;
 import org.bedepay.loggerpunishment.model.PunishmentType;
 import org.bedepay.loggerpunishment.model.UnbanType;
-import org.bedepay.loggerpunishment.redis.RedisManager;
-import org.redisson.api.RLock;
+import org.bedepay.loggerpunishment.util.SingleFlight;
 
-import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
 
 import java.time.Instant;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,20 +30,38 @@ import java.util.logging.Logger;
  */
 public class PunishmentService {
     
+    // Сколько ждать распределенную блокировку создания ветки
+    private static final long THREAD_LOCK_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    
     private final LoggerPunishment plugin;
     private final DatabaseManager databaseManager;
     private final DiscordManager discordManager;
-    private final ForumManager forumManager;
-    private final RedisManager redisManager;
+    private final CacheProvider cacheProvider;
+    private final ProcessingExecutor processingExecutor;
+    private final OutboxDispatcher outboxDispatcher;
+    private final StatsUpdateDebouncer statsDebouncer;
+    private final SingleFlight<UUID, ThreadChannel> playerThreadFlights = new SingleFlight<>();
+    private final SingleFlight<UUID, ThreadChannel> moderatorThreadFlights = new SingleFlight<>();
     private final Logger logger;
     
     public PunishmentService(LoggerPunishment plugin) {
         this.plugin = plugin;
         this.databaseManager = plugin.getDatabaseManager();
         this.discordManager = plugin.getDiscordManager();
-        this.forumManager = plugin.getForumManager();
-        this.redisManager = plugin.getRedisManager();
+        this.cacheProvider = plugin.getCacheProvider();
         this.logger = plugin.getLogger();
+        this.processingExecutor = new ProcessingExecutor(logger, plugin.getConfigManager().getPluginSettings(),
+                plugin.getConfigManager().getDatabaseConfig().maximumPoolSize);
+        this.outboxDispatcher = new OutboxDispatcher(plugin, this, processingExecutor.stages());
+        this.statsDebouncer = new StatsUpdateDebouncer(logger, processingExecutor.stages(),
+                plugin.getConfigManager().getPluginSettings().statsUpdateInterval * 1000L);
+    }
+    
+    /**
+     * Запуск доставки из исходящей очереди
+     */
+    public void start() {
+        outboxDispatcher.start();
     }
     
     // ==================== ОБРАБОТКА НАКАЗАНИЙ ====================
@@ -51,79 +72,36 @@ public class PunishmentService {
     public CompletableFuture<Void> processPunishment(PunishmentType type, UUID playerUuid, String playerName,
                                                    UUID moderatorUuid, String moderatorName, String reason,
                                                    Long duration, String punishmentId) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                logger.info("Обработка наказания: " + type + " для " + playerName);
-                
-                // Создание объекта наказания
-                PunishmentData punishment = new PunishmentData(type, playerUuid, playerName, moderatorUuid, moderatorName, reason);
-                punishment.setDuration(duration);
-                punishment.setPunishmentId(punishmentId);
-                
-                // Обработка через основной метод
-                processPunishment(punishment).join();
-                
-            } catch (Exception e) {
-                logger.log(Level.SEVERE, "Ошибка при обработке наказания: " + type + " для " + playerName, e);
-            }
-        });
+        // Создание объекта наказания
+        PunishmentData punishment = new PunishmentData(type, playerUuid, playerName, moderatorUuid, moderatorName, reason);
+        punishment.setDuration(duration);
+        punishment.setPunishmentId(punishmentId);
+        
+        // Обработка через основной метод
+        return processPunishment(punishment);
     }
     
     /**
-     * Обработать новое наказание
+     * Обработать новое наказание.
+     * Наказание и запись исходящей очереди сохраняются одной транзакцией через BatchWriter,
+     * доставку в Discord выполняет OutboxDispatcher. Политика переполнения пула
+     * применяется здесь, до записи наказания.
      */
     public CompletableFuture<Void> processPunishment(PunishmentData punishment) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                logger.info("Обработка наказания: " + punishment.getType() + " для " + punishment.getPlayerName());
-                
-                // 1. Сохранить в базу данных
-                databaseManager.savePunishment(punishment);
-                
-                // 2. Получить или создать ветки для игрока и модератора
-                ThreadChannel playerThread = getOrCreatePlayerThread(punishment);
-                ThreadChannel moderatorThread = getOrCreateModeratorThread(punishment);
-                
-                // 3. Отправить сообщения в ветки
-                Message playerMessage = null;
-                Message moderatorMessage = null;
-                Message logMessage = null;
-                
-                if (playerThread != null) {
-                    playerMessage = forumManager.sendPlayerPunishmentMessage(playerThread, punishment);
-                    if (playerMessage != null) {
-                        punishment.setPlayerMessageId(playerMessage.getIdLong());
-                    }
-                }
-                
-                if (moderatorThread != null) {
-                    moderatorMessage = forumManager.sendModeratorPunishmentMessage(moderatorThread, punishment);
-                    if (moderatorMessage != null) {
-                        punishment.setModeratorMessageId(moderatorMessage.getIdLong());
-                    }
-                }
-                
-                // 4. Отправить в лог канал
-                logMessage = forumManager.sendLogMessage(punishment);
-                if (logMessage != null) {
-                    punishment.setLogMessageId(logMessage.getIdLong());
-                }
-                
-                // 5. Обновить наказание с ID сообщений
-                databaseManager.updatePunishment(punishment);
-                
-                // 6. Обновить статистику
-                updatePlayerStats(punishment.getPlayerUuid(), punishment.getPlayerName(), playerThread);
-                if (punishment.getModeratorUuid() != null) {
-                    updateModeratorStats(punishment.getModeratorUuid(), punishment.getModeratorName(), moderatorThread);
-                }
-                
-                logger.info("Наказание успешно обработано: " + punishment.getPunishmentId());
-                
-            } catch (Exception e) {
-                logger.log(Level.SEVERE, "Ошибка при обработке наказания: " + punishment.getPunishmentId(), e);
-            }
-        });
+        return processingExecutor.submit(() -> {
+                    logger.info("Обработка наказания: " + punishment.getType() + " для " + punishment.getPlayerName());
+                    
+                    OutboxEntry entry = createOutboxEntry(OutboxEntry.forPunishment(getMaxDeliveryAttempts()));
+                    return databaseManager.getBatchWriter().insertPunishment(punishment, entry);
+                })
+                .thenAccept(id -> {
+                    outboxDispatcher.wakeUp();
+                    logger.info("Наказание сохранено и поставлено в очередь Discord: " + punishment.getPunishmentId());
+                })
+                .exceptionally(e -> {
+                    logger.log(Level.SEVERE, "Ошибка при обработке наказания: " + punishment.getPunishmentId(), e);
+                    return null;
+                });
     }
     
     /**
@@ -135,269 +113,430 @@ public class PunishmentService {
     }
     
     /**
-     * Обработать разбан/размут
+     * Обработать разбан/размут. Политика переполнения пула применяется только к поиску наказания,
+     * дальнейшие шаги уже принятой задачи не отклоняются.
      */
     public CompletableFuture<Void> processUnban(String punishmentId, UnbanType unbanType, 
                                                String unbanReason, UUID unbanModeratorUuid, 
                                                String unbanModeratorName) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                logger.info("Обработка разбана: " + punishmentId);
-                
-                // 1. Найти наказание в базе данных
-                PunishmentData punishment = databaseManager.getPunishmentByPunishmentId(punishmentId);
-                if (punishment == null) {
-                    logger.warning("Наказание не найдено: " + punishmentId);
-                    return;
-                }
-                
-                // 2. Обновить данные о разбане
-                punishment.setActive(false);
-                punishment.setUnbannedAt(Instant.now());
-                punishment.setUnbanType(unbanType);
-                punishment.setUnbanReason(unbanReason);
-                punishment.setUnbanModeratorUuid(unbanModeratorUuid);
-                punishment.setUnbanModeratorName(unbanModeratorName);
-                
-                // 3. Сохранить изменения в базу
-                databaseManager.updatePunishment(punishment);
-                
-                // 4. Обновить сообщения в ветках
-                updatePunishmentMessages(punishment);
-                
-                // 5. Отправить сообщение в лог
-                Message logMessage = forumManager.sendLogMessage(punishment);
-                if (logMessage != null) {
-                    punishment.setLogMessageId(logMessage.getIdLong());
-                    databaseManager.updatePunishment(punishment);
-                }
-                
-                // 6. Обновить статистику
-                updatePlayerStats(punishment.getPlayerUuid(), punishment.getPlayerName(), null);
-                if (punishment.getModeratorUuid() != null) {
-                    updateModeratorStats(punishment.getModeratorUuid(), punishment.getModeratorName(), null);
-                }
-                
-                logger.info("Разбан успешно обработан: " + punishmentId);
-                
-            } catch (Exception e) {
-                logger.log(Level.SEVERE, "Ошибка при обработке разбана: " + punishmentId, e);
-            }
-        });
+        return processingExecutor.submit(() -> {
+                    logger.info("Обработка разбана: " + punishmentId);
+                    
+                    // 1. Найти наказание в базе данных
+                    return CompletableFuture.completedFuture(
+                            processingExecutor.withDatabase(() -> databaseManager.getPunishmentByPunishmentId(punishmentId)));
+                })
+                .thenCompose(punishment -> {
+                    if (punishment == null) {
+                        logger.warning("Наказание не найдено: " + punishmentId);
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    
+                    // 2. Обновить данные о разбане
+                    punishment.setActive(false);
+                    punishment.setUnbannedAt(Instant.now());
+                    punishment.setUnbanType(unbanType);
+                    punishment.setUnbanReason(unbanReason);
+                    punishment.setUnbanModeratorUuid(unbanModeratorUuid);
+                    punishment.setUnbanModeratorName(unbanModeratorName);
+                    
+                    // 3. Сохранить изменения вместе с записью исходящей очереди
+                    OutboxEntry entry = createOutboxEntry(OutboxEntry.forUnban(getMaxDeliveryAttempts()));
+                    return databaseManager.getBatchWriter().updatePunishment(punishment, entry)
+                            .thenRun(() -> {
+                                outboxDispatcher.wakeUp();
+                                logger.info("Разбан сохранен и поставлен в очередь Discord: " + punishmentId);
+                            });
+                })
+                .exceptionally(e -> {
+                    logger.log(Level.SEVERE, "Ошибка при обработке разбана: " + punishmentId, e);
+                    return null;
+                });
     }
     
-    // ==================== РАБОТА С ВЕТКАМИ ====================
+    // ==================== ДОСТАВКА В DISCORD ====================
     
     /**
-     * Получить или создать ветку для игрока
+     * Доставить запись исходящей очереди.
+     * Выполненные шаги сохраняются в записи, поэтому при повторе уже отправленные сообщения не дублируются.
+     * 
+     * @return true, если все сообщения доставлены
      */
-    private ThreadChannel getOrCreatePlayerThread(PunishmentData punishment) {
-        try {
-            // Проверяем в кэше Redis
-            Long threadId = redisManager.getPlayerThreadId(punishment.getPlayerUuid().toString());
-            
-            if (threadId != null && threadId > 0) {
-                ThreadChannel thread = forumManager.getPlayerThread(threadId);
-                if (thread != null) {
-                    punishment.setPlayerThreadId(threadId);
-                    return thread;
-                }
-            }
-            
-            // Проверяем в базе данных
-            PlayerData player = databaseManager.getPlayerByUuid(punishment.getPlayerUuid());
-            if (player != null && player.getDiscordThreadId() != null) {
-                ThreadChannel thread = forumManager.getPlayerThread(player.getDiscordThreadId());
-                if (thread != null) {
-                    punishment.setPlayerThreadId(player.getDiscordThreadId());
-                    redisManager.cachePlayerThreadId(punishment.getPlayerUuid().toString(), player.getDiscordThreadId());
-                    return thread;
-                }
-            }
-            
-            // Создаем новую ветку с блокировкой
-            RLock lock = redisManager.getThreadCreationLock(punishment.getPlayerUuid().toString());
-            if (lock != null && lock.tryLock(10, TimeUnit.SECONDS)) {
-                try {
-                    // Повторно проверяем после получения блокировки
-                    threadId = redisManager.getPlayerThreadId(punishment.getPlayerUuid().toString());
-                    if (threadId != null && threadId > 0) {
-                        ThreadChannel thread = forumManager.getPlayerThread(threadId);
-                        if (thread != null) {
-                            punishment.setPlayerThreadId(threadId);
-                            return thread;
-                        }
+    public CompletableFuture<Boolean> deliver(OutboxEntry entry) {
+        return processingExecutor.stageAsync(() -> processingExecutor.withDatabase(
+                        () -> databaseManager.getPunishmentById(entry.getPunishmentRecordId())))
+                .thenCompose(punishment -> {
+                    if (punishment == null) {
+                        logger.warning("Наказание для записи очереди не найдено: " + entry);
+                        return CompletableFuture.completedFuture(true);
                     }
                     
-                    // Создаем новую ветку
-                    if (player == null) {
-                        player = createPlayerData(punishment);
+                    return entry.isUnban() ? deliverUnban(punishment, entry) : deliverPunishment(punishment, entry);
+                });
+    }
+    
+    /**
+     * Доставить новое наказание.
+     * Ветки игрока, модератора и лог-канала выполняются параллельно,
+     * ID сообщений записываются в базу один раз после завершения всех веток. Записываются
+     * только ID: снятие, сохраненное во время доставки, не перезаписывается копией наказания.
+     */
+    private CompletableFuture<Boolean> deliverPunishment(PunishmentData punishment, OutboxEntry entry) {
+        CompletableFuture<ThreadChannel> playerBranch = sendToPlayerThread(punishment, entry);
+        CompletableFuture<ThreadChannel> moderatorBranch = sendToModeratorThread(punishment, entry);
+        CompletableFuture<Void> logBranch = sendToLogChannel(punishment, entry);
+        
+        return CompletableFuture.allOf(playerBranch, moderatorBranch, logBranch)
+                // Обновить наказание с ID сообщений
+                .thenCompose(done -> databaseManager.getBatchWriter().recordDelivery(punishment))
+                // Будущее завершается в потоке записи: статистику и результат обрабатываем в пуле этапов
+                .thenRunAsync(() -> updateStats(punishment, playerBranch.join(), moderatorBranch.join()),
+                        processingExecutor.stages())
+                .thenApply(done -> isDelivered(entry));
+    }
+    
+    /**
+     * Доставить снятие наказания: обновить сообщения в ветках и отправить запись в лог
+     */
+    private CompletableFuture<Boolean> deliverUnban(PunishmentData punishment, OutboxEntry entry) {
+        ForumManager forumManager = forumManager();
+        ThreadChannel playerThread = punishment.getPlayerThreadId() != null
+                ? forumManager.getPlayerThread(punishment.getPlayerThreadId()) : null;
+        ThreadChannel moderatorThread = punishment.getModeratorThreadId() != null
+                ? forumManager.getModeratorThread(punishment.getModeratorThreadId()) : null;
+        
+        CompletableFuture<Void> playerEdit = editStep(entry, OutboxEntry.STEP_PLAYER,
+                punishment.getPlayerMessageId(), playerThread,
+                () -> forumManager.updatePlayerPunishmentMessageAsync(punishment.getPlayerMessageId(), playerThread, punishment));
+        CompletableFuture<Void> moderatorEdit = editStep(entry, OutboxEntry.STEP_MODERATOR,
+                punishment.getModeratorMessageId(), moderatorThread,
+                () -> forumManager.updateModeratorPunishmentMessageAsync(punishment.getModeratorMessageId(), moderatorThread, punishment));
+        CompletableFuture<Void> logBranch = sendToLogChannel(punishment, entry);
+        
+        return CompletableFuture.allOf(playerEdit, moderatorEdit, logBranch)
+                .thenCompose(done -> databaseManager.getBatchWriter().recordDelivery(punishment))
+                .thenRunAsync(() -> updateStats(punishment, playerThread, moderatorThread), processingExecutor.stages())
+                .thenApply(done -> isDelivered(entry));
+    }
+    
+    /**
+     * Шаг редактирования сообщения. Если сообщение не было отправлено, редактировать нечего.
+     */
+    private CompletableFuture<Void> editStep(OutboxEntry entry, String step, Long messageId, ThreadChannel thread,
+                                             Supplier<CompletableFuture<Boolean>> edit) {
+        if (entry.getCompletedSteps().contains(step)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        if (messageId == null) {
+            entry.getCompletedSteps().add(step);
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        if (thread == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        return processingExecutor.withDiscordAsync(edit)
+                .thenAccept(edited -> {
+                    if (Boolean.TRUE.equals(edited)) {
+                        entry.getCompletedSteps().add(step);
+                    }
+                });
+    }
+    
+    /**
+     * Ветка игрока: найти или создать ветку и отправить в нее сообщение
+     */
+    private CompletableFuture<ThreadChannel> sendToPlayerThread(PunishmentData punishment, OutboxEntry entry) {
+        ForumManager forumManager = forumManager();
+        
+        if (forumManager.getPlayerForum() == null) {
+            entry.getCompletedSteps().add(OutboxEntry.STEP_PLAYER);
+        }
+        
+        if (entry.getCompletedSteps().contains(OutboxEntry.STEP_PLAYER)) {
+            return CompletableFuture.completedFuture(punishment.getPlayerThreadId() != null
+                    ? forumManager.getPlayerThread(punishment.getPlayerThreadId()) : null);
+        }
+        
+        return getOrCreatePlayerThread(punishment)
+                .thenCompose(thread -> {
+                    if (thread == null) {
+                        return CompletableFuture.completedFuture(null);
                     }
                     
-                    ThreadChannel newThread = forumManager.createPlayerThread(player);
-                    if (newThread != null) {
-                        long newThreadId = newThread.getIdLong();
-                        player.setDiscordThreadId(newThreadId);
-                        punishment.setPlayerThreadId(newThreadId);
-                        
-                        databaseManager.saveOrUpdatePlayer(player);
-                        redisManager.cachePlayerThreadId(punishment.getPlayerUuid().toString(), newThreadId);
-                        
-                        return newThread;
+                    return processingExecutor.withDiscordAsync(() -> forumManager.sendPlayerPunishmentMessageAsync(thread, punishment))
+                            .thenApply(message -> {
+                                if (message != null) {
+                                    punishment.setPlayerMessageId(message.getIdLong());
+                                    entry.getCompletedSteps().add(OutboxEntry.STEP_PLAYER);
+                                }
+                                return thread;
+                            });
+                });
+    }
+    
+    /**
+     * Ветка модератора: найти или создать ветку и отправить в нее сообщение
+     */
+    private CompletableFuture<ThreadChannel> sendToModeratorThread(PunishmentData punishment, OutboxEntry entry) {
+        ForumManager forumManager = forumManager();
+        
+        if (punishment.getModeratorUuid() == null || forumManager.getModeratorForum() == null) {
+            entry.getCompletedSteps().add(OutboxEntry.STEP_MODERATOR);
+        }
+        
+        if (entry.getCompletedSteps().contains(OutboxEntry.STEP_MODERATOR)) {
+            return CompletableFuture.completedFuture(punishment.getModeratorThreadId() != null
+                    ? forumManager.getModeratorThread(punishment.getModeratorThreadId()) : null);
+        }
+        
+        return getOrCreateModeratorThread(punishment)
+                .thenCompose(thread -> {
+                    if (thread == null) {
+                        return CompletableFuture.completedFuture(null);
                     }
                     
-                } finally {
-                    lock.unlock();
-                }
-            }
-            
-        } catch (Exception e) {
-            logger.log(Level.WARNING, "Ошибка при создании ветки для игрока: " + punishment.getPlayerName(), e);
+                    return processingExecutor.withDiscordAsync(() -> forumManager.sendModeratorPunishmentMessageAsync(thread, punishment))
+                            .thenApply(message -> {
+                                if (message != null) {
+                                    punishment.setModeratorMessageId(message.getIdLong());
+                                    entry.getCompletedSteps().add(OutboxEntry.STEP_MODERATOR);
+                                }
+                                return thread;
+                            });
+                });
+    }
+    
+    /**
+     * Ветка лог-канала
+     */
+    private CompletableFuture<Void> sendToLogChannel(PunishmentData punishment, OutboxEntry entry) {
+        ForumManager forumManager = forumManager();
+        
+        if (forumManager.getLogChannel() == null) {
+            entry.getCompletedSteps().add(OutboxEntry.STEP_LOG);
         }
         
-        return null;
+        if (entry.getCompletedSteps().contains(OutboxEntry.STEP_LOG)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        return processingExecutor.withDiscordAsync(() -> forumManager.sendLogMessageAsync(punishment))
+                .thenAccept(message -> {
+                    if (message != null) {
+                        punishment.setLogMessageId(message.getIdLong());
+                        entry.getCompletedSteps().add(OutboxEntry.STEP_LOG);
+                    }
+                });
     }
     
     /**
-     * Получить или создать ветку для модератора
+     * Запланировать обновление статистики игрока и модератора.
+     * Обновления одной ветки объединяются StatsUpdateDebouncer в одну правку.
      */
-    private ThreadChannel getOrCreateModeratorThread(PunishmentData punishment) {
-        if (punishment.getModeratorUuid() == null) {
-            return null; // Системное наказание
+    private void updateStats(PunishmentData punishment, ThreadChannel playerThread, ThreadChannel moderatorThread) {
+        if (playerThread != null) {
+            PlayerData owner = new PlayerData(punishment.getPlayerUuid(), punishment.getPlayerName());
+            statsDebouncer.schedule("player:" + playerThread.getIdLong(), () -> updatePlayerStats(owner, playerThread));
         }
         
-        try {
-            // Проверяем в кэше Redis
-            Long threadId = redisManager.getModeratorThreadId(punishment.getModeratorUuid().toString());
-            
-            if (threadId != null && threadId > 0) {
-                ThreadChannel thread = forumManager.getModeratorThread(threadId);
-                if (thread != null) {
-                    punishment.setModeratorThreadId(threadId);
-                    return thread;
-                }
-            }
-            
-            // Проверяем в базе данных
-            ModeratorData moderator = databaseManager.getModeratorByUuid(punishment.getModeratorUuid());
-            if (moderator != null && moderator.getDiscordThreadId() != null) {
-                ThreadChannel thread = forumManager.getModeratorThread(moderator.getDiscordThreadId());
-                if (thread != null) {
-                    punishment.setModeratorThreadId(moderator.getDiscordThreadId());
-                    redisManager.cacheModeratorThreadId(punishment.getModeratorUuid().toString(), moderator.getDiscordThreadId());
+        if (moderatorThread != null && punishment.getModeratorUuid() != null) {
+            ModeratorData owner = new ModeratorData(punishment.getModeratorUuid(), punishment.getModeratorName());
+            statsDebouncer.schedule("moderator:" + moderatorThread.getIdLong(), () -> updateModeratorStats(owner, moderatorThread));
+        }
+    }
+    
+    /**
+     * Все ли шаги доставки выполнены
+     */
+    private boolean isDelivered(OutboxEntry entry) {
+        return entry.getCompletedSteps().contains(OutboxEntry.STEP_PLAYER)
+                && entry.getCompletedSteps().contains(OutboxEntry.STEP_MODERATOR)
+                && entry.getCompletedSteps().contains(OutboxEntry.STEP_LOG);
+    }
+    
+    // ==================== РАБОТА С ВЕТКАМИ ====================
+    
+    /**
+     * Получить или создать ветку для игрока.
+     * Одновременные запросы для одного игрока получают общий результат, поэтому ветка создается один раз.
+     */
+    private CompletableFuture<ThreadChannel> getOrCreatePlayerThread(PunishmentData punishment) {
+        return playerThreadFlights.execute(punishment.getPlayerUuid(),
+                        () -> processingExecutor.stageAsync(() -> findOrCreatePlayerThread(punishment))
+                                .thenCompose(Function.identity()))
+                .thenApply(thread -> {
+                    if (thread != null) {
+                        punishment.setPlayerThreadId(thread.getIdLong());
+                    }
                     return thread;
-                }
+                })
+                .exceptionally(e -> {
+                    logger.log(Level.WARNING, "Ошибка при создании ветки для игрока: " + punishment.getPlayerName(), e);
+                    return null;
+                });
+    }
+    
+    /**
+     * Найти ветку игрока в кэше или базе данных, иначе начать ее создание
+     */
+    private CompletableFuture<ThreadChannel> findOrCreatePlayerThread(PunishmentData punishment) {
+        String playerUuid = punishment.getPlayerUuid().toString();
+        
+        // Проверяем в кэше
+        ThreadChannel cachedThread = getCachedPlayerThread(playerUuid);
+        if (cachedThread != null) {
+            return CompletableFuture.completedFuture(cachedThread);
+        }
+        
+        // Проверяем в базе данных
+        PlayerData player = processingExecutor.withDatabase(() -> databaseManager.getPlayerByUuid(punishment.getPlayerUuid()));
+        if (player != null && player.getDiscordThreadId() != null) {
+            ThreadChannel thread = forumManager().getPlayerThread(player.getDiscordThreadId());
+            if (thread != null) {
+                cacheProvider.cachePlayerThreadId(playerUuid, player.getDiscordThreadId());
+                cacheStarterMessageId(thread, player.getStarterMessageId());
+                return CompletableFuture.completedFuture(thread);
             }
-            
-            // Создаем новую ветку с блокировкой
-            RLock lock = redisManager.getThreadCreationLock(punishment.getModeratorUuid().toString());
-            if (lock != null && lock.tryLock(10, TimeUnit.SECONDS)) {
-                try {
-                    // Повторно проверяем после получения блокировки
-                    threadId = redisManager.getModeratorThreadId(punishment.getModeratorUuid().toString());
-                    if (threadId != null && threadId > 0) {
-                        ThreadChannel thread = forumManager.getModeratorThread(threadId);
-                        if (thread != null) {
-                            punishment.setModeratorThreadId(threadId);
-                            return thread;
-                        }
-                    }
-                    
-                    // Создаем новую ветку
-                    if (moderator == null) {
-                        moderator = createModeratorData(punishment);
-                    }
-                    
-                    ThreadChannel newThread = forumManager.createModeratorThread(moderator);
-                    if (newThread != null) {
-                        long newThreadId = newThread.getIdLong();
-                        moderator.setDiscordThreadId(newThreadId);
-                        punishment.setModeratorThreadId(newThreadId);
-                        
-                        databaseManager.saveOrUpdateModerator(moderator);
-                        redisManager.cacheModeratorThreadId(punishment.getModeratorUuid().toString(), newThreadId);
-                        
-                        return newThread;
+        }
+        
+        // Создаем новую ветку
+        PlayerData threadOwner = player != null ? player : createPlayerData(punishment);
+        return createWithClusterLock(playerUuid, () -> getCachedPlayerThread(playerUuid),
+                () -> processingExecutor.withDiscordAsync(() -> forumManager().createPlayerThread(threadOwner))
+                        .thenApply(newThread -> {
+                            if (newThread != null) {
+                                threadOwner.setDiscordThreadId(newThread.getIdLong());
+                                cacheProvider.cachePlayerThreadId(playerUuid, newThread.getIdLong());
+                            }
+                            return newThread;
+                        })
+                        .thenCompose(newThread -> newThread == null
+                                ? CompletableFuture.<ThreadChannel>completedFuture(null)
+                                : processingExecutor.stageAsync(() -> {
+                                    processingExecutor.withDatabase(() -> databaseManager.saveOrUpdatePlayer(threadOwner));
+                                    return newThread;
+                                })));
+    }
+    
+    /**
+     * Ветка игрока по ID из кэша
+     */
+    private ThreadChannel getCachedPlayerThread(String playerUuid) {
+        Long threadId = cacheProvider.getPlayerThreadId(playerUuid);
+        return threadId != null && threadId > 0 ? forumManager().getPlayerThread(threadId) : null;
+    }
+    
+    /**
+     * Получить или создать ветку для модератора.
+     * Одновременные запросы для одного модератора получают общий результат, поэтому ветка создается один раз.
+     */
+    private CompletableFuture<ThreadChannel> getOrCreateModeratorThread(PunishmentData punishment) {
+        if (punishment.getModeratorUuid() == null) {
+            return CompletableFuture.completedFuture(null); // Системное наказание
+        }
+        
+        return moderatorThreadFlights.execute(punishment.getModeratorUuid(),
+                        () -> processingExecutor.stageAsync(() -> findOrCreateModeratorThread(punishment))
+                                .thenCompose(Function.identity()))
+                .thenApply(thread -> {
+                    if (thread != null) {
+                        punishment.setModeratorThreadId(thread.getIdLong());
                     }
-                    
-                } finally {
-                    lock.unlock();
-                }
+                    return thread;
+                })
+                .exceptionally(e -> {
+                    logger.log(Level.WARNING, "Ошибка при создании ветки для модератора: " + punishment.getModeratorName(), e);
+                    return null;
+                });
+    }
+    
+    /**
+     * Найти ветку модератора в кэше или базе данных, иначе начать ее создание
+     */
+    private CompletableFuture<ThreadChannel> findOrCreateModeratorThread(PunishmentData punishment) {
+        String moderatorUuid = punishment.getModeratorUuid().toString();
+        
+        // Проверяем в кэше
+        ThreadChannel cachedThread = getCachedModeratorThread(moderatorUuid);
+        if (cachedThread != null) {
+            return CompletableFuture.completedFuture(cachedThread);
+        }
+        
+        // Проверяем в базе данных
+        ModeratorData moderator = processingExecutor.withDatabase(() -> databaseManager.getModeratorByUuid(punishment.getModeratorUuid()));
+        if (moderator != null && moderator.getDiscordThreadId() != null) {
+            ThreadChannel thread = forumManager().getModeratorThread(moderator.getDiscordThreadId());
+            if (thread != null) {
+                cacheProvider.cacheModeratorThreadId(moderatorUuid, moderator.getDiscordThreadId());
+                cacheStarterMessageId(thread, moderator.getStarterMessageId());
+                return CompletableFuture.completedFuture(thread);
             }
-            
-        } catch (Exception e) {
-            logger.log(Level.WARNING, "Ошибка при создании ветки для модератора: " + punishment.getModeratorName(), e);
         }
         
-        return null;
+        // Создаем новую ветку
+        ModeratorData threadOwner = moderator != null ? moderator : createModeratorData(punishment);
+        return createWithClusterLock(moderatorUuid, () -> getCachedModeratorThread(moderatorUuid),
+                () -> processingExecutor.withDiscordAsync(() -> forumManager().createModeratorThread(threadOwner))
+                        .thenApply(newThread -> {
+                            if (newThread != null) {
+                                threadOwner.setDiscordThreadId(newThread.getIdLong());
+                                cacheProvider.cacheModeratorThreadId(moderatorUuid, newThread.getIdLong());
+                            }
+                            return newThread;
+                        })
+                        .thenCompose(newThread -> newThread == null
+                                ? CompletableFuture.<ThreadChannel>completedFuture(null)
+                                : processingExecutor.stageAsync(() -> {
+                                    processingExecutor.withDatabase(() -> databaseManager.saveOrUpdateModerator(threadOwner));
+                                    return newThread;
+                                })));
     }
     
-    // ==================== ОБНОВЛЕНИЕ СООБЩЕНИЙ ====================
+    /**
+     * Ветка модератора по ID из кэша
+     */
+    private ThreadChannel getCachedModeratorThread(String moderatorUuid) {
+        Long threadId = cacheProvider.getModeratorThreadId(moderatorUuid);
+        return threadId != null && threadId > 0 ? forumManager().getModeratorThread(threadId) : null;
+    }
     
     /**
-     * Обновить сообщения о наказании во всех ветках
+     * Создать ветку. На одном сервере повторы исключает SingleFlight; с Redis ветку создает
+     * только владелец распределенной блокировки, а остальные серверы находят ее в общем кэше.
+     * Блокировка берется и снимается асинхронно, поэтому ни один поток пула не ждет создание ветки.
      */
-    private void updatePunishmentMessages(PunishmentData punishment) {
-        try {
-            // Обновить сообщение в ветке игрока
-            if (punishment.getPlayerThreadId() != null && punishment.getPlayerMessageId() != null) {
-                ThreadChannel playerThread = forumManager.getPlayerThread(punishment.getPlayerThreadId());
-                if (playerThread != null) {
-                    forumManager.updatePlayerPunishmentMessage(punishment.getPlayerMessageId(), 
-                            playerThread, punishment);
-                }
-            }
-            
-            // Обновить сообщение в ветке модератора
-            if (punishment.getModeratorThreadId() != null && punishment.getModeratorMessageId() != null) {
-                ThreadChannel moderatorThread = forumManager.getModeratorThread(punishment.getModeratorThreadId());
-                if (moderatorThread != null) {
-                    forumManager.updateModeratorPunishmentMessage(punishment.getModeratorMessageId(), 
-                            moderatorThread, punishment);
-                }
-            }
-            
-        } catch (Exception e) {
-            logger.warning("Ошибка при обновлении сообщений о наказании: " + e.getMessage());
+    private CompletableFuture<ThreadChannel> createWithClusterLock(String ownerUuid, Supplier<ThreadChannel> existingThread,
+                                                                   Supplier<CompletableFuture<ThreadChannel>> create) {
+        if (!cacheProvider.isDistributed()) {
+            return create.get();
         }
+        
+        return cacheProvider.withThreadCreationLockAsync(ownerUuid, THREAD_LOCK_WAIT_MILLIS, processingExecutor.stages(), () -> {
+                    // Повторно проверяем после получения блокировки
+                    ThreadChannel thread = existingThread.get();
+                    return thread != null ? CompletableFuture.completedFuture(thread) : create.get();
+                })
+                // Блокировку не дождались: ветку за это время мог создать ее владелец
+                .thenApply(thread -> thread != null ? thread : existingThread.get());
     }
     
     // ==================== ОБНОВЛЕНИЕ СТАТИСТИКИ ====================
     
     /**
-     * Обновить статистику игрока
+     * Обновить статистику игрока в Discord.
+     * Счетчики уже увеличены в транзакции записи наказания, а игрок сохраняется атомарным upsert,
+     * поэтому здесь они только читаются без распределенной блокировки. Имя берется из наказания,
+     * ID первого сообщения ветки - из кэша.
      */
-    private void updatePlayerStats(UUID playerUuid, String playerName, ThreadChannel playerThread) {
+    private void updatePlayerStats(PlayerData owner, ThreadChannel playerThread) {
         try {
-            RLock lock = redisManager.getStatsUpdateLock("player:" + playerUuid);
-            if (lock != null && lock.tryLock(5, TimeUnit.SECONDS)) {
-                try {
-                    PlayerData player = databaseManager.getPlayerByUuid(playerUuid);
-                    if (player == null) {
-                        player = new PlayerData();
-                        player.setPlayerUuid(playerUuid);
-                        player.setPlayerName(playerName);
-                    }
-                    
-                    // Подсчет статистики из базы данных
-                    int totalPunishments = databaseManager.getPlayerTotalPunishments(playerUuid);
-                    int activePunishments = databaseManager.getPlayerActivePunishmentsCount(playerUuid);
-                    
-                    player.setTotalPunishments(totalPunishments);
-                    player.setActivePunishments(activePunishments);
-                    player.setLastPunishmentAt(Instant.now());
-                    
-                    databaseManager.saveOrUpdatePlayer(player);
-                    
-                    // Обновить основное сообщение в ветке
-                    if (playerThread != null) {
-                        forumManager.updatePlayerThreadMainMessage(playerThread, player);
-                    }
-                    
-                } finally {
-                    lock.unlock();
-                }
-            }
+            // Снимок статистики читается здесь, в задачу Discord передаются готовые данные
+            PunishmentStatistics statistics = processingExecutor.withDatabase(() ->
+                    databaseManager.getPunishmentStatistics(owner.getPlayerUuid(), PunishmentStatistics.TARGET_PLAYER));
+            processingExecutor.withDiscord(() -> forumManager().updatePlayerThreadMainMessage(playerThread, owner, statistics));
             
         } catch (Exception e) {
             logger.warning("Ошибка при обновлении статистики игрока: " + e.getMessage());
@@ -405,39 +544,17 @@ public class PunishmentService {
     }
     
     /**
-     * Обновить статистику модератора
+     * Обновить статистику модератора в Discord.
+     * Счетчики уже увеличены в транзакции записи наказания, а модератор сохраняется атомарным upsert,
+     * поэтому здесь они только читаются без распределенной блокировки. Имя берется из наказания,
+     * ID первого сообщения ветки - из кэша.
      */
-    private void updateModeratorStats(UUID moderatorUuid, String moderatorName, ThreadChannel moderatorThread) {
+    private void updateModeratorStats(ModeratorData owner, ThreadChannel moderatorThread) {
         try {
-            RLock lock = redisManager.getStatsUpdateLock("moderator:" + moderatorUuid);
-            if (lock != null && lock.tryLock(5, TimeUnit.SECONDS)) {
-                try {
-                    ModeratorData moderator = databaseManager.getModeratorByUuid(moderatorUuid);
-                    if (moderator == null) {
-                        moderator = new ModeratorData();
-                        moderator.setModeratorUuid(moderatorUuid);
-                        moderator.setModeratorName(moderatorName);
-                    }
-                    
-                    // Подсчет статистики из базы данных
-                    int totalIssued = databaseManager.getModeratorTotalIssued(moderatorUuid);
-                    int activeIssued = databaseManager.getModeratorActiveIssued(moderatorUuid);
-                    
-                    moderator.setTotalIssued(totalIssued);
-                    moderator.setActiveIssued(activeIssued);
-                    moderator.setLastActionAt(Instant.now());
-                    
-                    databaseManager.saveOrUpdateModerator(moderator);
-                    
-                    // Обновить основное сообщение в ветке
-                    if (moderatorThread != null) {
-                        forumManager.updateModeratorThreadMainMessage(moderatorThread, moderator);
-                    }
-                    
-                } finally {
-                    lock.unlock();
-                }
-            }
+            // Снимок статистики читается здесь, в задачу Discord передаются готовые данные
+            PunishmentStatistics statistics = processingExecutor.withDatabase(() ->
+                    databaseManager.getPunishmentStatistics(owner.getModeratorUuid(), PunishmentStatistics.TARGET_MODERATOR));
+            processingExecutor.withDiscord(() -> forumManager().updateModeratorThreadMainMessage(moderatorThread, owner, statistics));
             
         } catch (Exception e) {
             logger.warning("Ошибка при обновлении статистики модератора: " + e.getMessage());
@@ -446,6 +563,35 @@ public class PunishmentService {
     
     // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
     
+    /**
+     * Запомнить ID первого сообщения ветки, прочитанный из базы вместе с веткой:
+     * обновление статистики берет его из кэша, не читая владельца ветки повторно
+     */
+    private void cacheStarterMessageId(ThreadChannel thread, Long starterMessageId) {
+        if (starterMessageId != null && cacheProvider.getStarterMessageId(thread.getIdLong()) == null) {
+            cacheProvider.setStarterMessageId(thread.getIdLong(), starterMessageId);
+        }
+    }
+    
+    /**
+     * Текущий ForumManager (создается после подключения Discord)
+     */
+    private ForumManager forumManager() {
+        return plugin.getForumManager();
+    }
+    
+    /**
+     * Создать запись исходящей очереди с каналом назначения по умолчанию
+     */
+    private OutboxEntry createOutboxEntry(OutboxEntry entry) {
+        entry.setTargetChannelId(plugin.getConfigManager().getLogChannelId());
+        return entry;
+    }
+    
+    private int getMaxDeliveryAttempts() {
+        return Math.max(1, plugin.getConfigManager().getPluginSettings().outboxMaxAttempts);
+    }
+    
     /**
      * Создать данные игрока из наказания
      */
@@ -483,11 +629,11 @@ public class PunishmentService {
             stats.append("📊 Статистика PunishmentService:\n");
             stats.append("🔄 Состояние: активен\n");
             
-            // Добавить статистику из базы данных и Redis
-            if (redisManager.isEnabled()) {
-                stats.append("📦 Redis: подключен\n");
+            // Добавить статистику из базы данных и кэша
+            if (cacheProvider.isDistributed()) {
+                stats.append("📦 Кэш: Redis\n");
             } else {
-                stats.append("📦 Redis: отключен\n");
+                stats.append("📦 Кэш: локальный (Redis отключен)\n");
             }
             
             if (databaseManager.isAvailable()) {
@@ -502,10 +648,45 @@ public class PunishmentService {
                 stats.append("💬 Discord: отключен\n");
             }
             
+            stats.append(processingExecutor.getStats()).append("\n");
+            stats.append(outboxDispatcher.getStats()).append("\n");
+            stats.append(statsDebouncer.getStats()).append("\n");
+            stats.append(discordManager.getDispatcher().getStats()).append("\n");
+            stats.append(String.format("🧵 Создание веток: запусков %d, объединено запросов %d, в работе %d\n",
+                    playerThreadFlights.getStartedOperations() + moderatorThreadFlights.getStartedOperations(),
+                    playerThreadFlights.getJoinedCalls() + moderatorThreadFlights.getJoinedCalls(),
+                    playerThreadFlights.getInFlight() + moderatorThreadFlights.getInFlight()));
+            stats.append(databaseManager.getBatchWriter().getStats()).append("\n");
+            
             return stats.toString();
             
         } catch (Exception e) {
             return "Ошибка при получении статистики: " + e.getMessage();
         }
     }
+    
+    /**
+     * Получить пул обработки наказаний
+     */
+    public ProcessingExecutor getProcessingExecutor() {
+        return processingExecutor;
+    }
+    
+    /**
+     * Получить диспетчер исходящей очереди Discord
+     */
+    public OutboxDispatcher getOutboxDispatcher() {
+        return outboxDispatcher;
+    }
+    
+    /**
+     * Остановка сервиса с ожиданием завершения поставленных задач
+     */
+    public void shutdown() {
+        logger.info("Остановка пула обработки наказаний...");
+        outboxDispatcher.shutdown();
+        statsDebouncer.shutdown();
+        processingExecutor.shutdown(plugin.getConfigManager().getPluginSettings().processingShutdownTimeout);
+        logger.info("Пул обработки наказаний остановлен");
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,139 @@
+package org.bedepay.loggerpunishment.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Объединение обновлений статистики в ветках форума.
+ * Запросы по одному ключу (ветке) откладываются до паузы длиной в окно тишины
+ * и выполняются одной правкой с последними данными. Чтобы при непрерывном потоке
+ * наказаний статистика не замирала, правка выполняется не позже MAX_DELAY_WINDOWS окон
+ * после первого отложенного запроса.
+ */
+public class StatsUpdateDebouncer {
+
+    private static final int MAX_DELAY_WINDOWS = 4;
+
+    private final Logger logger;
+    private final Executor executor;
+    private final long quietWindowMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, PendingRefresh> pending = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    // Метрики
+    private final AtomicLong requestedRefreshes = new AtomicLong();
+    private final AtomicLong performedRefreshes = new AtomicLong();
+
+    public StatsUpdateDebouncer(Logger logger, Executor executor, long quietWindowMillis) {
+        this.logger = logger;
+        this.executor = executor;
+        this.quietWindowMillis = Math.max(0, quietWindowMillis);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LoggerPunishment-StatsDebouncer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запросить обновление по ключу. Более ранний отложенный запрос с тем же ключом заменяется.
+     */
+    public void schedule(String key, Runnable refresh) {
+        requestedRefreshes.incrementAndGet();
+
+        if (quietWindowMillis == 0 || !running) {
+            perform(refresh);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        try {
+            pending.compute(key, (k, current) -> {
+                if (current == null) {
+                    current = new PendingRefresh(now);
+                } else {
+                    current.future.cancel(false);
+                }
+
+                long deadline = Math.min(now + quietWindowMillis,
+                        current.firstRequestedAt + quietWindowMillis * MAX_DELAY_WINDOWS);
+                PendingRefresh scheduled = current;
+                scheduled.refresh = refresh;
+                scheduled.future = scheduler.schedule(() -> flush(k, scheduled),
+                        Math.max(0, deadline - now), TimeUnit.MILLISECONDS);
+                return scheduled;
+            });
+        } catch (RejectedExecutionException e) {
+            // Планировщик остановлен
+            perform(refresh);
+        }
+    }
+
+    /**
+     * Выполнить отложенное обновление, если его не заменил более поздний запрос
+     */
+    private void flush(String key, PendingRefresh refresh) {
+        if (pending.remove(key, refresh)) {
+            perform(refresh.refresh);
+        }
+    }
+
+    private void perform(Runnable refresh) {
+        performedRefreshes.incrementAndGet();
+        try {
+            executor.execute(refresh);
+        } catch (RejectedExecutionException e) {
+            logger.warning("Обновление статистики ветки отклонено: пул обработки остановлен");
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Ошибка при обновлении статистики ветки: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Получить статистику объединения
+     */
+    public String getStats() {
+        long requested = requestedRefreshes.get();
+        long performed = performedRefreshes.get();
+        return String.format("🧮 Статистика веток: запросов %d, правок %d, сэкономлено %d, ожидают %d (окно %d мс)",
+                requested, performed, Math.max(0, requested - performed - pending.size()), pending.size(), quietWindowMillis);
+    }
+
+    /**
+     * Остановка: отложенные обновления выполняются сразу, пока пул обработки еще работает
+     */
+    public void shutdown() {
+        running = false;
+        scheduler.shutdownNow();
+
+        for (String key : pending.keySet()) {
+            PendingRefresh refresh = pending.remove(key);
+            if (refresh != null) {
+                perform(refresh.refresh);
+            }
+        }
+    }
+
+    /**
+     * Отложенное обновление по одному ключу
+     */
+    private static final class PendingRefresh {
+        private final long firstRequestedAt;
+        private volatile Runnable refresh;
+        private volatile ScheduledFuture<?> future;
+
+        private PendingRefresh(long firstRequestedAt) {
+            this.firstRequestedAt = firstRequestedAt;
+        }
+    }
+}
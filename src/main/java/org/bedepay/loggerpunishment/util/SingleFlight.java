@@ -0,0 +1,68 @@
+package org.bedepay.loggerpunishment.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных асинхронных операций с одинаковым ключом.
+ * Пока операция выполняется, все вызовы с тем же ключом получают ее результат,
+ * после завершения ключ освобождается и следующий вызов запускает операцию заново.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    // Метрики
+    private final AtomicLong startedOperations = new AtomicLong();
+    private final AtomicLong joinedCalls = new AtomicLong();
+
+    /**
+     * Выполнить операцию или присоединиться к уже выполняющейся с тем же ключом
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> operation) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+
+        if (existing != null) {
+            joinedCalls.incrementAndGet();
+            return existing.copy();
+        }
+
+        startedOperations.incrementAndGet();
+
+        CompletableFuture<V> result;
+        try {
+            result = operation.get();
+        } catch (Throwable e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+
+        result.whenComplete((value, error) -> {
+            // Ключ освобождается до завершения, чтобы ожидающие не получили устаревший результат повторно
+            inFlight.remove(key, promise);
+            if (error != null) {
+                promise.completeExceptionally(error);
+            } else {
+                promise.complete(value);
+            }
+        });
+
+        // Копия не позволяет вызывающему отменить общий результат
+        return promise.copy();
+    }
+
+    public long getStartedOperations() {
+        return startedOperations.get();
+    }
+
+    public long getJoinedCalls() {
+        return joinedCalls.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,197 @@
+-- Миграция 1 (MySQL): базовая схема LoggerPunishment
+-- Индексы объявляются внутри CREATE TABLE, updated_at обновляется через ON UPDATE вместо триггеров.
+-- Частичных индексов в MySQL нет, поэтому поиск истекших наказаний идет по (active, expires_at).
+
+-- Таблица конфигурации Discord каналов
+CREATE TABLE IF NOT EXISTS discord_config (
+    id INT PRIMARY KEY,
+    players_forum_id BIGINT NOT NULL,
+    moderators_forum_id BIGINT NOT NULL,
+    log_channel_id BIGINT NOT NULL,
+    no_link_channel_id BIGINT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Таблица модераторов
+CREATE TABLE IF NOT EXISTS moderators (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    moderator_uuid VARCHAR(36) NOT NULL UNIQUE,
+    moderator_name VARCHAR(16) NOT NULL,
+    discord_id BIGINT NULL,
+    discord_thread_id BIGINT NULL,
+    discord_starter_message_id BIGINT NULL,
+    total_issued INT DEFAULT 0,
+    active_issued INT DEFAULT 0,
+    last_action_at TIMESTAMP NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    INDEX idx_moderators_discord (discord_id),
+    INDEX idx_moderators_thread (discord_thread_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Таблица игроков
+CREATE TABLE IF NOT EXISTS players (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    player_uuid VARCHAR(36) NOT NULL UNIQUE,
+    player_name VARCHAR(16) NOT NULL,
+    discord_thread_id BIGINT NULL,
+    discord_starter_message_id BIGINT NULL,
+    total_punishments INT DEFAULT 0,
+    active_punishments INT DEFAULT 0,
+    last_punishment_at TIMESTAMP NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    INDEX idx_players_name (player_name),
+    INDEX idx_players_thread (discord_thread_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Основная таблица наказаний
+CREATE TABLE IF NOT EXISTS punishment_logs (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+
+    -- Основная информация
+    type VARCHAR(10) NOT NULL, -- BAN, MUTE, KICK, JAIL
+    player_uuid VARCHAR(36) NOT NULL,
+    player_name VARCHAR(16) NOT NULL,
+    moderator_uuid VARCHAR(36) NULL,
+    moderator_name VARCHAR(32) NOT NULL,
+    punishment_id VARCHAR(50) NULL, -- ID из LiteBans/CMI
+
+    -- Детали наказания
+    reason TEXT NOT NULL,
+    duration BIGINT NULL, -- В секундах, NULL = permanent
+    expires_at TIMESTAMP NULL,
+    jail_name VARCHAR(32) NULL, -- Для jail наказаний
+
+    -- Discord сообщения
+    player_thread_id BIGINT NULL,
+    moderator_thread_id BIGINT NULL,
+    player_message_id BIGINT NULL,
+    moderator_message_id BIGINT NULL,
+    log_message_id BIGINT NULL,
+
+    -- Статус наказания
+    active BOOLEAN DEFAULT TRUE,
+
+    -- Информация о снятии наказания
+    unbanned_at TIMESTAMP NULL,
+    unban_reason TEXT NULL,
+    unban_moderator_uuid VARCHAR(36) NULL,
+    unban_moderator_name VARCHAR(32) NULL,
+    unban_type VARCHAR(10) NULL, -- MANUAL, EXPIRED, APPEAL
+
+    -- Системные поля
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    -- Составные индексы по форме запросов (см. миграцию SQLite)
+    INDEX idx_punishments_player_active (player_uuid, active, created_at, type),
+    INDEX idx_punishments_moderator_active (moderator_uuid, active, created_at, type),
+    INDEX idx_punishments_id_active (punishment_id, active),
+    INDEX idx_punishments_expiring (active, expires_at),
+    INDEX idx_created_at (created_at),
+
+    CONSTRAINT fk_player FOREIGN KEY (player_uuid) REFERENCES players (player_uuid),
+    CONSTRAINT fk_moderator FOREIGN KEY (moderator_uuid) REFERENCES moderators (moderator_uuid)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Таблица статистики (денормализованная таблица для быстрых запросов)
+CREATE TABLE IF NOT EXISTS punishment_statistics (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    target_uuid VARCHAR(36) NOT NULL,
+    target_type VARCHAR(10) NOT NULL CHECK (target_type IN ('PLAYER', 'MODERATOR')),
+
+    -- Счетчики по типам наказаний
+    total_punishments INT DEFAULT 0,
+    total_bans INT DEFAULT 0,
+    total_mutes INT DEFAULT 0,
+    total_kicks INT DEFAULT 0,
+    total_jails INT DEFAULT 0,
+
+    -- Счетчики активных наказаний
+    active_punishments INT DEFAULT 0,
+    active_bans INT DEFAULT 0,
+    active_mutes INT DEFAULT 0,
+    active_jails INT DEFAULT 0,
+
+    -- Временные метки
+    first_punishment_at TIMESTAMP NULL,
+    last_punishment_at TIMESTAMP NULL,
+    last_updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    UNIQUE (target_uuid, target_type),
+    INDEX idx_statistics_updated (last_updated_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Таблица очереди Discord действий (для офлайн режима)
+CREATE TABLE IF NOT EXISTS discord_queue (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    action_type VARCHAR(20) NOT NULL CHECK (action_type IN ('SEND_MESSAGE', 'EDIT_MESSAGE', 'DELETE_MESSAGE', 'CREATE_THREAD', 'UPDATE_STATS')),
+    target_channel_id BIGINT NOT NULL,
+    target_message_id BIGINT NULL,
+    target_thread_id BIGINT NULL,
+
+    -- Данные действия (JSON)
+    action_data TEXT NOT NULL,
+
+    -- Метаданные
+    priority INT DEFAULT 0,
+    max_attempts INT DEFAULT 3,
+    current_attempts INT DEFAULT 0,
+    last_attempt_at TIMESTAMP NULL,
+    next_attempt_at TIMESTAMP NULL,
+
+    -- Статус
+    status VARCHAR(10) DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'PROCESSING', 'COMPLETED', 'FAILED')),
+    error_message TEXT NULL,
+
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    -- Выборка готовых записей по приоритету и очистка выполненных
+    INDEX idx_queue_claim (status, priority DESC, id),
+    INDEX idx_queue_cleanup (status, created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Таблица логов плагина
+CREATE TABLE IF NOT EXISTS plugin_logs (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    level VARCHAR(10) NOT NULL CHECK (level IN ('DEBUG', 'INFO', 'WARN', 'ERROR')),
+    category VARCHAR(20) NOT NULL,
+    message TEXT NOT NULL,
+    details TEXT NULL,
+
+    -- Контекст
+    player_uuid VARCHAR(36) NULL,
+    moderator_uuid VARCHAR(36) NULL,
+    punishment_id VARCHAR(100) NULL,
+    discord_message_id BIGINT NULL,
+
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+
+    INDEX idx_logs_level (level),
+    INDEX idx_logs_category (category),
+    INDEX idx_logs_created (created_at),
+    INDEX idx_logs_player (player_uuid)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Таблица настроек плагина (runtime конфигурация, версия схемы)
+CREATE TABLE IF NOT EXISTS plugin_settings (
+    `key` VARCHAR(50) PRIMARY KEY,
+    value TEXT NOT NULL,
+    description TEXT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Вставка начальных данных
+INSERT IGNORE INTO discord_config (id, players_forum_id, moderators_forum_id, log_channel_id)
+VALUES (1, 0, 0, 0);
+
+-- Вставка настроек по умолчанию
+INSERT IGNORE INTO plugin_settings (`key`, value, description) VALUES
+('last_cleanup_time', '0', 'Время последней очистки старых записей'),
+('stats_last_update', '0', 'Время последнего обновления статистики'),
+('discord_last_reconnect', '0', 'Время последней попытки переподключения к Discord'),
+('plugin_version', '1.0', 'Версия плагина для миграций');
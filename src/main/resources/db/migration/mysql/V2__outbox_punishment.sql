@@ -0,0 +1,13 @@
+-- Миграция 2 (MySQL): ссылка записи очереди Discord на наказание
+-- Снятие наказания не захватывается, пока запись о самом наказании ожидает доставки:
+-- иначе правка сообщений выполнилась бы раньше, чем сохранены их ID.
+-- Колонка и индекс добавляются одной командой ALTER, чтобы DDL не остался примененным наполовину.
+
+ALTER TABLE discord_queue
+    ADD COLUMN punishment_record_id BIGINT NULL,
+    ADD INDEX idx_queue_punishment (punishment_record_id, status);
+
+-- Незавершенные записи получают ссылку из action_data
+UPDATE discord_queue
+SET punishment_record_id = CAST(JSON_UNQUOTE(JSON_EXTRACT(action_data, '$.punishment')) AS SIGNED)
+WHERE status IN ('PENDING', 'PROCESSING');
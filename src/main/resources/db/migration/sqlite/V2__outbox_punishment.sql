@@ -0,0 +1,12 @@
+-- Миграция 2 (SQLite): ссылка записи очереди Discord на наказание
+-- Снятие наказания не захватывается, пока запись о самом наказании ожидает доставки:
+-- иначе правка сообщений выполнилась бы раньше, чем сохранены их ID.
+
+ALTER TABLE discord_queue ADD COLUMN punishment_record_id BIGINT;
+
+-- Незавершенные записи получают ссылку из action_data
+UPDATE discord_queue
+SET punishment_record_id = CAST(json_extract(action_data, '$.punishment') AS INTEGER)
+WHERE status IN ('PENDING', 'PROCESSING');
+
+CREATE INDEX IF NOT EXISTS idx_queue_punishment ON discord_queue (punishment_record_id, status);
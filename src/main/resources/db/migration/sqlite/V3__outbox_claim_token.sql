@@ -0,0 +1,5 @@
+-- Миграция 3 (SQLite): метка захвата записи очереди Discord
+-- Завершение и повтор записи применяются только с меткой, выданной при захвате:
+-- запоздавшая доставка после возврата записи в очередь не перезапишет результат новой попытки.
+
+ALTER TABLE discord_queue ADD COLUMN claim_token VARCHAR(36);